@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.alts.internal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks for {@link AltsTsiFrameProtector}, protecting and unprotecting messages of different
+ * sizes with the ALTS record protocol.
+ */
+@State(Scope.Thread)
+public class AltsTsiFrameProtectorBenchmark {
+
+  @Param({"1024", "16384", "65536", "1048576"})
+  public int messageSize;
+
+  private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+  private final List<ByteBuf> protectedBufs = new ArrayList<>();
+  private final List<Object> unprotectedBufs = new ArrayList<>();
+  private final TsiFrameProtector.Consumer<ByteBuf> addProtected =
+      new TsiFrameProtector.Consumer<ByteBuf>() {
+        @Override
+        public void accept(ByteBuf buf) {
+          protectedBufs.add(buf);
+        }
+      };
+  private AltsTsiFrameProtector client;
+  private AltsTsiFrameProtector server;
+  private ByteBuf message;
+
+  /** Creates a pair of protectors with the largest frame size ALTS negotiates. */
+  @Setup
+  public void setUp() {
+    byte[] key = new byte[AltsChannelCrypter.getKeyLength()];
+    int frameSize = AltsTsiFrameProtector.getMaxFrameSize();
+    client = new AltsTsiFrameProtector(frameSize, new AltsChannelCrypter(key, true), alloc);
+    server = new AltsTsiFrameProtector(frameSize, new AltsChannelCrypter(key, false), alloc);
+    message = alloc.directBuffer(messageSize);
+    message.writeZero(messageSize);
+  }
+
+  @TearDown
+  public void tearDown() {
+    message.release();
+    client.destroy();
+    server.destroy();
+  }
+
+  /** Protects a message, the work done for each flush of the sender. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int protect() throws GeneralSecurityException {
+    client.protectFlush(
+        Collections.singletonList(message.retainedDuplicate()), addProtected, alloc);
+    return releaseAll(protectedBufs);
+  }
+
+  /** Protects a message and unprotects it, the work done by both the sender and the receiver. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int protectUnprotect() throws GeneralSecurityException {
+    client.protectFlush(
+        Collections.singletonList(message.retainedDuplicate()), addProtected, alloc);
+    for (ByteBuf buf : protectedBufs) {
+      server.unprotect(buf, unprotectedBufs, alloc);
+      buf.release();
+    }
+    protectedBufs.clear();
+    return releaseAll(unprotectedBufs);
+  }
+
+  private static int releaseAll(List<?> bufs) {
+    int bytes = 0;
+    for (Object buf : bufs) {
+      bytes += ((ByteBuf) buf).readableBytes();
+      ((ByteBuf) buf).release();
+    }
+    bufs.clear();
+    return bytes;
+  }
+}
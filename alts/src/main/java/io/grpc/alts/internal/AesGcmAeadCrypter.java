@@ -42,12 +42,13 @@ final class AesGcmAeadCrypter implements AeadCrypter {
   // Conscrypt if available, otherwise null. Conscrypt is much faster than Java 8's JSSE
   private static final Provider CONSCRYPT = getConscrypt();
 
-  private final byte[] key;
+  private final SecretKeySpec key;
   private final Cipher cipher;
 
   AesGcmAeadCrypter(byte[] key) throws GeneralSecurityException {
     checkArgument(key.length == KEY_LENGTH);
-    this.key = key;
+    // The cipher is re-initialized with a new nonce for every frame, but always with this key
+    this.key = new SecretKeySpec(key, AES);
     if (CONSCRYPT != null) {
       cipher = Cipher.getInstance(AES_GCM, CONSCRYPT);
     } else {
@@ -59,10 +60,7 @@ final class AesGcmAeadCrypter implements AeadCrypter {
       ByteBuffer ciphertext, ByteBuffer plaintext, @Nullable ByteBuffer aad, byte[] nonce)
       throws GeneralSecurityException {
     checkArgument(nonce.length == NONCE_LENGTH);
-    cipher.init(
-        Cipher.ENCRYPT_MODE,
-        new SecretKeySpec(this.key, AES),
-        new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
     if (aad != null) {
       cipher.updateAAD(aad);
     }
@@ -73,10 +71,7 @@ final class AesGcmAeadCrypter implements AeadCrypter {
       ByteBuffer plaintext, ByteBuffer ciphertext, @Nullable ByteBuffer aad, byte[] nonce)
       throws GeneralSecurityException {
     checkArgument(nonce.length == NONCE_LENGTH);
-    cipher.init(
-        Cipher.DECRYPT_MODE,
-        new SecretKeySpec(this.key, AES),
-        new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
     if (aad != null) {
       cipher.updateAAD(aad);
     }
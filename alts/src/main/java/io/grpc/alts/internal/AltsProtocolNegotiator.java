@@ -54,8 +54,10 @@ public final class AltsProtocolNegotiator {
   private static final Logger logger = Logger.getLogger(AltsProtocolNegotiator.class.getName());
   // Avoid performing too many handshakes in parallel, as it may cause queuing in the handshake
   // server and cause unbounded blocking on the event loop (b/168808426). This is a workaround until
-  // there is an async TSI handshaking API to avoid the blocking.
-  private static final AsyncSemaphore handshakeSemaphore = new AsyncSemaphore(32);
+  // there is an async TSI handshaking API to avoid the blocking. The limit adapts to the latency of
+  // the handshake server: it grows while handshakes wait for permits and the server keeps up, and
+  // drops back when the server starts queuing, though never below the former fixed limit of 32.
+  private static final AsyncSemaphore handshakeSemaphore = new AsyncSemaphore(32, 32, 128);
 
   @Grpc.TransportAttr
   public static final Attributes.Key<TsiPeer> TSI_PEER_KEY = Attributes.Key.create("TSI_PEER");
@@ -103,6 +103,8 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
   static final class Protector {
     private final int maxUnprotectedBytesPerFrame;
     private final int suffixBytes;
+    /** The plaintext of the frame being protected, reused between frames. */
+    private final List<ByteBuf> framePlain = new ArrayList<>();
     private ChannelCrypterNetty crypter;
 
     Protector(int maxProtectedFrameBytes, ChannelCrypterNetty crypter) {
@@ -163,7 +165,7 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
 
           // Ownership of the backing buffer remains with protectedBuf.
           ByteBuf frameOut = writeSlice(protectedBuf, unprotectedBytesLeft + suffixBytes);
-          List<ByteBuf> framePlain = new ArrayList<>();
+          framePlain.clear();
           while (unprotectedBytesLeft > 0) {
             // Ownership of the buffer backing in remains with unprotectedBufs.
             ByteBuf in = unprotectedBufs.get(bufferIdx);
@@ -181,6 +183,7 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
           crypter.encrypt(frameOut, framePlain);
           verify(!frameOut.isWritable());
         }
+        framePlain.clear();
         protectedBuf.readerIndex(0);
         protectedBuf.writerIndex(protectedBuf.capacity());
         return protectedBuf.retain();
@@ -201,6 +204,9 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
     private int unhandledIdx = 0;
     private long unhandledBytes = 0;
     private List<ByteBuf> unhandledBufs = new ArrayList<>(16);
+    // Reused between payloads, and cleared once a payload is handled
+    private final List<ByteBuf> firstFrameCiphertext = new ArrayList<>();
+    private final List<ByteBuf> ciphertextsAndTags = new ArrayList<>();
 
     Unprotector(ChannelCrypterNetty crypter, ByteBufAllocator alloc) {
       this.crypter = crypter;
@@ -279,7 +285,6 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
       int firstFrameUnprotectedLen = requiredCiphertextBytes;
 
       // We get the ciphertexts of the first frame and copy over the tag into a single buffer.
-      List<ByteBuf> firstFrameCiphertext = new ArrayList<>();
       while (requiredCiphertextBytes > 0) {
         ByteBuf buf = unhandledBufs.get(unhandledIdx);
         if (buf.readableBytes() <= requiredCiphertextBytes) {
@@ -311,9 +316,8 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
       verify(unhandledIdx == unhandledBufs.size() - 1);
       ByteBuf lastBuf = unhandledBufs.get(unhandledIdx);
 
-      // We get the remaining ciphertexts and tags contained in the last buffer.
-      List<ByteBuf> ciphertextsAndTags = new ArrayList<>();
-      List<Integer> unprotectedLens = new ArrayList<>();
+      // We get the remaining ciphertexts and tags contained in the last buffer. They are decrypted
+      // straight from the last buffer, without copying them.
       long requiredUnprotectedBytesCompleteFrames = firstFrameUnprotectedLen;
       while (lastBuf.readableBytes() >= HEADER_BYTES + suffixBytes) {
         // Read frame size.
@@ -330,7 +334,6 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
         ciphertextsAndTags.add(lastBuf.readSlice(payloadSize + suffixBytes));
         // Update sizes for frame.
         requiredUnprotectedBytesCompleteFrames += payloadSize;
-        unprotectedLens.add(payloadSize);
       }
 
       // We leave space for suffixBytes to allow for in-place encryption. This allows for calling
@@ -346,8 +349,9 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
         unprotectedBuf.writerIndex(unprotectedBuf.writerIndex() - suffixBytes);
 
         for (int frameIdx = 0; frameIdx < ciphertextsAndTags.size(); ++frameIdx) {
-          out = writeSlice(unprotectedBuf, unprotectedLens.get(frameIdx) + suffixBytes);
-          crypter.decrypt(out, ciphertextsAndTags.get(frameIdx));
+          ByteBuf ciphertextAndTag = ciphertextsAndTags.get(frameIdx);
+          out = writeSlice(unprotectedBuf, ciphertextAndTag.readableBytes());
+          crypter.decrypt(out, ciphertextAndTag);
           verify(out.writableBytes() == suffixBytes);
           unprotectedBuf.writerIndex(unprotectedBuf.writerIndex() - suffixBytes);
         }
@@ -358,6 +362,8 @@ public final class AltsTsiFrameProtector implements TsiFrameProtector {
     }
 
     private void clearState() {
+      firstFrameCiphertext.clear();
+      ciphertextsAndTags.clear();
       int bufsSize = unhandledBufs.size();
       ByteBuf lastBuf = unhandledBufs.get(bufsSize - 1);
       boolean keepLast = lastBuf.isReadable();
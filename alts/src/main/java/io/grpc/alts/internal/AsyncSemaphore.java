@@ -16,23 +16,65 @@
 
 package io.grpc.alts.internal;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import javax.annotation.concurrent.GuardedBy;
 
-/** Provides a semaphore primitive, without blocking waiting on permits. */
+/**
+ * Provides a semaphore primitive, without blocking waiting on permits. The number of permits can
+ * adapt to how long they are held, see {@link #AsyncSemaphore(int, int, int)}.
+ */
 final class AsyncSemaphore {
+  /**
+   * The weight of each hold time in the baseline, an exponentially weighted moving average of the
+   * hold times that show no queuing.
+   */
+  private static final double BASELINE_WEIGHT = 0.05;
+
   private final Object lock = new Object();
   @SuppressWarnings("JdkObsolete") // LinkedList avoids high watermark memory issues
   private final Queue<ChannelPromise> queue = new LinkedList<>();
+  private final int minLimit;
+  private final int maxLimit;
+  /** The available permits. It is negative when the limit was lowered below the held permits. */
   @GuardedBy("lock")
   private int permits;
+  @GuardedBy("lock")
+  private int limit;
+  /** The smoothed hold time without queuing, or -1 before the first one is known. */
+  @GuardedBy("lock")
+  private double baselineNanos = -1;
 
   public AsyncSemaphore(int permits) {
-    this.permits = permits;
+    this(permits, permits, permits);
+  }
+
+  /**
+   * Creates a semaphore whose number of permits adapts to how long they are held. When a permit is
+   * held more than twice as long as the baseline, the guarded work is queuing and the limit is cut
+   * by a tenth, down to {@code minPermits}. Otherwise, the limit grows by one per release up to
+   * {@code maxPermits}, but only while acquirers are waiting for permits.
+   *
+   * <p>The baseline is the smoothed hold time of the permits held without queuing, so it does not
+   * follow the latency of a lasting overload, and the limit stays reduced during it.
+   */
+  AsyncSemaphore(int initialPermits, int minPermits, int maxPermits) {
+    checkArgument(minPermits > 0, "minPermits must be positive");
+    checkArgument(
+        minPermits <= initialPermits && initialPermits <= maxPermits,
+        "initialPermits must be between minPermits and maxPermits");
+    this.permits = initialPermits;
+    this.limit = initialPermits;
+    this.minLimit = minPermits;
+    this.maxLimit = maxPermits;
   }
 
   public ChannelFuture acquire(ChannelHandlerContext ctx) {
@@ -47,15 +89,54 @@ final class AsyncSemaphore {
     }
   }
 
+  /** Releases a permit without adapting the limit. */
   public void release() {
-    ChannelPromise next;
+    release(-1);
+  }
+
+  /** Releases a permit that was held for {@code heldNanos}, or -1 if unknown. */
+  public void release(long heldNanos) {
+    List<ChannelPromise> next = new ArrayList<>(1);
     synchronized (lock) {
-      next = queue.poll();
-      if (next == null) {
-        permits++;
-        return;
+      if (heldNanos >= 0 && minLimit < maxLimit) {
+        adaptLimit(heldNanos);
+      }
+      permits++;
+      while (permits > 0 && !queue.isEmpty()) {
+        permits--;
+        next.add(queue.poll());
       }
     }
-    next.setSuccess();
+    for (ChannelPromise promise : next) {
+      promise.setSuccess();
+    }
+  }
+
+  @GuardedBy("lock")
+  private void adaptLimit(long heldNanos) {
+    if (baselineNanos < 0) {
+      baselineNanos = heldNanos;
+    }
+    int newLimit = limit;
+    if (heldNanos > 2 * baselineNanos) {
+      newLimit = Math.max(minLimit, limit - Math.max(1, limit / 10));
+    } else {
+      // Unlike the fastest hold time, the baseline is not skewed by a few outliers, and follows a
+      // gradual change of the latency
+      baselineNanos += (heldNanos - baselineNanos) * BASELINE_WEIGHT;
+      // More permits are only worth it when they are all in use
+      if (!queue.isEmpty()) {
+        newLimit = Math.min(maxLimit, limit + 1);
+      }
+    }
+    permits += newLimit - limit;
+    limit = newLimit;
+  }
+
+  @VisibleForTesting
+  int getLimit() {
+    synchronized (lock) {
+      return limit;
+    }
   }
 }
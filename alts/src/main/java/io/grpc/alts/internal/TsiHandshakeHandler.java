@@ -38,6 +38,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import java.security.GeneralSecurityException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -87,6 +88,10 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
 
   private ProtocolNegotiationEvent pne;
   private boolean semaphoreAcquired;
+  private long semaphoreAcquiredNanos;
+  /** The time spent in the handshaker, waiting for the handshaker service but not the peer. */
+  private long handshakerNanos;
+  private boolean handshakeSucceeded;
   private final ChannelLogger negotiationLogger;
 
   /**
@@ -122,7 +127,10 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
   @Override
   protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
     // Process the data. If we need to send more data, do so now.
-    if (handshaker.processBytesFromPeer(in) && handshaker.isInProgress()) {
+    long startNanos = System.nanoTime();
+    boolean hasBytesToSend = handshaker.processBytesFromPeer(in);
+    handshakerNanos += System.nanoTime() - startNanos;
+    if (hasBytesToSend && handshaker.isInProgress()) {
       sendHandshake(ctx);
     }
 
@@ -142,6 +150,7 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
         // next handler.
         ctx.pipeline().addAfter(ctx.name(), null, framer);
         ctx.pipeline().addAfter(ctx.pipeline().context(framer).name(), null, next);
+        handshakeSucceeded = true;
         ctx.pipeline().remove(ctx.name());
         fireProtocolNegotiationEvent(ctx, peer, authContext, details);
         success = true;
@@ -162,6 +171,7 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
       ChannelFuture acquire = semaphoreAcquire(ctx);
       if (acquire.isSuccess()) {
         semaphoreAcquired = true;
+        semaphoreAcquiredNanos = System.nanoTime();
         sendHandshake(ctx);
       } else {
         acquire.addListener(new ChannelFutureListener() {
@@ -175,6 +185,7 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
               return;
             }
             semaphoreAcquired = true;
+            semaphoreAcquiredNanos = System.nanoTime();
             try {
               sendHandshake(ctx);
             } catch (Exception ex) {
@@ -192,7 +203,9 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
   private void fireProtocolNegotiationEvent(
       ChannelHandlerContext ctx, TsiPeer peer, Object authContext, SecurityDetails details) {
     checkState(pne != null, "negotiation not yet complete");
-    negotiationLogger.log(ChannelLogLevel.INFO, "TsiHandshake finished");
+    negotiationLogger.log(
+        ChannelLogLevel.INFO, "TsiHandshake finished in {0} ms",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - semaphoreAcquiredNanos));
     ProtocolNegotiationEvent localPne = pne;
     Attributes.Builder attrs = InternalProtocolNegotiationEvent.getAttributes(localPne).toBuilder()
         .set(TSI_PEER_KEY, peer)
@@ -210,7 +223,9 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
       boolean written = false;
       ByteBuf buf = ctx.alloc().buffer(HANDSHAKE_FRAME_SIZE).retain(); // refcnt = 2
       try {
+        long startNanos = System.nanoTime();
         handshaker.getBytesToSendToPeer(buf);
+        handshakerNanos += System.nanoTime() - startNanos;
         if (buf.isReadable()) {
           ctx.writeAndFlush(buf).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
           written = true;
@@ -228,7 +243,11 @@ public final class TsiHandshakeHandler extends ByteToMessageDecoder {
   @Override
   protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
     if (semaphoreAcquired) {
-      semaphoreRelease();
+      // Successful handshakes let the semaphore adapt to the latency of the handshaker service.
+      // Failed or cancelled ones say nothing about it.
+      if (semaphore != null) {
+        semaphore.release(handshakeSucceeded ? handshakerNanos : -1);
+      }
       semaphoreAcquired = false;
     }
     handshaker.close();
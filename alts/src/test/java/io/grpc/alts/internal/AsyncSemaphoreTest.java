@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.alts.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AsyncSemaphore}. */
+@RunWith(JUnit4.class)
+public class AsyncSemaphoreTest {
+  private final ChannelHandlerContext ctx =
+      new EmbeddedChannel(new ChannelInboundHandlerAdapter()).pipeline().firstContext();
+
+  @Test
+  public void waitsForPermits() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(1);
+    assertTrue(semaphore.acquire(ctx).isSuccess());
+    ChannelFuture second = semaphore.acquire(ctx);
+    assertFalse(second.isDone());
+
+    semaphore.release();
+    assertTrue(second.isSuccess());
+    assertFalse(semaphore.acquire(ctx).isDone());
+  }
+
+  @Test
+  public void fixedPermitsDoNotAdapt() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(2);
+    assertTrue(semaphore.acquire(ctx).isSuccess());
+    semaphore.release(10);
+    assertTrue(semaphore.acquire(ctx).isSuccess());
+    semaphore.release(1000);
+    assertEquals(2, semaphore.getLimit());
+  }
+
+  @Test
+  public void limitGrowsWhileAcquirersWait() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(1, 1, 3);
+    assertTrue(semaphore.acquire(ctx).isSuccess());
+    ChannelFuture waiting1 = semaphore.acquire(ctx);
+    ChannelFuture waiting2 = semaphore.acquire(ctx);
+    ChannelFuture waiting3 = semaphore.acquire(ctx);
+    assertFalse(waiting1.isDone());
+
+    semaphore.release(100);
+    assertEquals(2, semaphore.getLimit());
+    assertTrue(waiting1.isSuccess());
+    assertTrue(waiting2.isSuccess());
+    assertFalse(waiting3.isDone());
+
+    semaphore.release(100);
+    assertEquals(3, semaphore.getLimit());
+    assertTrue(waiting3.isSuccess());
+  }
+
+  @Test
+  public void limitDoesNotGrowWithoutWaiters() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(1, 1, 3);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(semaphore.acquire(ctx).isSuccess());
+      semaphore.release(100);
+    }
+    assertEquals(1, semaphore.getLimit());
+  }
+
+  @Test
+  public void limitShrinksWhenLatencyIncreases() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(3, 1, 3);
+    ChannelFuture[] acquired = new ChannelFuture[4];
+    for (int i = 0; i < acquired.length; i++) {
+      acquired[i] = semaphore.acquire(ctx);
+    }
+    assertFalse(acquired[3].isDone());
+
+    semaphore.release(100);
+    assertTrue(acquired[3].isSuccess());
+    // Held three times longer than the baseline: the limit drops to 2, with 3 permits held
+    semaphore.release(300);
+    assertEquals(2, semaphore.getLimit());
+    semaphore.release(300);
+    assertEquals(1, semaphore.getLimit());
+    ChannelFuture waiting = semaphore.acquire(ctx);
+    assertFalse(waiting.isDone());
+
+    semaphore.release(100);
+    assertTrue(waiting.isSuccess());
+    assertEquals(2, semaphore.getLimit());
+  }
+
+  @Test
+  public void limitStaysReducedDuringLastingSlowdown() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(10, 1, 10);
+    assertTrue(semaphore.acquire(ctx).isSuccess());
+    semaphore.release(100);
+    // The baseline does not follow the latency of the overload
+    for (int i = 0; i < 100; i++) {
+      assertTrue(semaphore.acquire(ctx).isSuccess());
+      ChannelFuture waiting = semaphore.acquire(ctx);
+      semaphore.release(1000);
+      assertTrue(waiting.isSuccess());
+      semaphore.release(1000);
+    }
+    assertEquals(1, semaphore.getLimit());
+
+    // Once the latency is back to normal, the limit grows again
+    assertTrue(semaphore.acquire(ctx).isSuccess());
+    ChannelFuture waiting = semaphore.acquire(ctx);
+    semaphore.release(100);
+    assertTrue(waiting.isSuccess());
+    assertEquals(2, semaphore.getLimit());
+  }
+
+  @Test
+  public void limitNotBelowMinimum() {
+    AsyncSemaphore semaphore = new AsyncSemaphore(4, 3, 5);
+    assertTrue(semaphore.acquire(ctx).isSuccess());
+    semaphore.release(100);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(semaphore.acquire(ctx).isSuccess());
+      semaphore.release(10000);
+    }
+    assertEquals(3, semaphore.getLimit());
+  }
+}
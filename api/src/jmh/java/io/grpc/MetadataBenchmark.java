@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc;
+
+import static com.google.common.base.Charsets.US_ASCII;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the {@link Metadata} access patterns of a typical interceptor chain: a handful of
+ * lookups of present and absent keys against headers received from the wire.
+ */
+@State(Scope.Benchmark)
+public class MetadataBenchmark {
+
+  @Param({"4", "20", "40"})
+  public int headerCount;
+
+  private byte[][] wireHeaders;
+  private Metadata.Key<String>[] keys;
+  private Metadata.Key<String> absentKey;
+
+  /**
+   * Javadoc.
+   */
+  @Setup
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void setUp() {
+    keys = new Metadata.Key[headerCount];
+    wireHeaders = new byte[headerCount * 2][];
+    for (int i = 0; i < headerCount; i++) {
+      keys[i] = Metadata.Key.of("x-header-" + i, Metadata.ASCII_STRING_MARSHALLER);
+      wireHeaders[i * 2] = keys[i].asciiName();
+      wireHeaders[i * 2 + 1] = ("value-" + i).getBytes(US_ASCII);
+    }
+    absentKey = Metadata.Key.of("x-absent", Metadata.ASCII_STRING_MARSHALLER);
+  }
+
+  /**
+   * Ten interceptors each reading the last received header, as with auth or tracing headers
+   * appended by a proxy.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public int getLastHeader() {
+    Metadata headers = new Metadata(wireHeaders.clone());
+    int found = 0;
+    for (int i = 0; i < 10; i++) {
+      if (headers.get(keys[headerCount - 1]) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Ten interceptors each checking for a header the client did not send.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public int containsAbsentHeader() {
+    Metadata headers = new Metadata(wireHeaders.clone());
+    int found = 0;
+    for (int i = 0; i < 10; i++) {
+      if (headers.containsKey(absentKey)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Reads every header once, then discards a missing header and adds one, as a forwarding
+   * interceptor would.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Metadata readAllThenRewrite() {
+    Metadata headers = new Metadata(wireHeaders.clone());
+    for (int i = 0; i < headerCount; i++) {
+      headers.get(keys[i]);
+    }
+    headers.discardAll(absentKey);
+    headers.put(absentKey, "added");
+    headers.get(absentKey);
+    return headers;
+  }
+}
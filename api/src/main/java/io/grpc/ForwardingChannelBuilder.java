@@ -153,6 +153,12 @@ public abstract class ForwardingChannelBuilder<T extends ForwardingChannelBuilde
     return thisT();
   }
 
+  @Override
+  public T eagerConnect() {
+    delegate().eagerConnect();
+    return thisT();
+  }
+
   @Override
   public T maxInboundMessageSize(int max) {
     delegate().maxInboundMessageSize(max);
@@ -207,6 +213,12 @@ public abstract class ForwardingChannelBuilder<T extends ForwardingChannelBuilde
     return thisT();
   }
 
+  @Override
+  public T retryBudget(RetryBudget retryBudget) {
+    delegate().retryBudget(retryBudget);
+    return thisT();
+  }
+
   @Override
   public T disableRetry() {
     delegate().disableRetry();
@@ -231,6 +243,12 @@ public abstract class ForwardingChannelBuilder<T extends ForwardingChannelBuilde
     return thisT();
   }
 
+  @Override
+  public T maxConnectionsPerSubchannel(int maxConnections) {
+    delegate().maxConnectionsPerSubchannel(maxConnections);
+    return thisT();
+  }
+
   @Override
   public T proxyDetector(ProxyDetector proxyDetector) {
     delegate().proxyDetector(proxyDetector);
@@ -133,6 +133,12 @@ public abstract class ForwardingServerBuilder<T extends ServerBuilder<T>> extend
     return thisT();
   }
 
+  @Override
+  public T maxCallQueueDelay(long delay, TimeUnit unit) {
+    delegate().maxCallQueueDelay(delay, unit);
+    return thisT();
+  }
+
   @Override
   public T maxInboundMessageSize(int bytes) {
     delegate().maxInboundMessageSize(bytes);
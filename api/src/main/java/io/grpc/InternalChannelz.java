@@ -295,6 +295,10 @@ public final class InternalChannelz {
     public final long callsFailed;
     public final long lastCallStartedNanos;
     public final List<InternalInstrumented<SocketStats>> listenSockets;
+    /** TLS handshakes of the connections accepted by the server that were full handshakes. */
+    public final long tlsFullHandshakes;
+    /** TLS handshakes of the connections accepted by the server that resumed a session. */
+    public final long tlsResumedHandshakes;
 
     /**
      * Creates an instance.
@@ -305,11 +309,24 @@ public final class InternalChannelz {
         long callsFailed,
         long lastCallStartedNanos,
         List<InternalInstrumented<SocketStats>> listenSockets) {
+      this(callsStarted, callsSucceeded, callsFailed, lastCallStartedNanos, listenSockets, 0, 0);
+    }
+
+    private ServerStats(
+        long callsStarted,
+        long callsSucceeded,
+        long callsFailed,
+        long lastCallStartedNanos,
+        List<InternalInstrumented<SocketStats>> listenSockets,
+        long tlsFullHandshakes,
+        long tlsResumedHandshakes) {
       this.callsStarted = callsStarted;
       this.callsSucceeded = callsSucceeded;
       this.callsFailed = callsFailed;
       this.lastCallStartedNanos = lastCallStartedNanos;
       this.listenSockets = checkNotNull(listenSockets);
+      this.tlsFullHandshakes = tlsFullHandshakes;
+      this.tlsResumedHandshakes = tlsResumedHandshakes;
     }
 
     public static final class Builder {
@@ -318,6 +335,8 @@ public final class InternalChannelz {
       private long callsFailed;
       private long lastCallStartedNanos;
       public List<InternalInstrumented<SocketStats>> listenSockets = new ArrayList<>();
+      private long tlsFullHandshakes;
+      private long tlsResumedHandshakes;
 
       public Builder setCallsStarted(long callsStarted) {
         this.callsStarted = callsStarted;
@@ -348,6 +367,16 @@ public final class InternalChannelz {
         return this;
       }
 
+      public Builder setTlsFullHandshakes(long tlsFullHandshakes) {
+        this.tlsFullHandshakes = tlsFullHandshakes;
+        return this;
+      }
+
+      public Builder setTlsResumedHandshakes(long tlsResumedHandshakes) {
+        this.tlsResumedHandshakes = tlsResumedHandshakes;
+        return this;
+      }
+
       /**
        * Builds an instance.
        */
@@ -357,7 +386,9 @@ public final class InternalChannelz {
             callsSucceeded,
             callsFailed,
             lastCallStartedNanos,
-            listenSockets);
+            listenSockets,
+            tlsFullHandshakes,
+            tlsResumedHandshakes);
       }
     }
   }
@@ -376,6 +407,14 @@ public final class InternalChannelz {
     public final long lastCallStartedNanos;
     public final List<InternalWithLogId> subchannels;
     public final List<InternalWithLogId> sockets;
+    /** Bytes of outbound messages currently buffered by the channel for retry and hedging. */
+    public final long retryBufferedBytes;
+    /** Retries and hedged attempts of the channel that were not made due to its retry budget. */
+    public final long retriesDeniedByBudget;
+    /** TLS handshakes of the connections of the channel that were full handshakes. */
+    public final long tlsFullHandshakes;
+    /** TLS handshakes of the connections of the channel that resumed a session. */
+    public final long tlsResumedHandshakes;
 
     /**
      * Creates an instance.
@@ -389,7 +428,11 @@ public final class InternalChannelz {
         long callsFailed,
         long lastCallStartedNanos,
         List<InternalWithLogId> subchannels,
-        List<InternalWithLogId> sockets) {
+        List<InternalWithLogId> sockets,
+        long retryBufferedBytes,
+        long retriesDeniedByBudget,
+        long tlsFullHandshakes,
+        long tlsResumedHandshakes) {
       checkState(
           subchannels.isEmpty() || sockets.isEmpty(),
           "channels can have subchannels only, subchannels can have either sockets OR subchannels, "
@@ -403,6 +446,10 @@ public final class InternalChannelz {
       this.lastCallStartedNanos = lastCallStartedNanos;
       this.subchannels = checkNotNull(subchannels);
       this.sockets = checkNotNull(sockets);
+      this.retryBufferedBytes = retryBufferedBytes;
+      this.retriesDeniedByBudget = retriesDeniedByBudget;
+      this.tlsFullHandshakes = tlsFullHandshakes;
+      this.tlsResumedHandshakes = tlsResumedHandshakes;
     }
 
     public static final class Builder {
@@ -415,6 +462,10 @@ public final class InternalChannelz {
       private long lastCallStartedNanos;
       private List<InternalWithLogId> subchannels = Collections.emptyList();
       private List<InternalWithLogId> sockets = Collections.emptyList();
+      private long retryBufferedBytes;
+      private long retriesDeniedByBudget;
+      private long tlsFullHandshakes;
+      private long tlsResumedHandshakes;
 
       public Builder setTarget(String target) {
         this.target = target;
@@ -465,6 +516,26 @@ public final class InternalChannelz {
         return this;
       }
 
+      public Builder setRetryBufferedBytes(long retryBufferedBytes) {
+        this.retryBufferedBytes = retryBufferedBytes;
+        return this;
+      }
+
+      public Builder setRetriesDeniedByBudget(long retriesDeniedByBudget) {
+        this.retriesDeniedByBudget = retriesDeniedByBudget;
+        return this;
+      }
+
+      public Builder setTlsFullHandshakes(long tlsFullHandshakes) {
+        this.tlsFullHandshakes = tlsFullHandshakes;
+        return this;
+      }
+
+      public Builder setTlsResumedHandshakes(long tlsResumedHandshakes) {
+        this.tlsResumedHandshakes = tlsResumedHandshakes;
+        return this;
+      }
+
       /**
        * Builds an instance.
        */
@@ -478,7 +549,11 @@ public final class InternalChannelz {
             callsFailed,
             lastCallStartedNanos,
             subchannels,
-            sockets);
+            sockets,
+            retryBufferedBytes,
+            retriesDeniedByBudget,
+            tlsFullHandshakes,
+            tlsResumedHandshakes);
       }
     }
   }
@@ -663,6 +738,11 @@ public final class InternalChannelz {
     public final String cipherSuiteStandardName;
     @Nullable public final Certificate localCert;
     @Nullable public final Certificate remoteCert;
+    /**
+     * Whether the session was resumed, instead of being established with a full handshake. The
+     * channel and server stats count both kinds of handshakes over all their connections.
+     */
+    public final boolean sessionResumed;
 
     /**
      * A constructor only for testing.
@@ -671,12 +751,22 @@ public final class InternalChannelz {
       this.cipherSuiteStandardName = cipherSuiteName;
       this.localCert = localCert;
       this.remoteCert = remoteCert;
+      this.sessionResumed = false;
     }
 
     /**
      * Creates an instance.
      */
     public Tls(SSLSession session) {
+      this(session, false);
+    }
+
+    /**
+     * Creates an instance.
+     *
+     * @param sessionResumed whether the session was resumed by the handshake
+     */
+    public Tls(SSLSession session, boolean sessionResumed) {
       String cipherSuiteStandardName = session.getCipherSuite();
       Certificate localCert = null;
       Certificate remoteCert = null;
@@ -701,6 +791,7 @@ public final class InternalChannelz {
       this.cipherSuiteStandardName = cipherSuiteStandardName;
       this.localCert = localCert;
       this.remoteCert = remoteCert;
+      this.sessionResumed = sessionResumed;
     }
   }
 
@@ -298,6 +298,23 @@ public abstract class ManagedChannelBuilder<T extends ManagedChannelBuilder<T>>
   @ExperimentalApi("https://github.com/grpc/grpc-java/issues/2022")
   public abstract T idleTimeout(long value, TimeUnit unit);
 
+  /**
+   * Makes the channel leave idle mode as soon as it is built, instead of when the first RPC is
+   * started, so that the name resolution and the connections are done before they are needed. How
+   * many connections are made depends on the load balancing policy, e.g. {@code round_robin}
+   * connects to all the addresses. Use {@code io.grpc.util.ChannelWarmUp} to wait until the
+   * channel is ready.
+   *
+   * <p>The channel still enters idle mode after the {@link #idleTimeout idle timeout}.
+   *
+   * @return this
+   * @since 1.46.0
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/4359")
+  public T eagerConnect() {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Sets the maximum message size allowed to be received on the channel. If not called,
    * defaults to 4 MiB. The default provides protection to clients who haven't considered the
@@ -459,6 +476,19 @@ public abstract class ManagedChannelBuilder<T extends ManagedChannelBuilder<T>>
   }
 
 
+  /**
+   * Sets a budget that limits the retries and hedged attempts of the channel, in addition to the
+   * {@code retryThrottling} policy of the service config. The same budget may be passed to several
+   * channels to limit their retries together. It does not have any effect if retry is disabled.
+   *
+   * @return this
+   * @since 1.46.0
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/3982")
+  public T retryBudget(RetryBudget retryBudget) {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Disables the retry and hedging subsystem provided by the gRPC library. This is designed for the
    * case when users have their own retry implementation and want to avoid their own retry taking
@@ -510,6 +540,23 @@ public abstract class ManagedChannelBuilder<T extends ManagedChannelBuilder<T>>
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Sets the maximum number of connections each subchannel may open to its address. When every
+   * connection of a subchannel has as many streams as the server's {@code MAX_CONCURRENT_STREAMS}
+   * allows, another connection is opened instead of queuing new streams, up to this limit. New
+   * streams go to the connection with the fewest active streams, and the extra connections are
+   * closed once they are idle. The default is {@code 1}, which uses a single connection.
+   *
+   * @return this
+   * @throws IllegalArgumentException if {@code maxConnections} is less than 1
+   * @throws UnsupportedOperationException if unsupported
+   * @since 1.46.0
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/1771")
+  public T maxConnectionsPerSubchannel(int maxConnections) {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Sets the proxy detector to be used in addresses name resolution. If <code>null</code> is passed
    * the default proxy detector will be used.  For how proxies work in gRPC, please refer to the
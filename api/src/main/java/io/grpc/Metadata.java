@@ -113,6 +113,20 @@ public final class Metadata {
 
   static final BaseEncoding BASE64_ENCODING_OMIT_PADDING = BaseEncoding.base64().omitPadding();
 
+  /**
+   * Below this many headers a linear scan is cheaper than building and probing {@link #index}.
+   */
+  private static final int INDEX_MIN_SIZE = 8;
+  /**
+   * Building {@link #index} hashes every name, which costs about as much as comparing this many
+   * names per header during linear lookups. The index is built only once linear lookups have done
+   * that much work, so metadata that is rarely searched, or whose lookups hit near where the scan
+   * starts, never pays for it.
+   */
+  private static final int INDEX_BUILD_COST = 2;
+  /** Number of ints per {@link #index} slot: name hash, first position + 1, last position. */
+  private static final int INDEX_SLOT_WIDTH = 3;
+
   /**
    * Constructor called by the transport layer when it receives binary metadata. Metadata will
    * mutate the passed in array.
@@ -150,6 +164,17 @@ public final class Metadata {
   private Object[] namesAndValues;
   // The unscaled number of headers present.
   private int size;
+  /**
+   * Open-addressed hash index from header name to the positions of its first and last entries.
+   * Built lazily by lookups once there are at least {@link #INDEX_MIN_SIZE} headers, maintained by
+   * appends and discarded by any other mutation. {@code null} when not built.
+   */
+  @Nullable
+  private int[] index;
+  // The number of distinct names in index.
+  private int indexedNames;
+  // The number of names compared by linear lookups, used to decide when to build index.
+  private int linearScanned;
 
   private byte[] name(int i) {
     return (byte[]) namesAndValues[i * 2];
@@ -224,18 +249,98 @@ public final class Metadata {
     return size;
   }
 
+  /**
+   * Returns the {@link #index} offset of the slot for the name, building the index if needed. The
+   * slot is empty if the name is not present. Returns {@code -1} if there are too few headers to
+   * use the index, in which case callers should fall back to a linear search.
+   */
+  private int indexSlot(byte[] name, int hash) {
+    if (index == null) {
+      if (size < INDEX_MIN_SIZE || linearScanned < size * INDEX_BUILD_COST) {
+        return -1;
+      }
+      buildIndex();
+    }
+    return probe(index, name, hash);
+  }
+
+  private int probe(int[] table, byte[] name, int hash) {
+    int mask = table.length / INDEX_SLOT_WIDTH - 1;
+    // nameHash() leaves most of its variation outside the low bits, so scramble it before masking.
+    // Load factor is kept at or below 1/2, so there is always an empty slot to stop at.
+    for (int slot = (hash * 0x9E3779B9) >>> 16 & mask; ; slot = (slot + 1) & mask) {
+      int offset = slot * INDEX_SLOT_WIDTH;
+      int first = table[offset + 1];
+      if (first == 0 || (table[offset] == hash && bytesEqual(name, name(first - 1)))) {
+        return offset;
+      }
+    }
+  }
+
+  private void buildIndex() {
+    // Twice the number of headers, rounded up to a power of two, bounds the load factor at 1/2.
+    int slots = Integer.highestOneBit(Math.max(size, INDEX_MIN_SIZE) * 4 - 1);
+    // Only publish the index once it is complete, so a failed build leaves none behind.
+    int[] table = new int[slots * INDEX_SLOT_WIDTH];
+    int names = 0;
+    for (int i = 0; i < size; i++) {
+      if (indexEntry(table, i, nameHash(name(i)))) {
+        names++;
+      }
+    }
+    index = table;
+    indexedNames = names;
+    linearScanned = 0;
+  }
+
+  /**
+   * Records the entry at position {@code i} in {@code table}, which must be after all other entries
+   * recorded there. Returns {@code true} if it is the first entry with its name.
+   */
+  private boolean indexEntry(int[] table, int i, int hash) {
+    int offset = probe(table, name(i), hash);
+    boolean first = table[offset + 1] == 0;
+    if (first) {
+      table[offset] = hash;
+      table[offset + 1] = i + 1;
+    }
+    table[offset + 2] = i;
+    return first;
+  }
+
+  /** Updates the index, if built, after appending an entry at position {@code i}. */
+  private void indexAppended(int i, int hash) {
+    if (index == null) {
+      return;
+    }
+    if ((indexedNames + 1) * 2 > index.length / INDEX_SLOT_WIDTH) {
+      // Too full. Rebuild at a larger size on the next lookup.
+      index = null;
+      return;
+    }
+    if (indexEntry(index, i, hash)) {
+      indexedNames++;
+    }
+  }
+
   /**
    * Returns true if a value is defined for the given key.
    *
-   * <p>This is done by linear search, so if it is followed by {@link #get} or {@link #getAll},
-   * prefer calling them directly and checking the return value against {@code null}.
+   * <p>If it is followed by {@link #get} or {@link #getAll}, prefer calling them directly and
+   * checking the return value against {@code null}.
    */
   public boolean containsKey(Key<?> key) {
+    int slot = indexSlot(key.asciiName(), key.asciiNameHash());
+    if (slot != -1) {
+      return index[slot + 1] != 0;
+    }
     for (int i = 0; i < size; i++) {
       if (bytesEqual(key.asciiName(), name(i))) {
+        linearScanned += i + 1;
         return true;
       }
     }
+    linearScanned += size;
     return false;
   }
 
@@ -246,11 +351,17 @@ public final class Metadata {
    */
   @Nullable
   public <T> T get(Key<T> key) {
+    int slot = indexSlot(key.asciiName(), key.asciiNameHash());
+    if (slot != -1) {
+      return index[slot + 1] != 0 ? valueAsT(index[slot + 2], key) : null;
+    }
     for (int i = size - 1; i >= 0; i--) {
       if (bytesEqual(key.asciiName(), name(i))) {
+        linearScanned += size - i;
         return valueAsT(i, key);
       }
     }
+    linearScanned += size;
     return null;
   }
 
@@ -307,11 +418,18 @@ public final class Metadata {
    */
   @Nullable
   public <T> Iterable<T> getAll(final Key<T> key) {
+    int slot = indexSlot(key.asciiName(), key.asciiNameHash());
+    if (slot != -1) {
+      int first = index[slot + 1];
+      return first != 0 ? new IterableAt<>(key, first - 1) : null;
+    }
     for (int i = 0; i < size; i++) {
       if (bytesEqual(key.asciiName(), name(i))) {
+        linearScanned += i + 1;
         return new IterableAt<>(key, i);
       }
     }
+    linearScanned += size;
     return null;
   }
 
@@ -349,6 +467,7 @@ public final class Metadata {
     } else {
       value(size, key.toBytes(value));
     }
+    indexAppended(size, key.asciiNameHash());
     size++;
   }
 
@@ -378,6 +497,9 @@ public final class Metadata {
   public <T> boolean remove(Key<T> key, T value) {
     Preconditions.checkNotNull(key, "key");
     Preconditions.checkNotNull(value, "value");
+    if (!mayContain(key)) {
+      return false;
+    }
     for (int i = 0; i < size; i++) {
       if (!bytesEqual(key.asciiName(), name(i))) {
         continue;
@@ -393,6 +515,7 @@ public final class Metadata {
       size -= 1;
       name(size, null);
       value(size, (byte[]) null);
+      index = null;
       return true;
     }
     return false;
@@ -400,7 +523,7 @@ public final class Metadata {
 
   /** Remove all values for the given key. If there were no values, {@code null} is returned. */
   public <T> Iterable<T> removeAll(Key<T> key) {
-    if (isEmpty()) {
+    if (!mayContain(key)) {
       return null;
     }
     int writeIdx = 0;
@@ -420,6 +543,7 @@ public final class Metadata {
     // Multiply by two since namesAndValues is interleaved.
     Arrays.fill(namesAndValues, writeIdx * 2, len(), null);
     size = newSize;
+    index = null;
     return ret;
   }
 
@@ -429,7 +553,7 @@ public final class Metadata {
    */
   @ExperimentalApi("https://github.com/grpc/grpc-java/issues/4691")
   public <T> void discardAll(Key<T> key) {
-    if (isEmpty()) {
+    if (!mayContain(key)) {
       return;
     }
     int writeIdx = 0;
@@ -446,6 +570,7 @@ public final class Metadata {
     // Multiply by two since namesAndValues is interleaved.
     Arrays.fill(namesAndValues, writeIdx * 2, len(), null);
     size = newSize;
+    index = null;
   }
 
   /**
@@ -514,6 +639,7 @@ public final class Metadata {
     }
     System.arraycopy(other.namesAndValues, 0, namesAndValues, len(), other.len());
     size += other.size;
+    index = null;
   }
 
   /**
@@ -536,6 +662,7 @@ public final class Metadata {
         maybeExpand();
         name(size, other.name(i));
         value(size, other.value(i));
+        indexAppended(size, nameHash(other.name(i)));
         size++;
       }
     }
@@ -560,6 +687,35 @@ public final class Metadata {
     return sb.append(')').toString();
   }
 
+  /**
+   * Returns false if the key is definitely absent. Uses the index when available, to let removals
+   * of missing keys skip the scan.
+   */
+  private boolean mayContain(Key<?> key) {
+    if (isEmpty()) {
+      return false;
+    }
+    int slot = indexSlot(key.asciiName(), key.asciiNameHash());
+    return slot == -1 || index[slot + 1] != 0;
+  }
+
+  /**
+   * Hashes a header name from its length and a few of its bytes, which is much cheaper than
+   * hashing every byte. The last bytes are included since names often share a prefix. Names with
+   * equal hashes are still told apart by comparing them in full.
+   */
+  private static int nameHash(byte[] name) {
+    int len = name.length;
+    if (len < 2) {
+      return len == 0 ? 0 : name[0];
+    }
+    return len
+        ^ name[len >>> 2] << 4
+        ^ name[len - 1] << 8
+        ^ name[len - 2] << 16
+        ^ name[len >>> 1] << 24;
+  }
+
   private boolean bytesEqual(byte[] left, byte[] right) {
     return Arrays.equals(left, right);
   }
@@ -716,6 +872,7 @@ public final class Metadata {
 
     private final String name;
     private final byte[] nameBytes;
+    private final int nameBytesHash;
     private final Object marshaller;
 
     private static BitSet generateValidTChars() {
@@ -761,6 +918,7 @@ public final class Metadata {
       this.originalName = checkNotNull(name, "name");
       this.name = validateName(this.originalName.toLowerCase(Locale.ROOT), pseudo);
       this.nameBytes = this.name.getBytes(US_ASCII);
+      this.nameBytesHash = nameHash(nameBytes);
       this.marshaller = marshaller;
     }
 
@@ -791,6 +949,13 @@ public final class Metadata {
       return nameBytes;
     }
 
+    /**
+     * Returns {@code nameHash(asciiName())}, computed once at construction.
+     */
+    int asciiNameHash() {
+      return nameBytesHash;
+    }
+
     /**
      * Returns true if the two objects are both Keys, and their names match (case insensitive).
      */
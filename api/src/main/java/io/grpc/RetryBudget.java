@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Limits the retries and hedged attempts made by channels, in addition to the per-channel
+ * {@code retryThrottling} policy of the service config. Unlike the service config policy, a single
+ * budget may be shared by any number of channels with {@link ManagedChannelBuilder#retryBudget},
+ * so that the channels of a process to the same service do not multiply its retries during an
+ * outage.
+ *
+ * <p>Transparent retries, which are done when the RPC was not processed by the server, are not
+ * limited by the budget.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/3982")
+@ThreadSafe
+public abstract class RetryBudget {
+  /**
+   * Records that an RPC was started on a channel.
+   *
+   * @param target the target of the channel, as passed to {@link ManagedChannelBuilder#forTarget}
+   * @param method the method of the RPC
+   */
+  public abstract void recordRequest(String target, MethodDescriptor<?, ?> method);
+
+  /**
+   * Returns whether a retry or hedged attempt of the RPC would be allowed now, without using any
+   * of the budget.
+   */
+  public abstract boolean hasCapacity(String target, MethodDescriptor<?, ?> method);
+
+  /**
+   * Uses the budget for one retry or hedged attempt of the RPC. Returns {@code false}, without
+   * using any of the budget, if the attempt must not be made.
+   */
+  public abstract boolean tryAcquire(String target, MethodDescriptor<?, ?> method);
+}
@@ -243,6 +243,23 @@ public abstract class ServerBuilder<T extends ServerBuilder<T>> {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Sets how long calls may wait for the {@link #executor executor} before the server sheds load.
+   * When even the calls that waited the least during the last 100 milliseconds waited longer than
+   * {@code delay}, calls are arriving faster than the executor runs them. New calls are then
+   * rejected with {@link Status.Code#RESOURCE_EXHAUSTED} before being queued, until the queue
+   * drains. Disabled by default.
+   *
+   * @return this
+   * @throws IllegalArgumentException if delay is not positive
+   * @throws UnsupportedOperationException if unsupported
+   * @since 1.46.0
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/8274")
+  public T maxCallQueueDelay(long delay, TimeUnit unit) {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Sets the maximum message size allowed to be received on the server. If not called,
    * defaults to 4 MiB. The default provides protection to servers who haven't considered the
@@ -35,6 +35,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Locale;
 import org.junit.Rule;
@@ -479,6 +480,96 @@ public class MetadataTest {
     assertSame(anotherSalmon, h2.get(KEY_IMMUTABLE));
   }
 
+  @Test
+  public void manyHeaders_lookupsMatchLinearSemantics() {
+    Metadata h = new Metadata();
+    Metadata.Key<String>[] keys = asciiKeys(20);
+    for (int i = 0; i < keys.length; i++) {
+      h.put(keys[i], "v" + i);
+    }
+    h.put(keys[3], "v3-again");
+    Metadata.Key<String> absent = Metadata.Key.of("absent", Metadata.ASCII_STRING_MARSHALLER);
+    searchRepeatedly(h);
+
+    assertEquals("v3-again", h.get(keys[3]));
+    assertEquals(Arrays.asList("v3", "v3-again"), Lists.newArrayList(h.getAll(keys[3])));
+    assertTrue(h.containsKey(keys[19]));
+    assertFalse(h.containsKey(absent));
+    assertNull(h.get(absent));
+    assertNull(h.getAll(absent));
+
+    // Appends after the first lookup are visible.
+    h.put(absent, "now-present");
+    h.put(keys[0], "v0-again");
+    assertEquals("now-present", h.get(absent));
+    assertEquals("v0-again", h.get(keys[0]));
+    assertEquals(Arrays.asList("v0", "v0-again"), Lists.newArrayList(h.getAll(keys[0])));
+  }
+
+  @Test
+  public void manyHeaders_removalsInvalidateLookups() {
+    Metadata h = new Metadata();
+    Metadata.Key<String>[] keys = asciiKeys(12);
+    for (int i = 0; i < keys.length; i++) {
+      h.put(keys[i], "v" + i);
+    }
+    searchRepeatedly(h);
+    assertEquals("v5", h.get(keys[5]));
+
+    assertEquals(Arrays.asList("v5"), Lists.newArrayList(h.removeAll(keys[5])));
+    assertNull(h.get(keys[5]));
+    searchRepeatedly(h);
+    assertEquals("v6", h.get(keys[6]));
+    assertTrue(h.remove(keys[6], "v6"));
+    assertFalse(h.containsKey(keys[6]));
+    searchRepeatedly(h);
+    assertEquals("v7", h.get(keys[7]));
+    h.discardAll(keys[7]);
+    assertNull(h.get(keys[7]));
+    searchRepeatedly(h);
+    assertEquals("v11", h.get(keys[11]));
+    assertNull(h.removeAll(keys[5]));
+    assertFalse(h.remove(keys[6], "v6"));
+    assertEquals(9, h.headerCount());
+  }
+
+  @Test
+  public void manyHeaders_mergeAndWireConstructed() {
+    Metadata.Key<String>[] keys = asciiKeys(10);
+    byte[][] wire = new byte[keys.length * 2][];
+    for (int i = 0; i < keys.length; i++) {
+      wire[i * 2] = keys[i].asciiName();
+      wire[i * 2 + 1] = ("v" + i).getBytes(US_ASCII);
+    }
+    Metadata h = new Metadata(wire);
+    searchRepeatedly(h);
+    assertEquals("v9", h.get(keys[9]));
+
+    Metadata other = new Metadata();
+    other.put(keys[9], "other");
+    h.merge(other);
+    assertEquals("other", h.get(keys[9]));
+    h.merge(other, Collections.<Metadata.Key<?>>singleton(keys[9]));
+    assertEquals(Arrays.asList("v9", "other", "other"), Lists.newArrayList(h.getAll(keys[9])));
+  }
+
+  /** Performs enough full scans that later lookups are served by the index. */
+  private static void searchRepeatedly(Metadata h) {
+    Metadata.Key<String> missing = Metadata.Key.of("missing", Metadata.ASCII_STRING_MARSHALLER);
+    for (int i = 0; i < 4; i++) {
+      assertFalse(h.containsKey(missing));
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Metadata.Key<String>[] asciiKeys(int count) {
+    Metadata.Key<String>[] keys = new Metadata.Key[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = Metadata.Key.of("key-" + i, Metadata.ASCII_STRING_MARSHALLER);
+    }
+    return keys;
+  }
+
   private static final class Fish {
     private String name;
 
@@ -36,6 +36,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -56,8 +58,10 @@ final class GoogleAuthLibraryCallCredentials extends io.grpc.CallCredentials {
   @VisibleForTesting
   final Credentials creds;
 
-  private Metadata lastHeaders;
-  private Map<String, List<String>> lastMetadata;
+  // Keyed by service name. The number of services a process calls is small, so entries are not
+  // evicted.
+  private final ConcurrentMap<String, ServiceHeaders> serviceHeaders =
+      new ConcurrentHashMap<>();
 
   public GoogleAuthLibraryCallCredentials(Credentials creds) {
     this(creds, jwtHelper);
@@ -96,32 +100,24 @@ final class GoogleAuthLibraryCallCredentials extends io.grpc.CallCredentials {
     }
 
     String authority = checkNotNull(info.getAuthority(), "authority");
-    final URI uri;
+    final ServiceHeaders service;
     try {
-      uri = serviceUri(authority, info.getMethodDescriptor());
+      service = getServiceHeaders(authority, info.getMethodDescriptor());
     } catch (StatusException e) {
       applier.fail(e.getStatus());
       return;
     }
     // Credentials is expected to manage caching internally if the metadata is fetched over
-    // the network.
-    creds.getRequestMetadata(uri, appExecutor, new RequestMetadataCallback() {
+    // the network. OAuth2Credentials and ServiceAccountJwtAccessCredentials call back on this
+    // thread while their token is fresh, so the headers are usually applied without an executor
+    // hop and the transport does not need a DelayedStream.
+    creds.getRequestMetadata(service.uri, appExecutor, new RequestMetadataCallback() {
       @Override
       public void onSuccess(Map<String, List<String>> metadata) {
         // Some implementations may pass null metadata.
-
-        // Re-use the headers if getRequestMetadata() returns the same map. It may return a
-        // different map based on the provided URI, i.e., for JWT. However, today it does not
-        // cache JWT and so we won't bother tring to save its return value based on the URI.
         Metadata headers;
         try {
-          synchronized (GoogleAuthLibraryCallCredentials.this) {
-            if (lastMetadata == null || lastMetadata != metadata) {
-              lastHeaders = toHeaders(metadata);
-              lastMetadata = metadata;
-            }
-            headers = lastHeaders;
-          }
+          headers = service.headersFor(metadata);
         } catch (Throwable t) {
           applier.fail(Status.UNAUTHENTICATED
               .withDescription("Failed to convert credential metadata")
@@ -147,6 +143,17 @@ final class GoogleAuthLibraryCallCredentials extends io.grpc.CallCredentials {
     });
   }
 
+  private ServiceHeaders getServiceHeaders(String authority, MethodDescriptor<?, ?> method)
+      throws StatusException {
+    String serviceName = String.valueOf(method.getServiceName());
+    ServiceHeaders service = serviceHeaders.get(serviceName);
+    if (service == null || !service.authority.equals(authority)) {
+      service = new ServiceHeaders(authority, serviceUri(authority, method));
+      serviceHeaders.put(serviceName, service);
+    }
+    return service;
+  }
+
   /**
    * Generate a JWT-specific service URI. The URI is simply an identifier with enough information
    * for a service to know that the JWT was intended for it. The URI will commonly be verified with
@@ -242,6 +249,43 @@ final class GoogleAuthLibraryCallCredentials extends io.grpc.CallCredentials {
     return rawGoogleCredentialsClass.asSubclass(Credentials.class);
   }
 
+  /**
+   * The service URI of a service, and the headers last converted from the metadata returned for
+   * it. The metadata may differ for each URI, i.e., for JWT, so the headers are cached per service
+   * instead of once for the credentials.
+   */
+  private static final class ServiceHeaders {
+    final String authority;
+    final URI uri;
+    private volatile ConvertedHeaders last;
+
+    ServiceHeaders(String authority, URI uri) {
+      this.authority = authority;
+      this.uri = uri;
+    }
+
+    Metadata headersFor(@Nullable Map<String, List<String>> metadata) {
+      // Re-use the headers if getRequestMetadata() returns the same map
+      ConvertedHeaders converted = last;
+      if (converted == null || converted.metadata != metadata) {
+        converted = new ConvertedHeaders(metadata, toHeaders(metadata));
+        last = converted;
+      }
+      return converted.headers;
+    }
+  }
+
+  private static final class ConvertedHeaders {
+    @Nullable
+    final Map<String, List<String>> metadata;
+    final Metadata headers;
+
+    ConvertedHeaders(@Nullable Map<String, List<String>> metadata, Metadata headers) {
+      this.metadata = metadata;
+      this.headers = headers;
+    }
+  }
+
   private static class MethodPair {
     private final Method getter;
     private final Method builderSetter;
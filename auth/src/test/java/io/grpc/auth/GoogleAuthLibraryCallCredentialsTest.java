@@ -20,6 +20,7 @@ import static com.google.common.base.Charsets.US_ASCII;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -173,6 +174,39 @@ public class GoogleAuthLibraryCallCredentialsTest {
     assertArrayEquals("token4".getBytes(US_ASCII), Iterables.get(extraAuthorization, 1));
   }
 
+  @Test
+  public void headersCachedPerService() throws Exception {
+    ListMultimap<String, String> values1 = LinkedListMultimap.create();
+    values1.put("Authorization", "jwt-for-a");
+    ListMultimap<String, String> values2 = LinkedListMultimap.create();
+    values2.put("Authorization", "jwt-for-b");
+    when(credentials.getRequestMetadata(eq(expectedUri))).thenReturn(Multimaps.asMap(values1));
+    when(credentials.getRequestMetadata(eq(new URI("https://testauthority/b.service"))))
+        .thenReturn(Multimaps.asMap(values2));
+    MethodDescriptor<Void, Void> methodA = method;
+    MethodDescriptor<Void, Void> methodB =
+        method.toBuilder().setFullMethodName("b.service/method").build();
+
+    GoogleAuthLibraryCallCredentials callCredentials =
+        new GoogleAuthLibraryCallCredentials(credentials);
+    for (int i = 0; i < 2; i++) {
+      method = methodA;
+      callCredentials.applyRequestMetadata(new RequestInfoImpl(), executor, applier);
+      method = methodB;
+      callCredentials.applyRequestMetadata(new RequestInfoImpl(), executor, applier);
+    }
+
+    verify(applier, times(4)).apply(headersCaptor.capture());
+    List<Metadata> headerList = headersCaptor.getAllValues();
+    assertArrayEquals(new String[]{"jwt-for-a"},
+        Iterables.toArray(headerList.get(0).getAll(AUTHORIZATION), String.class));
+    assertArrayEquals(new String[]{"jwt-for-b"},
+        Iterables.toArray(headerList.get(1).getAll(AUTHORIZATION), String.class));
+    // The converted headers are reused while the metadata of each service does not change
+    assertSame(headerList.get(0), headerList.get(2));
+    assertSame(headerList.get(1), headerList.get(3));
+  }
+
   @Test
   public void invalidBase64() throws Exception {
     ListMultimap<String, String> values = LinkedListMultimap.create();
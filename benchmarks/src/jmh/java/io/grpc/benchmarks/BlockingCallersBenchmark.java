@@ -0,0 +1,204 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
+import io.grpc.benchmarks.proto.Messages.SimpleRequest;
+import io.grpc.benchmarks.proto.Messages.SimpleResponse;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the throughput of blocking stubs when many callers are blocked at the same time. Each
+ * invocation splits a fixed number of calls between {@code callers} concurrent tasks, so scores
+ * are comparable across caller counts.
+ *
+ * <p>{@code threads=VIRTUAL} runs each caller on a virtual thread and requires a JDK with
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}; run it with {@code -p threads=VIRTUAL}.
+ */
+@State(Scope.Benchmark)
+public class BlockingCallersBenchmark {
+  public enum ThreadType {
+    PLATFORM, VIRTUAL
+  }
+
+  private static final int CALLS_PER_INVOCATION = 20000;
+  private static final int STREAM_LENGTH = 10;
+
+  @Param({"100", "10000"})
+  public int callers;
+  @Param({"PLATFORM"})
+  public ThreadType threads;
+  @Param({"1", "8"})
+  public int prefetch;
+
+  private Server server;
+  private ManagedChannel channel;
+  private ExecutorService serverExecutor;
+  private ExecutorService executor;
+  private BenchmarkServiceGrpc.BenchmarkServiceBlockingStub stub;
+
+  @Setup
+  public void setUp() throws Exception {
+    ServerCalls.ServerStreamingMethod<SimpleRequest, SimpleResponse> streamingCall =
+        new ServerCalls.ServerStreamingMethod<SimpleRequest, SimpleResponse>() {
+          @Override
+          public void invoke(
+              SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            SimpleResponse response = Utils.makeResponse(request);
+            for (int i = 0; i < STREAM_LENGTH; i++) {
+              responseObserver.onNext(response);
+            }
+            responseObserver.onCompleted();
+          }
+        };
+    ServerCalls.UnaryMethod<SimpleRequest, SimpleResponse> unaryCall =
+        new ServerCalls.UnaryMethod<SimpleRequest, SimpleResponse>() {
+          @Override
+          public void invoke(
+              SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            responseObserver.onNext(Utils.makeResponse(request));
+            responseObserver.onCompleted();
+          }
+        };
+    String name = "blocking-callers-" + System.nanoTime();
+    serverExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    server = InProcessServerBuilder.forName(name)
+        .addService(ServerServiceDefinition.builder(BenchmarkServiceGrpc.SERVICE_NAME)
+            .addMethod(
+                BenchmarkServiceGrpc.getUnaryCallMethod(), ServerCalls.asyncUnaryCall(unaryCall))
+            .addMethod(
+                BenchmarkServiceGrpc.getStreamingFromServerMethod(),
+                ServerCalls.asyncServerStreamingCall(streamingCall))
+            .build())
+        .executor(serverExecutor)
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).build();
+    stub = BenchmarkServiceGrpc.newBlockingStub(channel).withPrefetch(prefetch);
+    if (threads == ThreadType.VIRTUAL) {
+      try {
+        executor = (ExecutorService) Executors.class
+            .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (NoSuchMethodException e) {
+        throw new UnsupportedOperationException("Virtual threads require JDK 21 or later", e);
+      }
+    } else {
+      executor = Executors.newFixedThreadPool(callers);
+    }
+    // Start all the threads and the channel
+    unaryCalls();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    executor.shutdown();
+    channel.shutdown();
+    server.shutdown();
+    channel.awaitTermination(1, TimeUnit.SECONDS);
+    server.awaitTermination(1, TimeUnit.SECONDS);
+    serverExecutor.shutdown();
+    if (!channel.isTerminated()) {
+      throw new Exception("failed to shut down channel");
+    }
+    if (!server.isTerminated()) {
+      throw new Exception("failed to shut down server");
+    }
+  }
+
+  /** Blocking unary calls, split between the concurrent callers. */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(CALLS_PER_INVOCATION)
+  public void unaryCalls() throws Exception {
+    runCallers(new Runnable() {
+      @Override
+      public void run() {
+        stub.unaryCall(SimpleRequest.getDefaultInstance());
+      }
+    });
+  }
+
+  /**
+   * Blocking server streaming calls, split between the concurrent callers. The score is in calls
+   * per second, and each call reads {@link #STREAM_LENGTH} responses.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(CALLS_PER_INVOCATION)
+  public void serverStreamingCalls() throws Exception {
+    runCallers(new Runnable() {
+      @Override
+      public void run() {
+        Iterator<SimpleResponse> responses =
+            stub.streamingFromServer(SimpleRequest.getDefaultInstance());
+        while (responses.hasNext()) {
+          responses.next();
+        }
+      }
+    });
+  }
+
+  private void runCallers(final Runnable call) throws Exception {
+    final int callsPerCaller = CALLS_PER_INVOCATION / callers;
+    final CountDownLatch done = new CountDownLatch(callers);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    for (int i = 0; i < callers; i++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < callsPerCaller; j++) {
+              call.run();
+            }
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          } finally {
+            done.countDown();
+          }
+        }
+      });
+    }
+    done.await();
+    if (failure.get() != null) {
+      throw new Exception(failure.get());
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import static io.grpc.benchmarks.Utils.pickUnusedPort;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import io.grpc.CallOptions;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
+import io.grpc.benchmarks.proto.Messages.SimpleRequest;
+import io.grpc.benchmarks.proto.Messages.SimpleResponse;
+import io.grpc.benchmarks.qps.AsyncServer;
+import io.grpc.netty.NegotiationType;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.BatchCodec;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import io.grpc.stub.UnaryCallBatcher;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the throughput of small unary calls sent as individual RPCs, and accumulated by {@link
+ * UnaryCallBatcher} into unary or bidi streaming batch RPCs. Each invocation issues a burst of
+ * concurrent calls and waits for all of them, so the score is in calls per second and can be
+ * compared to a target rate such as 100k QPS.
+ */
+@State(Scope.Benchmark)
+public class UnaryBatchingBenchmark {
+  public enum CallMode {
+    UNARY, BATCHED_UNARY, BATCHED_STREAM
+  }
+
+  private static final int CALLS_PER_INVOCATION = 1000;
+
+  private static final MethodDescriptor<List<SimpleRequest>, List<SimpleResponse>>
+      UNARY_BATCH_METHOD = MethodDescriptor.<List<SimpleRequest>, List<SimpleResponse>>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("grpc.testing.BatchBenchmarkService/UnaryCallBatch")
+          .setRequestMarshaller(new DelimitedListMarshaller<>(SimpleRequest.parser()))
+          .setResponseMarshaller(new DelimitedListMarshaller<>(SimpleResponse.parser()))
+          .build();
+  private static final MethodDescriptor<List<SimpleRequest>, List<SimpleResponse>>
+      STREAM_BATCH_METHOD = UNARY_BATCH_METHOD.toBuilder()
+          .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+          .setFullMethodName("grpc.testing.BatchBenchmarkService/StreamingCallBatch")
+          .build();
+
+  @Param({"UNARY", "BATCHED_UNARY", "BATCHED_STREAM"})
+  public CallMode mode;
+  @Param({"100"})
+  public int maxBatchSize;
+
+  private Server server;
+  private ManagedChannel channel;
+  private ScheduledExecutorService scheduler;
+  private UnaryCallBatcher<SimpleRequest, SimpleResponse, List<SimpleRequest>,
+      List<SimpleResponse>> batcher;
+
+  @Setup
+  public void setUp() throws Exception {
+    BatchCodec<SimpleRequest, SimpleResponse, List<SimpleRequest>, List<SimpleResponse>> codec =
+        new BatchCodec<SimpleRequest, SimpleResponse, List<SimpleRequest>,
+            List<SimpleResponse>>() {
+          @Override
+          public List<SimpleRequest> toBatchRequest(List<SimpleRequest> requests) {
+            return requests;
+          }
+
+          @Override
+          public List<SimpleRequest> fromBatchRequest(List<SimpleRequest> batchRequest) {
+            return batchRequest;
+          }
+
+          @Override
+          public List<SimpleResponse> toBatchResponse(List<SimpleResponse> responses) {
+            return responses;
+          }
+
+          @Override
+          public List<SimpleResponse> fromBatchResponse(List<SimpleResponse> batchResponse) {
+            return batchResponse;
+          }
+        };
+    ServerCalls.UnaryMethod<SimpleRequest, SimpleResponse> unaryCall =
+        new ServerCalls.UnaryMethod<SimpleRequest, SimpleResponse>() {
+          @Override
+          public void invoke(
+              SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            responseObserver.onNext(Utils.makeResponse(request));
+            responseObserver.onCompleted();
+          }
+        };
+    InetSocketAddress address = new InetSocketAddress("localhost", pickUnusedPort());
+    server = NettyServerBuilder.forAddress(address, InsecureServerCredentials.create())
+        .addService(new AsyncServer.BenchmarkServiceImpl())
+        .addService(ServerServiceDefinition.builder("grpc.testing.BatchBenchmarkService")
+            .addMethod(UNARY_BATCH_METHOD, ServerCalls.asyncBatchCall(unaryCall, codec))
+            .addMethod(STREAM_BATCH_METHOD, ServerCalls.asyncBatchCall(unaryCall, codec))
+            .build())
+        .directExecutor()
+        .build()
+        .start();
+    channel = NettyChannelBuilder.forAddress(address)
+        .negotiationType(NegotiationType.PLAINTEXT)
+        .directExecutor()
+        .build();
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    MethodDescriptor<List<SimpleRequest>, List<SimpleResponse>> batchMethod =
+        mode == CallMode.BATCHED_STREAM ? STREAM_BATCH_METHOD : UNARY_BATCH_METHOD;
+    batcher = UnaryCallBatcher.newBuilder(channel, batchMethod, codec)
+        .setMaxBatchSize(maxBatchSize)
+        .setMaxDelay(100, TimeUnit.MICROSECONDS)
+        .setScheduledExecutorService(scheduler)
+        .build();
+    // Wait for channel to start
+    calls();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    batcher.close();
+    channel.shutdown();
+    server.shutdown();
+    scheduler.shutdown();
+    channel.awaitTermination(1, TimeUnit.SECONDS);
+    server.awaitTermination(1, TimeUnit.SECONDS);
+    if (!channel.isTerminated()) {
+      throw new Exception("failed to shut down channel");
+    }
+    if (!server.isTerminated()) {
+      throw new Exception("failed to shut down server");
+    }
+  }
+
+  /** Issues a burst of small concurrent calls, and waits for all of their responses. */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(CALLS_PER_INVOCATION)
+  public List<SimpleResponse> calls() throws Exception {
+    List<ListenableFuture<SimpleResponse>> responses = new ArrayList<>(CALLS_PER_INVOCATION);
+    for (int i = 0; i < CALLS_PER_INVOCATION; i++) {
+      if (mode == CallMode.UNARY) {
+        responses.add(ClientCalls.futureUnaryCall(
+            channel.newCall(BenchmarkServiceGrpc.getUnaryCallMethod(), CallOptions.DEFAULT),
+            SimpleRequest.getDefaultInstance()));
+      } else {
+        responses.add(batcher.call(SimpleRequest.getDefaultInstance()));
+      }
+    }
+    return Futures.allAsList(responses).get();
+  }
+
+  /** Marshals a list of messages as consecutive length-delimited messages. */
+  private static final class DelimitedListMarshaller<T extends MessageLite>
+      implements MethodDescriptor.Marshaller<List<T>> {
+    private final Parser<T> parser;
+
+    DelimitedListMarshaller(Parser<T> parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public InputStream stream(List<T> value) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        for (T message : value) {
+          message.writeDelimitedTo(out);
+        }
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+      return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public List<T> parse(InputStream stream) {
+      List<T> messages = new ArrayList<>();
+      try {
+        T message;
+        while ((message = parser.parseDelimitedFrom(stream)) != null) {
+          messages.add(message);
+        }
+      } catch (InvalidProtocolBufferException e) {
+        throw new IllegalArgumentException(e);
+      }
+      return messages;
+    }
+  }
+}
@@ -34,7 +34,6 @@ import io.grpc.benchmarks.proto.Messages.SimpleResponse;
 import io.grpc.netty.NettyChannelBuilder;
 import io.grpc.okhttp.OkHttpChannelBuilder;
 import io.grpc.testing.TlsTesting;
-import io.netty.channel.epoll.EpollDomainSocketChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -141,10 +140,8 @@ public final class Utils {
         break;
 
       case NETTY_UNIX_DOMAIN_SOCKET:
-        // These classes only work on Linux.
-        builder
-            .eventLoopGroup(new EpollEventLoopGroup(0, tf))
-            .channelType(EpollDomainSocketChannel.class);
+        // Only works on Linux. The default event loop group and channel type handle domain
+        // sockets, so leave them unset.
         break;
 
       default:
@@ -201,15 +198,10 @@ public final class Utils {
       builder = OkHttpChannelBuilder.forTarget(target, credentials)
           .flowControlWindow(flowControlWindow);
     } else {
-      if (target.startsWith(UNIX_DOMAIN_SOCKET_PREFIX)) {
-        builder = configureNetty(
-            NettyChannelBuilder.forAddress(parseUnixSocketAddress(target), credentials),
-            transport, flowControlWindow);
-      } else {
-        builder = configureNetty(
-            NettyChannelBuilder.forTarget(target, credentials),
-            transport, flowControlWindow);
-      }
+      // unix:// targets are resolved by the unix: name resolver.
+      builder = configureNetty(
+          NettyChannelBuilder.forTarget(target, credentials),
+          transport, flowControlWindow);
     }
     if (authorityOverride != null) {
       builder.overrideAuthority(authorityOverride);
@@ -679,6 +679,11 @@ public abstract class BinderTransport
       pingTracker.startPing(callback, executor);
     }
 
+    @Override
+    public int getMaxConcurrentStreams() {
+      return Integer.MAX_VALUE;
+    }
+
     @Override
     public synchronized void shutdown(Status reason) {
       checkNotNull(reason, "reason");
@@ -16,18 +16,23 @@
 
 package io.grpc.internal;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
 
 /**
  * SerializingExecutor benchmark.
@@ -95,4 +100,81 @@ public class SerializingExecutorBenchmark {
       throw new AssertionError();
     }
   }
+
+  /**
+   * A SerializingExecutor shared by the benchmark threads, which all queue runnables on it, as the
+   * threads of a transport do for a busy call.
+   */
+  @State(Scope.Benchmark)
+  public static class SharedExecutor {
+    @Param({"2147483647", "32"})
+    public int drainBudget;
+
+    @Param({"0", "20000"})
+    public long stayOnThreadNanos;
+
+    private ExecutorService executorService;
+    private Executor executor;
+    private final AtomicInteger val = new AtomicInteger();
+    private final Runnable incrRunnable = new Runnable() {
+      @Override
+      public void run() {
+        val.incrementAndGet();
+      }
+    };
+
+    @Setup
+    public void setUp() {
+      executorService = Executors.newFixedThreadPool(2);
+      executor = new SerializingExecutor(executorService, drainBudget, stayOnThreadNanos);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+      executorService.shutdownNow();
+      if (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+        throw new RuntimeException("executor failed to shut down in a timely fashion");
+      }
+    }
+  }
+
+  /**
+   * Queue bursts of runnables from several threads at once, to see the cost of contended queuing.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(4)
+  public void manyRunnablesManyProducers(SharedExecutor shared) throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    for (int i = 0; i < 100; i++) {
+      shared.executor.execute(shared.incrRunnable);
+    }
+    shared.executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    });
+    latch.await();
+  }
+
+  /**
+   * Queue single runnables from several threads at once, so the executor often runs out of work
+   * between them.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Threads(4)
+  public void oneRunnableManyProducers(SharedExecutor shared) throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    shared.executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    });
+    latch.await();
+  }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import com.google.common.io.ByteStreams;
+import io.grpc.internal.testing.TestUtils;
+import io.grpc.util.AdvancedTlsX509TrustManager.Verification;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark for reloading the trust certificates of {@link AdvancedTlsX509TrustManager} from a
+ * file, when the file contents changed and when only its modification time did.
+ */
+@State(Scope.Thread)
+@Fork(1)
+public class AdvancedTlsX509TrustManagerBenchmark {
+
+  @Param({"1", "100", "1000"})
+  public int caCount;
+
+  private AdvancedTlsX509TrustManager trustManager;
+  private File bundle;
+  private File otherBundle;
+  private boolean loadOther;
+
+  /**
+   * Writes two trust bundles of {@code caCount} certificates, which differ by their last one.
+   */
+  @Setup
+  public void setUp() throws Exception {
+    byte[] ca = readCert("ca.pem");
+    byte[] server = readCert("server0.pem");
+    bundle = writeBundle(ca, ca);
+    otherBundle = writeBundle(ca, server);
+    trustManager = AdvancedTlsX509TrustManager.newBuilder()
+        .setVerification(Verification.CERTIFICATE_ONLY_VERIFICATION)
+        .build();
+    trustManager.updateTrustCredentialsFromFile(bundle);
+  }
+
+  @TearDown
+  public void tearDown() {
+    bundle.delete();
+    otherBundle.delete();
+  }
+
+  /** Reloads a file whose contents did not change, which only reads and hashes it. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void reloadUnchanged() throws Exception {
+    trustManager.updateTrustCredentialsFromFile(bundle);
+  }
+
+  /** Reloads a file whose contents changed, which parses it and builds a new trust manager. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void reloadChanged() throws Exception {
+    loadOther = !loadOther;
+    trustManager.updateTrustCredentialsFromFile(loadOther ? otherBundle : bundle);
+  }
+
+  private static byte[] readCert(String name) throws Exception {
+    InputStream in = TestUtils.class.getResourceAsStream("/certs/" + name);
+    try {
+      return ByteStreams.toByteArray(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  private File writeBundle(byte[] cert, byte[] lastCert) throws Exception {
+    File file = File.createTempFile("trust-bundle", ".pem");
+    OutputStream out = new FileOutputStream(file);
+    try {
+      for (int i = 1; i < caCount; i++) {
+        out.write(cert);
+      }
+      out.write(lastCert);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+}
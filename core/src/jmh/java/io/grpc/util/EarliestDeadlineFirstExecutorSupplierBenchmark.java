@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.internal.NoopServerCall;
+import io.grpc.testing.TestMethodDescriptors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark for {@link EarliestDeadlineFirstExecutorSupplier}, compared to running calls on the
+ * executor in the order they arrive. Bursts of calls saturate the executor, and one call in four
+ * has a deadline shorter than it takes to run the burst. Calls that start after their deadline
+ * are dropped, as the server does, and counted in {@code shortCallsExpired} and {@code
+ * longCallsExpired}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class EarliestDeadlineFirstExecutorSupplierBenchmark {
+  private static final long LONG_DEADLINE_MICROS = TimeUnit.SECONDS.toMicros(30);
+
+  @Param({"fifo", "edf"})
+  public String ordering;
+
+  @Param({"2"})
+  public int threads;
+
+  @Param({"64"})
+  public int burstSize;
+
+  @Param({"50"})
+  public int callMicros;
+
+  @Param({"500"})
+  public int shortDeadlineMicros;
+
+  private ExecutorService executor;
+  private ScheduledThreadPoolExecutor deadlineTimer;
+  private EarliestDeadlineFirstExecutorSupplier supplier;
+  private final ServerCall<Void, Void> call = new NoopServerCall<Void, Void>() {
+    @Override
+    public MethodDescriptor<Void, Void> getMethodDescriptor() {
+      return TestMethodDescriptors.voidMethod();
+    }
+  };
+
+  /** The calls of each burst, by outcome. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Outcomes {
+    public long shortCallsExpired;
+    public long longCallsExpired;
+  }
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(threads);
+    deadlineTimer = new ScheduledThreadPoolExecutor(1);
+    deadlineTimer.setRemoveOnCancelPolicy(true);
+    supplier = EarliestDeadlineFirstExecutorSupplier.newBuilder(executor).build();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    deadlineTimer.shutdownNow();
+    if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+      throw new RuntimeException("executor failed to shut down in a timely fashion");
+    }
+  }
+
+  /** Queues a burst of calls and waits for all of them to complete or expire. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void burst(Outcomes outcomes) throws Exception {
+    CountDownLatch done = new CountDownLatch(burstSize);
+    AtomicInteger shortExpired = new AtomicInteger();
+    AtomicInteger longExpired = new AtomicInteger();
+    for (int i = 0; i < burstSize; i++) {
+      boolean isShort = i % 4 == 3;
+      Deadline deadline = Deadline.after(
+          isShort ? shortDeadlineMicros : LONG_DEADLINE_MICROS, TimeUnit.MICROSECONDS);
+      Context.CancellableContext context = Context.ROOT.withDeadline(deadline, deadlineTimer);
+      Executor callExecutor = executor;
+      if ("edf".equals(ordering)) {
+        Context previous = context.attach();
+        try {
+          callExecutor = supplier.getExecutor(call, new Metadata());
+        } finally {
+          context.detach(previous);
+        }
+      }
+      callExecutor.execute(
+          new Call(context, deadline, isShort ? shortExpired : longExpired, done));
+    }
+    done.await();
+    outcomes.shortCallsExpired += shortExpired.get();
+    outcomes.longCallsExpired += longExpired.get();
+  }
+
+  private final class Call implements Runnable {
+    private final Context.CancellableContext context;
+    private final Deadline deadline;
+    private final AtomicInteger expired;
+    private final CountDownLatch done;
+
+    Call(
+        Context.CancellableContext context, Deadline deadline, AtomicInteger expired,
+        CountDownLatch done) {
+      this.context = context;
+      this.deadline = deadline;
+      this.expired = expired;
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      if (deadline.isExpired()) {
+        expired.incrementAndGet();
+      } else {
+        long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(callMicros);
+        while (System.nanoTime() - end < 0) {
+          // Busy, as a call using the CPU
+        }
+      }
+      context.cancel(null);
+      done.countDown();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import static java.lang.Math.max;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import io.grpc.Attributes;
 import io.grpc.CallOptions;
@@ -46,11 +47,11 @@ import io.grpc.internal.ClientStreamListener.RpcProgress;
 import io.grpc.internal.ConnectionClientTransport;
 import io.grpc.internal.GrpcAttributes;
 import io.grpc.internal.GrpcUtil;
-import io.grpc.internal.InUseStateAggregator;
 import io.grpc.internal.InsightBuilder;
 import io.grpc.internal.ManagedClientTransport;
 import io.grpc.internal.NoopClientStream;
 import io.grpc.internal.ObjectPool;
+import io.grpc.internal.SerializingExecutor;
 import io.grpc.internal.ServerListener;
 import io.grpc.internal.ServerStream;
 import io.grpc.internal.ServerStreamListener;
@@ -63,12 +64,13 @@ import java.net.SocketAddress;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckReturnValue;
@@ -93,32 +95,24 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
   private ServerTransportListener serverTransportListener;
   private Attributes serverStreamAttributes;
   private ManagedClientTransport.Listener clientTransportListener;
-  @GuardedBy("this")
-  private boolean shutdown;
+  // Only written while holding the lock. Volatile so that streams can be created and closed
+  // without it.
+  private volatile boolean shutdown;
   @GuardedBy("this")
   private boolean terminated;
-  @GuardedBy("this")
-  private Status shutdownStatus;
-  @GuardedBy("this")
+  private volatile Status shutdownStatus;
+  // Set by shutdownNow() before it cancels the streams, so streams started concurrently see it.
+  private volatile Status shutdownNowStatus;
   private final Set<InProcessStream> streams = Collections.newSetFromMap(
-          new IdentityHashMap<InProcessStream, Boolean>());
-  @GuardedBy("this")
+          new ConcurrentHashMap<InProcessStream, Boolean>());
   private List<ServerStreamTracer.Factory> serverStreamTracerFactories;
   private final Attributes attributes;
 
+  // Streams that count towards the transport being in use. Only transitions to and from zero take
+  // the lock, to report the change to clientTransportListener.
+  private final AtomicInteger inUseStreams = new AtomicInteger();
   @GuardedBy("this")
-  private final InUseStateAggregator<InProcessStream> inUseState =
-      new InUseStateAggregator<InProcessStream>() {
-        @Override
-        protected void handleInUse() {
-          clientTransportListener.transportInUse(true);
-        }
-
-        @Override
-        protected void handleNotInUse() {
-          clientTransportListener.transportInUse(false);
-        }
-      };
+  private boolean reportedInUse;
 
   private InProcessTransport(SocketAddress address, int maxInboundMetadataSize, String authority,
       String userAgent, Attributes eagAttrs,
@@ -206,7 +200,7 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
   }
 
   @Override
-  public synchronized ClientStream newStream(
+  public ClientStream newStream(
       MethodDescriptor<?, ?> method, Metadata headers, CallOptions callOptions,
       ClientStreamTracer[] tracers) {
     StatsTraceContext statsTraceContext =
@@ -297,6 +291,9 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
       if (terminated) {
         return;
       }
+      if (shutdownNowStatus == null) {
+        shutdownNowStatus = reason;
+      }
       streamsCopy = new ArrayList<>(streams);
     }
     for (InProcessStream stream : streamsCopy) {
@@ -322,6 +319,11 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
     return attributes;
   }
 
+  @Override
+  public int getMaxConcurrentStreams() {
+    return Integer.MAX_VALUE;
+  }
+
   @Override
   public ScheduledExecutorService getScheduledExecutorService() {
     return serverScheduler;
@@ -334,6 +336,21 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
     return ret;
   }
 
+  private void updateInUse(int delta) {
+    int inUse = inUseStreams.addAndGet(delta);
+    if (delta > 0 ? inUse != 1 : inUse != 0) {
+      return;
+    }
+    synchronized (this) {
+      // Another stream may have changed the count since, so report its latest value.
+      boolean nowInUse = inUseStreams.get() > 0;
+      if (nowInUse != reportedInUse) {
+        reportedInUse = nowInUse;
+        clientTransportListener.transportInUse(nowInUse);
+      }
+    }
+  }
+
   private synchronized void notifyShutdown(Status s) {
     if (shutdown) {
       return;
@@ -392,36 +409,41 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
 
     // Can be called multiple times due to races on both client and server closing at same time.
     private void streamClosed() {
-      synchronized (InProcessTransport.this) {
-        boolean justRemovedAnElement = streams.remove(this);
-        if (GrpcUtil.shouldBeCountedForInUse(callOptions)) {
-          inUseState.updateObjectInUse(this, false);
-        }
-        if (streams.isEmpty() && justRemovedAnElement) {
-          if (shutdown) {
-            notifyTerminated();
-          }
-        }
+      if (!streams.remove(this)) {
+        return;
+      }
+      if (GrpcUtil.shouldBeCountedForInUse(callOptions)) {
+        updateInUse(-1);
+      }
+      if (shutdown && streams.isEmpty()) {
+        notifyTerminated();
       }
     }
 
+    /**
+     * The server-to-client half of the stream. Everything delivered to the client's listener, and
+     * all the state that decides what to deliver, is confined to {@link #clientCallbacks}, which
+     * runs its tasks on the thread submitting them unless another thread is already running them.
+     * This keeps callbacks serialized without any thread blocking on a lock.
+     */
     private class InProcessServerStream implements ServerStream {
       final StatsTraceContext statsTraceCtx;
-      @GuardedBy("this")
+      private final SerializingExecutor clientCallbacks =
+          new SerializingExecutor(MoreExecutors.directExecutor());
+      // Set before the stream is started, so visible to all clientCallbacks tasks.
       private ClientStreamListener clientStreamListener;
-      @GuardedBy("this")
       private int clientRequested;
-      @GuardedBy("this")
-      private ArrayDeque<StreamListener.MessageProducer> clientReceiveQueue =
+      // Messages requested minus messages written, updated when request() and writeMessage() are
+      // called rather than when clientCallbacks runs them, so that isReady() accounts for writes
+      // made from within a callback.
+      private final AtomicInteger clientRequestedUnwritten = new AtomicInteger();
+      private final ArrayDeque<StreamListener.MessageProducer> clientReceiveQueue =
           new ArrayDeque<>();
-      @GuardedBy("this")
       private Status clientNotifyStatus;
-      @GuardedBy("this")
       private Metadata clientNotifyTrailers;
-      // Only is intended to prevent double-close when client cancels.
-      @GuardedBy("this")
-      private boolean closed;
-      @GuardedBy("this")
+      // Only is intended to prevent double-close when client cancels. Written only by
+      // clientCallbacks tasks. Volatile for isReady().
+      private volatile boolean closed;
       private int outboundSeqNo;
 
       InProcessServerStream(MethodDescriptor<?, ?> method, Metadata headers) {
@@ -429,7 +451,7 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
             serverStreamTracerFactories, method.getFullMethodName(), headers);
       }
 
-      private synchronized void setListener(ClientStreamListener listener) {
+      private void setListener(ClientStreamListener listener) {
         clientStreamListener = listener;
       }
 
@@ -440,83 +462,100 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
 
       @Override
       public void request(int numMessages) {
-        boolean onReady = clientStream.serverRequested(numMessages);
-        if (onReady) {
-          synchronized (this) {
-            if (!closed) {
-              clientStreamListener.onReady();
+        clientStream.serverRequested(numMessages);
+      }
+
+      /** Client requested more messages. */
+      private void clientRequested(final int numMessages) {
+        clientRequestedUnwritten.addAndGet(numMessages);
+        clientCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
+            int requested = clientRequested;
+            boolean previouslyReady = requested > 0;
+            requested += numMessages;
+            while (requested > 0 && !clientReceiveQueue.isEmpty()) {
+              requested--;
+              clientStreamListener.messagesAvailable(clientReceiveQueue.poll());
+            }
+            clientRequested = requested;
+            if (clientReceiveQueue.isEmpty() && clientNotifyStatus != null) {
+              closed = true;
+              clientStream.statsTraceCtx.clientInboundTrailers(clientNotifyTrailers);
+              clientStream.statsTraceCtx.streamClosed(clientNotifyStatus);
+              clientStreamListener.closed(
+                  clientNotifyStatus, RpcProgress.PROCESSED, clientNotifyTrailers);
+              return;
+            }
+            if (!previouslyReady && requested > 0) {
+              clientStream.notifyServerReady();
             }
           }
-        }
+        });
       }
 
-      // This method is the only reason we have to synchronize field accesses.
-      /**
-       * Client requested more messages.
-       *
-       * @return whether onReady should be called on the server
-       */
-      private synchronized boolean clientRequested(int numMessages) {
-        if (closed) {
-          return false;
-        }
-        boolean previouslyReady = clientRequested > 0;
-        clientRequested += numMessages;
-        while (clientRequested > 0 && !clientReceiveQueue.isEmpty()) {
-          clientRequested--;
-          clientStreamListener.messagesAvailable(clientReceiveQueue.poll());
-        }
-        // Attempt being reentrant-safe
-        if (closed) {
-          return false;
-        }
-        if (clientReceiveQueue.isEmpty() && clientNotifyStatus != null) {
-          closed = true;
-          clientStream.statsTraceCtx.clientInboundTrailers(clientNotifyTrailers);
-          clientStream.statsTraceCtx.streamClosed(clientNotifyStatus);
-          clientStreamListener.closed(
-              clientNotifyStatus, RpcProgress.PROCESSED, clientNotifyTrailers);
-        }
-        boolean nowReady = clientRequested > 0;
-        return !previouslyReady && nowReady;
+      /** Tells the client it may write, as the server has requested messages. */
+      private void notifyClientReady() {
+        clientCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (!closed) {
+              clientStreamListener.onReady();
+            }
+          }
+        });
       }
 
-      private void clientCancelled(Status status) {
-        internalCancel(status);
+      private void clientCancelled(final Status status) {
+        clientCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            internalCancel(status);
+          }
+        });
       }
 
       @Override
-      public synchronized void writeMessage(InputStream message) {
-        if (closed) {
-          return;
-        }
-        statsTraceCtx.outboundMessage(outboundSeqNo);
-        statsTraceCtx.outboundMessageSent(outboundSeqNo, -1, -1);
-        clientStream.statsTraceCtx.inboundMessage(outboundSeqNo);
-        clientStream.statsTraceCtx.inboundMessageRead(outboundSeqNo, -1, -1);
-        outboundSeqNo++;
-        StreamListener.MessageProducer producer = new SingleMessageProducer(message);
-        if (clientRequested > 0) {
-          clientRequested--;
-          clientStreamListener.messagesAvailable(producer);
-        } else {
-          clientReceiveQueue.add(producer);
-        }
+      public void writeMessage(final InputStream message) {
+        clientRequestedUnwritten.decrementAndGet();
+        clientCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
+            statsTraceCtx.outboundMessage(outboundSeqNo);
+            statsTraceCtx.outboundMessageSent(outboundSeqNo, -1, -1);
+            clientStream.statsTraceCtx.inboundMessage(outboundSeqNo);
+            clientStream.statsTraceCtx.inboundMessageRead(outboundSeqNo, -1, -1);
+            outboundSeqNo++;
+            StreamListener.MessageProducer producer = new SingleMessageProducer(message);
+            if (clientRequested > 0) {
+              clientRequested--;
+              clientStreamListener.messagesAvailable(producer);
+            } else {
+              clientReceiveQueue.add(producer);
+            }
+          }
+        });
       }
 
       @Override
       public void flush() {}
 
       @Override
-      public synchronized boolean isReady() {
+      public boolean isReady() {
         if (closed) {
           return false;
         }
-        return clientRequested > 0;
+        return clientRequestedUnwritten.get() > 0;
       }
 
       @Override
-      public void writeHeaders(Metadata headers) {
+      public void writeHeaders(final Metadata headers) {
         if (clientMaxInboundMetadataSize != Integer.MAX_VALUE) {
           int metadataSize = metadataSize(headers);
           if (metadataSize > clientMaxInboundMetadataSize) {
@@ -534,22 +573,25 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
           }
         }
 
-        synchronized (this) {
-          if (closed) {
-            return;
-          }
+        clientCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
 
-          clientStream.statsTraceCtx.clientInboundHeaders();
-          clientStreamListener.headersRead(headers);
-        }
+            clientStream.statsTraceCtx.clientInboundHeaders();
+            clientStreamListener.headersRead(headers);
+          }
+        });
       }
 
       @Override
       public void close(Status status, Metadata trailers) {
-        // clientStream.serverClosed must happen before clientStreamListener.closed, otherwise
+        // clientStream.serverClosed must be queued before clientStreamListener.closed, otherwise
         // clientStreamListener.closed can trigger clientStream.cancel (see code in
-        // ClientCalls.blockingUnaryCall), which may race with clientStream.serverClosed as both are
-        // calling internalCancel().
+        // ClientCalls.blockingUnaryCall), which would then close the server's listener with
+        // CANCELLED instead of OK.
         clientStream.serverClosed(Status.OK, status);
 
         if (clientMaxInboundMetadataSize != Integer.MAX_VALUE) {
@@ -575,36 +617,44 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
       }
 
       /** clientStream.serverClosed() must be called before this method */
-      private void notifyClientClose(Status status, Metadata trailers) {
-        Status clientStatus = cleanStatus(status, includeCauseWithStatus);
-        synchronized (this) {
-          if (closed) {
-            return;
-          }
-          if (clientReceiveQueue.isEmpty()) {
-            closed = true;
-            clientStream.statsTraceCtx.clientInboundTrailers(trailers);
-            clientStream.statsTraceCtx.streamClosed(clientStatus);
-            clientStreamListener.closed(clientStatus, RpcProgress.PROCESSED, trailers);
-          } else {
-            clientNotifyStatus = clientStatus;
-            clientNotifyTrailers = trailers;
+      private void notifyClientClose(Status status, final Metadata trailers) {
+        final Status clientStatus = cleanStatus(status, includeCauseWithStatus);
+        clientCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
+            if (clientReceiveQueue.isEmpty()) {
+              closed = true;
+              clientStream.statsTraceCtx.clientInboundTrailers(trailers);
+              clientStream.statsTraceCtx.streamClosed(clientStatus);
+              clientStreamListener.closed(clientStatus, RpcProgress.PROCESSED, trailers);
+            } else {
+              clientNotifyStatus = clientStatus;
+              clientNotifyTrailers = trailers;
+            }
+            streamClosed();
           }
-        }
-
-        streamClosed();
+        });
       }
 
       @Override
-      public void cancel(Status status) {
-        if (!internalCancel(Status.CANCELLED.withDescription("server cancelled stream"))) {
-          return;
-        }
-        clientStream.serverClosed(status, status);
-        streamClosed();
+      public void cancel(final Status status) {
+        clientCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (!internalCancel(Status.CANCELLED.withDescription("server cancelled stream"))) {
+              return;
+            }
+            clientStream.serverClosed(status, status);
+            streamClosed();
+          }
+        });
       }
 
-      private synchronized boolean internalCancel(Status clientStatus) {
+      // Must be run by clientCallbacks.
+      private boolean internalCancel(Status clientStatus) {
         if (closed) {
           return false;
         }
@@ -659,22 +709,29 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
       }
     }
 
+    /**
+     * The client-to-server half of the stream. Everything delivered to the server's listener, and
+     * all the state that decides what to deliver, is confined to {@link #serverCallbacks}. See
+     * {@link InProcessServerStream}.
+     */
     private class InProcessClientStream implements ClientStream {
       final StatsTraceContext statsTraceCtx;
       final CallOptions callOptions;
-      @GuardedBy("this")
+      private final SerializingExecutor serverCallbacks =
+          new SerializingExecutor(MoreExecutors.directExecutor());
+      // Set by the server when the stream is created, so visible to all serverCallbacks tasks.
       private ServerStreamListener serverStreamListener;
-      @GuardedBy("this")
       private int serverRequested;
-      @GuardedBy("this")
-      private ArrayDeque<StreamListener.MessageProducer> serverReceiveQueue =
+      // Messages requested minus messages written, updated when request() and writeMessage() are
+      // called rather than when serverCallbacks runs them, so that isReady() accounts for writes
+      // made from within a callback.
+      private final AtomicInteger serverRequestedUnwritten = new AtomicInteger();
+      private final ArrayDeque<StreamListener.MessageProducer> serverReceiveQueue =
           new ArrayDeque<>();
-      @GuardedBy("this")
       private boolean serverNotifyHalfClose;
-      // Only is intended to prevent double-close when server closes.
-      @GuardedBy("this")
-      private boolean closed;
-      @GuardedBy("this")
+      // Only is intended to prevent double-close when server closes. Written only by
+      // serverCallbacks tasks. Volatile for isReady().
+      private volatile boolean closed;
       private int outboundSeqNo;
 
       InProcessClientStream(
@@ -683,92 +740,119 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
         statsTraceCtx = statsTraceContext;
       }
 
-      private synchronized void setListener(ServerStreamListener listener) {
+      private void setListener(ServerStreamListener listener) {
         this.serverStreamListener = listener;
       }
 
       @Override
       public void request(int numMessages) {
-        boolean onReady = serverStream.clientRequested(numMessages);
-        if (onReady) {
-          synchronized (this) {
-            if (!closed) {
-              serverStreamListener.onReady();
+        serverStream.clientRequested(numMessages);
+      }
+
+      /** Server requested more messages. */
+      private void serverRequested(final int numMessages) {
+        serverRequestedUnwritten.addAndGet(numMessages);
+        serverCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
+            int requested = serverRequested;
+            boolean previouslyReady = requested > 0;
+            requested += numMessages;
+            while (requested > 0 && !serverReceiveQueue.isEmpty()) {
+              requested--;
+              serverStreamListener.messagesAvailable(serverReceiveQueue.poll());
+            }
+            serverRequested = requested;
+            if (serverReceiveQueue.isEmpty() && serverNotifyHalfClose) {
+              serverNotifyHalfClose = false;
+              serverStreamListener.halfClosed();
+            }
+            if (!previouslyReady && requested > 0) {
+              serverStream.notifyClientReady();
             }
           }
-        }
+        });
       }
 
-      // This method is the only reason we have to synchronize field accesses.
-      /**
-       * Client requested more messages.
-       *
-       * @return whether onReady should be called on the server
-       */
-      private synchronized boolean serverRequested(int numMessages) {
-        if (closed) {
-          return false;
-        }
-        boolean previouslyReady = serverRequested > 0;
-        serverRequested += numMessages;
-        while (serverRequested > 0 && !serverReceiveQueue.isEmpty()) {
-          serverRequested--;
-          serverStreamListener.messagesAvailable(serverReceiveQueue.poll());
-        }
-        if (serverReceiveQueue.isEmpty() && serverNotifyHalfClose) {
-          serverNotifyHalfClose = false;
-          serverStreamListener.halfClosed();
-        }
-        boolean nowReady = serverRequested > 0;
-        return !previouslyReady && nowReady;
+      /** Tells the server it may write, as the client has requested messages. */
+      private void notifyServerReady() {
+        serverCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (!closed) {
+              serverStreamListener.onReady();
+            }
+          }
+        });
       }
 
-      private void serverClosed(Status serverListenerStatus, Status serverTracerStatus) {
-        internalCancel(serverListenerStatus, serverTracerStatus);
+      private void serverClosed(
+          final Status serverListenerStatus, final Status serverTracerStatus) {
+        serverCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            internalCancel(serverListenerStatus, serverTracerStatus);
+          }
+        });
       }
 
       @Override
-      public synchronized void writeMessage(InputStream message) {
-        if (closed) {
-          return;
-        }
-        statsTraceCtx.outboundMessage(outboundSeqNo);
-        statsTraceCtx.outboundMessageSent(outboundSeqNo, -1, -1);
-        serverStream.statsTraceCtx.inboundMessage(outboundSeqNo);
-        serverStream.statsTraceCtx.inboundMessageRead(outboundSeqNo, -1, -1);
-        outboundSeqNo++;
-        StreamListener.MessageProducer producer = new SingleMessageProducer(message);
-        if (serverRequested > 0) {
-          serverRequested--;
-          serverStreamListener.messagesAvailable(producer);
-        } else {
-          serverReceiveQueue.add(producer);
-        }
+      public void writeMessage(final InputStream message) {
+        serverRequestedUnwritten.decrementAndGet();
+        serverCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
+            statsTraceCtx.outboundMessage(outboundSeqNo);
+            statsTraceCtx.outboundMessageSent(outboundSeqNo, -1, -1);
+            serverStream.statsTraceCtx.inboundMessage(outboundSeqNo);
+            serverStream.statsTraceCtx.inboundMessageRead(outboundSeqNo, -1, -1);
+            outboundSeqNo++;
+            StreamListener.MessageProducer producer = new SingleMessageProducer(message);
+            if (serverRequested > 0) {
+              serverRequested--;
+              serverStreamListener.messagesAvailable(producer);
+            } else {
+              serverReceiveQueue.add(producer);
+            }
+          }
+        });
       }
 
       @Override
       public void flush() {}
 
       @Override
-      public synchronized boolean isReady() {
+      public boolean isReady() {
         if (closed) {
           return false;
         }
-        return serverRequested > 0;
+        return serverRequestedUnwritten.get() > 0;
       }
 
       // Must be thread-safe for shutdownNow()
       @Override
-      public void cancel(Status reason) {
-        Status serverStatus = cleanStatus(reason, includeCauseWithStatus);
-        if (!internalCancel(serverStatus, serverStatus)) {
-          return;
-        }
-        serverStream.clientCancelled(reason);
-        streamClosed();
+      public void cancel(final Status reason) {
+        final Status serverStatus = cleanStatus(reason, includeCauseWithStatus);
+        serverCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (!internalCancel(serverStatus, serverStatus)) {
+              return;
+            }
+            serverStream.clientCancelled(reason);
+            streamClosed();
+          }
+        });
       }
 
-      private synchronized boolean internalCancel(
+      // Must be run by serverCallbacks.
+      private boolean internalCancel(
           Status serverListenerStatus, Status serverTracerStatus) {
         if (closed) {
           return false;
@@ -787,20 +871,28 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
           }
         }
         serverStream.statsTraceCtx.streamClosed(serverTracerStatus);
-        serverStreamListener.closed(serverListenerStatus);
+        // Null if the stream was cancelled before the server was told of it
+        if (serverStreamListener != null) {
+          serverStreamListener.closed(serverListenerStatus);
+        }
         return true;
       }
 
       @Override
-      public synchronized void halfClose() {
-        if (closed) {
-          return;
-        }
-        if (serverReceiveQueue.isEmpty()) {
-          serverStreamListener.halfClosed();
-        } else {
-          serverNotifyHalfClose = true;
-        }
+      public void halfClose() {
+        serverCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
+            if (serverReceiveQueue.isEmpty()) {
+              serverStreamListener.halfClosed();
+            } else {
+              serverNotifyHalfClose = true;
+            }
+          }
+        });
       }
 
       @Override
@@ -815,13 +907,34 @@ final class InProcessTransport implements ServerTransport, ConnectionClientTrans
       public void start(ClientStreamListener listener) {
         serverStream.setListener(listener);
 
-        synchronized (InProcessTransport.this) {
-          statsTraceCtx.clientOutboundHeaders();
-          streams.add(InProcessTransport.InProcessStream.this);
-          if (GrpcUtil.shouldBeCountedForInUse(callOptions)) {
-            inUseState.updateObjectInUse(InProcessTransport.InProcessStream.this, true);
+        statsTraceCtx.clientOutboundHeaders();
+        streams.add(InProcessTransport.InProcessStream.this);
+        if (GrpcUtil.shouldBeCountedForInUse(callOptions)) {
+          updateInUse(1);
+        }
+        serverCallbacks.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (closed) {
+              return;
+            }
+            serverTransportListener.streamCreated(
+                serverStream, method.getFullMethodName(), headers);
+          }
+        });
+        // shutdownNow() may have copied the streams before this one was added, and shutdown() may
+        // have terminated the transport, both after newStream() checked for shutdown.
+        Status shutdownNowStatus = InProcessTransport.this.shutdownNowStatus;
+        if (shutdownNowStatus != null) {
+          cancel(shutdownNowStatus);
+        } else if (shutdown) {
+          boolean terminated;
+          synchronized (InProcessTransport.this) {
+            terminated = InProcessTransport.this.terminated;
+          }
+          if (terminated) {
+            cancel(shutdownStatus);
           }
-          serverTransportListener.streamCreated(serverStream, method.getFullMethodName(), headers);
         }
       }
 
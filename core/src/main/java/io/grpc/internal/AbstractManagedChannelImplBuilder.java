@@ -27,6 +27,7 @@ import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.NameResolver;
 import io.grpc.ProxyDetector;
+import io.grpc.RetryBudget;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -168,6 +169,12 @@ public abstract class AbstractManagedChannelImplBuilder
     return thisT();
   }
 
+  @Override
+  public T eagerConnect() {
+    delegate().eagerConnect();
+    return thisT();
+  }
+
   @Override
   public T maxInboundMessageSize(int max) {
     /*
@@ -246,6 +253,12 @@ public abstract class AbstractManagedChannelImplBuilder
     return thisT();
   }
 
+  @Override
+  public T retryBudget(RetryBudget retryBudget) {
+    delegate().retryBudget(retryBudget);
+    return thisT();
+  }
+
   @Override
   public T disableRetry() {
     delegate().disableRetry();
@@ -270,6 +283,12 @@ public abstract class AbstractManagedChannelImplBuilder
     return thisT();
   }
 
+  @Override
+  public T maxConnectionsPerSubchannel(int maxConnections) {
+    delegate().maxConnectionsPerSubchannel(maxConnections);
+    return thisT();
+  }
+
   @Override
   public T proxyDetector(ProxyDetector proxyDetector) {
     delegate().proxyDetector(proxyDetector);
@@ -148,6 +148,12 @@ public abstract class AbstractServerImplBuilder
     return thisT();
   }
 
+  @Override
+  public T maxCallQueueDelay(long delay, TimeUnit unit) {
+    delegate().maxCallQueueDelay(delay, unit);
+    return thisT();
+  }
+
   @Override
   public T maxInboundMessageSize(int bytes) {
     delegate().maxInboundMessageSize(bytes);
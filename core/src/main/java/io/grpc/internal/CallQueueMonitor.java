@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells whether calls are queuing for the server executor, in the way of CoDel: the executor is
+ * overloaded when even the call that waited the least for it during an interval waited longer than
+ * the target. A burst of calls or a few slow ones do not make a standing queue, so they do not
+ * count.
+ *
+ * <p>The overload lasts one interval after it was detected, so that new calls can be accepted
+ * again once the queue drained, even though no calls were queued to measure it.
+ */
+final class CallQueueMonitor {
+  static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final long targetNanos;
+  private final AtomicLong intervalEndNanos;
+  private final AtomicLong minWaitNanos = new AtomicLong(Long.MAX_VALUE);
+  private volatile long overloadEndNanos;
+
+  CallQueueMonitor(long targetNanos, long nowNanos) {
+    checkArgument(targetNanos > 0, "targetNanos must be positive: %s", targetNanos);
+    this.targetNanos = targetNanos;
+    this.intervalEndNanos = new AtomicLong(nowNanos + INTERVAL_NANOS);
+    this.overloadEndNanos = nowNanos;
+  }
+
+  /** Records that a call started at {@code nowNanos}, after waiting {@code waitNanos}. */
+  void recordWait(long nowNanos, long waitNanos) {
+    long min = minWaitNanos.get();
+    while (waitNanos < min && !minWaitNanos.compareAndSet(min, waitNanos)) {
+      min = minWaitNanos.get();
+    }
+    long intervalEnd = intervalEndNanos.get();
+    if (nowNanos - intervalEnd >= 0
+        && intervalEndNanos.compareAndSet(intervalEnd, nowNanos + INTERVAL_NANOS)) {
+      long intervalMin = minWaitNanos.getAndSet(Long.MAX_VALUE);
+      // After an idle period the interval saw too few calls to tell a queue from a burst
+      if (intervalMin > targetNanos && nowNanos - intervalEnd < INTERVAL_NANOS) {
+        overloadEndNanos = nowNanos + INTERVAL_NANOS;
+      }
+    }
+  }
+
+  /** Returns whether new calls should be shed at {@code nowNanos}. */
+  boolean isOverloaded(long nowNanos) {
+    return nowNanos - overloadEndNanos < 0;
+  }
+}
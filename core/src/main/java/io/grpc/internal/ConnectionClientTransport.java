@@ -29,4 +29,11 @@ public interface ConnectionClientTransport extends ManagedClientTransport {
    * should define in what states they will be present.
    */
   Attributes getAttributes();
+
+  /**
+   * Returns the number of concurrent streams the peer currently allows on this transport, or
+   * {@link Integer#MAX_VALUE} if there is no limit. Streams started beyond the limit are queued by
+   * the transport until others complete.
+   */
+  int getMaxConcurrentStreams();
 }
@@ -66,6 +66,11 @@ abstract class ForwardingConnectionClientTransport implements ConnectionClientTr
     return delegate().getAttributes();
   }
 
+  @Override
+  public int getMaxConcurrentStreams() {
+    return delegate().getMaxConcurrentStreams();
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this).add("delegate", delegate()).toString();
@@ -42,5 +42,13 @@ public final class GrpcAttributes {
   public static final Attributes.Key<Attributes> ATTR_CLIENT_EAG_ATTRS =
       Attributes.Key.create("io.grpc.internal.GrpcAttributes.clientEagAttrs");
 
+  /**
+   * Whether the TLS handshake of the transport resumed a session, instead of being a full
+   * handshake. It is absent when the transport does not use TLS.
+   */
+  @Grpc.TransportAttr
+  public static final Attributes.Key<Boolean> ATTR_TLS_SESSION_RESUMED =
+      Attributes.Key.create("io.grpc.internal.GrpcAttributes.tlsSessionResumed");
+
   private GrpcAttributes() {}
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Tracks the latency of the attempts of one method, for hedging policies with a
+ * {@code hedgingDelayPercentile}. The hedging delay is the configured percentile of the recent
+ * latencies, and the number of hedged attempts is capped to {@code maxHedgeRatio} of the RPCs.
+ *
+ * <p>Latencies are recorded without locks in a log-linear histogram with eight buckets per power
+ * of two, so a percentile is at most 12.5% above the exact value. The histogram covers the last
+ * {@link #WINDOW_SAMPLES} to {@code 2 * WINDOW_SAMPLES} samples, and until {@link #MIN_SAMPLES}
+ * samples are recorded the static {@code hedgingDelay} of the policy is used.
+ */
+@ThreadSafe
+final class HedgingLatencyTracker {
+  @VisibleForTesting
+  static final int WINDOW_SAMPLES = 1000;
+  @VisibleForTesting
+  static final int MIN_SAMPLES = 100;
+  /** The delay is recomputed every that many samples. */
+  private static final int RECOMPUTE_MASK = 64 - 1;
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  final double percentile;
+  final double maxHedgeRatio;
+  private final Ticker ticker;
+
+  // The current window is replaced by the thread that records its last sample, and the samples of
+  // the previous window are kept so that the percentile is never computed from few samples.
+  private volatile Window current = new Window();
+  private volatile Window previous = new Window();
+  /** The hedging delay, or -1 if there are not enough samples yet. */
+  private volatile long delayNanos = -1;
+
+  HedgingLatencyTracker(double percentile, double maxHedgeRatio, Ticker ticker) {
+    this.percentile = percentile;
+    this.maxHedgeRatio = maxHedgeRatio;
+    this.ticker = checkNotNull(ticker, "ticker");
+  }
+
+  /** Returns the time to measure the latencies from. */
+  long currentTimeNanos() {
+    return ticker.read();
+  }
+
+  /**
+   * Returns the delay after which a new hedged attempt should be made, or {@code defaultNanos} if
+   * there are not enough samples yet.
+   */
+  long hedgingDelayNanos(long defaultNanos) {
+    long delay = delayNanos;
+    return delay < 0 ? defaultNanos : delay;
+  }
+
+  /** Records that an RPC was started. */
+  void recordRequest() {
+    current.requests.incrementAndGet();
+  }
+
+  /**
+   * Returns whether one more hedged attempt is allowed by {@code maxHedgeRatio}. The attempt is
+   * only counted once {@link #recordHedge} is called, so that other limits can still refuse it.
+   */
+  boolean hasHedgeCapacity() {
+    Window current = this.current;
+    Window previous = this.previous;
+    long requests = current.requests.get() + previous.requests.get();
+    long hedges = current.hedges.get() + previous.hedges.get();
+    return hedges + 1 <= maxHedgeRatio * requests;
+  }
+
+  /** Records a hedged attempt that was made. */
+  void recordHedge() {
+    current.hedges.incrementAndGet();
+  }
+
+  /** Records the latency of an attempt. */
+  void recordLatency(long latencyNanos) {
+    Window window = current;
+    window.counts.incrementAndGet(bucket(Math.max(0, latencyNanos)));
+    long samples = window.samples.incrementAndGet();
+    if (samples == WINDOW_SAMPLES) {
+      previous = window;
+      current = new Window();
+    }
+    if ((samples & RECOMPUTE_MASK) == 0
+        || samples == MIN_SAMPLES
+        || samples == WINDOW_SAMPLES) {
+      delayNanos = computeDelayNanos();
+    }
+  }
+
+  private long computeDelayNanos() {
+    Window current = this.current;
+    Window previous = this.previous;
+    long samples = current.samples.get() + previous.samples.get();
+    if (samples < MIN_SAMPLES) {
+      return -1;
+    }
+    long rank = (long) Math.ceil(samples * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += current.counts.get(i) + previous.counts.get(i);
+      if (seen >= rank) {
+        return upperBound(i);
+      }
+    }
+    // Samples recorded concurrently may be missing from the counts
+    return delayNanos;
+  }
+
+  @VisibleForTesting
+  static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /** Returns the largest value of the bucket. */
+  @VisibleForTesting
+  static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+
+  private static final class Window {
+    final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    final AtomicLong samples = new AtomicLong();
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong hedges = new AtomicLong();
+  }
+}
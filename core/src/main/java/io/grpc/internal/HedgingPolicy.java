@@ -21,6 +21,7 @@ import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableSet;
 import io.grpc.Status.Code;
 import java.util.Set;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 /**
@@ -28,18 +29,39 @@ import javax.annotation.concurrent.Immutable;
  */
 @Immutable
 final class HedgingPolicy {
+  static final double DEFAULT_MAX_HEDGE_RATIO = 0.1;
+
   final int maxAttempts;
   final long hedgingDelayNanos;
   final Set<Code> nonFatalStatusCodes;
+  /**
+   * The percentile of the latencies of the method to use as the hedging delay, or {@code null} to
+   * always use {@link #hedgingDelayNanos}.
+   */
+  @Nullable
+  final Double hedgingDelayPercentile;
+  /**
+   * The maximum ratio of hedged attempts to RPCs. Only used with a
+   * {@link #hedgingDelayPercentile}.
+   */
+  final double maxHedgeRatio;
+
+  HedgingPolicy(int maxAttempts, long hedgingDelayNanos, Set<Code> nonFatalStatusCodes) {
+    this(maxAttempts, hedgingDelayNanos, nonFatalStatusCodes, null, DEFAULT_MAX_HEDGE_RATIO);
+  }
 
   /**
    * The caller is supposed to have validated the arguments and handled throwing exception or
    * logging warnings already, so we avoid repeating args check here.
    */
-  HedgingPolicy(int maxAttempts, long hedgingDelayNanos, Set<Code> nonFatalStatusCodes) {
+  HedgingPolicy(
+      int maxAttempts, long hedgingDelayNanos, Set<Code> nonFatalStatusCodes,
+      @Nullable Double hedgingDelayPercentile, double maxHedgeRatio) {
     this.maxAttempts = maxAttempts;
     this.hedgingDelayNanos = hedgingDelayNanos;
     this.nonFatalStatusCodes = ImmutableSet.copyOf(nonFatalStatusCodes);
+    this.hedgingDelayPercentile = hedgingDelayPercentile;
+    this.maxHedgeRatio = maxHedgeRatio;
   }
 
   @Override
@@ -53,12 +75,16 @@ final class HedgingPolicy {
     HedgingPolicy that = (HedgingPolicy) other;
     return maxAttempts == that.maxAttempts
         && hedgingDelayNanos == that.hedgingDelayNanos
-        && Objects.equal(nonFatalStatusCodes, that.nonFatalStatusCodes);
+        && Objects.equal(nonFatalStatusCodes, that.nonFatalStatusCodes)
+        && Objects.equal(hedgingDelayPercentile, that.hedgingDelayPercentile)
+        && Double.compare(maxHedgeRatio, that.maxHedgeRatio) == 0;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(maxAttempts, hedgingDelayNanos, nonFatalStatusCodes);
+    return Objects.hashCode(
+        maxAttempts, hedgingDelayNanos, nonFatalStatusCodes, hedgingDelayPercentile,
+        maxHedgeRatio);
   }
 
   @Override
@@ -67,6 +93,8 @@ final class HedgingPolicy {
         .add("maxAttempts", maxAttempts)
         .add("hedgingDelayNanos", hedgingDelayNanos)
         .add("nonFatalStatusCodes", nonFatalStatusCodes)
+        .add("hedgingDelayPercentile", hedgingDelayPercentile)
+        .add("maxHedgeRatio", maxHedgeRatio)
         .toString();
   }
 }
@@ -56,6 +56,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -65,6 +66,13 @@ import javax.annotation.concurrent.ThreadSafe;
 @ThreadSafe
 final class InternalSubchannel implements InternalInstrumented<ChannelStats>, TransportProvider {
 
+  /**
+   * How long an extra transport, opened because the active transport reached its stream limit, is
+   * kept without streams before it is shut down.
+   */
+  @VisibleForTesting
+  static final long EXTRA_TRANSPORT_IDLE_TIMEOUT_SECONDS = 30;
+
   private final InternalLogId logId;
   private final String authority;
   private final String userAgent;
@@ -72,8 +80,11 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
   private final Callback callback;
   private final ClientTransportFactory transportFactory;
   private final ScheduledExecutorService scheduledExecutor;
+  private final int maxConnections;
   private final InternalChannelz channelz;
   private final CallTracer callsTracer;
+  private final LongCounter tlsFullHandshakes = LongCounterFactory.create();
+  private final LongCounter tlsResumedHandshakes = LongCounterFactory.create();
   private final ChannelTracer channelTracer;
   private final ChannelLogger channelLogger;
 
@@ -142,13 +153,36 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
    * The to-be active transport, which is not ready yet.
    */
   @Nullable
-  private ConnectionClientTransport pendingTransport;
+  private CallTracingTransport pendingTransport;
 
   /**
    * The transport for new outgoing requests. Non-null only in READY state.
    */
   @Nullable
-  private volatile ManagedClientTransport activeTransport;
+  private volatile CallTracingTransport activeTransport;
+
+  /**
+   * READY transports to the address of {@link #activeTransport}, opened because all other
+   * transports had as many streams as their peer allows. Only used when {@code maxConnections > 1}.
+   * Replaced, never mutated, in the syncContext.
+   */
+  private volatile List<CallTracingTransport> extraTransports = Collections.emptyList();
+
+  /**
+   * The extra transport being connected, which is not ready yet. At most one is connected at a
+   * time.
+   */
+  @Nullable
+  private CallTracingTransport pendingExtraTransport;
+
+  /**
+   * The policy to control back off between attempts to open an extra transport. Non-{@code null}
+   * after an extra transport failed to connect, until one succeeds.
+   */
+  @Nullable
+  private BackoffPolicy extraTransportBackoffPolicy;
+  @Nullable
+  private ScheduledHandle extraTransportBackoffTask;
 
   private volatile ConnectivityStateInfo state = ConnectivityStateInfo.forNonError(IDLE);
 
@@ -157,12 +191,14 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
   InternalSubchannel(List<EquivalentAddressGroup> addressGroups, String authority, String userAgent,
       BackoffPolicy.Provider backoffPolicyProvider,
       ClientTransportFactory transportFactory, ScheduledExecutorService scheduledExecutor,
-      Supplier<Stopwatch> stopwatchSupplier, SynchronizationContext syncContext, Callback callback,
+      int maxConnections, Supplier<Stopwatch> stopwatchSupplier,
+      SynchronizationContext syncContext, Callback callback,
       InternalChannelz channelz, CallTracer callsTracer, ChannelTracer channelTracer,
       InternalLogId logId, ChannelLogger channelLogger) {
     Preconditions.checkNotNull(addressGroups, "addressGroups");
     Preconditions.checkArgument(!addressGroups.isEmpty(), "addressGroups is empty");
     checkListHasNoNulls(addressGroups, "addressGroups contains null entry");
+    Preconditions.checkArgument(maxConnections >= 1, "maxConnections must be at least 1");
     List<EquivalentAddressGroup> unmodifiableAddressGroups =
         Collections.unmodifiableList(new ArrayList<>(addressGroups));
     this.addressGroups = unmodifiableAddressGroups;
@@ -172,6 +208,7 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
     this.backoffPolicyProvider = backoffPolicyProvider;
     this.transportFactory = transportFactory;
     this.scheduledExecutor = scheduledExecutor;
+    this.maxConnections = maxConnections;
     this.connectingTimer = stopwatchSupplier.get();
     this.syncContext = syncContext;
     this.callback = callback;
@@ -188,8 +225,11 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
 
   @Override
   public ClientTransport obtainActiveTransport() {
-    ClientTransport savedTransport = activeTransport;
+    CallTracingTransport savedTransport = activeTransport;
     if (savedTransport != null) {
+      if (maxConnections > 1) {
+        return pickLeastLoadedTransport(savedTransport);
+      }
       return savedTransport;
     }
     syncContext.execute(new Runnable() {
@@ -205,6 +245,73 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
     return null;
   }
 
+  /**
+   * Returns the READY transport with the most streams left before reaching its peer's limit, and
+   * opens another transport if none has any left.
+   */
+  private ClientTransport pickLeastLoadedTransport(CallTracingTransport activeTransport) {
+    CallTracingTransport picked = activeTransport;
+    long pickedCapacity = activeTransport.getRemainingStreams();
+    List<CallTracingTransport> savedExtraTransports = extraTransports;
+    for (CallTracingTransport transport : savedExtraTransports) {
+      long capacity = transport.getRemainingStreams();
+      if (capacity > pickedCapacity) {
+        picked = transport;
+        pickedCapacity = capacity;
+      }
+    }
+    if (pickedCapacity <= 0 && 1 + savedExtraTransports.size() < maxConnections) {
+      syncContext.execute(new Runnable() {
+        @Override
+        public void run() {
+          maybeStartExtraTransport();
+        }
+      });
+    }
+    return picked;
+  }
+
+  private void maybeStartExtraTransport() {
+    syncContext.throwIfNotInThisSynchronizationContext();
+
+    if (state.getState() != READY || pendingExtraTransport != null
+        || extraTransportBackoffTask != null || 1 + extraTransports.size() >= maxConnections) {
+      return;
+    }
+    channelLogger.log(ChannelLogLevel.INFO, "All transports at their stream limit");
+    CallTracingTransport transport = newTransport(addressIndex.getCurrentAddress());
+    pendingExtraTransport = transport;
+    startTransport(transport, new ExtraTransportListener(transport));
+  }
+
+  private void shutdownExtraTransports(Status reason) {
+    syncContext.throwIfNotInThisSynchronizationContext();
+
+    List<CallTracingTransport> savedExtraTransports = extraTransports;
+    extraTransports = Collections.emptyList();
+    for (CallTracingTransport transport : savedExtraTransports) {
+      transport.shutdown(reason);
+    }
+    if (pendingExtraTransport != null) {
+      pendingExtraTransport.shutdown(reason);
+      pendingExtraTransport = null;
+    }
+    if (extraTransportBackoffTask != null) {
+      extraTransportBackoffTask.cancel();
+      extraTransportBackoffTask = null;
+    }
+    extraTransportBackoffPolicy = null;
+  }
+
+  private void removeExtraTransport(CallTracingTransport transport) {
+    syncContext.throwIfNotInThisSynchronizationContext();
+
+    List<CallTracingTransport> newExtraTransports = new ArrayList<>(extraTransports);
+    if (newExtraTransports.remove(transport)) {
+      extraTransports = Collections.unmodifiableList(newExtraTransports);
+    }
+  }
+
   /**
    * Returns a READY transport if there is any, without trying to connect.
    */
@@ -229,7 +336,12 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
       connectingTimer.reset().start();
     }
     SocketAddress address = addressIndex.getCurrentAddress();
+    CallTracingTransport transport = newTransport(address);
+    pendingTransport = transport;
+    startTransport(transport, new TransportListener(transport, address));
+  }
 
+  private CallTracingTransport newTransport(SocketAddress address) {
     HttpConnectProxiedSocketAddress proxiedAddr = null;
     if (address instanceof HttpConnectProxiedSocketAddress) {
       proxiedAddr = (HttpConnectProxiedSocketAddress) address;
@@ -248,19 +360,23 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
     TransportLogger transportLogger = new TransportLogger();
     // In case the transport logs in the constructor, use the subchannel logId
     transportLogger.logId = getLogId();
-    ConnectionClientTransport transport =
+    CallTracingTransport transport =
         new CallTracingTransport(
             transportFactory
                 .newClientTransport(address, options, transportLogger), callsTracer);
     transportLogger.logId = transport.getLogId();
+    return transport;
+  }
+
+  private void startTransport(
+      CallTracingTransport transport, ManagedClientTransport.Listener listener) {
     channelz.addClientSocket(transport);
-    pendingTransport = transport;
     transports.add(transport);
-    Runnable runnable = transport.start(new TransportListener(transport, address));
+    Runnable runnable = transport.start(listener);
     if (runnable != null) {
       syncContext.executeLater(runnable);
     }
-    channelLogger.log(ChannelLogLevel.INFO, "Started transport {0}", transportLogger.logId);
+    channelLogger.log(ChannelLogLevel.INFO, "Started transport {0}", transport.getLogId());
   }
 
   /**
@@ -356,6 +472,9 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
             if (state.getState() == READY) {
               savedTransport = activeTransport;
               activeTransport = null;
+              shutdownExtraTransports(
+                  Status.UNAVAILABLE.withDescription(
+                      "InternalSubchannel closed extra transport due to address change"));
               addressIndex.reset();
               gotoNonErrorState(IDLE);
             } else {
@@ -433,6 +552,7 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
         if (savedPendingTransport != null) {
           savedPendingTransport.shutdown(reason);
         }
+        shutdownExtraTransports(reason);
       }
     });
   }
@@ -512,6 +632,8 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
         List<InternalWithLogId> transportsSnapshot = new ArrayList<InternalWithLogId>(transports);
         builder.setTarget(addressGroupsSnapshot.toString()).setState(getState());
         builder.setSockets(transportsSnapshot);
+        builder.setTlsFullHandshakes(tlsFullHandshakes.value());
+        builder.setTlsResumedHandshakes(tlsResumedHandshakes.value());
         callsTracer.updateBuilder(builder);
         channelTracer.updateBuilder(builder);
         channelStatsFuture.set(builder.build());
@@ -524,6 +646,20 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
     return state.getState();
   }
 
+  /** Counts the TLS handshake of a transport that became ready, if it used TLS. */
+  private void recordTlsHandshake(ConnectionClientTransport transport) {
+    Boolean resumed = transport.getAttributes().get(GrpcAttributes.ATTR_TLS_SESSION_RESUMED);
+    if (resumed == null) {
+      return;
+    }
+    if (resumed) {
+      tlsResumedHandshakes.add(1);
+    } else {
+      tlsFullHandshakes.add(1);
+    }
+    callback.onTlsHandshake(this, resumed);
+  }
+
   private static void checkListHasNoNulls(List<?> list, String msg) {
     for (Object item : list) {
       Preconditions.checkNotNull(item, msg);
@@ -532,11 +668,11 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
 
   /** Listener for real transports. */
   private class TransportListener implements ManagedClientTransport.Listener {
-    final ConnectionClientTransport transport;
+    final CallTracingTransport transport;
     final SocketAddress address;
     boolean shutdownInitiated = false;
 
-    TransportListener(ConnectionClientTransport transport, SocketAddress address) {
+    TransportListener(CallTracingTransport transport, SocketAddress address) {
       this.transport = transport;
       this.address = address;
     }
@@ -547,6 +683,7 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
       syncContext.execute(new Runnable() {
         @Override
         public void run() {
+          recordTlsHandshake(transport);
           reconnectPolicy = null;
           if (shutdownReason != null) {
             // activeTransport should have already been set to null by shutdown(). We keep it null.
@@ -580,6 +717,9 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
           }
           if (activeTransport == transport) {
             activeTransport = null;
+            shutdownExtraTransports(
+                Status.UNAVAILABLE.withDescription(
+                    "InternalSubchannel closed extra transport as active transport shut down"));
             addressIndex.reset();
             gotoNonErrorState(IDLE);
           } else if (pendingTransport == transport) {
@@ -621,6 +761,137 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
     }
   }
 
+  /**
+   * Listener for extra transports. They do not change the state of the subchannel, and are shut
+   * down after being idle for {@link #EXTRA_TRANSPORT_IDLE_TIMEOUT_SECONDS}.
+   */
+  private final class ExtraTransportListener implements ManagedClientTransport.Listener {
+    final CallTracingTransport transport;
+    boolean shutdownInitiated = false;
+    // Must only be used from syncContext
+    @Nullable
+    ScheduledHandle idleTask;
+
+    ExtraTransportListener(CallTracingTransport transport) {
+      this.transport = transport;
+    }
+
+    @Override
+    public void transportReady() {
+      channelLogger.log(ChannelLogLevel.INFO, "{0} READY", transport.getLogId());
+      syncContext.execute(new Runnable() {
+        @Override
+        public void run() {
+          recordTlsHandshake(transport);
+          if (pendingExtraTransport != transport) {
+            // The subchannel left READY while connecting.
+            return;
+          }
+          pendingExtraTransport = null;
+          extraTransportBackoffPolicy = null;
+          List<CallTracingTransport> newExtraTransports = new ArrayList<>(extraTransports);
+          newExtraTransports.add(transport);
+          extraTransports = Collections.unmodifiableList(newExtraTransports);
+          scheduleIdleShutdown();
+        }
+      });
+    }
+
+    @Override
+    public void transportInUse(final boolean inUse) {
+      handleTransportInUseState(transport, inUse);
+      syncContext.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (inUse) {
+            cancelIdleShutdown();
+          } else if (extraTransports.contains(transport)) {
+            scheduleIdleShutdown();
+          }
+        }
+      });
+    }
+
+    @Override
+    public void transportShutdown(final Status s) {
+      channelLogger.log(
+          ChannelLogLevel.INFO, "{0} SHUTDOWN with {1}", transport.getLogId(), printShortStatus(s));
+      shutdownInitiated = true;
+      syncContext.execute(new Runnable() {
+        @Override
+        public void run() {
+          cancelIdleShutdown();
+          if (pendingExtraTransport == transport) {
+            // Failed to connect. Don't retry on every pick while the peer is unreachable.
+            pendingExtraTransport = null;
+            if (extraTransportBackoffPolicy == null) {
+              extraTransportBackoffPolicy = backoffPolicyProvider.get();
+            }
+            extraTransportBackoffTask = syncContext.schedule(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    extraTransportBackoffTask = null;
+                  }
+                },
+                extraTransportBackoffPolicy.nextBackoffNanos(),
+                TimeUnit.NANOSECONDS,
+                scheduledExecutor);
+          } else {
+            removeExtraTransport(transport);
+          }
+        }
+      });
+    }
+
+    @Override
+    public void transportTerminated() {
+      Preconditions.checkState(
+          shutdownInitiated, "transportShutdown() must be called before transportTerminated().");
+
+      channelLogger.log(ChannelLogLevel.INFO, "{0} Terminated", transport.getLogId());
+      channelz.removeClientSocket(transport);
+      handleTransportInUseState(transport, false);
+      syncContext.execute(new Runnable() {
+        @Override
+        public void run() {
+          transports.remove(transport);
+          if (state.getState() == SHUTDOWN && transports.isEmpty()) {
+            handleTermination();
+          }
+        }
+      });
+    }
+
+    private void scheduleIdleShutdown() {
+      cancelIdleShutdown();
+      idleTask = syncContext.schedule(
+          new Runnable() {
+            @Override
+            public void run() {
+              idleTask = null;
+              channelLogger.log(
+                  ChannelLogLevel.INFO, "{0} idle, shutting down", transport.getLogId());
+              // Stop picking it before shutting it down
+              removeExtraTransport(transport);
+              transport.shutdown(
+                  Status.UNAVAILABLE.withDescription(
+                      "InternalSubchannel closed idle extra transport"));
+            }
+          },
+          EXTRA_TRANSPORT_IDLE_TIMEOUT_SECONDS,
+          TimeUnit.SECONDS,
+          scheduledExecutor);
+    }
+
+    private void cancelIdleShutdown() {
+      if (idleTask != null) {
+        idleTask.cancel();
+        idleTask = null;
+      }
+    }
+  }
+
   // All methods are called in syncContext
   abstract static class Callback {
     /**
@@ -649,12 +920,20 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
      */
     @ForOverride
     void onNotInUse(InternalSubchannel is) { }
+
+    /**
+     * Called when a transport of the subchannel completed a TLS handshake, which resumed a session
+     * or was a full handshake.
+     */
+    @ForOverride
+    void onTlsHandshake(InternalSubchannel is, boolean resumed) { }
   }
 
   @VisibleForTesting
   static final class CallTracingTransport extends ForwardingConnectionClientTransport {
     private final ConnectionClientTransport delegate;
     private final CallTracer callTracer;
+    private final AtomicInteger activeStreams = new AtomicInteger();
 
     private CallTracingTransport(ConnectionClientTransport delegate, CallTracer callTracer) {
       this.delegate = delegate;
@@ -680,6 +959,7 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
         @Override
         public void start(final ClientStreamListener listener) {
           callTracer.reportCallStarted();
+          activeStreams.incrementAndGet();
           super.start(new ForwardingClientStreamListener() {
             @Override
             protected ClientStreamListener delegate() {
@@ -689,6 +969,7 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
             @Override
             public void closed(
                 Status status, RpcProgress rpcProgress, Metadata trailers) {
+              activeStreams.decrementAndGet();
               callTracer.reportCallEnded(status.isOk());
               super.closed(status, rpcProgress, trailers);
             }
@@ -696,6 +977,14 @@ final class InternalSubchannel implements InternalInstrumented<ChannelStats>, Tr
         }
       };
     }
+
+    /**
+     * Returns how many more streams can be started before reaching the peer's limit. May be
+     * negative when streams are queued by the transport.
+     */
+    long getRemainingStreams() {
+      return (long) getMaxConcurrentStreams() - activeStreams.get();
+    }
   }
 
   /** Index as in 'i', the pointer to an entry. Not a "search index." */
@@ -28,6 +28,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.grpc.Attributes;
@@ -73,6 +74,7 @@ import io.grpc.NameResolver.ConfigOrError;
 import io.grpc.NameResolver.ResolutionResult;
 import io.grpc.NameResolverRegistry;
 import io.grpc.ProxyDetector;
+import io.grpc.RetryBudget;
 import io.grpc.Status;
 import io.grpc.SynchronizationContext;
 import io.grpc.SynchronizationContext.ScheduledHandle;
@@ -96,6 +98,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -173,6 +177,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
   private final ExecutorHolder offloadExecutorHolder;
   private final TimeProvider timeProvider;
   private final int maxTraceEvents;
+  private final int maxConnectionsPerSubchannel;
 
   @VisibleForTesting
   final SynchronizationContext syncContext = new SynchronizationContext(
@@ -295,6 +300,14 @@ final class ManagedChannelImpl extends ManagedChannel implements
 
   // Temporary false flag that can skip the retry code path.
   private final boolean retryEnabled;
+  @Nullable
+  private final RetryBudget retryBudget;
+  private final LongCounter retriesDeniedByBudget = LongCounterFactory.create();
+  private final LongCounter tlsFullHandshakes = LongCounterFactory.create();
+  private final LongCounter tlsResumedHandshakes = LongCounterFactory.create();
+  // Keyed by full method name, for hedging policies with a hedgingDelayPercentile
+  private final ConcurrentMap<String, HedgingLatencyTracker> hedgingLatencyTrackers =
+      new ConcurrentHashMap<>();
 
   // Called from syncContext
   private final ManagedClientTransport.Listener delayedTransportListener =
@@ -326,6 +339,10 @@ final class ManagedChannelImpl extends ManagedChannel implements
         channelCallTracer.updateBuilder(builder);
         channelTracer.updateBuilder(builder);
         builder.setTarget(target).setState(channelStateManager.getState());
+        builder.setRetryBufferedBytes(channelBufferUsed.get());
+        builder.setRetriesDeniedByBudget(retriesDeniedByBudget.value());
+        builder.setTlsFullHandshakes(tlsFullHandshakes.value());
+        builder.setTlsResumedHandshakes(tlsResumedHandshakes.value());
         List<InternalWithLogId> children = new ArrayList<>();
         children.addAll(subchannels);
         children.addAll(oobChannels);
@@ -550,6 +567,12 @@ final class ManagedChannelImpl extends ManagedChannel implements
         MethodInfo methodInfo = callOptions.getOption(MethodInfo.KEY);
         final RetryPolicy retryPolicy = methodInfo == null ? null : methodInfo.retryPolicy;
         final HedgingPolicy hedgingPolicy = methodInfo == null ? null : methodInfo.hedgingPolicy;
+        final HedgingLatencyTracker latencyTracker =
+            hedgingPolicy == null || hedgingPolicy.hedgingDelayPercentile == null
+                ? null : getHedgingLatencyTracker(method.getFullMethodName(), hedgingPolicy);
+        if (retryBudget != null) {
+          retryBudget.recordRequest(target, method);
+        }
         final class RetryStream<ReqT> extends RetriableStream<ReqT> {
           @SuppressWarnings("unchecked")
           RetryStream() {
@@ -563,6 +586,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
                 transportFactory.getScheduledExecutorService(),
                 retryPolicy,
                 hedgingPolicy,
+                latencyTracker,
                 throttle);
           }
 
@@ -576,6 +600,20 @@ final class ManagedChannelImpl extends ManagedChannel implements
             uncommittedRetriableStreamsRegistry.remove(this);
           }
 
+          @Override
+          boolean hasRetryBudget() {
+            return retryBudget == null || retryBudget.hasCapacity(target, method);
+          }
+
+          @Override
+          boolean acquireRetryBudget() {
+            if (retryBudget == null || retryBudget.tryAcquire(target, method)) {
+              return true;
+            }
+            retriesDeniedByBudget.add(1);
+            return false;
+          }
+
           @Override
           ClientStream newSubstream(
               Metadata newHeaders, ClientStreamTracer.Factory factory, int previousAttempts,
@@ -625,6 +663,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
     this.scheduledExecutor =
         new RestrictedScheduledExecutor(transportFactory.getScheduledExecutorService());
     maxTraceEvents = builder.maxTraceEvents;
+    maxConnectionsPerSubchannel = builder.maxConnectionsPerSubchannel;
     channelTracer = new ChannelTracer(
         logId, builder.maxTraceEvents, timeProvider.currentTimeNanos(),
         "Channel for '" + target + "'");
@@ -632,6 +671,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
     ProxyDetector proxyDetector =
         builder.proxyDetector != null ? builder.proxyDetector : GrpcUtil.DEFAULT_PROXY_DETECTOR;
     this.retryEnabled = builder.retryEnabled;
+    this.retryBudget = builder.retryBudget;
     this.loadBalancerFactory = new AutoConfiguredLoadBalancerFactory(builder.defaultLbPolicy);
     this.offloadExecutorHolder =
         new ExecutorHolder(
@@ -732,6 +772,10 @@ final class ManagedChannelImpl extends ManagedChannel implements
       }
       serviceConfigUpdated = true;
     }
+
+    if (builder.eagerConnect) {
+      getState(true);
+    }
   }
 
   private static NameResolver getNameResolver(
@@ -936,6 +980,29 @@ final class ManagedChannelImpl extends ManagedChannel implements
     return executor;
   }
 
+  private HedgingLatencyTracker getHedgingLatencyTracker(
+      String fullMethodName, HedgingPolicy hedgingPolicy) {
+    HedgingLatencyTracker tracker = hedgingLatencyTrackers.get(fullMethodName);
+    // Latencies are kept across service config updates, unless the policy of the method changed
+    if (tracker == null
+        || tracker.percentile != hedgingPolicy.hedgingDelayPercentile
+        || tracker.maxHedgeRatio != hedgingPolicy.maxHedgeRatio) {
+      HedgingLatencyTracker newTracker = new HedgingLatencyTracker(
+          hedgingPolicy.hedgingDelayPercentile, hedgingPolicy.maxHedgeRatio,
+          Ticker.systemTicker());
+      if (tracker == null) {
+        tracker = hedgingLatencyTrackers.putIfAbsent(fullMethodName, newTracker);
+        if (tracker == null) {
+          tracker = newTracker;
+        }
+      } else {
+        hedgingLatencyTrackers.put(fullMethodName, newTracker);
+        tracker = newTracker;
+      }
+    }
+    return tracker;
+  }
+
   private class RealChannel extends Channel {
     // Reference to null if no config selector is available from resolution result
     // Reference must be set() from syncContext
@@ -1561,7 +1628,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
       final InternalSubchannel internalSubchannel = new InternalSubchannel(
           addressGroup,
           authority, userAgent, backoffPolicyProvider, oobTransportFactory,
-          oobTransportFactory.getScheduledExecutorService(), stopwatchSupplier, syncContext,
+          oobTransportFactory.getScheduledExecutorService(), 1, stopwatchSupplier, syncContext,
           // All callback methods are run from syncContext
           new ManagedOobChannelCallback(),
           channelz,
@@ -1993,6 +2060,16 @@ final class ManagedChannelImpl extends ManagedChannel implements
           inUseStateAggregator.updateObjectInUse(is, true);
         }
 
+        @Override
+        void onTlsHandshake(InternalSubchannel is, boolean resumed) {
+          // Counted by the channel too, as its subchannels come and go
+          if (resumed) {
+            tlsResumedHandshakes.add(1);
+          } else {
+            tlsFullHandshakes.add(1);
+          }
+        }
+
         @Override
         void onNotInUse(InternalSubchannel is) {
           inUseStateAggregator.updateObjectInUse(is, false);
@@ -2006,6 +2083,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
           backoffPolicyProvider,
           transportFactory,
           transportFactory.getScheduledExecutorService(),
+          maxConnectionsPerSubchannel,
           stopwatchSupplier,
           syncContext,
           new ManagedInternalSubchannelCallback(),
@@ -36,6 +36,7 @@ import io.grpc.ManagedChannelBuilder;
 import io.grpc.NameResolver;
 import io.grpc.NameResolverRegistry;
 import io.grpc.ProxyDetector;
+import io.grpc.RetryBudget;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.SocketAddress;
@@ -137,15 +138,19 @@ public final class ManagedChannelImplBuilder
   CompressorRegistry compressorRegistry = DEFAULT_COMPRESSOR_REGISTRY;
 
   long idleTimeoutMillis = IDLE_MODE_DEFAULT_TIMEOUT_MILLIS;
+  boolean eagerConnect;
 
   int maxRetryAttempts = 5;
   int maxHedgedAttempts = 5;
   long retryBufferSize = DEFAULT_RETRY_BUFFER_SIZE_IN_BYTES;
   long perRpcBufferLimit = DEFAULT_PER_RPC_BUFFER_LIMIT_IN_BYTES;
   boolean retryEnabled = true;
+  @Nullable
+  RetryBudget retryBudget;
 
   InternalChannelz channelz = InternalChannelz.instance();
   int maxTraceEvents;
+  int maxConnectionsPerSubchannel = 1;
 
   @Nullable
   Map<String, ?> defaultServiceConfig;
@@ -422,6 +427,12 @@ public final class ManagedChannelImplBuilder
     return this;
   }
 
+  @Override
+  public ManagedChannelImplBuilder eagerConnect() {
+    this.eagerConnect = true;
+    return this;
+  }
+
   @Override
   public ManagedChannelImplBuilder maxRetryAttempts(int maxRetryAttempts) {
     this.maxRetryAttempts = maxRetryAttempts;
@@ -448,6 +459,12 @@ public final class ManagedChannelImplBuilder
     return this;
   }
 
+  @Override
+  public ManagedChannelImplBuilder retryBudget(RetryBudget retryBudget) {
+    this.retryBudget = Preconditions.checkNotNull(retryBudget, "retryBudget");
+    return this;
+  }
+
   @Override
   public ManagedChannelImplBuilder disableRetry() {
     retryEnabled = false;
@@ -473,6 +490,13 @@ public final class ManagedChannelImplBuilder
     return this;
   }
 
+  @Override
+  public ManagedChannelImplBuilder maxConnectionsPerSubchannel(int maxConnections) {
+    checkArgument(maxConnections >= 1, "maxConnections must be at least 1");
+    this.maxConnectionsPerSubchannel = maxConnections;
+    return this;
+  }
+
   @Override
   public ManagedChannelImplBuilder proxyDetector(@Nullable ProxyDetector proxyDetector) {
     this.proxyDetector = proxyDetector;
@@ -391,9 +391,24 @@ final class ManagedChannelServiceConfig {
       checkArgument(
           hedgingDelayNanos >= 0, "hedgingDelay must not be negative: %s", hedgingDelayNanos);
 
+      Double hedgingDelayPercentile =
+          ServiceConfigUtil.getHedgingDelayPercentileFromHedgingPolicy(hedgingPolicy);
+      checkArgument(
+          hedgingDelayPercentile == null
+              || (hedgingDelayPercentile > 0 && hedgingDelayPercentile < 100),
+          "hedgingDelayPercentile must be between 0 and 100 exclusive: %s",
+          hedgingDelayPercentile);
+
+      Double maxHedgeRatio = ServiceConfigUtil.getMaxHedgeRatioFromHedgingPolicy(hedgingPolicy);
+      if (maxHedgeRatio == null) {
+        maxHedgeRatio = HedgingPolicy.DEFAULT_MAX_HEDGE_RATIO;
+      }
+      checkArgument(maxHedgeRatio >= 0, "maxHedgeRatio must not be negative: %s", maxHedgeRatio);
+
       return new HedgingPolicy(
           maxAttempts, hedgingDelayNanos,
-          ServiceConfigUtil.getNonFatalStatusCodesFromHedgingPolicy(hedgingPolicy));
+          ServiceConfigUtil.getNonFatalStatusCodesFromHedgingPolicy(hedgingPolicy),
+          hedgingDelayPercentile, maxHedgeRatio);
     }
   }
 
@@ -22,17 +22,23 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.io.ByteStreams;
 import io.grpc.Attributes;
 import io.grpc.ClientStreamTracer;
 import io.grpc.Compressor;
 import io.grpc.Deadline;
 import io.grpc.DecompressorRegistry;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.grpc.Status;
 import io.grpc.SynchronizationContext;
 import io.grpc.internal.ClientStreamListener.RpcProgress;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -84,6 +90,8 @@ abstract class RetriableStream<ReqT> implements ClientStream {
   @Nullable
   private final HedgingPolicy hedgingPolicy;
   private final boolean isHedging;
+  @Nullable
+  private final HedgingLatencyTracker latencyTracker;
 
   /** Must be held when updating state, accessing state.buffer, or certain substream attributes. */
   private final Object lock = new Object();
@@ -127,7 +135,7 @@ abstract class RetriableStream<ReqT> implements ClientStream {
       ChannelBufferMeter channelBufferUsed, long perRpcBufferLimit, long channelBufferLimit,
       Executor callExecutor, ScheduledExecutorService scheduledExecutorService,
       @Nullable RetryPolicy retryPolicy, @Nullable HedgingPolicy hedgingPolicy,
-      @Nullable Throttle throttle) {
+      @Nullable HedgingLatencyTracker latencyTracker, @Nullable Throttle throttle) {
     this.method = method;
     this.channelBufferUsed = channelBufferUsed;
     this.perRpcBufferLimit = perRpcBufferLimit;
@@ -144,6 +152,7 @@ abstract class RetriableStream<ReqT> implements ClientStream {
         retryPolicy == null || hedgingPolicy == null,
         "Should not provide both retryPolicy and hedgingPolicy");
     this.isHedging = hedgingPolicy != null;
+    this.latencyTracker = isHedging ? latencyTracker : null;
     this.throttle = throttle;
   }
 
@@ -222,6 +231,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
 
   private Substream createSubstream(int previousAttemptCount, boolean isTransparentRetry) {
     Substream sub = new Substream(previousAttemptCount);
+    if (latencyTracker != null) {
+      sub.startTimeNanos = latencyTracker.currentTimeNanos();
+    }
     // one tracer per substream
     final ClientStreamTracer bufferSizeTracer = new BufferSizeTracer(sub);
     ClientStreamTracer.Factory tracerFactory = new ClientStreamTracer.Factory() {
@@ -343,6 +355,46 @@ abstract class RetriableStream<ReqT> implements ClientStream {
   @Nullable
   abstract Status prestart();
 
+  /**
+   * Returns whether the retry budget of the channel would allow a retry or hedged attempt now.
+   */
+  boolean hasRetryBudget() {
+    return true;
+  }
+
+  /**
+   * Uses the retry budget of the channel for a retry or hedged attempt. Returns {@code false} if
+   * the attempt must not be made.
+   */
+  boolean acquireRetryBudget() {
+    return true;
+  }
+
+  /**
+   * Returns whether a new hedged attempt is allowed by the hedge ratio of the policy and by the
+   * retry budget of the channel.
+   */
+  private boolean acquireHedge() {
+    if (latencyTracker != null && !latencyTracker.hasHedgeCapacity()) {
+      return false;
+    }
+    // A hedge refused by the budget must not count against the hedge ratio
+    if (!acquireRetryBudget()) {
+      return false;
+    }
+    if (latencyTracker != null) {
+      latencyTracker.recordHedge();
+    }
+    return true;
+  }
+
+  private long hedgingDelayNanos() {
+    if (latencyTracker == null) {
+      return hedgingPolicy.hedgingDelayNanos;
+    }
+    return latencyTracker.hedgingDelayNanos(hedgingPolicy.hedgingDelayNanos);
+  }
+
   class StartEntry implements BufferEntry {
     @Override
     public void runWith(Substream substream) {
@@ -368,6 +420,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
 
     Substream substream = createSubstream(0, false);
     if (isHedging) {
+      if (latencyTracker != null) {
+        latencyTracker.recordRequest();
+      }
       FutureCanceller scheduledHedgingRef = null;
 
       synchronized (lock) {
@@ -382,7 +437,7 @@ abstract class RetriableStream<ReqT> implements ClientStream {
         scheduledHedgingRef.setFuture(
             scheduledExecutorService.schedule(
                 new HedgingRunnable(scheduledHedgingRef),
-                hedgingPolicy.hedgingDelayNanos,
+                hedgingDelayNanos(),
                 TimeUnit.NANOSECONDS));
       }
     }
@@ -439,6 +494,21 @@ abstract class RetriableStream<ReqT> implements ClientStream {
             @SuppressWarnings("GuardedBy")
             @Override
             public void run() {
+              if (!acquireHedge()) {
+                synchronized (lock) {
+                  if (scheduledHedgingRef.isCancelled()) {
+                    return;
+                  }
+                  // Without budget, stop hedging and let the active hedges complete the RPC. If
+                  // they have all failed already, this hedge is still made, as nothing else would
+                  // complete the RPC.
+                  if (!state.activeHedges.isEmpty()) {
+                    state = state.freezeHedging();
+                    scheduledHedging = null;
+                    return;
+                  }
+                }
+              }
               // It's safe to read state.hedgingAttemptCount here.
               // If this run is not cancelled, the value of state.hedgingAttemptCount won't change
               // until state.addActiveHedge() is called subsequently, even the state could possibly
@@ -473,7 +543,7 @@ abstract class RetriableStream<ReqT> implements ClientStream {
                 future.setFuture(
                     scheduledExecutorService.schedule(
                         new HedgingRunnable(future),
-                        hedgingPolicy.hedgingDelayNanos,
+                        hedgingDelayNanos(),
                         TimeUnit.NANOSECONDS));
               }
               drain(newSubstream);
@@ -546,10 +616,12 @@ abstract class RetriableStream<ReqT> implements ClientStream {
       return;
     }
 
+    final BufferedMessage bufferedMessage = new BufferedMessage(message);
+
     class SendMessageEntry implements BufferEntry {
       @Override
       public void runWith(Substream substream) {
-        substream.stream.writeMessage(method.streamRequest(message));
+        substream.stream.writeMessage(bufferedMessage.stream());
       }
     }
 
@@ -813,6 +885,10 @@ abstract class RetriableStream<ReqT> implements ClientStream {
 
     @Override
     public void headersRead(final Metadata headers) {
+      if (latencyTracker != null) {
+        latencyTracker.recordLatency(
+            latencyTracker.currentTimeNanos() - substream.startTimeNanos);
+      }
       commitAndRun(substream);
       if (state.winningSubstream == substream) {
         if (throttle != null) {
@@ -921,6 +997,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
             HedgingPlan hedgingPlan = makeHedgingDecision(status, trailers);
             if (hedgingPlan.isHedgeable) {
               pushbackHedging(hedgingPlan.hedgingPushbackMillis);
+              if (!hasRetryBudget()) {
+                freezeHedging();
+              }
             }
             synchronized (lock) {
               state = state.removeActiveHedge(substream);
@@ -1021,6 +1100,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
         } // else no retry
       } // else no retry
 
+      if (shouldRetry && !acquireRetryBudget()) {
+        shouldRetry = false;
+      }
       return new RetryPlan(shouldRetry, backoffNanos);
     }
 
@@ -1306,6 +1388,9 @@ abstract class RetriableStream<ReqT> implements ClientStream {
 
     final int previousAttemptCount;
 
+    // Only set for hedging policies with a hedgingDelayPercentile
+    long startTimeNanos;
+
     Substream(int previousAttemptCount) {
       this.previousAttemptCount = previousAttemptCount;
     }
@@ -1373,6 +1458,75 @@ abstract class RetriableStream<ReqT> implements ClientStream {
     }
   }
 
+  /**
+   * A message buffered for retries and hedges. The first substream is given the marshalled message
+   * as is. Its bytes are only kept once another substream needs them, and then shared by all later
+   * ones, so the message is marshalled at most twice however many attempts there are.
+   */
+  private final class BufferedMessage {
+    @Nullable
+    private ReqT message;
+    @Nullable
+    private byte[] bytes;
+    private boolean streamed;
+
+    BufferedMessage(ReqT message) {
+      this.message = message;
+    }
+
+    synchronized InputStream stream() {
+      if (bytes != null) {
+        return new BufferedMessageStream(bytes);
+      }
+      InputStream stream = method.streamRequest(message);
+      if (!streamed) {
+        streamed = true;
+        return stream;
+      }
+      byte[] copied;
+      try {
+        try {
+          // A message over the buffer limit commits the call on its first attempt, so it is not
+          // worth copying; such a message is marshalled again instead. Long.MAX_VALUE means no
+          // limit, and must not overflow.
+          long copyLimit =
+              perRpcBufferLimit == Long.MAX_VALUE ? Long.MAX_VALUE : perRpcBufferLimit + 1;
+          copied = ByteStreams.toByteArray(ByteStreams.limit(stream, copyLimit));
+        } finally {
+          stream.close();
+        }
+      } catch (IOException e) {
+        throw Status.INTERNAL.withDescription("Failed to marshal message").withCause(e)
+            .asRuntimeException();
+      }
+      if (copied.length > perRpcBufferLimit) {
+        return method.streamRequest(message);
+      }
+      bytes = copied;
+      message = null;
+      return new BufferedMessageStream(bytes);
+    }
+  }
+
+  /**
+   * A view of a buffered message that is shared between substreams. Draining it writes the shared
+   * bytes directly to the framer without copying them.
+   */
+  private static final class BufferedMessageStream extends ByteArrayInputStream
+      implements KnownLength, Drainable {
+    BufferedMessageStream(byte[] bytes) {
+      super(bytes);
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+      int length = count - pos;
+      target.write(buf, pos, length);
+      pos = count;
+      return length;
+    }
+  }
+
   /**
    *  Used to keep track of the total amount of memory used to buffer retryable or hedged RPCs for
    *  the Channel. There should be a single instance of it for each channel.
@@ -1384,6 +1538,11 @@ abstract class RetriableStream<ReqT> implements ClientStream {
     long addAndGet(long newBytesUsed) {
       return bufferUsed.addAndGet(newBytesUsed);
     }
+
+    /** Returns the number of bytes currently buffered for retry and hedging. */
+    long get() {
+      return bufferUsed.get();
+    }
   }
 
   /**
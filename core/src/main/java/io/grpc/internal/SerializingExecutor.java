@@ -16,13 +16,13 @@
 
 package io.grpc.internal;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Preconditions;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -31,6 +31,13 @@ import javax.annotation.Nullable;
  * Executor ensuring that all {@link Runnable} tasks submitted are executed in order
  * using the provided {@link Executor}, and serially such that no two will ever be
  * running at the same time.
+ *
+ * <p>Tasks are queued in a multi-producer single-consumer linked queue, which a producer enters
+ * with a single atomic swap. Only the producer finding the executor stopped submits it to the
+ * underlying executor, which then runs the queued tasks until the queue is empty, or until it ran
+ * its drain budget of tasks and submits itself again to let other work use the thread. Once the
+ * queue is empty, it may stay on the thread for a short time waiting for more tasks, saving a
+ * submission when tasks come in close succession.
  */
 // TODO(madongfly): figure out a way to not expose it or move it to transport package.
 public final class SerializingExecutor implements Executor, Runnable {
@@ -47,7 +54,9 @@ public final class SerializingExecutor implements Executor, Runnable {
     try {
       helper =
           new FieldUpdaterAtomicHelper(
-              AtomicIntegerFieldUpdater.newUpdater(SerializingExecutor.class, "runState"));
+              AtomicIntegerFieldUpdater.newUpdater(SerializingExecutor.class, "runState"),
+              AtomicReferenceFieldUpdater.newUpdater(
+                  SerializingExecutor.class, Node.class, "tail"));
     } catch (Throwable t) {
       log.log(Level.SEVERE, "FieldUpdaterAtomicHelper failed", t);
       helper = new SynchronizedAtomicHelper();
@@ -61,8 +70,20 @@ public final class SerializingExecutor implements Executor, Runnable {
   /** Underlying executor that all submitted Runnable objects are run on. */
   private Executor executor;
 
-  /** A list of Runnables to be run in order. */
-  private final Queue<Runnable> runQueue = new ConcurrentLinkedQueue<>();
+  /** The maximum number of tasks to run each time this executor is run by {@link #executor}. */
+  private final int drainBudget;
+
+  /** How long to wait for more tasks once the queue is empty, before giving up the thread. */
+  private final long stayOnThreadNanos;
+
+  /**
+   * The last task consumed, whose node is kept as the head of the queue. Only accessed by the
+   * thread running this executor.
+   */
+  private Node head;
+
+  /** The last task queued. */
+  private volatile Node tail;
 
   private volatile int runState = STOPPED;
 
@@ -72,8 +93,28 @@ public final class SerializingExecutor implements Executor, Runnable {
    * @param executor Executor in which tasks should be run. Must not be null.
    */
   public SerializingExecutor(Executor executor) {
+    this(executor, Integer.MAX_VALUE, 0);
+  }
+
+  /**
+   * Creates a SerializingExecutor, running tasks using {@code executor}.
+   *
+   * @param executor Executor in which tasks should be run. Must not be null.
+   * @param drainBudget the maximum number of tasks to run before submitting this executor again to
+   *     {@code executor}, to let other tasks run. Must be positive.
+   * @param stayOnThreadNanos how long to wait for more tasks on the thread of {@code executor} once
+   *     all the tasks ran, before giving the thread back. Must not be negative.
+   */
+  public SerializingExecutor(Executor executor, int drainBudget, long stayOnThreadNanos) {
     Preconditions.checkNotNull(executor, "'executor' must not be null.");
+    checkArgument(drainBudget > 0, "drainBudget must be positive: %s", drainBudget);
+    checkArgument(
+        stayOnThreadNanos >= 0, "stayOnThreadNanos must not be negative: %s", stayOnThreadNanos);
     this.executor = executor;
+    this.drainBudget = drainBudget;
+    this.stayOnThreadNanos = stayOnThreadNanos;
+    this.head = new Node(null);
+    this.tail = head;
   }
 
   /**
@@ -91,11 +132,14 @@ public final class SerializingExecutor implements Executor, Runnable {
    */
   @Override
   public void execute(Runnable r) {
-    runQueue.add(checkNotNull(r, "'r' must not be null."));
-    schedule(r);
+    Node node = new Node(checkNotNull(r, "'r' must not be null."));
+    atomicHelper.tailGetAndSet(this, node).next = node;
+    if (runState == STOPPED) {
+      schedule(node);
+    }
   }
 
-  private void schedule(@Nullable Runnable removable) {
+  private void schedule(@Nullable Node removable) {
     if (atomicHelper.runStateCompareAndSet(this, STOPPED, RUNNING)) {
       boolean success = false;
       try {
@@ -109,13 +153,10 @@ public final class SerializingExecutor implements Executor, Runnable {
         if (!success) {
           if (removable != null) {
             // This case can only be reached if 'this' was not currently running, and we failed to
-            // reschedule.  The item should still be in the queue for removal.
-            // ConcurrentLinkedQueue claims that null elements are not allowed, but seems to not
-            // throw if the item to remove is null.  If removable is present in the queue twice,
-            // the wrong one may be removed.  It doesn't seem possible for this case to exist today.
+            // reschedule, so nothing consumes the queue and the task can be dropped from its node.
             // This is important to run in case of RejectedExectuionException, so that future calls
             // to execute don't succeed and accidentally run a previous runnable.
-            runQueue.remove(removable);
+            removable.task = null;
           }
           atomicHelper.runStateSet(this, STOPPED);
         }
@@ -126,9 +167,11 @@ public final class SerializingExecutor implements Executor, Runnable {
   @Override
   public void run() {
     Runnable r;
+    Node lastConsumed;
     try {
       Executor oldExecutor = executor;
-      while (oldExecutor == executor && (r = runQueue.poll()) != null ) {
+      int budget = drainBudget;
+      while (oldExecutor == executor && budget-- > 0 && (r = pollOrStay()) != null) {
         try {
           r.run();
         } catch (RuntimeException e) {
@@ -137,26 +180,78 @@ public final class SerializingExecutor implements Executor, Runnable {
         }
       }
     } finally {
+      lastConsumed = head;
       atomicHelper.runStateSet(this, STOPPED);
     }
-    if (!runQueue.isEmpty()) {
-      // we didn't enqueue anything but someone else did.
+    if (tail != lastConsumed) {
+      // we didn't enqueue anything but someone else did, or we ran out of budget.
       schedule(null);
     }
   }
 
+  @Nullable
+  private Runnable pollOrStay() {
+    Runnable r = poll();
+    if (r == null && stayOnThreadNanos > 0) {
+      long deadline = System.nanoTime() + stayOnThreadNanos;
+      do {
+        Thread.yield();
+        r = poll();
+      } while (r == null && System.nanoTime() - deadline < 0);
+    }
+    return r;
+  }
+
+  @Nullable
+  private Runnable poll() {
+    Node node = head;
+    while (true) {
+      Node next = node.next;
+      if (next == null) {
+        if (tail == node) {
+          return null;
+        }
+        // A producer swapped the tail but did not link its node yet
+        Thread.yield();
+        continue;
+      }
+      head = next;
+      Runnable task = next.task;
+      next.task = null;
+      if (task != null) {
+        return task;
+      }
+      node = next;
+    }
+  }
+
+  private static final class Node {
+    @Nullable
+    Runnable task;
+    volatile Node next;
+
+    Node(@Nullable Runnable task) {
+      this.task = task;
+    }
+  }
+
   private abstract static class AtomicHelper {
     public abstract boolean runStateCompareAndSet(SerializingExecutor obj, int expect, int update);
 
     public abstract void runStateSet(SerializingExecutor obj, int newValue);
+
+    public abstract Node tailGetAndSet(SerializingExecutor obj, Node newValue);
   }
 
   private static final class FieldUpdaterAtomicHelper extends AtomicHelper {
     private final AtomicIntegerFieldUpdater<SerializingExecutor> runStateUpdater;
+    private final AtomicReferenceFieldUpdater<SerializingExecutor, Node> tailUpdater;
 
     private FieldUpdaterAtomicHelper(
-        AtomicIntegerFieldUpdater<SerializingExecutor> runStateUpdater) {
+        AtomicIntegerFieldUpdater<SerializingExecutor> runStateUpdater,
+        AtomicReferenceFieldUpdater<SerializingExecutor, Node> tailUpdater) {
       this.runStateUpdater = runStateUpdater;
+      this.tailUpdater = tailUpdater;
     }
 
     @Override
@@ -168,6 +263,11 @@ public final class SerializingExecutor implements Executor, Runnable {
     public void runStateSet(SerializingExecutor obj, int newValue) {
       runStateUpdater.set(obj, newValue);
     }
+
+    @Override
+    public Node tailGetAndSet(SerializingExecutor obj, Node newValue) {
+      return tailUpdater.getAndSet(obj, newValue);
+    }
   }
 
   private static final class SynchronizedAtomicHelper extends AtomicHelper {
@@ -188,5 +288,14 @@ public final class SerializingExecutor implements Executor, Runnable {
         obj.runState = newValue;
       }
     }
+
+    @Override
+    public Node tailGetAndSet(SerializingExecutor obj, Node newValue) {
+      synchronized (obj) {
+        Node oldValue = obj.tail;
+        obj.tail = newValue;
+        return oldValue;
+      }
+    }
   }
 }
@@ -73,6 +73,7 @@ import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 /**
@@ -126,8 +127,12 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
 
   private final InternalChannelz channelz;
   private final CallTracer serverCallTracer;
+  private final LongCounter tlsFullHandshakes = LongCounterFactory.create();
+  private final LongCounter tlsResumedHandshakes = LongCounterFactory.create();
   private final Deadline.Ticker ticker;
   private final ServerCallExecutorSupplier executorSupplier;
+  @Nullable
+  private final CallQueueMonitor callQueueMonitor;
 
   /**
    * Construct a server.
@@ -163,6 +168,8 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
     this.ticker = checkNotNull(builder.ticker, "ticker");
     channelz.addServer(this);
     this.executorSupplier = builder.executorSupplier;
+    this.callQueueMonitor = builder.maxCallQueueDelayNanos == 0
+        ? null : new CallQueueMonitor(builder.maxCallQueueDelayNanos, ticker.nanoTime());
   }
 
   /**
@@ -436,6 +443,14 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
       handshakeTimeoutFuture.cancel(false);
       handshakeTimeoutFuture = null;
 
+      Boolean tlsSessionResumed = attributes.get(GrpcAttributes.ATTR_TLS_SESSION_RESUMED);
+      if (tlsSessionResumed != null) {
+        if (tlsSessionResumed) {
+          tlsResumedHandshakes.add(1);
+        } else {
+          tlsFullHandshakes.add(1);
+        }
+      }
       for (ServerTransportFilter filter : transportFilters) {
         attributes = Preconditions.checkNotNull(filter.transportReady(attributes),
             "Filter %s returned null", filter);
@@ -470,6 +485,16 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
 
     private void streamCreatedInternal(
         final ServerStream stream, final String methodName, final Metadata headers, final Tag tag) {
+      if (callQueueMonitor != null && callQueueMonitor.isOverloaded(ticker.nanoTime())) {
+        // Rejecting the call before it is queued keeps the queue short, so the accepted calls
+        // still complete before their deadline.
+        stream.setListener(NOOP_LISTENER);
+        stream.close(
+            Status.RESOURCE_EXHAUSTED.withDescription("Server overloaded: calls are queuing"),
+            new Metadata());
+        return;
+      }
+      final long queuedNanos = callQueueMonitor == null ? 0 : ticker.nanoTime();
       final Executor wrappedExecutor;
       // This is a performance optimization that avoids the synchronization and queuing overhead
       // that comes with SerializingExecutor.
@@ -532,6 +557,14 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
         }
 
         private void runInternal() {
+          if (callQueueMonitor != null) {
+            long nowNanos = ticker.nanoTime();
+            callQueueMonitor.recordWait(nowNanos, nowNanos - queuedNanos);
+          }
+          if (dropIfExpired(stream, context, jumpListener)) {
+            future.cancel(false);
+            return;
+          }
           ServerMethodDefinition<?, ?> wrapMethod;
           ServerCallParameters<?, ?> callParams;
           try {
@@ -611,6 +644,10 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
           if (future.isCancelled()) {
             return;
           }
+          // The call may have waited for the executor chosen by the executorSupplier
+          if (dropIfExpired(stream, context, jumpListener)) {
+            return;
+          }
           try {
             listener = startWrappedCall(methodName, Futures.getDone(future), headers);
           } catch (Throwable ex) {
@@ -644,6 +681,25 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
       wrappedExecutor.execute(new HandleServerCall());
     }
 
+    /**
+     * Cancels the call if its deadline expired while it waited for the executor. Nobody waits for
+     * its response anymore, so not starting it leaves the executor to the calls that can still
+     * complete.
+     */
+    private boolean dropIfExpired(
+        ServerStream stream, Context.CancellableContext context,
+        JumpToApplicationThreadServerStreamListener jumpListener) {
+      Deadline deadline = context.getDeadline();
+      if (deadline == null || !deadline.isExpired()) {
+        return false;
+      }
+      jumpListener.setListener(NOOP_LISTENER);
+      stream.cancel(
+          Status.DEADLINE_EXCEEDED.withDescription("Deadline expired before call started"));
+      context.cancel(null);
+      return true;
+    }
+
     private Context.CancellableContext createContext(
         Metadata headers, StatsTraceContext statsTraceCtx) {
       Long timeoutNanos = headers.get(TIMEOUT_KEY);
@@ -722,6 +778,8 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
       builder.addListenSockets(stats);
     }
     serverCallTracer.updateBuilder(builder);
+    builder.setTlsFullHandshakes(tlsFullHandshakes.value());
+    builder.setTlsResumedHandshakes(tlsResumedHandshakes.value());
     SettableFuture<ServerStats> ret = SettableFuture.create();
     ret.set(builder.build());
     return ret;
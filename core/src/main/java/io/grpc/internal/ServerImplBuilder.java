@@ -85,6 +85,8 @@ public final class ServerImplBuilder extends ServerBuilder<ServerImplBuilder> {
   DecompressorRegistry decompressorRegistry = DEFAULT_DECOMPRESSOR_REGISTRY;
   CompressorRegistry compressorRegistry = DEFAULT_COMPRESSOR_REGISTRY;
   long handshakeTimeoutMillis = DEFAULT_HANDSHAKE_TIMEOUT_MILLIS;
+  /** The queue delay above which calls are shed, or 0 if disabled. */
+  long maxCallQueueDelayNanos;
   Deadline.Ticker ticker = Deadline.getSystemTicker();
   private boolean statsEnabled = true;
   private boolean recordStartedRpcs = true;
@@ -185,6 +187,13 @@ public final class ServerImplBuilder extends ServerBuilder<ServerImplBuilder> {
     return this;
   }
 
+  @Override
+  public ServerImplBuilder maxCallQueueDelay(long delay, TimeUnit unit) {
+    checkArgument(delay > 0, "max call queue delay is %s, but must be positive", delay);
+    this.maxCallQueueDelayNanos = checkNotNull(unit, "unit").toNanos(delay);
+    return this;
+  }
+
   @Override
   public ServerImplBuilder setBinaryLog(@Nullable BinaryLog binaryLog) {
     this.binlog = binaryLog;
@@ -197,6 +197,16 @@ public final class ServiceConfigUtil {
     return JsonUtil.getStringAsDuration(hedgingPolicy, "hedgingDelay");
   }
 
+  @Nullable
+  static Double getHedgingDelayPercentileFromHedgingPolicy(Map<String, ?> hedgingPolicy) {
+    return JsonUtil.getNumberAsDouble(hedgingPolicy, "hedgingDelayPercentile");
+  }
+
+  @Nullable
+  static Double getMaxHedgeRatioFromHedgingPolicy(Map<String, ?> hedgingPolicy) {
+    return JsonUtil.getNumberAsDouble(hedgingPolicy, "maxHedgeRatio");
+  }
+
   static Set<Status.Code> getNonFatalStatusCodesFromHedgingPolicy(Map<String, ?> hedgingPolicy) {
     String nonFatalStatusCodesKey = "nonFatalStatusCodes";
     Set<Status.Code> codes = getListOfStatusCodesAsSet(hedgingPolicy, nonFatalStatusCodesKey);
@@ -16,7 +16,9 @@
 
 package io.grpc.util;
 
+import com.google.common.io.ByteStreams;
 import io.grpc.ExperimentalApi;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -24,9 +26,11 @@ import java.net.Socket;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +59,9 @@ public final class AdvancedTlsX509TrustManager extends X509ExtendedTrustManager
 
   // The delegated trust manager used to perform traditional certificate verification.
   private volatile X509ExtendedTrustManager delegateManager = null;
+  // The hash of the trust certificate file the delegate was built from, if any. A file whose
+  // modification time changed but whose contents did not is not parsed again.
+  private volatile byte[] trustCertsHash = null;
 
   private AdvancedTlsX509TrustManager(Verification verification,
       SslSocketAndEnginePeerVerifier socketAndEnginePeerVerifier) throws CertificateException {
@@ -118,6 +125,7 @@ public final class AdvancedTlsX509TrustManager extends X509ExtendedTrustManager
     // Passing a null value of KeyStore would make {@code TrustManagerFactory} attempt to use
     // system-default trust CA certs.
     this.delegateManager = createDelegateTrustManager(null);
+    this.trustCertsHash = null;
   }
 
   /**
@@ -137,6 +145,7 @@ public final class AdvancedTlsX509TrustManager extends X509ExtendedTrustManager
     }
     X509ExtendedTrustManager newDelegateManager = createDelegateTrustManager(keyStore);
     this.delegateManager = newDelegateManager;
+    this.trustCertsHash = null;
   }
 
   private static X509ExtendedTrustManager createDelegateTrustManager(KeyStore keyStore)
@@ -271,7 +280,7 @@ public final class AdvancedTlsX509TrustManager extends X509ExtendedTrustManager
 
   /**
    * Reads the trust certificates specified in the path location, and update the key store if the
-   * modified time has changed since last read.
+   * modified time and the contents have changed since last read.
    *
    * @param trustCertFile  the file on disk holding the trust certificates
    * @param oldTime the time when the trust file is modified during last execution
@@ -283,14 +292,22 @@ public final class AdvancedTlsX509TrustManager extends X509ExtendedTrustManager
     if (newTime == oldTime) {
       return oldTime;
     }
+    byte[] contents;
     FileInputStream inputStream = new FileInputStream(trustCertFile);
     try {
-      X509Certificate[] certificates = CertificateUtils.getX509Certificates(inputStream);
-      updateTrustCredentials(certificates);
-      return newTime;
+      contents = ByteStreams.toByteArray(inputStream);
     } finally {
       inputStream.close();
     }
+    byte[] hash = MessageDigest.getInstance("SHA-256").digest(contents);
+    if (Arrays.equals(hash, trustCertsHash)) {
+      return newTime;
+    }
+    X509Certificate[] certificates =
+        CertificateUtils.getX509Certificates(new ByteArrayInputStream(contents));
+    updateTrustCredentials(certificates);
+    trustCertsHash = hash;
+    return newTime;
   }
 
   // Mainly used to avoid throwing IO Exceptions in java.io.Closeable.
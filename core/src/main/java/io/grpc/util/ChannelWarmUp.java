@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ExperimentalApi;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * Utilities to connect a channel before it is used, so that the first RPCs do not wait for the
+ * name resolution, the connection and the handshakes. It is typically used with
+ * {@link ManagedChannelBuilder#eagerConnect} to delay taking traffic until the channel is ready.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/4359")
+public final class ChannelWarmUp {
+  private ChannelWarmUp() {
+  }
+
+  /**
+   * Requests a connection and returns a future that completes when the channel is {@link
+   * ConnectivityState#READY READY}. The future fails if the channel is shut down first. Transient
+   * failures are retried by the channel, so callers should bound the wait with a timeout.
+   */
+  public static ListenableFuture<Void> whenReady(final ManagedChannel channel) {
+    checkNotNull(channel, "channel");
+    final SettableFuture<Void> future = SettableFuture.create();
+    final class StateWatcher implements Runnable {
+      @Override
+      public void run() {
+        if (future.isDone()) {
+          return;
+        }
+        ConnectivityState state = channel.getState(true);
+        if (state == ConnectivityState.READY) {
+          future.set(null);
+        } else if (state == ConnectivityState.SHUTDOWN) {
+          future.setException(
+              Status.UNAVAILABLE.withDescription("Channel shut down").asRuntimeException());
+        } else {
+          channel.notifyWhenStateChanged(state, this);
+        }
+      }
+    }
+
+    new StateWatcher().run();
+    return future;
+  }
+
+  /**
+   * Waits until the channel is ready and then makes a unary RPC, so that the server and the
+   * channel can also warm up their per-method state. The returned future completes with the
+   * response, or fails with a {@link io.grpc.StatusRuntimeException} if the RPC fails.
+   */
+  public static <ReqT, RespT> ListenableFuture<RespT> warmUp(
+      final ManagedChannel channel, final MethodDescriptor<ReqT, RespT> method,
+      final ReqT request, final CallOptions callOptions) {
+    checkNotNull(method, "method");
+    checkNotNull(request, "request");
+    checkNotNull(callOptions, "callOptions");
+    return Futures.transformAsync(
+        whenReady(channel),
+        new AsyncFunction<Void, RespT>() {
+          @Override
+          public ListenableFuture<RespT> apply(Void ready) {
+            return unaryCall(channel.newCall(method, callOptions), request);
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private static <ReqT, RespT> ListenableFuture<RespT> unaryCall(
+      ClientCall<ReqT, RespT> call, ReqT request) {
+    final SettableFuture<RespT> future = SettableFuture.create();
+    call.start(new ClientCall.Listener<RespT>() {
+      private RespT response;
+
+      @Override
+      public void onMessage(RespT message) {
+        response = message;
+      }
+
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        if (!status.isOk()) {
+          future.setException(status.asRuntimeException(trailers));
+        } else if (response == null) {
+          future.setException(Status.INTERNAL
+              .withDescription("No response received for the warm-up RPC")
+              .asRuntimeException());
+        } else {
+          future.set(response);
+        }
+      }
+    }, new Metadata());
+    call.request(2);
+    call.sendMessage(request);
+    call.halfClose();
+    return future;
+  }
+}
@@ -0,0 +1,671 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Deadline;
+import io.grpc.ExperimentalApi;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.SerializingExecutor;
+import io.grpc.internal.SharedResourceHolder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link ClientInterceptor} that coalesces concurrent identical unary calls into a single RPC,
+ * and delivers its response to all of them.
+ *
+ * <p>Only calls to methods that are {@link MethodDescriptor#isIdempotent() idempotent} are
+ * coalesced. Two calls are identical when they have the same method, serialized request, authority,
+ * call credentials, wait-for-ready setting, and values for the headers passed to {@link
+ * Builder#addKeyHeader}. Other headers are sent as given by the first of the calls.
+ *
+ * <p>Each call keeps its own deadline and cancellation: a call that is cancelled or whose deadline
+ * expires fails on its own without affecting the others, and the RPC is cancelled once no call is
+ * waiting for it. A call only joins an RPC whose deadline is not earlier than its own, and is sent
+ * separately otherwise.
+ *
+ * <p>The response message is shared by the coalesced calls, so it must not be modified by them.
+ * Each call receives its own copy of the headers and trailers. Listeners are called from the
+ * executor of the {@link CallOptions} of each call, or from a shared executor if there is none,
+ * never from the thread that completes, cancels or times out the call.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/2189")
+public final class CoalescingClientInterceptor implements ClientInterceptor {
+  private static final Logger logger =
+      Logger.getLogger(CoalescingClientInterceptor.class.getName());
+
+  private final ConcurrentMap<FlightKey, Flight<?, ?>> flights = new ConcurrentHashMap<>();
+  private final List<Metadata.Key<?>> keyHeaders;
+  /** The scheduler set on the builder, or {@code null} to use the shared timer. */
+  @Nullable
+  private final ScheduledExecutorService scheduler;
+  private final AtomicLong forwardedCalls = new AtomicLong();
+  private final AtomicLong coalescedCalls = new AtomicLong();
+
+  private CoalescingClientInterceptor(Builder builder) {
+    this.keyHeaders = Collections.unmodifiableList(new ArrayList<>(builder.keyHeaders));
+    this.scheduler = builder.scheduler;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the number of calls that were answered by the RPC of another identical call, instead
+   * of sending their own.
+   */
+  public long getCoalescedCallCount() {
+    return coalescedCalls.get();
+  }
+
+  /**
+   * Returns the number of RPCs sent for calls that could have been coalesced, including those sent
+   * separately because of their deadline.
+   */
+  public long getForwardedCallCount() {
+    return forwardedCalls.get();
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    if (method.getType() != MethodDescriptor.MethodType.UNARY || !method.isIdempotent()) {
+      return next.newCall(method, callOptions);
+    }
+    return new CoalescingCall<>(method, callOptions, next);
+  }
+
+  private List<String> getKeyHeaderValues(Metadata headers) {
+    if (keyHeaders.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String> values = new ArrayList<>();
+    for (Metadata.Key<?> key : keyHeaders) {
+      Iterable<?> keyValues = headers.getAll(key);
+      if (keyValues == null) {
+        continue;
+      }
+      for (Object value : keyValues) {
+        values.add(key.name());
+        values.add(value instanceof byte[]
+            ? BaseEncoding.base64().encode((byte[]) value) : (String) value);
+      }
+    }
+    return values;
+  }
+
+  @Nullable
+  private static byte[] toByteArray(InputStream stream) {
+    try {
+      try {
+        return ByteStreams.toByteArray(stream);
+      } finally {
+        stream.close();
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Failed to serialize message, not coalescing", e);
+      return null;
+    }
+  }
+
+  private static Metadata copyOf(@Nullable Metadata metadata) {
+    Metadata copy = new Metadata();
+    if (metadata != null) {
+      copy.merge(metadata);
+    }
+    return copy;
+  }
+
+  /**
+   * Returns the scheduler for a deadline timer. The shared timer is only held while timers are
+   * pending, so the interceptor does not need to be closed.
+   */
+  private ScheduledExecutorService acquireScheduler() {
+    return scheduler != null ? scheduler : SharedResourceHolder.get(GrpcUtil.TIMER_SERVICE);
+  }
+
+  private void releaseScheduler(ScheduledExecutorService acquired) {
+    if (scheduler == null) {
+      SharedResourceHolder.release(GrpcUtil.TIMER_SERVICE, acquired);
+    }
+  }
+
+  /**
+   * Defers sending the call until the request is known, then either joins an identical RPC in
+   * flight, starts a new one, or falls back to a regular call.
+   */
+  private final class CoalescingCall<ReqT, RespT> extends ClientCall<ReqT, RespT>
+      implements Context.CancellationListener {
+    private final MethodDescriptor<ReqT, RespT> method;
+    private final CallOptions callOptions;
+    private final Channel next;
+    private final Context context;
+    @Nullable
+    private final Deadline deadline;
+    private Listener<RespT> listener;
+    private Metadata headers;
+    @Nullable
+    private Boolean messageCompression;
+    @Nullable
+    private ClientCall<ReqT, RespT> delegate;
+    private boolean messageSent;
+
+    @GuardedBy("this")
+    private int pendingRequests;
+    @GuardedBy("this")
+    @Nullable
+    private Flight<ReqT, RespT> flight;
+    @GuardedBy("this")
+    @Nullable
+    private ScheduledFuture<?> deadlineTimer;
+    @GuardedBy("this")
+    @Nullable
+    private ScheduledExecutorService deadlineScheduler;
+    @GuardedBy("this")
+    @Nullable
+    private Outcome<RespT> outcome;
+    @GuardedBy("this")
+    private boolean delivered;
+    private final Executor callExecutor;
+
+    CoalescingCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      this.method = method;
+      this.callOptions = callOptions;
+      this.next = next;
+      Executor executor = callOptions.getExecutor();
+      // Like the channel, never call the listener from the timer, the cancelling thread or the
+      // application's own calls on this call
+      this.callExecutor = new SerializingExecutor(
+          executor != null ? executor : ResponseCachingInterceptor.SHARED_EXECUTOR);
+      this.context = Context.current();
+      this.deadline = min(callOptions.getDeadline(), context.getDeadline());
+    }
+
+    @Override
+    public void start(Listener<RespT> listener, Metadata headers) {
+      checkState(this.listener == null, "Already started");
+      this.listener = checkNotNull(listener, "listener");
+      this.headers = checkNotNull(headers, "headers");
+    }
+
+    @Override
+    public void request(int numMessages) {
+      if (delegate != null) {
+        delegate.request(numMessages);
+        return;
+      }
+      synchronized (this) {
+        pendingRequests += numMessages;
+      }
+      maybeDeliver();
+    }
+
+    @Override
+    public void sendMessage(ReqT message) {
+      checkState(listener != null, "Not started");
+      if (delegate != null) {
+        delegate.sendMessage(message);
+        return;
+      }
+      checkState(!messageSent, "Unary calls send a single message");
+      messageSent = true;
+      synchronized (this) {
+        if (outcome != null) {
+          return;
+        }
+      }
+      byte[] request = toByteArray(method.streamRequest(message));
+      if (request == null) {
+        startDelegate(message);
+        return;
+      }
+      FlightKey key = new FlightKey(
+          method.getFullMethodName(), request, getKeyHeaderValues(headers),
+          callOptions.getAuthority(), callOptions.getCredentials(), callOptions.isWaitForReady());
+      while (true) {
+        Flight<?, ?> existing = flights.get(key);
+        if (existing == null) {
+          Flight<ReqT, RespT> newFlight = new Flight<>(
+              key, deadline, method, callOptions, next, context);
+          if (flights.putIfAbsent(key, newFlight) != null) {
+            continue;
+          }
+          forwardedCalls.incrementAndGet();
+          newFlight.join(this);
+          attach(newFlight);
+          newFlight.start(headers, message, messageCompression);
+          return;
+        }
+        if (!existing.canJoin(deadline)) {
+          startDelegate(message);
+          return;
+        }
+        @SuppressWarnings("unchecked")
+        Flight<ReqT, RespT> flight = (Flight<ReqT, RespT>) existing;
+        if (flight.join(this)) {
+          coalescedCalls.incrementAndGet();
+          attach(flight);
+          return;
+        }
+        // The flight completed before it could be joined
+        flights.remove(key, existing);
+      }
+    }
+
+    @Override
+    public void halfClose() {
+      if (delegate != null) {
+        delegate.halfClose();
+      }
+    }
+
+    @Override
+    public void cancel(@Nullable String message, @Nullable Throwable cause) {
+      if (delegate != null) {
+        delegate.cancel(message, cause);
+        return;
+      }
+      if (listener == null) {
+        return;
+      }
+      Status status = Status.CANCELLED;
+      if (message != null) {
+        status = status.withDescription(message);
+      }
+      if (cause != null) {
+        status = status.withCause(cause);
+      }
+      fail(status);
+    }
+
+    @Override
+    public boolean isReady() {
+      if (delegate != null) {
+        return delegate.isReady();
+      }
+      synchronized (this) {
+        return !messageSent && outcome == null;
+      }
+    }
+
+    @Override
+    public void setMessageCompression(boolean enabled) {
+      if (delegate != null) {
+        delegate.setMessageCompression(enabled);
+      } else {
+        messageCompression = enabled;
+      }
+    }
+
+    @Override
+    public Attributes getAttributes() {
+      return delegate != null ? delegate.getAttributes() : Attributes.EMPTY;
+    }
+
+    @Override
+    public void cancelled(Context context) {
+      fail(Contexts.statusFromCancelled(context));
+    }
+
+    private void startDelegate(ReqT message) {
+      forwardedCalls.incrementAndGet();
+      int requests;
+      synchronized (this) {
+        requests = pendingRequests;
+      }
+      delegate = next.newCall(method, callOptions);
+      delegate.start(listener, headers);
+      if (messageCompression != null) {
+        delegate.setMessageCompression(messageCompression);
+      }
+      if (requests > 0) {
+        delegate.request(requests);
+      }
+      delegate.sendMessage(message);
+    }
+
+    /**
+     * Enforces the deadline and cancellation of this call while it waits for the flight, when they
+     * differ from those of the flight.
+     */
+    private void attach(Flight<ReqT, RespT> flight) {
+      synchronized (this) {
+        if (outcome != null) {
+          return;
+        }
+        this.flight = flight;
+        if (deadline != null && !deadline.equals(flight.deadline)) {
+          deadlineScheduler = acquireScheduler();
+          deadlineTimer = deadlineScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+              fail(Status.DEADLINE_EXCEEDED.withDescription(
+                  "deadline exceeded while waiting for a coalesced call"));
+            }
+          }, deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+      }
+      context.addListener(this, MoreExecutors.directExecutor());
+    }
+
+    /** Fails this call, and leaves its flight. */
+    private void fail(Status status) {
+      Flight<ReqT, RespT> flight;
+      synchronized (this) {
+        flight = this.flight;
+      }
+      if (complete(new Outcome<RespT>(null, null, status, new Metadata())) && flight != null) {
+        flight.leave(this);
+      }
+    }
+
+    /** Records the outcome of this call, returning {@code false} if it already had one. */
+    boolean complete(Outcome<RespT> outcome) {
+      ScheduledFuture<?> deadlineTimer;
+      ScheduledExecutorService deadlineScheduler;
+      synchronized (this) {
+        if (this.outcome != null) {
+          return false;
+        }
+        this.outcome = outcome;
+        deadlineTimer = this.deadlineTimer;
+        deadlineScheduler = this.deadlineScheduler;
+      }
+      if (deadlineTimer != null) {
+        deadlineTimer.cancel(false);
+        releaseScheduler(deadlineScheduler);
+      }
+      context.removeListener(this);
+      maybeDeliver();
+      return true;
+    }
+
+    private void maybeDeliver() {
+      final Outcome<RespT> outcome;
+      synchronized (this) {
+        if (delivered || this.outcome == null) {
+          return;
+        }
+        if (this.outcome.message != null && pendingRequests == 0) {
+          return;
+        }
+        delivered = true;
+        outcome = this.outcome;
+      }
+      callExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (outcome.headers != null) {
+            listener.onHeaders(outcome.headers);
+          }
+          if (outcome.message != null) {
+            listener.onMessage(outcome.message);
+          }
+          listener.onClose(outcome.status, outcome.trailers);
+        }
+      });
+    }
+  }
+
+  /** A single RPC sent on behalf of identical calls. */
+  private final class Flight<ReqT, RespT> extends ClientCall.Listener<RespT> {
+    final FlightKey key;
+    @Nullable
+    final Deadline deadline;
+    private final ClientCall<ReqT, RespT> call;
+    @GuardedBy("this")
+    private final Set<CoalescingCall<ReqT, RespT>> participants = new LinkedHashSet<>();
+    @GuardedBy("this")
+    private boolean started;
+    @GuardedBy("this")
+    private boolean closed;
+    @Nullable
+    private Metadata responseHeaders;
+    @Nullable
+    private RespT response;
+
+    Flight(
+        FlightKey key, @Nullable Deadline deadline, MethodDescriptor<ReqT, RespT> method,
+        CallOptions callOptions, Channel next, Context context) {
+      this.key = key;
+      this.deadline = deadline;
+      // The RPC outlives the call that started it, so it must not inherit its cancellation. The
+      // executor of each call is used to deliver its own response.
+      Context forked = context.fork();
+      Context previous = forked.attach();
+      try {
+        this.call = next.newCall(method, callOptions.withDeadline(deadline).withExecutor(null));
+      } finally {
+        forked.detach(previous);
+      }
+    }
+
+    boolean canJoin(@Nullable Deadline callDeadline) {
+      return deadline == null || (callDeadline != null && callDeadline.compareTo(deadline) <= 0);
+    }
+
+    synchronized boolean join(CoalescingCall<ReqT, RespT> participant) {
+      if (closed) {
+        return false;
+      }
+      participants.add(participant);
+      return true;
+    }
+
+    void leave(CoalescingCall<ReqT, RespT> participant) {
+      synchronized (this) {
+        if (!participants.remove(participant) || !participants.isEmpty() || closed) {
+          return;
+        }
+        closed = true;
+        flights.remove(key, this);
+        if (started) {
+          call.cancel("All coalesced calls were cancelled", null);
+        }
+      }
+    }
+
+    synchronized void start(Metadata headers, ReqT message, @Nullable Boolean messageCompression) {
+      if (closed) {
+        return;
+      }
+      started = true;
+      call.start(this, headers);
+      if (messageCompression != null) {
+        call.setMessageCompression(messageCompression);
+      }
+      call.request(1);
+      call.sendMessage(message);
+      call.halfClose();
+    }
+
+    @Override
+    public void onHeaders(Metadata headers) {
+      responseHeaders = headers;
+    }
+
+    @Override
+    public void onMessage(RespT message) {
+      if (response == null) {
+        response = message;
+      }
+    }
+
+    @Override
+    public void onClose(Status status, Metadata trailers) {
+      List<CoalescingCall<ReqT, RespT>> participants;
+      synchronized (this) {
+        closed = true;
+        participants = new ArrayList<>(this.participants);
+        this.participants.clear();
+      }
+      flights.remove(key, this);
+      RespT message = status.isOk() ? response : null;
+      for (CoalescingCall<ReqT, RespT> participant : participants) {
+        participant.complete(
+            new Outcome<>(copyOf(responseHeaders), message, status, copyOf(trailers)));
+      }
+    }
+  }
+
+  private static final class Outcome<RespT> {
+    @Nullable
+    final Metadata headers;
+    @Nullable
+    final RespT message;
+    final Status status;
+    final Metadata trailers;
+
+    Outcome(
+        @Nullable Metadata headers, @Nullable RespT message, Status status, Metadata trailers) {
+      this.headers = headers;
+      this.message = message;
+      this.status = status;
+      this.trailers = trailers;
+    }
+  }
+
+  private static final class FlightKey {
+    final String fullMethodName;
+    final byte[] request;
+    final List<String> headerValues;
+    @Nullable
+    final String authority;
+    @Nullable
+    final Object credentials;
+    final boolean waitForReady;
+    final int hashCode;
+
+    FlightKey(
+        String fullMethodName, byte[] request, List<String> headerValues,
+        @Nullable String authority, @Nullable Object credentials, boolean waitForReady) {
+      this.fullMethodName = fullMethodName;
+      this.request = request;
+      this.headerValues = headerValues;
+      this.authority = authority;
+      this.credentials = credentials;
+      this.waitForReady = waitForReady;
+      this.hashCode = 31 * (31 * fullMethodName.hashCode() + Arrays.hashCode(request))
+          + headerValues.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof FlightKey)) {
+        return false;
+      }
+      FlightKey that = (FlightKey) other;
+      return hashCode == that.hashCode
+          && fullMethodName.equals(that.fullMethodName)
+          && Arrays.equals(request, that.request)
+          && headerValues.equals(that.headerValues)
+          && (authority == null ? that.authority == null : authority.equals(that.authority))
+          // Credentials are compared by identity, as they rarely implement equals()
+          && credentials == that.credentials
+          && waitForReady == that.waitForReady;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  @Nullable
+  private static Deadline min(@Nullable Deadline deadline1, @Nullable Deadline deadline2) {
+    if (deadline1 == null) {
+      return deadline2;
+    }
+    if (deadline2 == null) {
+      return deadline1;
+    }
+    return deadline1.minimum(deadline2);
+  }
+
+  /** Builder for {@link CoalescingClientInterceptor}. */
+  public static final class Builder {
+    private final Set<Metadata.Key<?>> keyHeaders = new LinkedHashSet<>();
+    @Nullable
+    private ScheduledExecutorService scheduler;
+
+    private Builder() {
+    }
+
+    /**
+     * Adds a header whose values must match for calls to be coalesced, such as one identifying
+     * the end user. Header names ending in {@link Metadata#BINARY_HEADER_SUFFIX} are compared by
+     * their binary values.
+     */
+    public Builder addKeyHeader(String name) {
+      checkNotNull(name, "name");
+      if (name.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+        keyHeaders.add(Metadata.Key.of(name, Metadata.BINARY_BYTE_MARSHALLER));
+      } else {
+        keyHeaders.add(Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER));
+      }
+      return this;
+    }
+
+    /**
+     * Sets the executor used to enforce the deadlines of coalesced calls. By default, the shared
+     * gRPC timer is used, and only held while deadlines are pending.
+     */
+    public Builder setScheduledExecutorService(ScheduledExecutorService scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return this;
+    }
+
+    /** Creates the interceptor. Calls are coalesced across all channels it is used with. */
+    public CoalescingClientInterceptor build() {
+      return new CoalescingClientInterceptor(this);
+    }
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ExperimentalApi;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link ServerCallExecutorSupplier} that runs the calls on an executor in the order of their
+ * deadlines, instead of the order they arrived in. When the executor is saturated, calls with a
+ * short deadline no longer wait behind calls that can wait longer, and fewer calls fail with
+ * {@link io.grpc.Status.Code#DEADLINE_EXCEEDED}.
+ *
+ * <p>The tasks of the calls, starting them and delivering their messages, are queued by priority
+ * class first, then by deadline. Methods are in class 0 unless {@link Builder#setMethodPriority}
+ * sets otherwise, and the calls of higher classes run first. Within a class, calls without a
+ * deadline run after the ones with a deadline. The server does not start the calls whose deadline
+ * expired while they were queued, so they leave the queue without using the executor further.
+ *
+ * <p>For each queued task, the executor is given a task that runs the first queued task at the
+ * time it runs. The order is thus kept with any executor, even one shared with other work.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/8274")
+public final class EarliestDeadlineFirstExecutorSupplier implements ServerCallExecutorSupplier {
+  private final Executor executor;
+  private final Map<String, Integer> methodPriorities;
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private final PriorityQueue<Task> queue = new PriorityQueue<>();
+  @GuardedBy("lock")
+  private long nextSequence;
+  /** The number of runners running a task. */
+  @GuardedBy("lock")
+  private int activeRunners;
+  /** The number of queued tasks left without a runner by a rejected runner. */
+  @GuardedBy("lock")
+  private int tasksWithoutRunner;
+  private final Runnable runNext = new Runnable() {
+    @Override
+    public void run() {
+      Task task;
+      synchronized (lock) {
+        task = pollNextTask();
+      }
+      while (task != null) {
+        boolean completed = false;
+        try {
+          task.runnable.run();
+          completed = true;
+        } finally {
+          synchronized (lock) {
+            activeRunners--;
+            // The runner also runs the tasks left without a runner
+            task = null;
+            if (completed && tasksWithoutRunner > 0) {
+              tasksWithoutRunner--;
+              task = pollNextTask();
+            }
+          }
+        }
+      }
+    }
+  };
+
+  private EarliestDeadlineFirstExecutorSupplier(Builder builder) {
+    this.executor = builder.executor;
+    this.methodPriorities = Collections.unmodifiableMap(new HashMap<>(builder.methodPriorities));
+  }
+
+  /** Creates a builder for a supplier running calls on {@code executor}. */
+  public static Builder newBuilder(Executor executor) {
+    return new Builder(executor);
+  }
+
+  /**
+   * Returns an executor queuing the tasks of {@code call} by its priority class and by the
+   * deadline of the current context, which is the call's context when the server calls this.
+   */
+  @Override
+  public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata metadata) {
+    Integer priority = methodPriorities.get(call.getMethodDescriptor().getFullMethodName());
+    return new CallExecutor(priority == null ? 0 : priority, Context.current().getDeadline());
+  }
+
+  /** Returns the number of tasks waiting for the executor. */
+  public int getQueuedTasks() {
+    synchronized (lock) {
+      return queue.size();
+    }
+  }
+
+  @GuardedBy("lock")
+  @Nullable
+  private Task pollNextTask() {
+    Task task = queue.poll();
+    if (task != null) {
+      activeRunners++;
+    }
+    return task;
+  }
+
+  private final class CallExecutor implements Executor {
+    private final int priority;
+    @Nullable
+    private final Deadline deadline;
+
+    CallExecutor(int priority, @Nullable Deadline deadline) {
+      this.priority = priority;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+      Task task;
+      synchronized (lock) {
+        task = new Task(checkNotNull(runnable, "runnable"), priority, deadline, nextSequence++);
+        queue.add(task);
+      }
+      try {
+        executor.execute(runNext);
+      } catch (RuntimeException e) {
+        boolean runHere;
+        synchronized (lock) {
+          if (queue.remove(task)) {
+            throw e;
+          }
+          // A runner already took the task, so another queued task has no runner. A running
+          // runner runs it after its own task, or this thread does if none is running.
+          runHere = activeRunners == 0;
+          if (!runHere) {
+            tasksWithoutRunner++;
+          }
+        }
+        if (runHere) {
+          runNext.run();
+        }
+      }
+    }
+  }
+
+  private static final class Task implements Comparable<Task> {
+    final Runnable runnable;
+    final int priority;
+    @Nullable
+    final Deadline deadline;
+    final long sequence;
+
+    Task(Runnable runnable, int priority, @Nullable Deadline deadline, long sequence) {
+      this.runnable = runnable;
+      this.priority = priority;
+      this.deadline = deadline;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return priority > other.priority ? -1 : 1;
+      }
+      if (deadline != other.deadline) {
+        if (deadline == null) {
+          return 1;
+        }
+        if (other.deadline == null) {
+          return -1;
+        }
+        int result = deadline.compareTo(other.deadline);
+        if (result != 0) {
+          return result;
+        }
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+  }
+
+  /** Builder for {@link EarliestDeadlineFirstExecutorSupplier}. */
+  public static final class Builder {
+    private final Executor executor;
+    private final Map<String, Integer> methodPriorities = new HashMap<>();
+
+    private Builder(Executor executor) {
+      this.executor = checkNotNull(executor, "executor");
+    }
+
+    /**
+     * Sets the priority class of a method, by its full name. The calls of higher classes run
+     * before the calls of lower ones, whatever their deadlines. The default class is 0.
+     */
+    public Builder setMethodPriority(String fullMethodName, int priority) {
+      methodPriorities.put(checkNotNull(fullMethodName, "fullMethodName"), priority);
+      return this;
+    }
+
+    public EarliestDeadlineFirstExecutorSupplier build() {
+      return new EarliestDeadlineFirstExecutorSupplier(this);
+    }
+  }
+}
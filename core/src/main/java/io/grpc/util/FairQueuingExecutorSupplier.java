@@ -0,0 +1,437 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import io.grpc.Attributes;
+import io.grpc.ExperimentalApi;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link ServerCallExecutorSupplier} that shares an executor fairly between tenants, so that
+ * one tenant sending many calls cannot keep the calls of the others waiting. The tenant of a call
+ * is given by a {@link TenantKeyFunction}, e.g. one reading a header with {@link #fromHeader} or
+ * the peer identity from the call attributes with {@link #fromAttribute}. Calls without a tenant
+ * key share the tenant {@code ""}.
+ *
+ * <p>The tasks of the calls, starting them and delivering their messages, are queued per tenant
+ * and run in deficit round robin: each tenant with queued tasks runs in turn as many tasks as its
+ * weight, which is 1 unless {@link Builder#setTenantWeight} sets otherwise. Queuing a task does
+ * not take a lock unless the tenant had no queued tasks.
+ *
+ * <p>Tenants are dropped with their {@link TenantStats statistics} once they had no queued tasks
+ * for the {@link Builder#setIdleTenantTimeout idle tenant timeout}, so that tenants seen once do
+ * not stay forever. A call of a dropped tenant still running adds the tenant back.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/8274")
+public final class FairQueuingExecutorSupplier implements ServerCallExecutorSupplier {
+  private final Executor executor;
+  private final TenantKeyFunction tenantKeyFunction;
+  private final Map<Object, Integer> tenantWeights;
+  private final Ticker ticker;
+  private final long idleTenantTimeoutNanos;
+  private final ConcurrentMap<Object, Tenant> tenants = new ConcurrentHashMap<>();
+  private final Object lock = new Object();
+  /** The tenants with queued tasks, the first one being the one whose turn it is. */
+  @GuardedBy("lock")
+  private final Queue<Tenant> activeTenants = new ArrayDeque<>();
+  @GuardedBy("lock")
+  private long nextEvictionNanos;
+  /** The number of runners running a task. */
+  @GuardedBy("lock")
+  private int activeRunners;
+  /** The number of queued tasks left without a runner by a rejected runner. */
+  @GuardedBy("lock")
+  private int tasksWithoutRunner;
+  private final Runnable runNext = new Runnable() {
+    @Override
+    public void run() {
+      Task task = pollNextTask();
+      while (task != null) {
+        boolean completed = false;
+        try {
+          task.run();
+          completed = true;
+        } finally {
+          synchronized (lock) {
+            activeRunners--;
+            // The runner also runs the tasks left without a runner
+            task = null;
+            if (completed && tasksWithoutRunner > 0) {
+              tasksWithoutRunner--;
+              task = pollNextTask();
+            }
+          }
+        }
+      }
+    }
+  };
+
+  private FairQueuingExecutorSupplier(Builder builder) {
+    this.executor = builder.executor;
+    this.tenantKeyFunction = builder.tenantKeyFunction;
+    this.tenantWeights = Collections.unmodifiableMap(new HashMap<>(builder.tenantWeights));
+    this.ticker = builder.ticker;
+    this.idleTenantTimeoutNanos = builder.idleTenantTimeoutNanos;
+    this.nextEvictionNanos = ticker.read() + idleTenantTimeoutNanos;
+  }
+
+  /**
+   * Creates a builder for a supplier running calls on {@code executor}, for the tenants given by
+   * {@code tenantKeyFunction}.
+   */
+  public static Builder newBuilder(Executor executor, TenantKeyFunction tenantKeyFunction) {
+    return new Builder(executor, tenantKeyFunction);
+  }
+
+  /** Returns a function reading the tenant key from the header {@code key}. */
+  public static TenantKeyFunction fromHeader(final Metadata.Key<String> key) {
+    checkNotNull(key, "key");
+    return new TenantKeyFunction() {
+      @Override
+      public Object getTenantKey(ServerCall<?, ?> call, Metadata headers) {
+        return headers.get(key);
+      }
+    };
+  }
+
+  /**
+   * Returns a function reading the tenant key from the call attribute {@code key}, e.g. a peer
+   * identity added by a {@link io.grpc.ServerTransportFilter}.
+   */
+  public static TenantKeyFunction fromAttribute(final Attributes.Key<?> key) {
+    checkNotNull(key, "key");
+    return new TenantKeyFunction() {
+      @Override
+      public Object getTenantKey(ServerCall<?, ?> call, Metadata headers) {
+        return call.getAttributes().get(key);
+      }
+    };
+  }
+
+  @Override
+  public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata metadata) {
+    Object key = tenantKeyFunction.getTenantKey(call, metadata);
+    if (key == null) {
+      key = "";
+    }
+    Tenant tenant = tenants.get(key);
+    if (tenant == null) {
+      evictIdleTenants();
+      Integer weight = tenantWeights.get(key);
+      tenant = new Tenant(key, weight == null ? 1 : weight, ticker.read());
+      Tenant existing = tenants.putIfAbsent(key, tenant);
+      if (existing != null) {
+        tenant = existing;
+      }
+    }
+    return tenant;
+  }
+
+  /**
+   * Drops the tenants without queued tasks for the idle tenant timeout. It only looks for them
+   * once per timeout, when a new tenant is added.
+   */
+  private void evictIdleTenants() {
+    long nowNanos = ticker.read();
+    synchronized (lock) {
+      if (nowNanos - nextEvictionNanos < 0) {
+        return;
+      }
+      nextEvictionNanos = nowNanos + idleTenantTimeoutNanos;
+      for (Tenant tenant : tenants.values()) {
+        if (!tenant.active && nowNanos - tenant.idleSinceNanos >= idleTenantTimeoutNanos) {
+          tenant.evicted = true;
+          tenants.remove(tenant.key, tenant);
+        }
+      }
+    }
+  }
+
+  /** Returns the statistics of the tenants that called recently, by tenant key. */
+  public Map<Object, TenantStats> getTenantStats() {
+    Map<Object, TenantStats> stats = new HashMap<>();
+    for (Map.Entry<Object, Tenant> entry : tenants.entrySet()) {
+      Tenant tenant = entry.getValue();
+      stats.put(entry.getKey(), new TenantStats(
+          tenant.queuedTasks.get(), tenant.startedTasks.get(), tenant.totalWaitNanos.get()));
+    }
+    return Collections.unmodifiableMap(stats);
+  }
+
+  @Nullable
+  private Task pollNextTask() {
+    synchronized (lock) {
+      Tenant tenant;
+      while ((tenant = activeTenants.peek()) != null) {
+        Task task = tenant.queue.poll();
+        if (task == null) {
+          endTurn(tenant);
+          continue;
+        }
+        if (tenant.deficit == 0) {
+          tenant.deficit = tenant.weight;
+        }
+        if (--tenant.deficit == 0 || tenant.queue.isEmpty()) {
+          endTurn(tenant);
+        }
+        activeRunners++;
+        return task;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Ends the turn of {@code tenant}, the first of the active tenants. It waits for its next turn
+   * if it has queued tasks, otherwise it is inactive until its next task.
+   */
+  @GuardedBy("lock")
+  private void endTurn(Tenant tenant) {
+    activeTenants.poll();
+    tenant.deficit = 0;
+    if (tenant.queue.isEmpty()) {
+      tenant.active = false;
+      // A task queued concurrently may have found the tenant still active
+      if (tenant.queue.isEmpty()) {
+        tenant.idleSinceNanos = ticker.read();
+        return;
+      }
+      tenant.active = true;
+    }
+    activeTenants.add(tenant);
+  }
+
+  /** Gives the key of the tenant of calls. */
+  public interface TenantKeyFunction {
+    /** Returns the key of the tenant of {@code call}, or {@code null} if unknown. */
+    @Nullable
+    Object getTenantKey(ServerCall<?, ?> call, Metadata headers);
+  }
+
+  /** Statistics of the tasks of a tenant. */
+  public static final class TenantStats {
+    private final int queuedTasks;
+    private final long startedTasks;
+    private final long totalWaitNanos;
+
+    TenantStats(int queuedTasks, long startedTasks, long totalWaitNanos) {
+      this.queuedTasks = queuedTasks;
+      this.startedTasks = startedTasks;
+      this.totalWaitNanos = totalWaitNanos;
+    }
+
+    /** Returns the number of tasks waiting for the executor. */
+    public int getQueuedTasks() {
+      return queuedTasks;
+    }
+
+    /** Returns the number of tasks that started running. */
+    public long getStartedTasks() {
+      return startedTasks;
+    }
+
+    /** Returns the total time the started tasks waited for the executor, in nanoseconds. */
+    public long getTotalWaitNanos() {
+      return totalWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "TenantStats{queuedTasks=" + queuedTasks + ", startedTasks=" + startedTasks
+          + ", totalWaitNanos=" + totalWaitNanos + "}";
+    }
+  }
+
+  private final class Tenant implements Executor {
+    final Object key;
+    final int weight;
+    final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+    /** Whether the tenant is in the active tenants, only changed with the lock held. */
+    volatile boolean active;
+    /** Whether the tenant was dropped from the tenants, only changed with the lock held. */
+    volatile boolean evicted;
+    final AtomicInteger queuedTasks = new AtomicInteger();
+    final AtomicLong startedTasks = new AtomicLong();
+    final AtomicLong totalWaitNanos = new AtomicLong();
+    /** The number of tasks left to run in the current turn of the tenant. */
+    @GuardedBy("lock")
+    int deficit;
+    /** When the tenant last had no queued tasks. */
+    @GuardedBy("lock")
+    long idleSinceNanos;
+
+    Tenant(Object key, int weight, long idleSinceNanos) {
+      this.key = key;
+      this.weight = weight;
+      this.idleSinceNanos = idleSinceNanos;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+      checkNotNull(runnable, "runnable");
+      if (evicted) {
+        Tenant tenant = reinstate();
+        if (tenant != this) {
+          tenant.execute(runnable);
+          return;
+        }
+      }
+      Task task = new Task(this, runnable, ticker.read());
+      queuedTasks.incrementAndGet();
+      queue.add(task);
+      if (!active) {
+        synchronized (lock) {
+          if (!active) {
+            active = true;
+            activeTenants.add(this);
+          }
+        }
+      }
+      // Each task queued gets a runner, which runs the next task in turn at the time it runs
+      try {
+        executor.execute(runNext);
+      } catch (RuntimeException e) {
+        if (queue.remove(task)) {
+          queuedTasks.decrementAndGet();
+          throw e;
+        }
+        runWithoutRunner();
+      }
+    }
+
+    /**
+     * Runs the task left without a runner by a rejected runner whose task was already taken by
+     * another runner. A running runner runs it after its own task, or this thread does if none is
+     * running.
+     */
+    private void runWithoutRunner() {
+      boolean runHere;
+      synchronized (lock) {
+        runHere = activeRunners == 0;
+        if (!runHere) {
+          tasksWithoutRunner++;
+        }
+      }
+      if (runHere) {
+        runNext.run();
+      }
+    }
+
+    /**
+     * Adds the tenant back to the tenants for a call that outlived its eviction. Returns the
+     * tenant added since for the same key if any, which then runs the tasks of the call.
+     */
+    private Tenant reinstate() {
+      synchronized (lock) {
+        if (!evicted) {
+          return this;
+        }
+        Tenant existing = tenants.putIfAbsent(key, this);
+        if (existing != null) {
+          return existing;
+        }
+        evicted = false;
+        return this;
+      }
+    }
+  }
+
+  private final class Task implements Runnable {
+    final Tenant tenant;
+    final Runnable runnable;
+    final long queuedNanos;
+
+    Task(Tenant tenant, Runnable runnable, long queuedNanos) {
+      this.tenant = tenant;
+      this.runnable = runnable;
+      this.queuedNanos = queuedNanos;
+    }
+
+    @Override
+    public void run() {
+      tenant.queuedTasks.decrementAndGet();
+      tenant.startedTasks.incrementAndGet();
+      tenant.totalWaitNanos.addAndGet(ticker.read() - queuedNanos);
+      runnable.run();
+    }
+  }
+
+  /** Builder for {@link FairQueuingExecutorSupplier}. */
+  public static final class Builder {
+    private final Executor executor;
+    private final TenantKeyFunction tenantKeyFunction;
+    private final Map<Object, Integer> tenantWeights = new HashMap<>();
+    private long idleTenantTimeoutNanos = TimeUnit.MINUTES.toNanos(1);
+    private Ticker ticker = Ticker.systemTicker();
+
+    private Builder(Executor executor, TenantKeyFunction tenantKeyFunction) {
+      this.executor = checkNotNull(executor, "executor");
+      this.tenantKeyFunction = checkNotNull(tenantKeyFunction, "tenantKeyFunction");
+    }
+
+    /**
+     * Sets the weight of a tenant, the number of tasks it runs in each of its turns. The default
+     * weight is 1.
+     */
+    public Builder setTenantWeight(Object tenantKey, int weight) {
+      checkArgument(weight > 0, "weight must be positive: %s", weight);
+      tenantWeights.put(checkNotNull(tenantKey, "tenantKey"), weight);
+      return this;
+    }
+
+    /**
+     * Sets how long a tenant without queued tasks is kept with its statistics. The default is one
+     * minute.
+     */
+    public Builder setIdleTenantTimeout(long timeout, TimeUnit unit) {
+      checkArgument(timeout > 0, "timeout must be positive: %s", timeout);
+      this.idleTenantTimeoutNanos = checkNotNull(unit, "unit").toNanos(timeout);
+      return this;
+    }
+
+    @VisibleForTesting
+    Builder setTicker(Ticker ticker) {
+      this.ticker = checkNotNull(ticker, "ticker");
+      return this;
+    }
+
+    public FairQueuingExecutorSupplier build() {
+      return new FairQueuingExecutorSupplier(this);
+    }
+  }
+}
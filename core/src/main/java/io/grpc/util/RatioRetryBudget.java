@@ -0,0 +1,247 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import io.grpc.ExperimentalApi;
+import io.grpc.MethodDescriptor;
+import io.grpc.RetryBudget;
+import io.grpc.internal.LongCounter;
+import io.grpc.internal.LongCounterFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link RetryBudget} that allows retries up to a ratio of the requests made over a sliding
+ * window. With the defaults, retries may be at most 10% of the requests of the last ten seconds,
+ * plus ten retries per second so that services with little traffic can still retry.
+ *
+ * <p>Requests and retries are counted separately for each key, which is the target of the channel
+ * or the service of the method, depending on {@link Builder#setKeyType}. The counters are striped
+ * and updated without locks, so a budget may be shared by all the channels of a process. The
+ * window is divided in ten buckets, and the counts are approximate while a bucket is being
+ * recycled.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/3982")
+public final class RatioRetryBudget extends RetryBudget {
+  /** What the requests and retries are counted by. */
+  public enum KeyType {
+    /** Counts by the target of the channel. */
+    TARGET,
+    /** Counts by the fully qualified service name of the method. */
+    SERVICE
+  }
+
+  private static final int BUCKETS = 10;
+
+  private final double retryRatio;
+  private final double minRetriesPerWindow;
+  private final long bucketNanos;
+  private final KeyType keyType;
+  private final Ticker ticker;
+  private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+  private RatioRetryBudget(Builder builder) {
+    this.retryRatio = builder.retryRatio;
+    this.bucketNanos = Math.max(1, builder.windowNanos / BUCKETS);
+    double windowSeconds = bucketNanos * BUCKETS / (double) TimeUnit.SECONDS.toNanos(1);
+    this.minRetriesPerWindow = builder.minRetriesPerSecond * windowSeconds;
+    this.keyType = builder.keyType;
+    this.ticker = builder.ticker;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  @Override
+  public void recordRequest(String target, MethodDescriptor<?, ?> method) {
+    window(key(target, method)).add(Window.REQUESTS, currentBucket());
+  }
+
+  @Override
+  public boolean hasCapacity(String target, MethodDescriptor<?, ?> method) {
+    return hasCapacity(window(key(target, method)), currentBucket());
+  }
+
+  @Override
+  public boolean tryAcquire(String target, MethodDescriptor<?, ?> method) {
+    Window window = window(key(target, method));
+    long bucket = currentBucket();
+    if (!hasCapacity(window, bucket)) {
+      return false;
+    }
+    window.add(Window.RETRIES, bucket);
+    return true;
+  }
+
+  /** Returns the number of requests in the current window for the given key. */
+  public long getRequestCount(String key) {
+    Window window = windows.get(key);
+    return window == null ? 0 : window.sum(Window.REQUESTS, currentBucket());
+  }
+
+  /** Returns the number of retries and hedged attempts in the current window for the given key. */
+  public long getRetryCount(String key) {
+    Window window = windows.get(key);
+    return window == null ? 0 : window.sum(Window.RETRIES, currentBucket());
+  }
+
+  private boolean hasCapacity(Window window, long bucket) {
+    long requests = window.sum(Window.REQUESTS, bucket);
+    long retries = window.sum(Window.RETRIES, bucket);
+    return retries + 1 <= minRetriesPerWindow + retryRatio * requests;
+  }
+
+  private String key(String target, MethodDescriptor<?, ?> method) {
+    if (keyType == KeyType.SERVICE) {
+      String service = method.getServiceName();
+      return service == null ? method.getFullMethodName() : service;
+    }
+    return target;
+  }
+
+  private Window window(String key) {
+    Window window = windows.get(key);
+    if (window == null) {
+      Window newWindow = new Window();
+      window = windows.putIfAbsent(key, newWindow);
+      if (window == null) {
+        window = newWindow;
+      }
+    }
+    return window;
+  }
+
+  private long currentBucket() {
+    // floorDiv, as the ticker may be negative
+    long nanos = ticker.read();
+    long bucket = nanos / bucketNanos;
+    return nanos < 0 && bucket * bucketNanos != nanos ? bucket - 1 : bucket;
+  }
+
+  /** Request and retry counters for the buckets of one key. */
+  private static final class Window {
+    static final int REQUESTS = 0;
+    static final int RETRIES = 1;
+
+    /** The bucket that each slot is counting, or {@link Long#MIN_VALUE} if none yet. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongCounter[][] counters = new LongCounter[2][BUCKETS];
+
+    Window() {
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets.set(i, Long.MIN_VALUE);
+        counters[REQUESTS][i] = LongCounterFactory.create();
+        counters[RETRIES][i] = LongCounterFactory.create();
+      }
+    }
+
+    void add(int counter, long bucket) {
+      int slot = slot(bucket);
+      long current = buckets.get(slot);
+      // The first thread to move a slot to a newer bucket clears its counts. Counts added
+      // concurrently by other threads may be lost, which only makes the budget approximate.
+      if (current < bucket && buckets.compareAndSet(slot, current, bucket)) {
+        reset(counters[REQUESTS][slot]);
+        reset(counters[RETRIES][slot]);
+      }
+      counters[counter][slot].add(1);
+    }
+
+    long sum(int counter, long bucket) {
+      long sum = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        long slotBucket = buckets.get(i);
+        if (slotBucket > bucket - BUCKETS && slotBucket <= bucket) {
+          sum += counters[counter][i].value();
+        }
+      }
+      return sum;
+    }
+
+    private static int slot(long bucket) {
+      int slot = (int) (bucket % BUCKETS);
+      return slot < 0 ? slot + BUCKETS : slot;
+    }
+
+    private static void reset(LongCounter counter) {
+      counter.add(-counter.value());
+    }
+  }
+
+  /** Builder for {@link RatioRetryBudget}. */
+  public static final class Builder {
+    private double retryRatio = 0.1;
+    private double minRetriesPerSecond = 10;
+    private long windowNanos = TimeUnit.SECONDS.toNanos(10);
+    private KeyType keyType = KeyType.TARGET;
+    private Ticker ticker = Ticker.systemTicker();
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the maximum ratio of retries to requests in the window. The default is 0.1, which allows
+     * one retry for every ten requests.
+     */
+    public Builder setRetryRatio(double retryRatio) {
+      checkArgument(retryRatio >= 0, "retryRatio must not be negative");
+      this.retryRatio = retryRatio;
+      return this;
+    }
+
+    /**
+     * Sets the number of retries per second that are allowed regardless of the number of
+     * requests. The default is 10.
+     */
+    public Builder setMinRetriesPerSecond(double minRetriesPerSecond) {
+      checkArgument(minRetriesPerSecond >= 0, "minRetriesPerSecond must not be negative");
+      this.minRetriesPerSecond = minRetriesPerSecond;
+      return this;
+    }
+
+    /** Sets the duration of the sliding window. The default is ten seconds. */
+    public Builder setWindow(long duration, TimeUnit unit) {
+      checkArgument(duration > 0, "duration must be positive");
+      this.windowNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /** Sets what the requests and retries are counted by. The default is the channel target. */
+    public Builder setKeyType(KeyType keyType) {
+      this.keyType = checkNotNull(keyType, "keyType");
+      return this;
+    }
+
+    @VisibleForTesting
+    Builder setTicker(Ticker ticker) {
+      this.ticker = checkNotNull(ticker, "ticker");
+      return this;
+    }
+
+    public RatioRetryBudget build() {
+      return new RatioRetryBudget(this);
+    }
+  }
+}
@@ -0,0 +1,619 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.io.ByteStreams;
+import io.grpc.Attributes;
+import io.grpc.CallCredentials;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ExperimentalApi;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.JsonUtil;
+import io.grpc.internal.SharedResourceHolder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link ClientInterceptor} that caches the responses of unary calls in memory, and answers
+ * repeated requests from the cache without using the network.
+ *
+ * <p>Responses are cached by method, serialized request, authority and call credentials, for the
+ * methods that are {@link MethodDescriptor#isSafe() safe} or have a time to live configured. The
+ * time to live of a method is read from the {@code "cacheTtl"} field of its entry in the {@code
+ * "methodConfig"} list of the service config passed to {@link Builder#setServiceConfig}, using the
+ * same name matching as the other method config fields. For example:
+ *
+ * <pre>
+ * {"methodConfig": [{"name": [{"service": "example.Catalog"}], "cacheTtl": "30s"}]}
+ * </pre>
+ *
+ * <p>Safe methods without a configured time to live use {@link Builder#setDefaultTimeToLive}, which
+ * is zero by default. If enabled with {@link Builder#setHonorCacheControl}, the {@code
+ * cache-control} response header takes precedence: {@code max-age} sets the time to live, and
+ * {@code no-cache} or {@code no-store} prevent caching the response.
+ *
+ * <p>The cache is bounded by the serialized size of the cached requests and responses, and evicts
+ * the least recently used entries first. Only calls that complete with {@link Status#OK} and a
+ * single response are cached. A response served from the cache has empty headers and trailers.
+ * Its listener is called from the executor of the {@link CallOptions}, or from the shared gRPC
+ * executor if there is none.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/5189")
+public final class ResponseCachingInterceptor implements ClientInterceptor {
+  private static final Logger logger = Logger.getLogger(ResponseCachingInterceptor.class.getName());
+
+  private static final Metadata.Key<String> CACHE_CONTROL_KEY =
+      Metadata.Key.of("cache-control", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Splitter CACHE_CONTROL_SPLITTER =
+      Splitter.on(',').trimResults().omitEmptyStrings();
+
+  /**
+   * Runs the listener of calls without an executor, holding the shared executor only while tasks
+   * are pending so that nothing needs to be released when the interceptor is discarded. Also used
+   * by {@link CoalescingClientInterceptor}.
+   */
+  static final Executor SHARED_EXECUTOR = new Executor() {
+    @Override
+    public void execute(final Runnable task) {
+      final Executor executor = SharedResourceHolder.get(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+      try {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              task.run();
+            } finally {
+              SharedResourceHolder.release(GrpcUtil.SHARED_CHANNEL_EXECUTOR, executor);
+            }
+          }
+        });
+      } catch (RuntimeException e) {
+        SharedResourceHolder.release(GrpcUtil.SHARED_CHANNEL_EXECUTOR, executor);
+        throw e;
+      }
+    }
+  };
+
+  private final Cache<CacheKey, CacheEntry> cache;
+  private final Map<String, Long> methodTtlNanos;
+  private final Map<String, Long> serviceTtlNanos;
+  @Nullable
+  private final Long defaultMethodTtlNanos;
+  private final long defaultTtlNanos;
+  private final boolean honorCacheControl;
+  private final Ticker ticker;
+
+  private ResponseCachingInterceptor(Builder builder) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(builder.maxSizeBytes)
+        .weigher(new Weigher<CacheKey, CacheEntry>() {
+          @Override
+          public int weigh(CacheKey key, CacheEntry entry) {
+            return key.request.length + entry.response.length;
+          }
+        })
+        .build();
+    Map<String, Long> methodTtlNanos = new HashMap<>();
+    Map<String, Long> serviceTtlNanos = new HashMap<>();
+    this.defaultMethodTtlNanos =
+        parseServiceConfig(builder.serviceConfig, methodTtlNanos, serviceTtlNanos);
+    this.methodTtlNanos = Collections.unmodifiableMap(methodTtlNanos);
+    this.serviceTtlNanos = Collections.unmodifiableMap(serviceTtlNanos);
+    this.defaultTtlNanos = builder.defaultTtlNanos;
+    this.honorCacheControl = builder.honorCacheControl;
+    this.ticker = builder.ticker;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Discards all cached responses. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /** Returns the number of cached responses, including expired ones not yet discarded. */
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  /**
+   * Fills the maps with the "cacheTtl" of the method configs, and returns the one of the default
+   * method config, if any.
+   */
+  @Nullable
+  private static Long parseServiceConfig(
+      @Nullable Map<String, ?> serviceConfig,
+      Map<String, Long> methodTtlNanos, Map<String, Long> serviceTtlNanos) {
+    if (serviceConfig == null) {
+      return null;
+    }
+    List<Map<String, ?>> methodConfigs = JsonUtil.getListOfObjects(serviceConfig, "methodConfig");
+    if (methodConfigs == null) {
+      return null;
+    }
+    Long defaultTtlNanos = null;
+    for (Map<String, ?> methodConfig : methodConfigs) {
+      Long ttlNanos = JsonUtil.getStringAsDuration(methodConfig, "cacheTtl");
+      List<Map<String, ?>> names = JsonUtil.getListOfObjects(methodConfig, "name");
+      if (ttlNanos == null || names == null) {
+        continue;
+      }
+      checkArgument(ttlNanos >= 0, "cacheTtl must not be negative: %s", methodConfig);
+      for (Map<String, ?> name : names) {
+        String serviceName = JsonUtil.getString(name, "service");
+        String methodName = JsonUtil.getString(name, "method");
+        if (serviceName == null || serviceName.isEmpty()) {
+          checkArgument(
+              methodName == null || methodName.isEmpty(),
+              "missing service name for method %s", methodName);
+          defaultTtlNanos = ttlNanos;
+        } else if (methodName == null || methodName.isEmpty()) {
+          serviceTtlNanos.put(serviceName, ttlNanos);
+        } else {
+          methodTtlNanos.put(
+              MethodDescriptor.generateFullMethodName(serviceName, methodName), ttlNanos);
+        }
+      }
+    }
+    return defaultTtlNanos;
+  }
+
+  @Nullable
+  private Long getConfiguredTtlNanos(MethodDescriptor<?, ?> method) {
+    Long ttlNanos = methodTtlNanos.get(method.getFullMethodName());
+    if (ttlNanos == null) {
+      ttlNanos = serviceTtlNanos.get(method.getServiceName());
+    }
+    if (ttlNanos == null) {
+      ttlNanos = defaultMethodTtlNanos;
+    }
+    return ttlNanos;
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    if (method.getType() != MethodDescriptor.MethodType.UNARY) {
+      return next.newCall(method, callOptions);
+    }
+    Long configuredTtlNanos = getConfiguredTtlNanos(method);
+    if (configuredTtlNanos == null && !method.isSafe()) {
+      return next.newCall(method, callOptions);
+    }
+    long ttlNanos = configuredTtlNanos != null ? configuredTtlNanos : defaultTtlNanos;
+    if (ttlNanos == 0 && !honorCacheControl) {
+      return next.newCall(method, callOptions);
+    }
+    return new CachingCall<>(method, callOptions, next, ttlNanos);
+  }
+
+  @Nullable
+  private static byte[] toByteArray(InputStream stream) {
+    try {
+      try {
+        return ByteStreams.toByteArray(stream);
+      } finally {
+        stream.close();
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Failed to serialize message, not caching", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the time to live from the {@code cache-control} header, {@code 0} if the response must
+   * not be cached, or {@code null} if the header does not say.
+   */
+  @Nullable
+  private static Long getCacheControlTtlNanos(Metadata headers) {
+    Iterable<String> cacheControlHeaders = headers.getAll(CACHE_CONTROL_KEY);
+    if (cacheControlHeaders == null) {
+      return null;
+    }
+    Long ttlNanos = null;
+    for (String cacheControlHeader : cacheControlHeaders) {
+      for (String directive : CACHE_CONTROL_SPLITTER.split(cacheControlHeader)) {
+        String lowerCaseDirective = directive.toLowerCase(Locale.US);
+        if (lowerCaseDirective.equals("no-cache") || lowerCaseDirective.equals("no-store")) {
+          return 0L;
+        } else if (lowerCaseDirective.startsWith("max-age=")) {
+          try {
+            long maxAgeSeconds = Long.parseLong(lowerCaseDirective.substring("max-age=".length()));
+            ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(maxAgeSeconds, 0));
+          } catch (NumberFormatException e) {
+            logger.log(Level.FINE, "Ignoring malformed cache-control directive {0}", directive);
+          }
+        }
+      }
+    }
+    return ttlNanos;
+  }
+
+  /**
+   * Defers creating the real call until the request is known, so a cached response does not start
+   * a call at all.
+   */
+  private final class CachingCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+    private final MethodDescriptor<ReqT, RespT> method;
+    private final CallOptions callOptions;
+    private final Channel next;
+    private final long ttlNanos;
+    private Listener<RespT> listener;
+    private Metadata headers;
+    private int pendingRequests;
+    @Nullable
+    private Boolean messageCompression;
+    @Nullable
+    private ClientCall<ReqT, RespT> delegate;
+    @Nullable
+    private CacheKey key;
+    @Nullable
+    private byte[] cachedResponse;
+    private boolean halfClosed;
+    private boolean closed;
+
+    CachingCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next,
+        long ttlNanos) {
+      this.method = method;
+      this.callOptions = callOptions;
+      this.next = next;
+      this.ttlNanos = ttlNanos;
+    }
+
+    @Override
+    public void start(Listener<RespT> listener, Metadata headers) {
+      checkState(this.listener == null, "Already started");
+      this.listener = checkNotNull(listener, "listener");
+      this.headers = checkNotNull(headers, "headers");
+    }
+
+    @Override
+    public void request(int numMessages) {
+      if (delegate != null) {
+        delegate.request(numMessages);
+        return;
+      }
+      pendingRequests += numMessages;
+      maybeDeliverCachedResponse();
+    }
+
+    @Override
+    public void sendMessage(ReqT message) {
+      checkState(listener != null, "Not started");
+      checkState(cachedResponse == null, "Unary calls send a single message");
+      if (closed) {
+        return;
+      }
+      if (delegate != null) {
+        delegate.sendMessage(message);
+        return;
+      }
+      byte[] request = toByteArray(method.streamRequest(message));
+      if (request != null) {
+        String authority = callOptions.getAuthority();
+        key = new CacheKey(
+            method.getFullMethodName(), request,
+            authority != null ? authority : next.authority(), callOptions.getCredentials());
+        CacheEntry entry = cache.getIfPresent(key);
+        if (entry != null) {
+          if (ticker.read() - entry.expirationNanos < 0) {
+            cachedResponse = entry.response;
+            return;
+          }
+          cache.asMap().remove(key, entry);
+        }
+      }
+      startDelegate();
+      delegate.sendMessage(message);
+    }
+
+    @Override
+    public void halfClose() {
+      if (delegate != null) {
+        delegate.halfClose();
+        return;
+      }
+      if (closed) {
+        return;
+      }
+      halfClosed = true;
+      if (cachedResponse == null) {
+        // No request was sent, so there is nothing to look up; the real call reports the error
+        startDelegate();
+        delegate.halfClose();
+        return;
+      }
+      maybeDeliverCachedResponse();
+    }
+
+    @Override
+    public void cancel(@Nullable String message, @Nullable Throwable cause) {
+      if (delegate != null) {
+        delegate.cancel(message, cause);
+        return;
+      }
+      if (listener == null || closed) {
+        return;
+      }
+      closed = true;
+      Status status = Status.CANCELLED;
+      if (message != null) {
+        status = status.withDescription(message);
+      }
+      if (cause != null) {
+        status = status.withCause(cause);
+      }
+      final Status savedStatus = status;
+      getExecutor().execute(new Runnable() {
+        @Override
+        public void run() {
+          listener.onClose(savedStatus, new Metadata());
+        }
+      });
+    }
+
+    @Override
+    public boolean isReady() {
+      return delegate != null ? delegate.isReady() : !closed;
+    }
+
+    @Override
+    public void setMessageCompression(boolean enabled) {
+      if (delegate != null) {
+        delegate.setMessageCompression(enabled);
+      } else {
+        messageCompression = enabled;
+      }
+    }
+
+    @Override
+    public Attributes getAttributes() {
+      return delegate != null ? delegate.getAttributes() : Attributes.EMPTY;
+    }
+
+    private void startDelegate() {
+      if (delegate != null) {
+        return;
+      }
+      delegate = next.newCall(method, callOptions);
+      delegate.start(new CachingListener(listener), headers);
+      if (messageCompression != null) {
+        delegate.setMessageCompression(messageCompression);
+      }
+      if (pendingRequests > 0) {
+        delegate.request(pendingRequests);
+      }
+    }
+
+    private void maybeDeliverCachedResponse() {
+      if (cachedResponse == null || !halfClosed || pendingRequests == 0 || closed) {
+        return;
+      }
+      closed = true;
+      final byte[] response = cachedResponse;
+      getExecutor().execute(new Runnable() {
+        @Override
+        public void run() {
+          RespT message;
+          try {
+            message = method.parseResponse(new ByteArrayInputStream(response));
+          } catch (RuntimeException e) {
+            listener.onClose(
+                Status.INTERNAL.withDescription("Failed to parse cached response").withCause(e),
+                new Metadata());
+            return;
+          }
+          listener.onHeaders(new Metadata());
+          listener.onMessage(message);
+          listener.onClose(Status.OK, new Metadata());
+        }
+      });
+    }
+
+    private Executor getExecutor() {
+      Executor executor = callOptions.getExecutor();
+      return executor != null ? executor : SHARED_EXECUTOR;
+    }
+
+    private final class CachingListener extends SimpleForwardingClientCallListener<RespT> {
+      private long responseTtlNanos = ttlNanos;
+      private int messageCount;
+      @Nullable
+      private byte[] response;
+
+      CachingListener(Listener<RespT> delegate) {
+        super(delegate);
+      }
+
+      @Override
+      public void onHeaders(Metadata headers) {
+        if (honorCacheControl) {
+          Long cacheControlTtlNanos = getCacheControlTtlNanos(headers);
+          if (cacheControlTtlNanos != null) {
+            responseTtlNanos = cacheControlTtlNanos;
+          }
+        }
+        super.onHeaders(headers);
+      }
+
+      @Override
+      public void onMessage(RespT message) {
+        if (key != null && responseTtlNanos > 0 && messageCount++ == 0) {
+          response = toByteArray(method.streamResponse(message));
+        }
+        super.onMessage(message);
+      }
+
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        if (status.isOk() && messageCount == 1 && response != null && responseTtlNanos > 0) {
+          cache.put(key, new CacheEntry(response, ticker.read() + responseTtlNanos));
+        }
+        super.onClose(status, trailers);
+      }
+    }
+  }
+
+  private static final class CacheKey {
+    final String fullMethodName;
+    final byte[] request;
+    final String authority;
+    @Nullable
+    final CallCredentials credentials;
+    final int hashCode;
+
+    CacheKey(
+        String fullMethodName, byte[] request, String authority,
+        @Nullable CallCredentials credentials) {
+      this.fullMethodName = fullMethodName;
+      this.request = request;
+      this.authority = authority;
+      this.credentials = credentials;
+      this.hashCode = 31 * (31 * fullMethodName.hashCode() + Arrays.hashCode(request))
+          + authority.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) other;
+      return hashCode == that.hashCode
+          && fullMethodName.equals(that.fullMethodName)
+          && Arrays.equals(request, that.request)
+          && authority.equals(that.authority)
+          // Credentials are compared by identity, as they rarely implement equals()
+          && credentials == that.credentials;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class CacheEntry {
+    final byte[] response;
+    final long expirationNanos;
+
+    CacheEntry(byte[] response, long expirationNanos) {
+      this.response = response;
+      this.expirationNanos = expirationNanos;
+    }
+  }
+
+  /** Builder for {@link ResponseCachingInterceptor}. */
+  public static final class Builder {
+    private long maxSizeBytes = 10 * 1024 * 1024;
+    @Nullable
+    private Map<String, ?> serviceConfig;
+    private long defaultTtlNanos;
+    private boolean honorCacheControl;
+    private Ticker ticker = Ticker.systemTicker();
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the maximum total size in bytes of the cached requests and responses. The default is
+     * 10 MiB.
+     */
+    public Builder setMaxSizeBytes(long maxSizeBytes) {
+      checkArgument(maxSizeBytes >= 0, "maxSizeBytes must not be negative");
+      this.maxSizeBytes = maxSizeBytes;
+      return this;
+    }
+
+    /**
+     * Sets the service config to read the {@code "cacheTtl"} of each method from. This is usually
+     * the same config passed to {@link io.grpc.ManagedChannelBuilder#defaultServiceConfig}.
+     */
+    public Builder setServiceConfig(@Nullable Map<String, ?> serviceConfig) {
+      this.serviceConfig = serviceConfig;
+      return this;
+    }
+
+    /**
+     * Sets how long responses of safe methods without a configured time to live are cached. The
+     * default is zero, which only caches them when allowed by {@code cache-control}.
+     */
+    public Builder setDefaultTimeToLive(long duration, TimeUnit unit) {
+      checkArgument(duration >= 0, "duration must not be negative");
+      this.defaultTtlNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Sets whether the {@code cache-control} response header overrides the configured time to
+     * live. The default is {@code false}.
+     */
+    public Builder setHonorCacheControl(boolean honorCacheControl) {
+      this.honorCacheControl = honorCacheControl;
+      return this;
+    }
+
+    @VisibleForTesting
+    Builder setTicker(Ticker ticker) {
+      this.ticker = checkNotNull(ticker, "ticker");
+      return this;
+    }
+
+    /**
+     * Creates the interceptor. Its cache is shared by all channels it is used with.
+     *
+     * @throws IllegalArgumentException if the service config is invalid
+     */
+    public ResponseCachingInterceptor build() {
+      return new ResponseCachingInterceptor(this);
+    }
+  }
+}
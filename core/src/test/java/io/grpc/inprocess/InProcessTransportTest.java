@@ -17,10 +17,14 @@
 package io.grpc.inprocess;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import io.grpc.Attributes;
 import io.grpc.CallOptions;
 import io.grpc.ClientCall;
+import io.grpc.ClientStreamTracer;
 import io.grpc.ManagedChannel;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
@@ -34,15 +38,31 @@ import io.grpc.Status;
 import io.grpc.Status.Code;
 import io.grpc.StatusRuntimeException;
 import io.grpc.internal.AbstractTransportTest;
+import io.grpc.internal.ClientStream;
+import io.grpc.internal.ClientStreamListener;
 import io.grpc.internal.GrpcUtil;
 import io.grpc.internal.InternalServer;
 import io.grpc.internal.ManagedClientTransport;
+import io.grpc.internal.ServerListener;
+import io.grpc.internal.ServerStream;
+import io.grpc.internal.ServerStreamListener;
+import io.grpc.internal.ServerTransport;
+import io.grpc.internal.ServerTransportListener;
 import io.grpc.stub.ClientCalls;
 import io.grpc.testing.GrpcCleanupRule;
 import io.grpc.testing.TestMethodDescriptors;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
@@ -55,6 +75,9 @@ public class InProcessTransportTest extends AbstractTransportTest {
   private static final String TRANSPORT_NAME = "perfect-for-testing";
   private static final String AUTHORITY = "a-testing-authority";
   protected static final String USER_AGENT = "a-testing-user-agent";
+  private static final int RACE_TIMEOUT_SECONDS = 5;
+  private static final int RACE_ITERATIONS = 100;
+  private static final int RACE_MESSAGES = 50;
 
   @Rule
   public final GrpcCleanupRule grpcCleanupRule = new GrpcCleanupRule();
@@ -177,4 +200,296 @@ public class InProcessTransportTest extends AbstractTransportTest {
       assertEquals(s.getStatus().getCode(), Code.UNIMPLEMENTED);
     }
   }
+
+  @Test
+  public void clientMessagesRacingCancel() throws Exception {
+    RaceServerListener raceServerListener = new RaceServerListener();
+    InternalServer raceServer = startRaceServer(raceServerListener);
+    RaceClientTransportListener clientTransportListener = new RaceClientTransportListener();
+    ManagedClientTransport client = startRaceClient(raceServer, clientTransportListener);
+    try {
+      for (int i = 0; i < RACE_ITERATIONS; i++) {
+        final ClientStream clientStream = newRaceStream(client);
+        RecordingStreamListener clientListener = new RecordingStreamListener();
+        clientStream.start(clientListener);
+        RecordingStreamListener serverListener =
+            raceServerListener.streams.poll(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        final CountDownLatch halfWritten = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            for (int j = 0; j < RACE_MESSAGES; j++) {
+              if (j == RACE_MESSAGES / 2) {
+                halfWritten.countDown();
+              }
+              clientStream.writeMessage(newRaceMessage());
+              clientStream.flush();
+            }
+          }
+        });
+        writer.start();
+        assertTrue(halfWritten.await(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        clientStream.cancel(Status.CANCELLED.withDescription("test cancel"));
+        writer.join();
+
+        clientListener.assertClosedOnce();
+        assertEquals(Code.CANCELLED, clientListener.status.getCode());
+        serverListener.assertClosedOnce();
+        assertFalse(serverListener.status.isOk());
+        assertTrue(serverListener.messages.get() <= RACE_MESSAGES);
+      }
+    } finally {
+      client.shutdownNow(Status.UNAVAILABLE.withDescription("test done"));
+      raceServer.shutdown();
+    }
+  }
+
+  @Test
+  public void serverMessagesRacingClose() throws Exception {
+    RaceServerListener raceServerListener = new RaceServerListener();
+    InternalServer raceServer = startRaceServer(raceServerListener);
+    RaceClientTransportListener clientTransportListener = new RaceClientTransportListener();
+    ManagedClientTransport client = startRaceClient(raceServer, clientTransportListener);
+    try {
+      for (int i = 0; i < RACE_ITERATIONS; i++) {
+        ClientStream clientStream = newRaceStream(client);
+        RecordingStreamListener clientListener = new RecordingStreamListener();
+        clientStream.start(clientListener);
+        clientStream.request(RACE_MESSAGES);
+        RecordingStreamListener serverListener =
+            raceServerListener.streams.poll(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        final ServerStream serverStream = serverListener.serverStream;
+        serverStream.writeHeaders(new Metadata());
+        final CountDownLatch halfWritten = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            for (int j = 0; j < RACE_MESSAGES; j++) {
+              if (j == RACE_MESSAGES / 2) {
+                halfWritten.countDown();
+              }
+              serverStream.writeMessage(newRaceMessage());
+              serverStream.flush();
+            }
+          }
+        });
+        writer.start();
+        assertTrue(halfWritten.await(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        serverStream.close(Status.OK, new Metadata());
+        writer.join();
+
+        clientListener.assertClosedOnce();
+        assertTrue(clientListener.status.isOk());
+        // The messages written before close are all delivered, and none after it
+        assertTrue(clientListener.messages.get() >= RACE_MESSAGES / 2);
+        assertTrue(clientListener.messages.get() <= RACE_MESSAGES);
+        serverListener.assertClosedOnce();
+      }
+    } finally {
+      client.shutdownNow(Status.UNAVAILABLE.withDescription("test done"));
+      raceServer.shutdown();
+    }
+  }
+
+  @Test
+  public void newStreamRacingShutdownNow() throws Exception {
+    RaceServerListener raceServerListener = new RaceServerListener();
+    InternalServer raceServer = startRaceServer(raceServerListener);
+    RaceClientTransportListener clientTransportListener = new RaceClientTransportListener();
+    final ManagedClientTransport client = startRaceClient(raceServer, clientTransportListener);
+    final List<RecordingStreamListener> clientListeners =
+        Collections.synchronizedList(new ArrayList<RecordingStreamListener>());
+    final CountDownLatch creating = new CountDownLatch(4);
+    List<Thread> threads = new ArrayList<>();
+    try {
+      for (int i = 0; i < 4; i++) {
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            for (int j = 0; j < RACE_ITERATIONS; j++) {
+              if (j == RACE_ITERATIONS / 10) {
+                creating.countDown();
+              }
+              ClientStream clientStream = newRaceStream(client);
+              RecordingStreamListener clientListener = new RecordingStreamListener();
+              clientListeners.add(clientListener);
+              clientStream.start(clientListener);
+            }
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      assertTrue(creating.await(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      client.shutdownNow(Status.UNAVAILABLE.withDescription("test shutdownNow"));
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      for (RecordingStreamListener clientListener : clientListeners) {
+        clientListener.assertClosedOnce();
+        assertFalse(clientListener.status.isOk());
+      }
+      for (RecordingStreamListener serverListener : raceServerListener.streams) {
+        serverListener.assertClosedOnce();
+      }
+      assertTrue(
+          clientTransportListener.terminated.await(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      assertFalse(clientTransportListener.inUse);
+      assertTrue(
+          raceServerListener.terminated.await(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    } finally {
+      raceServer.shutdown();
+    }
+  }
+
+  private InternalServer startRaceServer(ServerListener listener) throws Exception {
+    InternalServer raceServer = server;
+    // tearDown() only waits for a server started with its own listener
+    server = null;
+    raceServer.start(listener);
+    return raceServer;
+  }
+
+  private ManagedClientTransport startRaceClient(
+      InternalServer raceServer, ManagedClientTransport.Listener listener) {
+    ManagedClientTransport client = newClientTransport(raceServer);
+    Runnable runnable = client.start(listener);
+    if (runnable != null) {
+      runnable.run();
+    }
+    return client;
+  }
+
+  private static ClientStream newRaceStream(ManagedClientTransport client) {
+    return client.newStream(
+        TestMethodDescriptors.voidMethod(), new Metadata(), CallOptions.DEFAULT,
+        new ClientStreamTracer[] {new ClientStreamTracer() {}});
+  }
+
+  private static InputStream newRaceMessage() {
+    return new ByteArrayInputStream(new byte[] {1, 2, 3});
+  }
+
+  private static final class RaceServerListener implements ServerListener {
+    final BlockingQueue<RecordingStreamListener> streams = new LinkedBlockingQueue<>();
+    final CountDownLatch terminated = new CountDownLatch(1);
+
+    @Override
+    public ServerTransportListener transportCreated(ServerTransport transport) {
+      return new ServerTransportListener() {
+        @Override
+        public void streamCreated(ServerStream stream, String method, Metadata headers) {
+          RecordingStreamListener listener = new RecordingStreamListener(stream);
+          stream.setListener(listener);
+          stream.request(RACE_MESSAGES);
+          streams.add(listener);
+        }
+
+        @Override
+        public Attributes transportReady(Attributes attributes) {
+          return attributes;
+        }
+
+        @Override
+        public void transportTerminated() {
+          terminated.countDown();
+        }
+      };
+    }
+
+    @Override
+    public void serverShutdown() {}
+  }
+
+  private static final class RaceClientTransportListener
+      implements ManagedClientTransport.Listener {
+    final CountDownLatch terminated = new CountDownLatch(1);
+    volatile boolean inUse;
+
+    @Override
+    public void transportShutdown(Status s) {}
+
+    @Override
+    public void transportTerminated() {
+      terminated.countDown();
+    }
+
+    @Override
+    public void transportReady() {}
+
+    @Override
+    public void transportInUse(boolean inUse) {
+      this.inUse = inUse;
+    }
+  }
+
+  /**
+   * Records the callbacks of either side of a stream, checking none comes after the stream is
+   * closed.
+   */
+  private static final class RecordingStreamListener
+      implements ClientStreamListener, ServerStreamListener {
+    final ServerStream serverStream;
+    final AtomicInteger messages = new AtomicInteger();
+    final AtomicInteger closedCount = new AtomicInteger();
+    final AtomicBoolean callbackAfterClose = new AtomicBoolean();
+    final CountDownLatch closed = new CountDownLatch(1);
+    volatile Status status;
+
+    RecordingStreamListener() {
+      this(null);
+    }
+
+    RecordingStreamListener(ServerStream serverStream) {
+      this.serverStream = serverStream;
+    }
+
+    void assertClosedOnce() throws InterruptedException {
+      assertTrue(closed.await(RACE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      assertEquals(1, closedCount.get());
+      assertFalse(callbackAfterClose.get());
+    }
+
+    private void checkNotClosed() {
+      if (closedCount.get() > 0) {
+        callbackAfterClose.set(true);
+      }
+    }
+
+    @Override
+    public void messagesAvailable(MessageProducer producer) {
+      checkNotClosed();
+      while (producer.next() != null) {
+        messages.incrementAndGet();
+      }
+    }
+
+    @Override
+    public void onReady() {
+      checkNotClosed();
+    }
+
+    @Override
+    public void headersRead(Metadata headers) {
+      checkNotClosed();
+    }
+
+    @Override
+    public void halfClosed() {
+      checkNotClosed();
+    }
+
+    @Override
+    public void closed(Status status, RpcProgress rpcProgress, Metadata trailers) {
+      closed(status);
+    }
+
+    @Override
+    public void closed(Status status) {
+      this.status = status;
+      closedCount.incrementAndGet();
+      closed.countDown();
+    }
+  }
 }
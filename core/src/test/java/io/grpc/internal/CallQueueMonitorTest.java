@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static io.grpc.internal.CallQueueMonitor.INTERVAL_NANOS;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CallQueueMonitor}. */
+@RunWith(JUnit4.class)
+public class CallQueueMonitorTest {
+  private static final long TARGET_NANOS = 10;
+
+  private final CallQueueMonitor monitor = new CallQueueMonitor(TARGET_NANOS, 0);
+
+  @Test
+  public void shortWaitInIntervalIsNotOverload() {
+    monitor.recordWait(10, 100);
+    monitor.recordWait(20, 5);
+    monitor.recordWait(INTERVAL_NANOS, 100);
+    assertFalse(monitor.isOverloaded(INTERVAL_NANOS));
+  }
+
+  @Test
+  public void standingQueueIsOverload() {
+    monitor.recordWait(10, 100);
+    monitor.recordWait(INTERVAL_NANOS, 11);
+    assertTrue(monitor.isOverloaded(INTERVAL_NANOS));
+    assertTrue(monitor.isOverloaded(2 * INTERVAL_NANOS - 1));
+    assertFalse(monitor.isOverloaded(2 * INTERVAL_NANOS));
+  }
+
+  @Test
+  public void firstCallAfterIdlePeriodIsNotOverload() {
+    monitor.recordWait(3 * INTERVAL_NANOS, 100);
+    assertFalse(monitor.isOverloaded(3 * INTERVAL_NANOS));
+  }
+}
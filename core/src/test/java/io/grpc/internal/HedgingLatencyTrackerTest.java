@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link HedgingLatencyTracker}. */
+@RunWith(JUnit4.class)
+public class HedgingLatencyTrackerTest {
+  private static final long DEFAULT_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final FakeClock fakeClock = new FakeClock();
+
+  @Test
+  public void buckets() {
+    for (long value : new long[] {0, 1, 7, 8, 15, 16, 17, 1000, 123456789, 1L << 62}) {
+      int bucket = HedgingLatencyTracker.bucket(value);
+      assertThat(HedgingLatencyTracker.upperBound(bucket)).isAtLeast(value);
+      assertThat(HedgingLatencyTracker.upperBound(bucket)).isAtMost(value + value / 8);
+      if (bucket > 0) {
+        assertThat(HedgingLatencyTracker.upperBound(bucket - 1)).isLessThan(value);
+      }
+    }
+  }
+
+  @Test
+  public void defaultDelayUntilEnoughSamples() {
+    HedgingLatencyTracker tracker = new HedgingLatencyTracker(50, 0.1, fakeClock.getTicker());
+    for (int i = 1; i < HedgingLatencyTracker.MIN_SAMPLES; i++) {
+      tracker.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    assertEquals(DEFAULT_DELAY_NANOS, tracker.hedgingDelayNanos(DEFAULT_DELAY_NANOS));
+
+    tracker.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    assertDelayNear(10, tracker);
+  }
+
+  @Test
+  public void percentile() {
+    HedgingLatencyTracker tracker = new HedgingLatencyTracker(95, 0.1, fakeClock.getTicker());
+    for (int i = 0; i < 8; i++) {
+      for (int millis = 1; millis <= 100; millis++) {
+        tracker.recordLatency(TimeUnit.MILLISECONDS.toNanos(millis));
+      }
+    }
+    assertDelayNear(95, tracker);
+  }
+
+  @Test
+  public void oldSamplesExpire() {
+    HedgingLatencyTracker tracker = new HedgingLatencyTracker(50, 0.1, fakeClock.getTicker());
+    for (int i = 0; i < HedgingLatencyTracker.WINDOW_SAMPLES; i++) {
+      tracker.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    assertDelayNear(10, tracker);
+
+    for (int i = 0; i < HedgingLatencyTracker.WINDOW_SAMPLES; i++) {
+      tracker.recordLatency(TimeUnit.MILLISECONDS.toNanos(200));
+    }
+    assertDelayNear(200, tracker);
+  }
+
+  @Test
+  public void hedgesLimitedToRatioOfRequests() {
+    HedgingLatencyTracker tracker = new HedgingLatencyTracker(95, 0.1, fakeClock.getTicker());
+    for (int i = 0; i < 9; i++) {
+      tracker.recordRequest();
+    }
+    assertFalse(tracker.hasHedgeCapacity());
+
+    tracker.recordRequest();
+    assertTrue(tracker.hasHedgeCapacity());
+    assertTrue(tracker.hasHedgeCapacity());
+    tracker.recordHedge();
+    assertFalse(tracker.hasHedgeCapacity());
+  }
+
+  private static void assertDelayNear(long expectedMillis, HedgingLatencyTracker tracker) {
+    long expectedNanos = TimeUnit.MILLISECONDS.toNanos(expectedMillis);
+    long delayNanos = tracker.hedgingDelayNanos(DEFAULT_DELAY_NANOS);
+    assertThat(delayNanos).isAtLeast(expectedNanos);
+    assertThat(delayNanos).isAtMost(expectedNanos + expectedNanos / 8);
+  }
+}
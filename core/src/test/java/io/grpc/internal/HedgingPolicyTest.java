@@ -78,7 +78,9 @@ public class HedgingPolicyTest {
           new HedgingPolicy(
               4,
               TimeUnit.MILLISECONDS.toNanos(100),
-              ImmutableSet.of(Code.UNAVAILABLE)));
+              ImmutableSet.of(Code.UNAVAILABLE),
+              95.0,
+              0.05));
 
       method = builder.setFullMethodName("SimpleService2/not_exist").build();
       assertThat(channelServiceConfig.getMethodConfig(method).hedgingPolicy).isNull();
@@ -88,7 +90,9 @@ public class HedgingPolicyTest {
           new HedgingPolicy(
               4,
               TimeUnit.MILLISECONDS.toNanos(100),
-              ImmutableSet.of(Code.UNAVAILABLE)));
+              ImmutableSet.of(Code.UNAVAILABLE),
+              95.0,
+              0.05));
     } finally {
       if (reader != null) {
         reader.close();
@@ -32,6 +32,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -41,17 +42,23 @@ import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Iterables;
 import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.ClientStreamTracer;
 import io.grpc.ConnectivityStateInfo;
 import io.grpc.EquivalentAddressGroup;
 import io.grpc.InternalChannelz;
+import io.grpc.InternalChannelz.ChannelStats;
 import io.grpc.InternalLogId;
 import io.grpc.InternalWithLogId;
+import io.grpc.Metadata;
 import io.grpc.Status;
 import io.grpc.SynchronizationContext;
+import io.grpc.internal.ClientStreamListener.RpcProgress;
 import io.grpc.internal.InternalSubchannel.CallTracingTransport;
 import io.grpc.internal.InternalSubchannel.Index;
 import io.grpc.internal.InternalSubchannel.TransportLogger;
 import io.grpc.internal.TestUtils.MockClientTransportInfo;
+import io.grpc.testing.TestMethodDescriptors;
 import java.net.SocketAddress;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -66,6 +73,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -135,6 +143,12 @@ public class InternalSubchannelTest {
           assertSame(internalSubchannel, is);
           callbackInvokes.add("onNotInUse");
         }
+
+        @Override
+        protected void onTlsHandshake(InternalSubchannel is, boolean resumed) {
+          assertSame(internalSubchannel, is);
+          callbackInvokes.add("onTlsHandshake:" + resumed);
+        }
       };
 
   private InternalSubchannel internalSubchannel;
@@ -1239,6 +1253,192 @@ public class InternalSubchannelTest {
     assertEquals(actualTransport.transport.getLogId(), registeredTransport.getLogId());
   }
 
+  @Test
+  public void channelzStatCountsTlsHandshakes() throws Exception {
+    SocketAddress addr = mock(SocketAddress.class);
+    createInternalSubchannel(addr);
+    internalSubchannel.obtainActiveTransport();
+
+    MockClientTransportInfo t0 = transports.poll();
+    when(t0.transport.getAttributes()).thenReturn(
+        Attributes.newBuilder().set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, false).build());
+    t0.listener.transportReady();
+    assertExactCallbackInvokes(
+        "onStateChange:CONNECTING", "onTlsHandshake:false", "onStateChange:READY");
+    t0.listener.transportShutdown(Status.UNAVAILABLE);
+    t0.listener.transportTerminated();
+    assertExactCallbackInvokes("onStateChange:IDLE");
+
+    // The counts outlive the transports
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t1 = transports.poll();
+    when(t1.transport.getAttributes()).thenReturn(
+        Attributes.newBuilder().set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, true).build());
+    t1.listener.transportReady();
+    assertExactCallbackInvokes(
+        "onStateChange:CONNECTING", "onTlsHandshake:true", "onStateChange:READY");
+
+    ChannelStats stats = internalSubchannel.getStats().get();
+    assertEquals(1, stats.tlsFullHandshakes);
+    assertEquals(1, stats.tlsResumedHandshakes);
+  }
+
+  @Test
+  public void multipleConnections_extraTransportOpenedWhenStreamLimitReached() {
+    SocketAddress addr = mock(SocketAddress.class);
+    createInternalSubchannel(2, new EquivalentAddressGroup(addr));
+
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t0 = transports.poll();
+    when(t0.transport.getMaxConcurrentStreams()).thenReturn(1);
+    t0.listener.transportReady();
+    assertExactCallbackInvokes("onStateChange:CONNECTING", "onStateChange:READY");
+
+    ClientStreamListener stream0 = startStream(t0);
+    assertEquals(0, transports.size());
+
+    // t0 is full, so another transport is opened, while t0 is still used until it is ready
+    ClientStreamListener stream1 = startStream(t0);
+    MockClientTransportInfo t1 = transports.poll();
+    assertNotNull(t1);
+    verify(mockTransportFactory, times(2)).newClientTransport(
+        eq(addr), eq(createClientTransportOptions()), isA(TransportLogger.class));
+    when(t1.transport.getMaxConcurrentStreams()).thenReturn(1);
+    t1.listener.transportReady();
+    assertNoCallbackInvoke();
+
+    startStream(t1);
+
+    // Both are full, and no more than two transports are opened
+    startStream(t1);
+    assertEquals(0, transports.size());
+
+    // New streams go to the transport with the fewest streams
+    stream0.closed(Status.OK, RpcProgress.PROCESSED, new Metadata());
+    stream1.closed(Status.OK, RpcProgress.PROCESSED, new Metadata());
+    startStream(t0);
+    assertEquals(0, transports.size());
+
+    t1.listener.transportInUse(true);
+    t0.listener.transportShutdown(Status.UNAVAILABLE);
+    verify(t1.transport).shutdown(any(Status.class));
+    assertExactCallbackInvokes("onInUse", "onStateChange:IDLE");
+    t1.listener.transportShutdown(Status.UNAVAILABLE);
+  }
+
+  @Test
+  public void multipleConnections_singleConnectionByDefault() {
+    SocketAddress addr = mock(SocketAddress.class);
+    createInternalSubchannel(addr);
+
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t0 = transports.poll();
+    when(t0.transport.getMaxConcurrentStreams()).thenReturn(1);
+    t0.listener.transportReady();
+
+    startStream(t0);
+    startStream(t0);
+    assertEquals(0, transports.size());
+    verify(t0.transport, never()).getMaxConcurrentStreams();
+  }
+
+  @Test
+  public void multipleConnections_idleExtraTransportShutDown() {
+    SocketAddress addr = mock(SocketAddress.class);
+    createInternalSubchannel(2, new EquivalentAddressGroup(addr));
+
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t0 = transports.poll();
+    t0.listener.transportReady();
+    // Mock transports allow no streams, so every pick asks for an extra transport
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t1 = transports.poll();
+    t1.listener.transportReady();
+    assertExactCallbackInvokes("onStateChange:CONNECTING", "onStateChange:READY");
+
+    t1.listener.transportInUse(true);
+    assertExactCallbackInvokes("onInUse");
+    fakeClock.forwardTime(InternalSubchannel.EXTRA_TRANSPORT_IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    verify(t1.transport, never()).shutdown(any(Status.class));
+
+    t1.listener.transportInUse(false);
+    assertExactCallbackInvokes("onNotInUse");
+    fakeClock.forwardTime(
+        InternalSubchannel.EXTRA_TRANSPORT_IDLE_TIMEOUT_SECONDS - 1, TimeUnit.SECONDS);
+    verify(t1.transport, never()).shutdown(any(Status.class));
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    verify(t1.transport).shutdown(any(Status.class));
+    t1.listener.transportShutdown(Status.UNAVAILABLE);
+    t1.listener.transportTerminated();
+    assertEquals(READY, internalSubchannel.getState());
+    assertNoCallbackInvoke();
+
+    // A new extra transport is opened on demand
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t2 = transports.poll();
+    assertNotNull(t2);
+    internalSubchannel.shutdown(SHUTDOWN_REASON);
+    verify(t0.transport).shutdown(same(SHUTDOWN_REASON));
+    verify(t2.transport).shutdown(same(SHUTDOWN_REASON));
+    assertExactCallbackInvokes("onStateChange:SHUTDOWN");
+    t0.listener.transportShutdown(SHUTDOWN_REASON);
+    t0.listener.transportTerminated();
+    t2.listener.transportShutdown(SHUTDOWN_REASON);
+    // Ready after shutdown is ignored
+    t2.listener.transportReady();
+    assertNoCallbackInvoke();
+    t2.listener.transportTerminated();
+    assertExactCallbackInvokes("onTerminated");
+  }
+
+  @Test
+  public void multipleConnections_backoffAfterExtraTransportFails() {
+    SocketAddress addr = mock(SocketAddress.class);
+    createInternalSubchannel(2, new EquivalentAddressGroup(addr));
+
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t0 = transports.poll();
+    t0.listener.transportReady();
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t1 = transports.poll();
+    t1.listener.transportShutdown(Status.UNAVAILABLE);
+    t1.listener.transportTerminated();
+    assertExactCallbackInvokes("onStateChange:CONNECTING", "onStateChange:READY");
+
+    internalSubchannel.obtainActiveTransport();
+    assertEquals(0, transports.size());
+    fakeClock.forwardNanos(9);
+    internalSubchannel.obtainActiveTransport();
+    assertEquals(0, transports.size());
+    fakeClock.forwardNanos(1);
+    internalSubchannel.obtainActiveTransport();
+    MockClientTransportInfo t2 = transports.poll();
+    assertNotNull(t2);
+
+    t2.listener.transportReady();
+    t2.listener.transportShutdown(Status.UNAVAILABLE);
+    assertEquals(READY, internalSubchannel.getState());
+    assertNoCallbackInvoke();
+  }
+
+  /**
+   * Starts a stream on the transport picked by the subchannel, checks that it is {@code expected},
+   * and returns the listener the stream was started with.
+   */
+  private ClientStreamListener startStream(MockClientTransportInfo expected) {
+    CallTracingTransport transport =
+        (CallTracingTransport) internalSubchannel.obtainActiveTransport();
+    assertSame(expected.transport, transport.delegate());
+    ForwardingClientStream stream = (ForwardingClientStream) transport.newStream(
+        TestMethodDescriptors.voidMethod(), new Metadata(), CallOptions.DEFAULT,
+        new ClientStreamTracer[0]);
+    stream.start(mock(ClientStreamListener.class));
+    ArgumentCaptor<ClientStreamListener> listenerCaptor =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(stream.delegate(), atLeastOnce()).start(listenerCaptor.capture());
+    return listenerCaptor.getValue();
+  }
+
   @Test public void index_looping() {
     Attributes.Key<String> key = Attributes.Key.create("some-key");
     Attributes attr1 = Attributes.newBuilder().set(key, "1").build();
@@ -1350,13 +1550,18 @@ public class InternalSubchannelTest {
   }
 
   private void createInternalSubchannel(EquivalentAddressGroup ... addrs) {
+    createInternalSubchannel(1, addrs);
+  }
+
+  private void createInternalSubchannel(int maxConnections, EquivalentAddressGroup ... addrs) {
     List<EquivalentAddressGroup> addressGroups = Arrays.asList(addrs);
     InternalLogId logId = InternalLogId.allocate("Subchannel", /*details=*/ AUTHORITY);
     ChannelTracer subchannelTracer = new ChannelTracer(logId, 10,
         fakeClock.getTimeProvider().currentTimeNanos(), "Subchannel");
     internalSubchannel = new InternalSubchannel(addressGroups, AUTHORITY, USER_AGENT,
         mockBackoffPolicyProvider, mockTransportFactory, fakeClock.getScheduledExecutorService(),
-        fakeClock.getStopwatchSupplier(), syncContext, mockInternalSubchannelCallback,
+        maxConnections, fakeClock.getStopwatchSupplier(), syncContext,
+        mockInternalSubchannelCallback,
         channelz, CallTracer.getDefaultFactory().create(),
         subchannelTracer,
         logId,
@@ -933,6 +933,7 @@ public class ManagedChannelImplTest {
             any(SocketAddress.class), any(ClientTransportOptions.class), any(ChannelLogger.class));
     verify(mockTransportFactory).close();
     verify(mockTransport, atLeast(0)).getLogId();
+    verify(mockTransport, atLeast(0)).getAttributes();
     verifyNoMoreInteractions(mockTransport);
   }
 
@@ -2565,6 +2566,23 @@ public class ManagedChannelImplTest {
     verify(mockLoadBalancerProvider).newLoadBalancer(any(Helper.class));
   }
 
+  @Test
+  public void eagerConnect_exitsIdleModeWhenBuilt() {
+    channelBuilder.nameResolverFactory(
+        new FakeNameResolverFactory.Builder(expectedUri).setResolvedAtStart(false).build());
+    channelBuilder.eagerConnect();
+    requestConnection = false;
+    createChannel();
+
+    ArgumentCaptor<Helper> helperCaptor = ArgumentCaptor.forClass(null);
+    verify(mockLoadBalancerProvider).newLoadBalancer(helperCaptor.capture());
+    helper = helperCaptor.getValue();
+    verify(mockLoadBalancer).requestConnection();
+
+    updateBalancingStateSafely(helper, CONNECTING, mockPicker);
+    assertEquals(CONNECTING, channel.getState(false));
+  }
+
   @SuppressWarnings("deprecation")
   @Test
   public void getState_withRequestConnect_IdleWithLbRunning() {
@@ -3470,6 +3488,23 @@ public class ManagedChannelImplTest {
     assertEquals(executor.getTicker().read(), getStats(channel).lastCallStartedNanos);
   }
 
+  @Test
+  public void channelStat_tlsHandshakes() throws Exception {
+    createChannel();
+    AbstractSubchannel subchannel =
+        (AbstractSubchannel) createSubchannelSafely(
+            helper, addressGroup, Attributes.EMPTY, subchannelStateListener);
+    requestConnectionSafely(helper, subchannel);
+    MockClientTransportInfo transportInfo = transports.poll();
+    when(transportInfo.transport.getAttributes()).thenReturn(
+        Attributes.newBuilder().set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, true).build());
+    transportInfo.listener.transportReady();
+
+    assertEquals(0, getStats(channel).tlsFullHandshakes);
+    assertEquals(1, getStats(channel).tlsResumedHandshakes);
+    assertEquals(1, getStats(subchannel).tlsResumedHandshakes);
+  }
+
   @Test
   public void channelsAndSubChannels_instrumented_success() throws Exception {
     channelsAndSubchannels_instrumented0(true);
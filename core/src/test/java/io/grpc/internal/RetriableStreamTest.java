@@ -48,6 +48,7 @@ import io.grpc.ClientStreamTracer;
 import io.grpc.Codec;
 import io.grpc.Compressor;
 import io.grpc.DecompressorRegistry;
+import io.grpc.Drainable;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.grpc.MethodDescriptor.MethodType;
@@ -58,6 +59,7 @@ import io.grpc.internal.ClientStreamListener.RpcProgress;
 import io.grpc.internal.RetriableStream.ChannelBufferMeter;
 import io.grpc.internal.RetriableStream.Throttle;
 import io.grpc.internal.StreamListener.MessageProducer;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -65,6 +67,7 @@ import java.util.Random;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import org.junit.After;
@@ -142,7 +145,7 @@ public class RetriableStreamTest {
   private final ChannelBufferMeter channelBufferUsed = new ChannelBufferMeter();
   private final FakeClock fakeClock = new FakeClock();
 
-  private final class RecordedRetriableStream extends RetriableStream<String> {
+  private class RecordedRetriableStream extends RetriableStream<String> {
     RecordedRetriableStream(MethodDescriptor<String, ?> method, Metadata headers,
         ChannelBufferMeter channelBufferUsed, long perRpcBufferLimit, long channelBufferLimit,
         Executor callExecutor,
@@ -150,11 +153,25 @@ public class RetriableStreamTest {
         @Nullable RetryPolicy retryPolicy,
         @Nullable HedgingPolicy hedgingPolicy,
         @Nullable Throttle throttle) {
+      this(
+          method, headers, channelBufferUsed, perRpcBufferLimit, channelBufferLimit, callExecutor,
+          scheduledExecutorService, retryPolicy, hedgingPolicy, null, throttle);
+    }
+
+    RecordedRetriableStream(MethodDescriptor<String, ?> method, Metadata headers,
+        ChannelBufferMeter channelBufferUsed, long perRpcBufferLimit, long channelBufferLimit,
+        Executor callExecutor,
+        ScheduledExecutorService scheduledExecutorService,
+        @Nullable RetryPolicy retryPolicy,
+        @Nullable HedgingPolicy hedgingPolicy,
+        @Nullable HedgingLatencyTracker latencyTracker,
+        @Nullable Throttle throttle) {
       super(
           method, headers, channelBufferUsed, perRpcBufferLimit, channelBufferLimit, callExecutor,
           scheduledExecutorService,
           retryPolicy,
           hedgingPolicy,
+          latencyTracker,
           throttle);
     }
 
@@ -403,6 +420,131 @@ public class RetriableStreamTest {
     inOrder.verify(retriableStreamRecorder, never()).postCommit();
   }
 
+  @Test
+  public void retry_replaysMessageWithoutMarshallingAgain() throws Exception {
+    final AtomicInteger marshalled = new AtomicInteger();
+    MethodDescriptor<String, String> countingMethod = method.toBuilder()
+        .setRequestMarshaller(new StringMarshaller() {
+          @Override
+          public InputStream stream(String value) {
+            marshalled.incrementAndGet();
+            return super.stream(value);
+          }
+        })
+        .build();
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        countingMethod, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT,
+        CHANNEL_BUFFER_LIMIT, MoreExecutors.directExecutor(),
+        fakeClock.getScheduledExecutorService(), RETRY_POLICY, null, null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    stream.start(masterListener);
+    stream.sendMessage("msg");
+
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+    ArgumentCaptor<InputStream> messageCaptor1 = ArgumentCaptor.forClass(InputStream.class);
+    verify(mockStream1).writeMessage(messageCaptor1.capture());
+    assertEquals("msg", StringMarshaller.INSTANCE.parse(messageCaptor1.getValue()));
+    // The first attempt is given the marshalled message without copying it
+    assertEquals(1, marshalled.get());
+
+    // retry
+    ClientStream mockStream2 = mock(ClientStream.class);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+    sublistenerCaptor1.getValue().closed(
+        Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    fakeClock.forwardTime((long) (INITIAL_BACKOFF_IN_SECONDS * FAKE_RANDOM), TimeUnit.SECONDS);
+
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor2 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream2).start(sublistenerCaptor2.capture());
+    ArgumentCaptor<InputStream> messageCaptor2 = ArgumentCaptor.forClass(InputStream.class);
+    verify(mockStream2).writeMessage(messageCaptor2.capture());
+    assertThat(messageCaptor2.getValue()).isInstanceOf(Drainable.class);
+    assertEquals(3, messageCaptor2.getValue().available());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(3, ((Drainable) messageCaptor2.getValue()).drainTo(out));
+    assertEquals("msg", out.toString("UTF-8"));
+    assertEquals(2, marshalled.get());
+
+    // retry again
+    ClientStream mockStream3 = mock(ClientStream.class);
+    doReturn(mockStream3).when(retriableStreamRecorder).newSubstream(2);
+    sublistenerCaptor2.getValue().closed(
+        Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    fakeClock.forwardTime(
+        (long) (INITIAL_BACKOFF_IN_SECONDS * BACKOFF_MULTIPLIER * FAKE_RANDOM), TimeUnit.SECONDS);
+
+    ArgumentCaptor<InputStream> messageCaptor3 = ArgumentCaptor.forClass(InputStream.class);
+    verify(mockStream3).writeMessage(messageCaptor3.capture());
+    assertEquals("msg", StringMarshaller.INSTANCE.parse(messageCaptor3.getValue()));
+    assertEquals(2, marshalled.get());
+
+    stream.cancel(Status.CANCELLED);
+  }
+
+  @Test
+  public void retry_messageOverBufferLimitNotCopied() throws Exception {
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, 2, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), RETRY_POLICY,
+        null, null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    stream.start(masterListener);
+    stream.sendMessage("msg");
+
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+
+    // retry before the first attempt reports its outbound size
+    ClientStream mockStream2 = mock(ClientStream.class);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+    sublistenerCaptor1.getValue().closed(
+        Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    fakeClock.forwardTime((long) (INITIAL_BACKOFF_IN_SECONDS * FAKE_RANDOM), TimeUnit.SECONDS);
+
+    ArgumentCaptor<InputStream> messageCaptor2 = ArgumentCaptor.forClass(InputStream.class);
+    verify(mockStream2).writeMessage(messageCaptor2.capture());
+    assertThat(messageCaptor2.getValue()).isNotInstanceOf(Drainable.class);
+    assertEquals("msg", StringMarshaller.INSTANCE.parse(messageCaptor2.getValue()));
+
+    stream.cancel(Status.CANCELLED);
+  }
+
+  @Test
+  public void retry_unlimitedBuffer_messageCopied() throws Exception {
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, Long.MAX_VALUE, Long.MAX_VALUE,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), RETRY_POLICY,
+        null, null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    stream.start(masterListener);
+    stream.sendMessage("msg");
+
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+
+    // retry
+    ClientStream mockStream2 = mock(ClientStream.class);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+    sublistenerCaptor1.getValue().closed(
+        Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    fakeClock.forwardTime((long) (INITIAL_BACKOFF_IN_SECONDS * FAKE_RANDOM), TimeUnit.SECONDS);
+
+    ArgumentCaptor<InputStream> messageCaptor2 = ArgumentCaptor.forClass(InputStream.class);
+    verify(mockStream2).writeMessage(messageCaptor2.capture());
+    assertThat(messageCaptor2.getValue()).isInstanceOf(Drainable.class);
+    assertEquals("msg", StringMarshaller.INSTANCE.parse(messageCaptor2.getValue()));
+
+    stream.cancel(Status.CANCELLED);
+  }
+
   @Test
   public void retry_headersRead_cancel() {
     ClientStream mockStream1 = mock(ClientStream.class);
@@ -2106,6 +2248,184 @@ public class RetriableStreamTest {
         "[closed=[UNAVAILABLE, INTERNAL], committed=[remote_addr=2.2.2.2:81]]");
   }
 
+  @Test
+  public void retry_deniedByRetryBudget() {
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), RETRY_POLICY,
+        null, null) {
+      @Override
+      boolean acquireRetryBudget() {
+        return false;
+      }
+    };
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    stream.start(masterListener);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+
+    Status status = Status.fromCode(RETRIABLE_STATUS_CODE_1);
+    sublistenerCaptor1.getValue().closed(status, PROCESSED, new Metadata());
+
+    assertEquals(0, fakeClock.numPendingTasks());
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).closed(same(status), any(RpcProgress.class), any(Metadata.class));
+    verify(retriableStreamRecorder, never()).newSubstream(1);
+  }
+
+  @Test
+  public void hedging_deniedByRetryBudget() {
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), null,
+        HEDGING_POLICY, null) {
+      @Override
+      boolean acquireRetryBudget() {
+        return false;
+      }
+    };
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    stream.start(masterListener);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    // The hedge is not made, and no more hedges are scheduled
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    assertEquals(0, fakeClock.numPendingTasks());
+    verify(retriableStreamRecorder, never()).newSubstream(1);
+
+    // The active attempt still completes the RPC
+    Status status = NON_FATAL_STATUS_CODE_1.toStatus();
+    sublistenerCaptor1.getValue().closed(status, PROCESSED, new Metadata());
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).closed(same(status), any(RpcProgress.class), any(Metadata.class));
+  }
+
+  @Test
+  public void hedging_noRetryBudgetFreezesHedging() {
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), null,
+        HEDGING_POLICY, null) {
+      @Override
+      boolean hasRetryBudget() {
+        return false;
+      }
+    };
+    ClientStream mockStream1 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    stream.start(masterListener);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+    assertEquals(1, fakeClock.numPendingTasks());
+
+    // Without budget, a failed attempt commits instead of waiting for the next hedge
+    Status status = NON_FATAL_STATUS_CODE_1.toStatus();
+    sublistenerCaptor1.getValue().closed(status, PROCESSED, new Metadata());
+    assertEquals(0, fakeClock.numPendingTasks());
+    verify(retriableStreamRecorder).postCommit();
+    verify(masterListener).closed(same(status), any(RpcProgress.class), any(Metadata.class));
+  }
+
+  @Test
+  public void hedging_adaptiveDelay() {
+    HedgingLatencyTracker tracker = new HedgingLatencyTracker(90, 1, fakeClock.getTicker());
+    for (int i = 1; i <= HedgingLatencyTracker.MIN_SAMPLES; i++) {
+      tracker.recordRequest();
+      tracker.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    long delayNanos = tracker.hedgingDelayNanos(-1);
+    assertThat(delayNanos).isAtLeast(TimeUnit.MILLISECONDS.toNanos(90));
+    assertThat(delayNanos).isAtMost(TimeUnit.MILLISECONDS.toNanos(102));
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), null,
+        HEDGING_POLICY, tracker, null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    when(retriableStreamRecorder.newSubstream(anyInt())).thenReturn(mockStream1, mockStream2);
+
+    stream.start(masterListener);
+    fakeClock.forwardNanos(delayNanos - 1);
+    verify(retriableStreamRecorder, never()).newSubstream(1);
+    fakeClock.forwardNanos(1);
+    verify(retriableStreamRecorder).newSubstream(1);
+
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor2 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream2).start(sublistenerCaptor2.capture());
+    sublistenerCaptor2.getValue().headersRead(new Metadata());
+    verify(retriableStreamRecorder).postCommit();
+    assertEquals(0, fakeClock.numPendingTasks());
+  }
+
+  @Test
+  public void hedging_limitedByMaxHedgeRatio() {
+    HedgingLatencyTracker tracker = new HedgingLatencyTracker(90, 0.5, fakeClock.getTicker());
+    tracker.recordRequest();
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), null,
+        HEDGING_POLICY, tracker, null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    when(retriableStreamRecorder.newSubstream(anyInt())).thenReturn(mockStream1, mockStream2);
+
+    // Two RPCs allow one hedge
+    stream.start(masterListener);
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    verify(retriableStreamRecorder).newSubstream(1);
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    verify(retriableStreamRecorder, never()).newSubstream(2);
+    assertEquals(0, fakeClock.numPendingTasks());
+
+    stream.cancel(Status.CANCELLED);
+  }
+
+  @Test
+  public void hedging_deniedByRetryBudgetNotCountedByMaxHedgeRatio() {
+    HedgingLatencyTracker tracker = new HedgingLatencyTracker(90, 0.5, fakeClock.getTicker());
+    tracker.recordRequest();
+    RetriableStream<String> deniedStream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), null,
+        HEDGING_POLICY, tracker, null) {
+      @Override
+      boolean acquireRetryBudget() {
+        return false;
+      }
+    };
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        method, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT, CHANNEL_BUFFER_LIMIT,
+        MoreExecutors.directExecutor(), fakeClock.getScheduledExecutorService(), null,
+        HEDGING_POLICY, tracker, null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    ClientStream mockStream3 = mock(ClientStream.class);
+    when(retriableStreamRecorder.newSubstream(anyInt()))
+        .thenReturn(mockStream1, mockStream2, mockStream3);
+
+    // Two RPCs allow one hedge, which the budget refuses
+    deniedStream.start(masterListener);
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    verify(retriableStreamRecorder, never()).newSubstream(1);
+
+    // Three RPCs still allow one hedge
+    stream.start(masterListener);
+    fakeClock.forwardTime(HEDGING_DELAY_IN_SECONDS, TimeUnit.SECONDS);
+    verify(retriableStreamRecorder).newSubstream(1);
+    assertFalse(tracker.hasHedgeCapacity());
+
+    deniedStream.cancel(Status.CANCELLED);
+    stream.cancel(Status.CANCELLED);
+  }
+
   @Test
   public void hedging_maxAttempts() {
     ClientStream mockStream1 = mock(ClientStream.class);
@@ -19,6 +19,7 @@ package io.grpc.internal;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.google.common.util.concurrent.MoreExecutors;
@@ -26,7 +27,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -241,6 +247,96 @@ public class SerializingExecutorTest {
     assertThat(runs).isEqualTo(Arrays.asList(1, -2));
   }
 
+  @Test
+  public void drainBudget_resubmitsWhenExhausted() {
+    executor = new SerializingExecutor(singleExecutor, 2, 0);
+    executor.execute(new AddToRuns(1));
+    executor.execute(new AddToRuns(2));
+    executor.execute(new AddToRuns(3));
+    singleExecutor.drain();
+    assertEquals(Arrays.asList(1, 2), runs);
+    singleExecutor.drain();
+    assertEquals(Arrays.asList(1, 2, 3), runs);
+  }
+
+  @Test
+  public void stayOnThread_runsLaterTaskWithoutResubmitting() throws Exception {
+    final AtomicInteger submissions = new AtomicInteger();
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      executor = new SerializingExecutor(new Executor() {
+        @Override
+        public void execute(Runnable r) {
+          submissions.incrementAndGet();
+          executorService.execute(r);
+        }
+      }, Integer.MAX_VALUE, TimeUnit.SECONDS.toNanos(10));
+      final CountDownLatch first = new CountDownLatch(1);
+      final CountDownLatch second = new CountDownLatch(1);
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          first.countDown();
+        }
+      });
+      assertTrue(first.await(5, TimeUnit.SECONDS));
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          second.countDown();
+        }
+      });
+      assertTrue(second.await(5, TimeUnit.SECONDS));
+      assertEquals(1, submissions.get());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void manyProducers_runAllInOrder() throws Exception {
+    final int producers = 4;
+    final int tasksPerProducer = 10000;
+    final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    final List<List<Integer>> ranByProducer = new ArrayList<>();
+    final CountDownLatch done = new CountDownLatch(producers * tasksPerProducer);
+    try {
+      executor = new SerializingExecutor(executorService, 16, 0);
+      List<Thread> threads = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        final List<Integer> ran = new ArrayList<>();
+        ranByProducer.add(ran);
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            for (int i = 0; i < tasksPerProducer; i++) {
+              final int val = i;
+              executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                  ran.add(val);
+                  done.countDown();
+                }
+              });
+            }
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      executorService.shutdownNow();
+    }
+    for (List<Integer> ran : ranByProducer) {
+      assertEquals(tasksPerProducer, ran.size());
+      assertThat(ran).isInOrder();
+    }
+  }
+
   private static class SingleExecutor implements Executor {
     private Runnable runnable;
 
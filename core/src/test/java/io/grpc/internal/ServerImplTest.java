@@ -41,6 +41,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -57,6 +58,7 @@ import io.grpc.HandlerRegistry;
 import io.grpc.IntegerMarshaller;
 import io.grpc.InternalChannelz;
 import io.grpc.InternalChannelz.ServerSocketsList;
+import io.grpc.InternalChannelz.ServerStats;
 import io.grpc.InternalChannelz.SocketStats;
 import io.grpc.InternalInstrumented;
 import io.grpc.InternalLogId;
@@ -460,6 +462,100 @@ public class ServerImplTest {
     assertEquals(Status.Code.UNIMPLEMENTED, statusCaptor.getValue().getCode());
   }
 
+  @Test
+  public void callQueuedPastDeadline_notStarted() throws Exception {
+    createAndStartServer();
+    ServerTransportListener transportListener
+        = transportServer.registerNewServerTransport(new SimpleServerTransport());
+    transportListener.transportReady(Attributes.EMPTY);
+    Metadata requestHeaders = new Metadata();
+    requestHeaders.put(TIMEOUT_KEY, TimeUnit.SECONDS.toNanos(1));
+    StatsTraceContext statsTraceCtx =
+        StatsTraceContext.newServerContext(streamTracerFactories, "Waiter/serve", requestHeaders);
+    when(stream.statsTraceContext()).thenReturn(statsTraceCtx);
+    transportListener.streamCreated(stream, "Waiter/serve", requestHeaders);
+
+    timer.forwardTime(2, TimeUnit.SECONDS);
+    assertEquals(1, executor.runDueTasks());
+    verify(stream).cancel(statusCaptor.capture());
+    assertEquals(Status.Code.DEADLINE_EXCEEDED, statusCaptor.getValue().getCode());
+    verify(fallbackRegistry, never()).lookupMethod(anyString(), anyString());
+    assertNull(streamTracer.getServerCallInfo());
+  }
+
+  @Test
+  public void callQueuedPastDeadlineOnSuppliedExecutor_notStarted() throws Exception {
+    SingleExecutor switchingExecutor = new SingleExecutor();
+    builder.executorSupplier = new ServerCallExecutorSupplier() {
+      @Override
+      public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata metadata) {
+        return switchingExecutor;
+      }
+    };
+    mutableFallbackRegistry.addService(ServerServiceDefinition.builder(
+        new ServiceDescriptor("Waiter", METHOD))
+        .addMethod(METHOD, callHandler).build());
+    createAndStartServer();
+    ServerTransportListener transportListener
+        = transportServer.registerNewServerTransport(new SimpleServerTransport());
+    transportListener.transportReady(Attributes.EMPTY);
+    Metadata requestHeaders = new Metadata();
+    requestHeaders.put(TIMEOUT_KEY, TimeUnit.SECONDS.toNanos(1));
+    StatsTraceContext statsTraceCtx =
+        StatsTraceContext.newServerContext(streamTracerFactories, "Waiter/serve", requestHeaders);
+    when(stream.statsTraceContext()).thenReturn(statsTraceCtx);
+    transportListener.streamCreated(stream, "Waiter/serve", requestHeaders);
+    assertEquals(1, executor.runDueTasks());
+
+    timer.forwardTime(2, TimeUnit.SECONDS);
+    switchingExecutor.drain();
+    verify(stream).cancel(statusCaptor.capture());
+    assertEquals(Status.Code.DEADLINE_EXCEEDED, statusCaptor.getValue().getCode());
+    verifyNoInteractions(callHandler);
+  }
+
+  @Test
+  public void maxCallQueueDelay_shedsCallsWhileQueuing() throws Exception {
+    builder.maxCallQueueDelay(10, TimeUnit.MILLISECONDS);
+    createAndStartServer();
+    ServerTransportListener transportListener
+        = transportServer.registerNewServerTransport(new SimpleServerTransport());
+    transportListener.transportReady(Attributes.EMPTY);
+
+    // A short wait is not a queue
+    ServerStream stream1 = createStream(transportListener);
+    timer.forwardTime(50, TimeUnit.MILLISECONDS);
+    assertEquals(1, executor.runDueTasks());
+    ServerStream stream2 = createStream(transportListener);
+    verify(stream2, never()).close(any(Status.class), any(Metadata.class));
+
+    // The call that waited the least over an interval waited too long: the next call is shed
+    timer.forwardTime(60, TimeUnit.MILLISECONDS);
+    assertEquals(1, executor.runDueTasks());
+    ServerStream stream3 = createStream(transportListener);
+    verify(stream3).close(statusCaptor.capture(), any(Metadata.class));
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, statusCaptor.getValue().getCode());
+    assertEquals(0, executor.numPendingTasks());
+
+    // Without new waits, the overload ends after an interval
+    timer.forwardTime(100, TimeUnit.MILLISECONDS);
+    ServerStream stream4 = createStream(transportListener);
+    assertEquals(1, executor.runDueTasks());
+    verify(stream4).close(statusCaptor.capture(), any(Metadata.class));
+    assertEquals(Status.Code.UNIMPLEMENTED, statusCaptor.getValue().getCode());
+    verify(stream1).close(any(Status.class), any(Metadata.class));
+  }
+
+  private ServerStream createStream(ServerTransportListener transportListener) {
+    ServerStream stream = mock(ServerStream.class);
+    Metadata requestHeaders = new Metadata();
+    StatsTraceContext statsTraceCtx = StatsTraceContext.newServerContext(
+        streamTracerFactories, "Waiter/nonexist", requestHeaders);
+    when(stream.statsTraceContext()).thenReturn(statsTraceCtx);
+    transportListener.streamCreated(stream, "Waiter/nonexist", requestHeaders);
+    return stream;
+  }
+
 
   @Test
   public void executorSupplierSameExecutorBasic() throws Exception {
@@ -1159,9 +1255,9 @@ public class ServerImplTest {
     inOrder.verify(stream).setListener(any(ServerStreamListener.class));
     inOrder.verify(stream).cancel(statusCaptor.capture());
 
-    assertThat(statusCaptor.getValue().asException())
-        .hasMessageThat().contains("context timed out");
-    assertTrue(callReference.get().isCancelled());
+    assertEquals(Status.Code.DEADLINE_EXCEEDED, statusCaptor.getValue().getCode());
+    // The call is dropped without starting it
+    assertNull(callReference.get());
   }
 
   @Test
@@ -1507,6 +1603,26 @@ public class ServerImplTest {
     assertEquals(1, server.getStats().get().callsSucceeded);
   }
 
+  @Test
+  public void channelz_serverStatsCountTlsHandshakes() throws Exception {
+    createAndStartServer();
+    transportServer.registerNewServerTransport(new SimpleServerTransport())
+        .transportReady(Attributes.EMPTY);
+    transportServer.registerNewServerTransport(new SimpleServerTransport())
+        .transportReady(Attributes.newBuilder()
+            .set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, false).build());
+    transportServer.registerNewServerTransport(new SimpleServerTransport())
+        .transportReady(Attributes.newBuilder()
+            .set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, true).build());
+    transportServer.registerNewServerTransport(new SimpleServerTransport())
+        .transportReady(Attributes.newBuilder()
+            .set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, true).build());
+
+    ServerStats stats = server.getStats().get();
+    assertEquals(1, stats.tlsFullHandshakes);
+    assertEquals(2, stats.tlsResumedHandshakes);
+  }
+
   @Test
   public void channelz_transport_membershp() throws Exception {
     createAndStartServer();
@@ -21,6 +21,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import io.grpc.Attributes;
 import io.grpc.CallOptions;
 import io.grpc.ChannelLogger;
 import io.grpc.ClientStreamTracer;
@@ -119,6 +120,7 @@ public final class TestUtils {
         final ConnectionClientTransport mockTransport = mock(ConnectionClientTransport.class);
         when(mockTransport.getLogId())
             .thenReturn(InternalLogId.allocate("mocktransport", /*details=*/ null));
+        when(mockTransport.getAttributes()).thenReturn(Attributes.EMPTY);
         when(mockTransport.newStream(
                 any(MethodDescriptor.class), any(Metadata.class), any(CallOptions.class),
                 ArgumentMatchers.<ClientStreamTracer[]>any()))
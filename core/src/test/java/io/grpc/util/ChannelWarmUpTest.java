@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.CallOptions;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StringMarshaller;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ChannelWarmUp}. */
+@RunWith(JUnit4.class)
+public class ChannelWarmUpTest {
+  @Rule
+  public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+  private static final MethodDescriptor<String, String> METHOD =
+      MethodDescriptor.<String, String>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("example.Health/Ping")
+          .setRequestMarshaller(StringMarshaller.INSTANCE)
+          .setResponseMarshaller(StringMarshaller.INSTANCE)
+          .build();
+
+  private final AtomicInteger serverCalls = new AtomicInteger();
+  private String serverName;
+
+  @Before
+  public void setUp() throws Exception {
+    serverName = InProcessServerBuilder.generateName();
+    grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+        .addService(ServerServiceDefinition.builder("example.Health")
+            .addMethod(METHOD, ServerCalls.asyncUnaryCall(
+                new ServerCalls.UnaryMethod<String, String>() {
+                  @Override
+                  public void invoke(String request, StreamObserver<String> responseObserver) {
+                    serverCalls.incrementAndGet();
+                    if (request.isEmpty()) {
+                      responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+                      return;
+                    }
+                    responseObserver.onNext("pong " + request);
+                    responseObserver.onCompleted();
+                  }
+                }))
+            .build())
+        .directExecutor()
+        .build()
+        .start());
+  }
+
+  @Test
+  public void eagerConnect_connectsWithoutRpcs() throws Exception {
+    ManagedChannel channel = grpcCleanup.register(
+        InProcessChannelBuilder.forName(serverName).directExecutor().eagerConnect().build());
+    assertEquals(ConnectivityState.READY, channel.getState(false));
+    assertTrue(ChannelWarmUp.whenReady(channel).isDone());
+  }
+
+  @Test
+  public void whenReady_requestsConnection() throws Exception {
+    ManagedChannel channel = grpcCleanup.register(
+        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+    assertEquals(ConnectivityState.IDLE, channel.getState(false));
+
+    ListenableFuture<Void> ready = ChannelWarmUp.whenReady(channel);
+    ready.get();
+    assertEquals(ConnectivityState.READY, channel.getState(false));
+    assertEquals(0, serverCalls.get());
+  }
+
+  @Test
+  public void whenReady_failsOnShutdown() throws Exception {
+    ManagedChannel channel = grpcCleanup.register(
+        InProcessChannelBuilder.forName("no-such-server").directExecutor().build());
+    ListenableFuture<Void> ready = ChannelWarmUp.whenReady(channel);
+    assertFalse(ready.isDone());
+
+    channel.shutdownNow();
+    try {
+      ready.get();
+      fail("Should have failed");
+    } catch (ExecutionException e) {
+      assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(e).getCode());
+    }
+  }
+
+  @Test
+  public void warmUp_makesRpc() throws Exception {
+    ManagedChannel channel = grpcCleanup.register(
+        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+    assertEquals(
+        "pong warm-up",
+        ChannelWarmUp.warmUp(channel, METHOD, "warm-up", CallOptions.DEFAULT).get());
+    assertEquals(1, serverCalls.get());
+  }
+
+  @Test
+  public void warmUp_rpcFails() throws Exception {
+    ManagedChannel channel = grpcCleanup.register(
+        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+    try {
+      ChannelWarmUp.warmUp(channel, METHOD, "", CallOptions.DEFAULT).get();
+      fail("Should have failed");
+    } catch (ExecutionException e) {
+      assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(e).getCode());
+    }
+  }
+}
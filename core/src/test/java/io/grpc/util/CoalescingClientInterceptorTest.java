@@ -0,0 +1,386 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptors;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StringMarshaller;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.internal.FakeClock;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.testing.GrpcCleanupRule;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CoalescingClientInterceptor}. */
+@RunWith(JUnit4.class)
+public class CoalescingClientInterceptorTest {
+  @Rule
+  public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+  private static final MethodDescriptor<String, String> IDEMPOTENT_METHOD =
+      newMethod("Get", true);
+  private static final MethodDescriptor<String, String> NON_IDEMPOTENT_METHOD =
+      newMethod("Put", false);
+  private static final Metadata.Key<String> USER_KEY =
+      Metadata.Key.of("x-user", Metadata.ASCII_STRING_MARSHALLER);
+  /** Delivers in the calling thread, so that tests can check the listeners right away. */
+  private static final CallOptions CALL_OPTIONS =
+      CallOptions.DEFAULT.withExecutor(MoreExecutors.directExecutor());
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final AtomicInteger serverCalls = new AtomicInteger();
+  private final List<ServerCall<String, String>> pendingServerCalls = new ArrayList<>();
+  private ManagedChannel channel;
+  private CoalescingClientInterceptor interceptor;
+
+  @Before
+  public void setUp() throws Exception {
+    String serverName = InProcessServerBuilder.generateName();
+    // Calls are answered by the test with respond(), so concurrent calls are in flight together
+    ServerCallHandler<String, String> handler = new ServerCallHandler<String, String>() {
+      @Override
+      public ServerCall.Listener<String> startCall(
+          final ServerCall<String, String> call, Metadata headers) {
+        serverCalls.incrementAndGet();
+        call.request(1);
+        return new ServerCall.Listener<String>() {
+          @Override
+          public void onMessage(String message) {
+            pendingServerCalls.add(call);
+          }
+        };
+      }
+    };
+    grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+        .addService(ServerServiceDefinition.builder("example.Catalog")
+            .addMethod(IDEMPOTENT_METHOD, handler)
+            .addMethod(NON_IDEMPOTENT_METHOD, handler)
+            .build())
+        .directExecutor()
+        .build()
+        .start());
+    channel = grpcCleanup.register(
+        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+    interceptor = CoalescingClientInterceptor.newBuilder()
+        .addKeyHeader(USER_KEY.name())
+        .setScheduledExecutorService(fakeClock.getScheduledExecutorService())
+        .build();
+  }
+
+  @After
+  public void tearDown() {
+    for (ServerCall<String, String> call : pendingServerCalls) {
+      if (!call.isCancelled()) {
+        try {
+          call.close(Status.UNAVAILABLE, new Metadata());
+        } catch (IllegalStateException alreadyClosed) {
+          // Answered by the test
+        }
+      }
+    }
+  }
+
+  @Test
+  public void identicalCalls_coalesced() {
+    TestListener listener1 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    TestListener listener2 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    TestListener listener3 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    assertEquals(1, serverCalls.get());
+
+    respond(0, "response");
+    for (TestListener listener : new TestListener[] {listener1, listener2, listener3}) {
+      assertEquals(Status.Code.OK, listener.status.getCode());
+      assertEquals("response", listener.message);
+      assertEquals("server", listener.headers.get(USER_KEY));
+    }
+    assertEquals(2, interceptor.getCoalescedCallCount());
+    assertEquals(1, interceptor.getForwardedCallCount());
+
+    // Once the first RPC is done, a new one is sent
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    assertEquals(2, serverCalls.get());
+  }
+
+  @Test
+  public void differentCalls_notCoalesced() {
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    startCall(IDEMPOTENT_METHOD, "b", CALL_OPTIONS);
+    startCall(NON_IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    startCall(NON_IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS.withAuthority("other"));
+    assertEquals(5, serverCalls.get());
+    assertEquals(0, interceptor.getCoalescedCallCount());
+  }
+
+  @Test
+  public void keyHeaders_mustMatch() {
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS, "alice");
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS, "bob");
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS, "alice");
+    assertEquals(2, serverCalls.get());
+    assertEquals(1, interceptor.getCoalescedCallCount());
+  }
+
+  @Test
+  public void cancelledCall_othersStillComplete() {
+    TestListener listener1 = new TestListener();
+    ClientCall<String, String> call1 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS,
+        null, listener1);
+    TestListener listener2 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+
+    call1.cancel("bye", null);
+    assertEquals(Status.Code.CANCELLED, listener1.status.getCode());
+    assertNull(listener2.status);
+
+    respond(0, "response");
+    assertEquals("response", listener2.message);
+    assertEquals(Status.Code.OK, listener2.status.getCode());
+    assertNull(listener1.message);
+  }
+
+  @Test
+  public void allCallsCancelled_cancelsRpc() {
+    TestListener listener1 = new TestListener();
+    ClientCall<String, String> call1 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS,
+        null, listener1);
+    TestListener listener2 = new TestListener();
+    ClientCall<String, String> call2 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS,
+        null, listener2);
+
+    call1.cancel("bye", null);
+    assertTrue(!pendingServerCalls.get(0).isCancelled());
+    call2.cancel("bye", null);
+    assertTrue(pendingServerCalls.get(0).isCancelled());
+    assertEquals(Status.Code.CANCELLED, listener2.status.getCode());
+
+    // A new identical call is not joined to the cancelled RPC
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    assertEquals(2, serverCalls.get());
+  }
+
+  @Test
+  public void contextCancellation_perCall() {
+    Context.CancellableContext context = Context.current().withCancellation();
+    TestListener listener1 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    TestListener listener2;
+    Context previous = context.attach();
+    try {
+      listener2 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    } finally {
+      context.detach(previous);
+    }
+
+    context.cancel(null);
+    assertEquals(Status.Code.CANCELLED, listener2.status.getCode());
+    assertNull(listener1.status);
+    assertTrue(!pendingServerCalls.get(0).isCancelled());
+  }
+
+  @Test
+  public void shorterDeadline_enforcedPerCall() {
+    TestListener listener1 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    TestListener listener2 = startCall(IDEMPOTENT_METHOD, "a",
+        CALL_OPTIONS.withDeadline(
+            Deadline.after(1, TimeUnit.SECONDS, fakeClock.getDeadlineTicker())));
+    assertEquals(1, serverCalls.get());
+
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    assertEquals(Status.Code.DEADLINE_EXCEEDED, listener2.status.getCode());
+    assertNull(listener1.status);
+
+    respond(0, "response");
+    assertEquals("response", listener1.message);
+  }
+
+  @Test
+  public void longerDeadline_notCoalesced() {
+    startCall(IDEMPOTENT_METHOD, "a",
+        CALL_OPTIONS.withDeadline(
+            Deadline.after(1, TimeUnit.SECONDS, fakeClock.getDeadlineTicker())));
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    assertEquals(2, serverCalls.get());
+    assertEquals(0, interceptor.getCoalescedCallCount());
+    assertEquals(2, interceptor.getForwardedCallCount());
+  }
+
+  @Test
+  public void failedRpc_failsAllCalls() {
+    TestListener listener1 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    TestListener listener2 = startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+
+    pendingServerCalls.get(0).close(Status.UNAVAILABLE, new Metadata());
+    assertEquals(Status.Code.UNAVAILABLE, listener1.status.getCode());
+    assertEquals(Status.Code.UNAVAILABLE, listener2.status.getCode());
+    assertNull(listener1.message);
+  }
+
+  @Test
+  public void responseHeld_untilRequested() {
+    final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    Channel interceptedChannel = ClientInterceptors.intercept(channel, interceptor);
+    ClientCall<String, String> call =
+        interceptedChannel.newCall(IDEMPOTENT_METHOD, CALL_OPTIONS);
+    call.start(new ClientCall.Listener<String>() {
+      @Override
+      public void onMessage(String message) {
+        messages.add(message);
+      }
+    }, new Metadata());
+    call.sendMessage("a");
+    call.halfClose();
+
+    respond(0, "response");
+    assertTrue(messages.isEmpty());
+    call.request(1);
+    assertEquals("response", messages.poll());
+  }
+
+  @Test
+  public void noCallExecutor_listenerNotCalledFromTimerOrCancel() throws Exception {
+    final Thread testThread = Thread.currentThread();
+    final AtomicBoolean cancelling = new AtomicBoolean();
+    final BlockingQueue<String> closes = new LinkedBlockingQueue<>();
+    ClientCall.Listener<String> listener = new ClientCall.Listener<String>() {
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        // Another thread may deliver the close before the test thread is out of cancel()
+        String thread = "";
+        if (Thread.currentThread() == testThread) {
+          thread = cancelling.get() ? " in cancel" : " test thread";
+        }
+        closes.add(status.getCode() + thread);
+      }
+    };
+    startCall(IDEMPOTENT_METHOD, "a", CALL_OPTIONS);
+    ClientCall<String, String> cancelled = startCall(
+        IDEMPOTENT_METHOD, "a", CallOptions.DEFAULT, null, listener);
+    startCall(IDEMPOTENT_METHOD, "a",
+        CallOptions.DEFAULT.withDeadline(
+            Deadline.after(1, TimeUnit.SECONDS, fakeClock.getDeadlineTicker())),
+        null, listener);
+
+    cancelling.set(true);
+    cancelled.cancel("bye", null);
+    cancelling.set(false);
+    assertEquals("CANCELLED", closes.poll(5, TimeUnit.SECONDS));
+
+    // The fake clock runs the deadline timer in the test thread
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    assertEquals("DEADLINE_EXCEEDED", closes.poll(5, TimeUnit.SECONDS));
+  }
+
+  private void respond(int index, String message) {
+    ServerCall<String, String> call = pendingServerCalls.get(index);
+    Metadata headers = new Metadata();
+    headers.put(USER_KEY, "server");
+    call.sendHeaders(headers);
+    call.sendMessage(message);
+    call.close(Status.OK, new Metadata());
+  }
+
+  private TestListener startCall(
+      MethodDescriptor<String, String> method, String request, CallOptions callOptions) {
+    return startCall(method, request, callOptions, null);
+  }
+
+  private TestListener startCall(
+      MethodDescriptor<String, String> method, String request, CallOptions callOptions,
+      String user) {
+    TestListener listener = new TestListener();
+    startCall(method, request, callOptions, user, listener);
+    return listener;
+  }
+
+  private ClientCall<String, String> startCall(
+      MethodDescriptor<String, String> method, String request, CallOptions callOptions,
+      String user, ClientCall.Listener<String> listener) {
+    Channel interceptedChannel = ClientInterceptors.intercept(channel, interceptor);
+    if (user != null) {
+      Metadata extraHeaders = new Metadata();
+      extraHeaders.put(USER_KEY, user);
+      interceptedChannel = ClientInterceptors.intercept(
+          interceptedChannel, MetadataUtils.newAttachHeadersInterceptor(extraHeaders));
+    }
+    ClientCall<String, String> call = interceptedChannel.newCall(method, callOptions);
+    call.start(listener, new Metadata());
+    call.request(2);
+    call.sendMessage(request);
+    call.halfClose();
+    return call;
+  }
+
+  private static final class TestListener extends ClientCall.Listener<String> {
+    Metadata headers;
+    String message;
+    Status status;
+
+    @Override
+    public void onHeaders(Metadata headers) {
+      this.headers = headers;
+    }
+
+    @Override
+    public void onMessage(String message) {
+      this.message = message;
+    }
+
+    @Override
+    public void onClose(Status status, Metadata trailers) {
+      this.status = status;
+    }
+  }
+
+  private static MethodDescriptor<String, String> newMethod(String name, boolean idempotent) {
+    return MethodDescriptor.<String, String>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(MethodDescriptor.generateFullMethodName("example.Catalog", name))
+        .setRequestMarshaller(new StringMarshaller())
+        .setResponseMarshaller(new StringMarshaller())
+        .setIdempotent(idempotent)
+        .build();
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.StringMarshaller;
+import io.grpc.internal.FakeClock;
+import io.grpc.internal.NoopServerCall;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link EarliestDeadlineFirstExecutorSupplier}. */
+@RunWith(JUnit4.class)
+public class EarliestDeadlineFirstExecutorSupplierTest {
+  private static final String METHOD = "example.Service/Method";
+  private static final String URGENT_METHOD = "example.Service/Urgent";
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final FakeClock executor = new FakeClock();
+  private final List<Context.CancellableContext> contexts = new ArrayList<>();
+  private final List<String> ran = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    for (Context.CancellableContext context : contexts) {
+      context.cancel(null);
+    }
+  }
+
+  @Test
+  public void runsEarliestDeadlineFirst() {
+    EarliestDeadlineFirstExecutorSupplier supplier =
+        EarliestDeadlineFirstExecutorSupplier.newBuilder(executor.getScheduledExecutorService())
+            .build();
+    execute(supplier, METHOD, 30_000L, "long");
+    execute(supplier, METHOD, null, "none");
+    execute(supplier, METHOD, 50L, "short");
+    execute(supplier, METHOD, 50L, "short2");
+    assertEquals(4, supplier.getQueuedTasks());
+
+    assertEquals(4, executor.runDueTasks());
+    assertThat(ran).containsExactly("short", "short2", "long", "none").inOrder();
+    assertEquals(0, supplier.getQueuedTasks());
+  }
+
+  @Test
+  public void runsHigherPriorityClassFirst() {
+    EarliestDeadlineFirstExecutorSupplier supplier =
+        EarliestDeadlineFirstExecutorSupplier.newBuilder(executor.getScheduledExecutorService())
+            .setMethodPriority(URGENT_METHOD, 1)
+            .build();
+    execute(supplier, METHOD, 50L, "short");
+    execute(supplier, URGENT_METHOD, null, "urgent");
+    execute(supplier, URGENT_METHOD, 30_000L, "urgentLong");
+
+    assertEquals(3, executor.runDueTasks());
+    assertThat(ran).containsExactly("urgentLong", "urgent", "short").inOrder();
+  }
+
+  @Test
+  public void rejectedTaskIsDequeued() {
+    EarliestDeadlineFirstExecutorSupplier supplier =
+        EarliestDeadlineFirstExecutorSupplier.newBuilder(new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            throw new RejectedExecutionException();
+          }
+        }).build();
+    try {
+      execute(supplier, METHOD, 50L, "short");
+      fail("Expected exception");
+    } catch (RejectedExecutionException expected) {
+      // expected
+    }
+    assertEquals(0, supplier.getQueuedTasks());
+  }
+
+  @Test
+  public void rejectedRunnerAfterTaskTaken_otherTaskStillRuns() {
+    TakingExecutor takingExecutor = new TakingExecutor();
+    EarliestDeadlineFirstExecutorSupplier supplier =
+        EarliestDeadlineFirstExecutorSupplier.newBuilder(takingExecutor).build();
+    execute(supplier, METHOD, 100L, "long");
+    takingExecutor.reject = true;
+    // The runner of the first task takes the second one, and no runner is left for the first
+    execute(supplier, METHOD, 50L, "short");
+
+    assertThat(ran).containsExactly("short", "long").inOrder();
+    assertEquals(0, supplier.getQueuedTasks());
+  }
+
+  @Test
+  public void rejectedRunnerAfterTaskTaken_otherTaskRunByActiveRunner() {
+    final TakingExecutor takingExecutor = new TakingExecutor();
+    final EarliestDeadlineFirstExecutorSupplier supplier =
+        EarliestDeadlineFirstExecutorSupplier.newBuilder(takingExecutor).build();
+    Context.CancellableContext context = Context.ROOT.withDeadline(
+        Deadline.after(10, TimeUnit.MILLISECONDS, fakeClock.getDeadlineTicker()),
+        fakeClock.getScheduledExecutorService());
+    contexts.add(context);
+    Executor callExecutor;
+    Context previous = context.attach();
+    try {
+      callExecutor = supplier.getExecutor(newCall(METHOD), new Metadata());
+    } finally {
+      context.detach(previous);
+    }
+    callExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        ran.add("first");
+        // The runner of the second task takes the third one
+        takingExecutor.reject = true;
+        execute(supplier, METHOD, 50L, "third");
+        assertThat(ran).containsExactly("first", "third").inOrder();
+      }
+    });
+    execute(supplier, METHOD, 100L, "second");
+    takingExecutor.runners.remove().run();
+
+    // The runner of the first task runs the task left without a runner
+    assertThat(ran).containsExactly("first", "third", "second").inOrder();
+    assertEquals(0, supplier.getQueuedTasks());
+    assertThat(takingExecutor.runners).isEmpty();
+  }
+
+  private void execute(
+      EarliestDeadlineFirstExecutorSupplier supplier, String method,
+      @Nullable Long timeoutMillis, final String name) {
+    Context.CancellableContext context = Context.ROOT.withCancellation();
+    if (timeoutMillis != null) {
+      context = Context.ROOT.withDeadline(
+          Deadline.after(timeoutMillis, TimeUnit.MILLISECONDS, fakeClock.getDeadlineTicker()),
+          fakeClock.getScheduledExecutorService());
+    }
+    contexts.add(context);
+    Executor callExecutor;
+    Context previous = context.attach();
+    try {
+      callExecutor = supplier.getExecutor(newCall(method), new Metadata());
+    } finally {
+      context.detach(previous);
+    }
+    callExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        ran.add(name);
+      }
+    });
+  }
+
+  /**
+   * Queues the runners, and when rejecting one first runs a queued runner, which can take the
+   * task of the rejected runner.
+   */
+  private static final class TakingExecutor implements Executor {
+    final Queue<Runnable> runners = new ArrayDeque<>();
+    boolean reject;
+
+    @Override
+    public void execute(Runnable command) {
+      if (!reject) {
+        runners.add(command);
+        return;
+      }
+      runners.remove().run();
+      throw new RejectedExecutionException();
+    }
+  }
+
+  private static ServerCall<String, String> newCall(String fullMethodName) {
+    final MethodDescriptor<String, String> method = MethodDescriptor.<String, String>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(fullMethodName)
+        .setRequestMarshaller(StringMarshaller.INSTANCE)
+        .setResponseMarshaller(StringMarshaller.INSTANCE)
+        .build();
+    return new NoopServerCall<String, String>() {
+      @Override
+      public MethodDescriptor<String, String> getMethodDescriptor() {
+        return method;
+      }
+    };
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.internal.FakeClock;
+import io.grpc.internal.NoopServerCall;
+import io.grpc.util.FairQueuingExecutorSupplier.TenantStats;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link FairQueuingExecutorSupplier}. */
+@RunWith(JUnit4.class)
+public class FairQueuingExecutorSupplierTest {
+  private static final Metadata.Key<String> TENANT_KEY =
+      Metadata.Key.of("tenant", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Attributes.Key<String> PEER_KEY = Attributes.Key.create("peer");
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final FakeClock executor = new FakeClock();
+  private final List<String> ran = new ArrayList<>();
+
+  @Test
+  public void runsTenantsInTurn() {
+    FairQueuingExecutorSupplier supplier = newBuilder().build();
+    execute(supplier, "noisy", "noisy1");
+    execute(supplier, "noisy", "noisy2");
+    execute(supplier, "noisy", "noisy3");
+    execute(supplier, "quiet", "quiet1");
+    execute(supplier, "other", "other1");
+
+    assertEquals(5, executor.runDueTasks());
+    assertThat(ran).containsExactly("noisy1", "quiet1", "other1", "noisy2", "noisy3").inOrder();
+  }
+
+  @Test
+  public void runsTasksByWeightInEachTurn() {
+    FairQueuingExecutorSupplier supplier = newBuilder().setTenantWeight("heavy", 2).build();
+    execute(supplier, "heavy", "heavy1");
+    execute(supplier, "heavy", "heavy2");
+    execute(supplier, "heavy", "heavy3");
+    execute(supplier, "heavy", "heavy4");
+    execute(supplier, "light", "light1");
+    execute(supplier, "light", "light2");
+
+    assertEquals(6, executor.runDueTasks());
+    assertThat(ran)
+        .containsExactly("heavy1", "heavy2", "light1", "heavy3", "heavy4", "light2")
+        .inOrder();
+  }
+
+  @Test
+  public void idleTenantStartsNewTurn() {
+    FairQueuingExecutorSupplier supplier = newBuilder().setTenantWeight("heavy", 2).build();
+    execute(supplier, "heavy", "heavy1");
+    assertEquals(1, executor.runDueTasks());
+
+    execute(supplier, "light", "light1");
+    execute(supplier, "heavy", "heavy2");
+    execute(supplier, "heavy", "heavy3");
+    execute(supplier, "light", "light2");
+    assertEquals(4, executor.runDueTasks());
+    assertThat(ran)
+        .containsExactly("heavy1", "light1", "heavy2", "heavy3", "light2")
+        .inOrder();
+  }
+
+  @Test
+  public void tenantFromAttribute() {
+    FairQueuingExecutorSupplier supplier = FairQueuingExecutorSupplier.newBuilder(
+            executor.getScheduledExecutorService(),
+            FairQueuingExecutorSupplier.fromAttribute(PEER_KEY))
+        .build();
+    Executor peer1 = supplier.getExecutor(newCall("peer1"), new Metadata());
+    Executor peer2 = supplier.getExecutor(newCall("peer2"), new Metadata());
+    Executor unknown = supplier.getExecutor(newCall(null), new Metadata());
+
+    assertThat(peer1).isSameInstanceAs(supplier.getExecutor(newCall("peer1"), new Metadata()));
+    assertThat(peer2).isNotSameInstanceAs(peer1);
+    assertThat(supplier.getTenantStats().keySet()).containsExactly("peer1", "peer2", "");
+    assertThat(unknown).isSameInstanceAs(supplier.getExecutor(newCall(null), new Metadata()));
+  }
+
+  @Test
+  public void tenantStats() {
+    FairQueuingExecutorSupplier supplier = newBuilder().build();
+    execute(supplier, "a", "a1");
+    fakeClock.forwardTime(10, TimeUnit.MILLISECONDS);
+    execute(supplier, "a", "a2");
+    execute(supplier, null, "none1");
+
+    Map<Object, TenantStats> stats = supplier.getTenantStats();
+    assertEquals(2, stats.get("a").getQueuedTasks());
+    assertEquals(0, stats.get("a").getStartedTasks());
+    assertEquals(1, stats.get("").getQueuedTasks());
+
+    fakeClock.forwardTime(5, TimeUnit.MILLISECONDS);
+    assertEquals(3, executor.runDueTasks());
+    stats = supplier.getTenantStats();
+    assertEquals(0, stats.get("a").getQueuedTasks());
+    assertEquals(2, stats.get("a").getStartedTasks());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(15 + 5), stats.get("a").getTotalWaitNanos());
+    assertEquals(1, stats.get("").getStartedTasks());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(5), stats.get("").getTotalWaitNanos());
+  }
+
+  @Test
+  public void idleTenantsEvicted() {
+    FairQueuingExecutorSupplier supplier = newBuilder().build();
+    execute(supplier, "idle", "idle1");
+    assertEquals(1, executor.runDueTasks());
+    execute(supplier, "busy", "busy1");
+
+    fakeClock.forwardTime(1, TimeUnit.MINUTES);
+    execute(supplier, "new", "new1");
+    assertThat(supplier.getTenantStats().keySet()).containsExactly("busy", "new");
+  }
+
+  @Test
+  public void evictedTenantAddedBackByItsCalls() {
+    FairQueuingExecutorSupplier supplier =
+        newBuilder().setIdleTenantTimeout(10, TimeUnit.SECONDS).build();
+    Executor first = supplier.getExecutor(newCall(null), headers("a"));
+    Executor second = supplier.getExecutor(newCall(null), headers("b"));
+    fakeClock.forwardTime(10, TimeUnit.SECONDS);
+    execute(supplier, "c", "c1");
+    assertThat(supplier.getTenantStats().keySet()).containsExactly("c");
+
+    first.execute(newTask("a1"));
+    assertThat(supplier.getTenantStats().keySet()).containsExactly("a", "c");
+    // A new call of the tenant added it back first, which then also runs the tasks of the old call
+    Executor newSecond = supplier.getExecutor(newCall(null), headers("b"));
+    assertThat(newSecond).isNotSameInstanceAs(second);
+    second.execute(newTask("b1"));
+    assertEquals(1, supplier.getTenantStats().get("b").getQueuedTasks());
+
+    assertEquals(3, executor.runDueTasks());
+    assertThat(ran).containsExactly("c1", "a1", "b1").inOrder();
+  }
+
+  @Test
+  public void rejectedTaskIsDequeued() {
+    FairQueuingExecutorSupplier supplier = FairQueuingExecutorSupplier.newBuilder(
+            new Executor() {
+              @Override
+              public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+              }
+            },
+            FairQueuingExecutorSupplier.fromHeader(TENANT_KEY))
+        .build();
+    try {
+      execute(supplier, "a", "a1");
+      fail("Expected exception");
+    } catch (RejectedExecutionException expected) {
+      // expected
+    }
+    assertEquals(0, supplier.getTenantStats().get("a").getQueuedTasks());
+  }
+
+  @Test
+  public void rejectedRunnerAfterTaskTaken_otherTaskStillRuns() {
+    TakingExecutor takingExecutor = new TakingExecutor();
+    FairQueuingExecutorSupplier supplier = FairQueuingExecutorSupplier.newBuilder(
+            takingExecutor, FairQueuingExecutorSupplier.fromHeader(TENANT_KEY))
+        .build();
+    execute(supplier, "a", "a1");
+    execute(supplier, "a", "a2");
+    execute(supplier, "a", "a3");
+    takingExecutor.runners.remove().run();
+    takingExecutor.reject = true;
+    // The runner of a3 takes b1, which comes first in turn, and no runner is left for a3
+    execute(supplier, "b", "b1");
+
+    assertThat(ran).containsExactly("a1", "a2", "b1", "a3").inOrder();
+    assertEquals(0, supplier.getTenantStats().get("a").getQueuedTasks());
+    assertEquals(0, supplier.getTenantStats().get("b").getQueuedTasks());
+  }
+
+  @Test
+  public void rejectedRunnerAfterTaskTaken_otherTaskRunByActiveRunner() {
+    final TakingExecutor takingExecutor = new TakingExecutor();
+    final FairQueuingExecutorSupplier supplier = FairQueuingExecutorSupplier.newBuilder(
+            takingExecutor, FairQueuingExecutorSupplier.fromHeader(TENANT_KEY))
+        .build();
+    supplier.getExecutor(newCall(null), headers("a")).execute(new Runnable() {
+      @Override
+      public void run() {
+        ran.add("a1");
+        takingExecutor.reject = true;
+        execute(supplier, "b", "b1");
+        assertThat(ran).containsExactly("a1", "a2", "b1").inOrder();
+      }
+    });
+    execute(supplier, "a", "a2");
+    execute(supplier, "a", "a3");
+    takingExecutor.runners.remove().run();
+
+    // The runner of a1 runs the task left without a runner
+    assertThat(ran).containsExactly("a1", "a2", "b1", "a3").inOrder();
+    assertEquals(0, supplier.getTenantStats().get("a").getQueuedTasks());
+  }
+
+  private FairQueuingExecutorSupplier.Builder newBuilder() {
+    return FairQueuingExecutorSupplier.newBuilder(
+            executor.getScheduledExecutorService(),
+            FairQueuingExecutorSupplier.fromHeader(TENANT_KEY))
+        .setTicker(fakeClock.getTicker());
+  }
+
+  private void execute(
+      FairQueuingExecutorSupplier supplier, @Nullable String tenant, String name) {
+    supplier.getExecutor(newCall(null), headers(tenant)).execute(newTask(name));
+  }
+
+  private Runnable newTask(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        ran.add(name);
+      }
+    };
+  }
+
+  /**
+   * Queues the runners, and when rejecting one first runs the queued runners, which can take the
+   * task of the rejected runner.
+   */
+  private static final class TakingExecutor implements Executor {
+    final Queue<Runnable> runners = new ArrayDeque<>();
+    boolean reject;
+
+    @Override
+    public void execute(Runnable command) {
+      if (!reject) {
+        runners.add(command);
+        return;
+      }
+      while (!runners.isEmpty()) {
+        runners.remove().run();
+      }
+      throw new RejectedExecutionException();
+    }
+  }
+
+  private static Metadata headers(@Nullable String tenant) {
+    Metadata headers = new Metadata();
+    if (tenant != null) {
+      headers.put(TENANT_KEY, tenant);
+    }
+    return headers;
+  }
+
+  private static ServerCall<String, String> newCall(@Nullable String peer) {
+    final Attributes attributes = peer == null
+        ? Attributes.EMPTY
+        : Attributes.newBuilder().set(PEER_KEY, peer).build();
+    return new NoopServerCall<String, String>() {
+      @Override
+      public Attributes getAttributes() {
+        return attributes;
+      }
+    };
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.StringMarshaller;
+import io.grpc.internal.FakeClock;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RatioRetryBudget}. */
+@RunWith(JUnit4.class)
+public class RatioRetryBudgetTest {
+  private static final String TARGET = "dns:///example.com";
+  private static final MethodDescriptor<String, String> METHOD =
+      MethodDescriptor.<String, String>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("example.Service/Method")
+          .setRequestMarshaller(StringMarshaller.INSTANCE)
+          .setResponseMarshaller(StringMarshaller.INSTANCE)
+          .build();
+
+  private final FakeClock fakeClock = new FakeClock();
+
+  @Test
+  public void retriesLimitedToRatioOfRequests() {
+    RatioRetryBudget budget = RatioRetryBudget.newBuilder()
+        .setRetryRatio(0.1)
+        .setMinRetriesPerSecond(0)
+        .setTicker(fakeClock.getTicker())
+        .build();
+    assertFalse(budget.hasCapacity(TARGET, METHOD));
+    assertFalse(budget.tryAcquire(TARGET, METHOD));
+
+    for (int i = 0; i < 25; i++) {
+      budget.recordRequest(TARGET, METHOD);
+    }
+    assertTrue(budget.tryAcquire(TARGET, METHOD));
+    assertTrue(budget.tryAcquire(TARGET, METHOD));
+    assertFalse(budget.hasCapacity(TARGET, METHOD));
+    assertFalse(budget.tryAcquire(TARGET, METHOD));
+    assertEquals(25, budget.getRequestCount(TARGET));
+    assertEquals(2, budget.getRetryCount(TARGET));
+  }
+
+  @Test
+  public void minRetriesPerSecond() {
+    RatioRetryBudget budget = RatioRetryBudget.newBuilder()
+        .setRetryRatio(0)
+        .setMinRetriesPerSecond(1)
+        .setWindow(5, TimeUnit.SECONDS)
+        .setTicker(fakeClock.getTicker())
+        .build();
+    for (int i = 0; i < 5; i++) {
+      assertTrue(budget.tryAcquire(TARGET, METHOD));
+    }
+    assertFalse(budget.tryAcquire(TARGET, METHOD));
+  }
+
+  @Test
+  public void countsExpireWithTheWindow() {
+    RatioRetryBudget budget = RatioRetryBudget.newBuilder()
+        .setRetryRatio(0.5)
+        .setMinRetriesPerSecond(0)
+        .setWindow(10, TimeUnit.SECONDS)
+        .setTicker(fakeClock.getTicker())
+        .build();
+    for (int i = 0; i < 4; i++) {
+      budget.recordRequest(TARGET, METHOD);
+    }
+    assertTrue(budget.tryAcquire(TARGET, METHOD));
+    assertTrue(budget.tryAcquire(TARGET, METHOD));
+    assertFalse(budget.tryAcquire(TARGET, METHOD));
+
+    fakeClock.forwardTime(5, TimeUnit.SECONDS);
+    budget.recordRequest(TARGET, METHOD);
+    budget.recordRequest(TARGET, METHOD);
+    assertTrue(budget.tryAcquire(TARGET, METHOD));
+    assertFalse(budget.tryAcquire(TARGET, METHOD));
+
+    // The first requests and retries leave the window
+    fakeClock.forwardTime(5, TimeUnit.SECONDS);
+    assertEquals(2, budget.getRequestCount(TARGET));
+    assertEquals(1, budget.getRetryCount(TARGET));
+    assertFalse(budget.tryAcquire(TARGET, METHOD));
+
+    fakeClock.forwardTime(5, TimeUnit.SECONDS);
+    assertEquals(0, budget.getRequestCount(TARGET));
+    assertEquals(0, budget.getRetryCount(TARGET));
+    budget.recordRequest(TARGET, METHOD);
+    budget.recordRequest(TARGET, METHOD);
+    assertTrue(budget.tryAcquire(TARGET, METHOD));
+  }
+
+  @Test
+  public void keyedByTarget() {
+    RatioRetryBudget budget = RatioRetryBudget.newBuilder()
+        .setRetryRatio(1)
+        .setMinRetriesPerSecond(0)
+        .setTicker(fakeClock.getTicker())
+        .build();
+    budget.recordRequest(TARGET, METHOD);
+    assertFalse(budget.tryAcquire("dns:///other.example.com", METHOD));
+    assertTrue(budget.tryAcquire(TARGET, METHOD));
+  }
+
+  @Test
+  public void keyedByService() {
+    RatioRetryBudget budget = RatioRetryBudget.newBuilder()
+        .setRetryRatio(1)
+        .setMinRetriesPerSecond(0)
+        .setKeyType(RatioRetryBudget.KeyType.SERVICE)
+        .setTicker(fakeClock.getTicker())
+        .build();
+    MethodDescriptor<String, String> otherMethod =
+        METHOD.toBuilder().setFullMethodName("example.Service/OtherMethod").build();
+    MethodDescriptor<String, String> otherService =
+        METHOD.toBuilder().setFullMethodName("example.OtherService/Method").build();
+    budget.recordRequest(TARGET, METHOD);
+    assertFalse(budget.tryAcquire(TARGET, otherService));
+    assertTrue(budget.tryAcquire("dns:///other.example.com", otherMethod));
+    assertEquals(1, budget.getRequestCount("example.Service"));
+  }
+}
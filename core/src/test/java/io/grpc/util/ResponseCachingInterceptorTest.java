@@ -0,0 +1,392 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.CallCredentials;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.StringMarshaller;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.internal.FakeClock;
+import io.grpc.stub.ClientCalls;
+import io.grpc.testing.GrpcCleanupRule;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ResponseCachingInterceptor}. */
+@RunWith(JUnit4.class)
+public class ResponseCachingInterceptorTest {
+  @Rule
+  public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+  private static final MethodDescriptor<String, String> SAFE_METHOD = newMethod("Get", true);
+  private static final MethodDescriptor<String, String> UNSAFE_METHOD = newMethod("Put", false);
+  private static final Metadata.Key<String> CACHE_CONTROL_KEY =
+      Metadata.Key.of("cache-control", Metadata.ASCII_STRING_MARSHALLER);
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final AtomicInteger serverCalls = new AtomicInteger();
+  private volatile String cacheControl;
+  private volatile Status responseStatus = Status.OK;
+  private ManagedChannel channel;
+
+  @Before
+  public void setUp() throws Exception {
+    String serverName = InProcessServerBuilder.generateName();
+    ServerCallHandler<String, String> handler = new ServerCallHandler<String, String>() {
+      @Override
+      public ServerCall.Listener<String> startCall(
+          final ServerCall<String, String> call, Metadata headers) {
+        serverCalls.incrementAndGet();
+        call.request(1);
+        return new ServerCall.Listener<String>() {
+          private boolean received;
+
+          @Override
+          public void onMessage(String message) {
+            received = true;
+            if (!responseStatus.isOk()) {
+              call.close(responseStatus, new Metadata());
+              return;
+            }
+            Metadata responseHeaders = new Metadata();
+            if (cacheControl != null) {
+              responseHeaders.put(CACHE_CONTROL_KEY, cacheControl);
+            }
+            call.sendHeaders(responseHeaders);
+            call.sendMessage(message + "-" + serverCalls.get());
+            call.close(Status.OK, new Metadata());
+          }
+
+          @Override
+          public void onHalfClose() {
+            if (!received) {
+              call.close(Status.INTERNAL.withDescription("Missing request"), new Metadata());
+            }
+          }
+        };
+      }
+    };
+    grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+        .addService(ServerServiceDefinition.builder("example.Catalog")
+            .addMethod(SAFE_METHOD, handler)
+            .addMethod(UNSAFE_METHOD, handler)
+            .build())
+        .directExecutor()
+        .build()
+        .start());
+    channel = grpcCleanup.register(
+        InProcessChannelBuilder.forName(serverName).directExecutor().build());
+  }
+
+  @Test
+  public void safeMethod_cachedForDefaultTimeToLive() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals(1, serverCalls.get());
+    // Different requests are cached separately
+    assertEquals("b-2", call(interceptor, SAFE_METHOD, "b"));
+    assertEquals(2, serverCalls.get());
+
+    fakeClock.forwardTime(9, TimeUnit.SECONDS);
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    assertEquals("a-3", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals(3, serverCalls.get());
+  }
+
+  @Test
+  public void unsafeMethod_notCachedWithoutConfig() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+
+    assertEquals("a-1", call(interceptor, UNSAFE_METHOD, "a"));
+    assertEquals("a-2", call(interceptor, UNSAFE_METHOD, "a"));
+    assertEquals(0, interceptor.size());
+  }
+
+  @Test
+  public void serviceConfig_ttlPerMethod() {
+    Map<String, ?> serviceConfig = ImmutableMap.of(
+        "methodConfig", ImmutableList.of(
+            ImmutableMap.of(
+                "name", ImmutableList.of(ImmutableMap.of("service", "example.Catalog")),
+                "cacheTtl", "5s"),
+            ImmutableMap.of(
+                "name", ImmutableList.of(
+                    ImmutableMap.of("service", "example.Catalog", "method", "Put")),
+                "cacheTtl", "20s")));
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setServiceConfig(serviceConfig)
+        .build();
+
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals("a-2", call(interceptor, UNSAFE_METHOD, "a"));
+    fakeClock.forwardTime(5, TimeUnit.SECONDS);
+    assertEquals("a-3", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals("a-2", call(interceptor, UNSAFE_METHOD, "a"));
+    fakeClock.forwardTime(15, TimeUnit.SECONDS);
+    assertEquals("a-4", call(interceptor, UNSAFE_METHOD, "a"));
+  }
+
+  @Test
+  public void serviceConfig_invalid() {
+    Map<String, ?> serviceConfig = ImmutableMap.of(
+        "methodConfig", ImmutableList.of(
+            ImmutableMap.of(
+                "name", ImmutableList.of(ImmutableMap.of("method", "Get")),
+                "cacheTtl", "5s")));
+    try {
+      newBuilder().setServiceConfig(serviceConfig).build();
+      fail("Should have thrown");
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected).hasMessageThat().contains("missing service name");
+    }
+  }
+
+  @Test
+  public void cacheControl_overridesTimeToLive() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setHonorCacheControl(true)
+        .build();
+
+    cacheControl = "public, max-age=60";
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    fakeClock.forwardTime(59, TimeUnit.SECONDS);
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+
+    cacheControl = "no-store";
+    assertEquals("b-2", call(interceptor, SAFE_METHOD, "b"));
+    assertEquals("b-3", call(interceptor, SAFE_METHOD, "b"));
+  }
+
+  @Test
+  public void cacheControl_ignoredByDefault() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+
+    cacheControl = "no-cache";
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+  }
+
+  @Test
+  public void failedCall_notCached() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+
+    responseStatus = Status.UNAVAILABLE;
+    try {
+      call(interceptor, SAFE_METHOD, "a");
+      fail("Should have thrown");
+    } catch (StatusRuntimeException e) {
+      assertEquals(Status.Code.UNAVAILABLE, e.getStatus().getCode());
+    }
+    responseStatus = Status.OK;
+    assertEquals("a-2", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals(1, interceptor.size());
+  }
+
+  @Test
+  public void maxSize_evictsEntries() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setMaxSizeBytes(0)
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals("a-2", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals(0, interceptor.size());
+  }
+
+  @Test
+  public void invalidateAll() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    interceptor.invalidateAll();
+    assertEquals("a-2", call(interceptor, SAFE_METHOD, "a"));
+  }
+
+  @Test
+  public void cancelBeforeRequest_doesNotStartCall() throws Exception {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+    ClientCall<String, String> call = ClientInterceptors.intercept(channel, interceptor)
+        .newCall(SAFE_METHOD, CallOptions.DEFAULT);
+    final AtomicInteger closed = new AtomicInteger();
+    final CountDownLatch closedLatch = new CountDownLatch(1);
+    call.start(new ClientCall.Listener<String>() {
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        assertEquals(Status.Code.CANCELLED, status.getCode());
+        closed.incrementAndGet();
+        closedLatch.countDown();
+      }
+    }, new Metadata());
+    call.cancel("bye", null);
+    call.cancel("again", null);
+
+    assertTrue(closedLatch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, closed.get());
+    assertFalse(call.isReady());
+    assertEquals(0, serverCalls.get());
+  }
+
+  @Test
+  public void halfCloseWithoutMessage_usesRealCall() throws Exception {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+    ClientCall<String, String> call = ClientInterceptors.intercept(channel, interceptor)
+        .newCall(SAFE_METHOD, CallOptions.DEFAULT);
+    final SettableFuture<Status> closed = SettableFuture.create();
+    call.start(new ClientCall.Listener<String>() {
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        closed.set(status);
+      }
+    }, new Metadata());
+    call.request(1);
+    call.halfClose();
+
+    Status status = closed.get(5, TimeUnit.SECONDS);
+    assertEquals(Status.Code.INTERNAL, status.getCode());
+    assertEquals("Missing request", status.getDescription());
+    assertEquals(1, serverCalls.get());
+  }
+
+  @Test
+  public void cachedResponse_notDeliveredInlineWithoutCallExecutor() throws Exception {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+
+    ClientCall<String, String> call = ClientInterceptors.intercept(channel, interceptor)
+        .newCall(SAFE_METHOD, CallOptions.DEFAULT);
+    final SettableFuture<Thread> messageThread = SettableFuture.create();
+    final SettableFuture<String> response = SettableFuture.create();
+    call.start(new ClientCall.Listener<String>() {
+      @Override
+      public void onMessage(String message) {
+        messageThread.set(Thread.currentThread());
+        response.set(message);
+      }
+    }, new Metadata());
+    call.request(1);
+    call.sendMessage("a");
+    call.halfClose();
+
+    assertEquals("a-1", response.get(5, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), messageThread.get());
+    assertEquals(1, serverCalls.get());
+  }
+
+  @Test
+  public void cacheKey_includesAuthorityAndCredentials() {
+    ResponseCachingInterceptor interceptor = newBuilder()
+        .setDefaultTimeToLive(10, TimeUnit.SECONDS)
+        .build();
+    CallCredentials credentials = new CallCredentials() {
+      @Override
+      public void applyRequestMetadata(
+          RequestInfo requestInfo, Executor appExecutor, MetadataApplier applier) {
+        applier.apply(new Metadata());
+      }
+
+      @Override
+      public void thisUsesUnstableApi() {
+      }
+    };
+
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    CallOptions otherAuthority = CallOptions.DEFAULT.withAuthority("other.example.com");
+    assertEquals("a-2", call(interceptor, SAFE_METHOD, otherAuthority, "a"));
+    assertEquals("a-2", call(interceptor, SAFE_METHOD, otherAuthority, "a"));
+    CallOptions withCredentials = CallOptions.DEFAULT.withCallCredentials(credentials);
+    assertEquals("a-3", call(interceptor, SAFE_METHOD, withCredentials, "a"));
+    assertEquals("a-3", call(interceptor, SAFE_METHOD, withCredentials, "a"));
+    assertEquals("a-1", call(interceptor, SAFE_METHOD, "a"));
+    assertEquals(3, serverCalls.get());
+  }
+
+  private ResponseCachingInterceptor.Builder newBuilder() {
+    return ResponseCachingInterceptor.newBuilder().setTicker(fakeClock.getTicker());
+  }
+
+  private String call(
+      ResponseCachingInterceptor interceptor, MethodDescriptor<String, String> method,
+      String request) {
+    return call(interceptor, method, CallOptions.DEFAULT, request);
+  }
+
+  private String call(
+      ResponseCachingInterceptor interceptor, MethodDescriptor<String, String> method,
+      CallOptions callOptions, String request) {
+    return ClientCalls.blockingUnaryCall(
+        ClientInterceptors.intercept(channel, interceptor), method, callOptions, request);
+  }
+
+  private static MethodDescriptor<String, String> newMethod(String name, boolean safe) {
+    return MethodDescriptor.<String, String>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(MethodDescriptor.generateFullMethodName("example.Catalog", name))
+        .setRequestMarshaller(new StringMarshaller())
+        .setResponseMarshaller(new StringMarshaller())
+        .setSafe(safe)
+        .build();
+  }
+}
@@ -216,6 +216,11 @@ class CronetClientTransport implements ConnectionClientTransport {
     return attrs;
   }
 
+  @Override
+  public int getMaxConcurrentStreams() {
+    return Integer.MAX_VALUE;
+  }
+
   private void startGoAway(Status status) {
     synchronized (lock) {
       if (startedGoAway) {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.testing.integration;
+
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.okhttp.OkHttpChannelBuilder;
+import io.grpc.testing.integration.Messages.ResponseParameters;
+import io.grpc.testing.integration.Messages.StreamingOutputCallRequest;
+import io.grpc.testing.integration.Messages.StreamingOutputCallResponse;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Measures OkHttp download throughput over an emulated link whose bandwidth-delay product is well
+ * above the default flow control window.
+ */
+@RunWith(JUnit4.class)
+public class OkHttpFlowControlTest {
+
+  // in bytes per second
+  private static final int HIGH_BAND = 30 * 1024 * 1024;
+
+  // in milliseconds
+  private static final int HIGH_LAT = 50;
+
+  // in bytes
+  private static final int REGULAR_WINDOW = 64 * 1024;
+  private static final int STREAM_SIZE = 4 * 1024 * 1024;
+
+  private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+  private Server server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = NettyServerBuilder.forAddress(new InetSocketAddress("localhost", 0))
+        .addService(new TestServiceImpl(executor))
+        .build()
+        .start();
+  }
+
+  @After
+  public void tearDown() {
+    server.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void autoFlowControlIncreasesThroughput() throws IOException {
+    double fixedBps = download(false);
+    double autoBps = download(true);
+
+    // A fixed 64 KiB window allows at most about 1.3 MB/s at this latency.
+    assertTrue(
+        "Auto flow control reached " + autoBps + " B/s, fixed window " + fixedBps + " B/s",
+        autoBps > 1.5 * fixedBps);
+  }
+
+  /**
+   * Streams {@link #STREAM_SIZE} bytes from the server through a new proxy, and returns the
+   * throughput in bytes per second.
+   */
+  private double download(boolean autoFlowControl) throws IOException {
+    // The proxy only carries a single connection.
+    TrafficControlProxy proxy =
+        new TrafficControlProxy(server.getPort(), HIGH_BAND, HIGH_LAT, TimeUnit.MILLISECONDS);
+    proxy.start();
+    OkHttpChannelBuilder builder =
+        OkHttpChannelBuilder.forAddress("localhost", proxy.getPort()).usePlaintext();
+    if (autoFlowControl) {
+      builder.initialFlowControlWindow(REGULAR_WINDOW);
+    } else {
+      builder.flowControlWindow(REGULAR_WINDOW);
+    }
+    ManagedChannel channel = builder.build();
+    try {
+      return download(channel);
+    } finally {
+      channel.shutdownNow();
+      proxy.shutDown();
+    }
+  }
+
+  private static double download(ManagedChannel channel) {
+    TestServiceGrpc.TestServiceBlockingStub stub = TestServiceGrpc.newBlockingStub(channel);
+    // Establish the connection first, so that only the transfer is timed.
+    stub.emptyCall(EmptyProtos.Empty.getDefaultInstance());
+
+    StreamingOutputCallRequest.Builder request = StreamingOutputCallRequest.newBuilder();
+    int chunkSize = 256 * 1024;
+    for (int i = 0; i < STREAM_SIZE / chunkSize; i++) {
+      request.addResponseParameters(ResponseParameters.newBuilder().setSize(chunkSize));
+    }
+    long startNanos = System.nanoTime();
+    long received = 0;
+    Iterator<StreamingOutputCallResponse> responses = stub.streamingOutputCall(request.build());
+    while (responses.hasNext()) {
+      received += responses.next().getPayload().getBody().size();
+    }
+    long elapsedNanos = System.nanoTime() - startNanos;
+    return received * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+}
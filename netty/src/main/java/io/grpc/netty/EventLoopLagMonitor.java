@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.internal.TimeProvider;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how late event loops run their tasks, with a probe task scheduled periodically on each
+ * of them. An event loop lagging more than the maximum is too busy to take more work.
+ */
+class EventLoopLagMonitor {
+  static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final Map<Executor, Probe> probes;
+  private final long maxLagNanos;
+  private final TimeProvider time;
+
+  EventLoopLagMonitor(
+      Iterable<? extends ScheduledExecutorService> eventLoops, long maxLagNanos,
+      TimeProvider time) {
+    checkArgument(maxLagNanos > 0, "maxLagNanos must be positive: %s", maxLagNanos);
+    this.maxLagNanos = maxLagNanos;
+    this.time = checkNotNull(time, "time");
+    Map<Executor, Probe> probes = new HashMap<>();
+    for (ScheduledExecutorService eventLoop : eventLoops) {
+      probes.put(eventLoop, new Probe(eventLoop));
+    }
+    this.probes = Collections.unmodifiableMap(probes);
+  }
+
+  void start() {
+    for (Probe probe : probes.values()) {
+      probe.schedule();
+    }
+  }
+
+  void stop() {
+    for (Probe probe : probes.values()) {
+      probe.cancel();
+    }
+  }
+
+  /** Returns whether {@code eventLoop} lags more than the maximum. */
+  boolean isLagging(Executor eventLoop) {
+    Probe probe = probes.get(eventLoop);
+    return probe != null && probe.getLagNanos() > maxLagNanos;
+  }
+
+  private final class Probe implements Runnable {
+    private final ScheduledExecutorService eventLoop;
+    private volatile long expectedRunNanos;
+    private volatile long lagNanos;
+    private volatile ScheduledFuture<?> future;
+    private volatile boolean cancelled;
+
+    Probe(ScheduledExecutorService eventLoop) {
+      this.eventLoop = eventLoop;
+    }
+
+    void schedule() {
+      expectedRunNanos = time.currentTimeNanos() + PROBE_INTERVAL_NANOS;
+      future = eventLoop.schedule(this, PROBE_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    void cancel() {
+      cancelled = true;
+      ScheduledFuture<?> future = this.future;
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+
+    @Override
+    public void run() {
+      lagNanos = Math.max(0, time.currentTimeNanos() - expectedRunNanos);
+      if (!cancelled) {
+        schedule();
+      }
+    }
+
+    /**
+     * Returns the lag of the last probe, or how late the pending probe is when it is later than
+     * that, as it happens while the event loop is still busy.
+     */
+    long getLagNanos() {
+      if (future == null) {
+        return 0;
+      }
+      return Math.max(lagNanos, time.currentTimeNanos() - expectedRunNanos);
+    }
+  }
+}
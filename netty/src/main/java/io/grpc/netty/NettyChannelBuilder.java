@@ -48,12 +48,14 @@ import io.grpc.internal.ObjectPool;
 import io.grpc.internal.SharedResourcePool;
 import io.grpc.internal.TransportTracer;
 import io.grpc.netty.ProtocolNegotiators.FromChannelCredentialsResult;
+import io.grpc.netty.ProtocolNegotiators.TlsProtocolNegotiatorClientFactory;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFactory;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ReflectiveChannelFactory;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.ssl.SslContext;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -82,6 +84,10 @@ public final class NettyChannelBuilder extends
 
   private static final ChannelFactory<? extends Channel> DEFAULT_CHANNEL_FACTORY =
       new ReflectiveChannelFactory<>(Utils.DEFAULT_CLIENT_CHANNEL_TYPE);
+  @Nullable
+  private static final ChannelFactory<? extends Channel> DEFAULT_DOMAIN_CHANNEL_FACTORY =
+      Utils.DEFAULT_DOMAIN_CLIENT_CHANNEL_TYPE == null
+          ? null : new ReflectiveChannelFactory<>(Utils.DEFAULT_DOMAIN_CLIENT_CHANNEL_TYPE);
   private static final ObjectPool<? extends EventLoopGroup> DEFAULT_EVENT_LOOP_GROUP_POOL =
       SharedResourcePool.forResource(Utils.DEFAULT_WORKER_EVENT_LOOP_GROUP);
 
@@ -254,7 +260,9 @@ public final class NettyChannelBuilder extends
 
   /**
    * Specifies the channel type to use, by default we use {@code EpollSocketChannel} if available,
-   * otherwise using {@link NioSocketChannel}.
+   * otherwise using {@link NioSocketChannel}. When epoll is available,
+   * {@link DomainSocketAddress}es such as those resolved from {@code unix:} targets use
+   * {@code EpollDomainSocketChannel} by default.
    *
    * <p>You either use this or {@link #channelFactory(io.netty.channel.ChannelFactory)} if your
    * {@link Channel} implementation has no no-args constructor.
@@ -527,7 +535,14 @@ public final class NettyChannelBuilder extends
   ClientTransportFactory buildTransportFactory() {
     assertEventLoopAndChannelType();
 
-    ProtocolNegotiator negotiator = protocolNegotiatorFactory.newNegotiator();
+    ProtocolNegotiator negotiator;
+    if (protocolNegotiatorFactory instanceof TlsProtocolNegotiatorClientFactory) {
+      // Like DefaultProtocolNegotiator, run the TLS handshake tasks on the offload executor
+      negotiator = ((TlsProtocolNegotiatorClientFactory) protocolNegotiatorFactory)
+          .newNegotiator(managedChannelImplBuilder.getOffloadExecutorPool());
+    } else {
+      negotiator = protocolNegotiatorFactory.newNegotiator();
+    }
     return new NettyTransportFactory(
         negotiator, channelFactory, channelOptions,
         eventLoopGroupPool, autoFlowControl, flowControlWindow, maxInboundMessageSize,
@@ -715,6 +730,14 @@ public final class NettyChannelBuilder extends
             protocolNegotiator);
       }
 
+      ChannelFactory<? extends Channel> localChannelFactory = channelFactory;
+      if (channelFactory == DEFAULT_CHANNEL_FACTORY
+          && serverAddress instanceof DomainSocketAddress
+          && DEFAULT_DOMAIN_CHANNEL_FACTORY != null) {
+        // The default event loop group is epoll here, so it can drive domain socket channels too.
+        localChannelFactory = DEFAULT_DOMAIN_CHANNEL_FACTORY;
+      }
+
       final AtomicBackoff.State keepAliveTimeNanosState = keepAliveBackoff.getState();
       Runnable tooManyPingsRunnable = new Runnable() {
         @Override
@@ -725,7 +748,7 @@ public final class NettyChannelBuilder extends
 
       // TODO(carl-mastrangelo): Pass channelLogger in.
       NettyClientTransport transport = new NettyClientTransport(
-          serverAddress, channelFactory, channelOptions, group,
+          serverAddress, localChannelFactory, channelOptions, group,
           localNegotiator, autoFlowControl, flowControlWindow,
           maxMessageSize, maxHeaderListSize, keepAliveTimeNanosState.get(), keepAliveTimeoutNanos,
           keepAliveWithoutCalls, options.getAuthority(), options.getUserAgent(),
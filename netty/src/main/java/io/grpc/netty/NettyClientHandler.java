@@ -128,6 +128,8 @@ class NettyClientHandler extends AbstractNettyHandler {
   private WriteQueue clientWriteQueue;
   private Http2Ping ping;
   private Attributes attributes;
+  // Written by the event loop, read by the channel when spreading streams over connections.
+  private volatile int maxConcurrentStreams = Integer.MAX_VALUE;
   private InternalChannelz.Security securityInfo;
   private Status abruptGoAwayStatus;
   private Status channelInactiveReason;
@@ -316,6 +318,14 @@ class NettyClientHandler extends AbstractNettyHandler {
     return attributes;
   }
 
+  /**
+   * The MAX_CONCURRENT_STREAMS last advertised by the server, or {@link Integer#MAX_VALUE} if it did
+   * not set a limit.
+   */
+  int getMaxConcurrentStreams() {
+    return maxConcurrentStreams;
+  }
+
   /**
    * Handler for commands sent from the stream.
    */
@@ -915,6 +925,10 @@ class NettyClientHandler extends AbstractNettyHandler {
 
     @Override
     public void onSettingsRead(ChannelHandlerContext ctx, Http2Settings settings) {
+      Long maxStreams = settings.maxConcurrentStreams();
+      if (maxStreams != null) {
+        maxConcurrentStreams = (int) Math.min(maxStreams, Integer.MAX_VALUE);
+      }
       if (firstSettings) {
         firstSettings = false;
         lifecycleManager.notifyReady();
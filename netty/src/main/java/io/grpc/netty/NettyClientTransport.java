@@ -358,6 +358,11 @@ class NettyClientTransport implements ConnectionClientTransport {
     return handler.getAttributes();
   }
 
+  @Override
+  public int getMaxConcurrentStreams() {
+    return handler.getMaxConcurrentStreams();
+  }
+
   @Override
   public ListenableFuture<SocketStats> getStats() {
     final SettableFuture<SocketStats> result = SettableFuture.create();
@@ -18,6 +18,7 @@ package io.grpc.netty;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static io.grpc.netty.NettyServerBuilder.MAX_CONNECTION_AGE_NANOS_DISABLED;
+import static io.grpc.netty.NettyServerBuilder.MAX_EVENT_LOOP_LAG_NANOS_DISABLED;
 import static io.netty.channel.ChannelOption.ALLOCATOR;
 import static io.netty.channel.ChannelOption.SO_KEEPALIVE;
 
@@ -36,6 +37,7 @@ import io.grpc.internal.InternalServer;
 import io.grpc.internal.ObjectPool;
 import io.grpc.internal.ServerListener;
 import io.grpc.internal.ServerTransportListener;
+import io.grpc.internal.TimeProvider;
 import io.grpc.internal.TransportTracer;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
@@ -52,6 +54,7 @@ import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.ChannelGroupFuture;
 import io.netty.channel.group.ChannelGroupFutureListener;
 import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.util.AbstractReferenceCounted;
 import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.Future;
@@ -67,6 +70,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /**
  * Netty-based server implementation.
@@ -99,6 +103,8 @@ class NettyServer implements InternalServer, InternalWithLogId {
   private final long maxConnectionAgeGraceInNanos;
   private final boolean permitKeepAliveWithoutCalls;
   private final long permitKeepAliveTimeInNanos;
+  @Nullable
+  private final EventLoopLagMonitor eventLoopLagMonitor;
   private final Attributes eagAttributes;
   private final ReferenceCounted sharedResourceReferenceCounter =
       new SharedResourceReferenceCounter();
@@ -127,7 +133,7 @@ class NettyServer implements InternalServer, InternalWithLogId {
       long maxConnectionIdleInNanos,
       long maxConnectionAgeInNanos, long maxConnectionAgeGraceInNanos,
       boolean permitKeepAliveWithoutCalls, long permitKeepAliveTimeInNanos,
-      Attributes eagAttributes, InternalChannelz channelz) {
+      long maxEventLoopLagInNanos, Attributes eagAttributes, InternalChannelz channelz) {
     this.addresses = checkNotNull(addresses, "addresses");
     this.channelFactory = checkNotNull(channelFactory, "channelFactory");
     checkNotNull(channelOptions, "channelOptions");
@@ -156,6 +162,10 @@ class NettyServer implements InternalServer, InternalWithLogId {
     this.maxConnectionAgeGraceInNanos = maxConnectionAgeGraceInNanos;
     this.permitKeepAliveWithoutCalls = permitKeepAliveWithoutCalls;
     this.permitKeepAliveTimeInNanos = permitKeepAliveTimeInNanos;
+    this.eventLoopLagMonitor = maxEventLoopLagInNanos == MAX_EVENT_LOOP_LAG_NANOS_DISABLED
+        ? null
+        : new EventLoopLagMonitor(
+            workerGroup, maxEventLoopLagInNanos, TimeProvider.SYSTEM_TIME_PROVIDER);
     this.eagAttributes = checkNotNull(eagAttributes, "eagAttributes");
     this.channelz = Preconditions.checkNotNull(channelz);
     this.logId = InternalLogId.allocate(getClass(), addresses.isEmpty() ? "No address" :
@@ -205,7 +215,6 @@ class NettyServer implements InternalServer, InternalWithLogId {
     b.option(ALLOCATOR, Utils.getByteBufAllocator(forceHeapBuffer));
     b.childOption(ALLOCATOR, Utils.getByteBufAllocator(forceHeapBuffer));
     b.group(bossExecutor, workerGroup);
-    b.channelFactory(channelFactory);
     // For non-socket based channel, the option will be ignored.
     b.childOption(SO_KEEPALIVE, true);
 
@@ -257,6 +266,7 @@ class NettyServer implements InternalServer, InternalWithLogId {
                 maxConnectionAgeGraceInNanos,
                 permitKeepAliveWithoutCalls,
                 permitKeepAliveTimeInNanos,
+                eventLoopLagMonitor,
                 eagAttributes);
         ServerTransportListener transportListener;
         // This is to order callbacks on the listener, not to guard access to channel.
@@ -300,7 +310,8 @@ class NettyServer implements InternalServer, InternalWithLogId {
           public Map<ChannelFuture, SocketAddress> call() {
             Map<ChannelFuture, SocketAddress> bindFutures = new HashMap<>();
             for (SocketAddress address: addresses) {
-                ChannelFuture future = b.bind(address);
+                ChannelFuture future =
+                    b.clone().channelFactory(channelFactoryFor(address)).bind(address);
                 channelGroup.add(future.channel());
                 bindFutures.put(future, address);
             }
@@ -339,6 +350,23 @@ class NettyServer implements InternalServer, InternalWithLogId {
       });
     }
     listenSocketStatsList = Collections.unmodifiableList(socketStats);
+    if (eventLoopLagMonitor != null) {
+      eventLoopLagMonitor.start();
+    }
+  }
+
+  /**
+   * Returns the channel factory for {@code address}. With the default channel type, Unix domain
+   * socket addresses are bound with the epoll domain socket channel so they can be mixed with TCP
+   * addresses on one server.
+   */
+  private ChannelFactory<? extends ServerChannel> channelFactoryFor(SocketAddress address) {
+    if (channelFactory == Utils.DEFAULT_SERVER_CHANNEL_FACTORY
+        && address instanceof DomainSocketAddress
+        && Utils.DEFAULT_DOMAIN_SERVER_CHANNEL_FACTORY != null) {
+      return Utils.DEFAULT_DOMAIN_SERVER_CHANNEL_FACTORY;
+    }
+    return channelFactory;
   }
 
   @Override
@@ -353,6 +381,9 @@ class NettyServer implements InternalServer, InternalWithLogId {
               if (!future.isSuccess()) {
                 log.log(Level.WARNING, "Error closing server channel group", future.cause());
               }
+              if (eventLoopLagMonitor != null) {
+                eventLoopLagMonitor.stop();
+              }
               sharedResourceReferenceCounter.release();
               protocolNegotiator.close();
               listenSocketStatsList = Collections.emptyList();
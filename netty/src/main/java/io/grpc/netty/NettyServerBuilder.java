@@ -74,6 +74,7 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
 
   static final long MAX_CONNECTION_IDLE_NANOS_DISABLED = Long.MAX_VALUE;
   static final long MAX_CONNECTION_AGE_NANOS_DISABLED = Long.MAX_VALUE;
+  static final long MAX_EVENT_LOOP_LAG_NANOS_DISABLED = Long.MAX_VALUE;
   static final long MAX_CONNECTION_AGE_GRACE_NANOS_INFINITE = Long.MAX_VALUE;
 
   private static final long MIN_KEEPALIVE_TIME_NANO = TimeUnit.MILLISECONDS.toNanos(1L);
@@ -110,6 +111,7 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
   private long keepAliveTimeoutInNanos = DEFAULT_SERVER_KEEPALIVE_TIMEOUT_NANOS;
   private long maxConnectionIdleInNanos = MAX_CONNECTION_IDLE_NANOS_DISABLED;
   private long maxConnectionAgeInNanos = MAX_CONNECTION_AGE_NANOS_DISABLED;
+  private long maxEventLoopLagInNanos = MAX_EVENT_LOOP_LAG_NANOS_DISABLED;
   private long maxConnectionAgeGraceInNanos = MAX_CONNECTION_AGE_GRACE_NANOS_INFINITE;
   private boolean permitKeepAliveWithoutCalls;
   private long permitKeepAliveTimeInNanos = TimeUnit.MINUTES.toNanos(5);
@@ -206,7 +208,9 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
 
   /**
    * Specifies the channel type to use, by default we use {@code EpollServerSocketChannel} if
-   * available, otherwise using {@link NioServerSocketChannel}.
+   * available, otherwise using {@link NioServerSocketChannel}. When epoll is available,
+   * {@code DomainSocketAddress} listen addresses use {@code EpollServerDomainSocketChannel} by
+   * default.
    *
    * <p>You either use this or {@link #channelFactory(io.netty.channel.ChannelFactory)} if your
    * {@link ServerChannel} implementation has no no-args constructor.
@@ -619,6 +623,22 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
     return this;
   }
 
+  /**
+   * Sets how late the event loops may run their tasks before the server sheds load. New streams
+   * of the connections served by an event loop that lags more than {@code maxEventLoopLag} are
+   * refused with the HTTP/2 {@code REFUSED_STREAM} error. Clients can safely retry refused
+   * streams, as the server did not process them. The lag is measured with a task scheduled on
+   * each event loop every 100 milliseconds. Disabled by default.
+   *
+   * @since 1.46.0
+   */
+  public NettyServerBuilder maxEventLoopLag(long maxEventLoopLag, TimeUnit timeUnit) {
+    checkArgument(maxEventLoopLag > 0L, "max event loop lag must be positive: %s",
+        maxEventLoopLag);
+    maxEventLoopLagInNanos = timeUnit.toNanos(maxEventLoopLag);
+    return this;
+  }
+
   /** Sets the EAG attributes available to protocol negotiators. Not for general use. */
   void eagAttributes(Attributes eagAttributes) {
     this.eagAttributes = checkNotNull(eagAttributes, "eagAttributes");
@@ -640,7 +660,7 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
         keepAliveTimeInNanos, keepAliveTimeoutInNanos,
         maxConnectionIdleInNanos, maxConnectionAgeInNanos,
         maxConnectionAgeGraceInNanos, permitKeepAliveWithoutCalls, permitKeepAliveTimeInNanos,
-        eagAttributes, this.serverImplBuilder.getChannelz());
+        maxEventLoopLagInNanos, eagAttributes, this.serverImplBuilder.getChannelz());
   }
 
   @VisibleForTesting
@@ -21,6 +21,8 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.errorprone.annotations.ForOverride;
 import io.grpc.Attributes;
 import io.grpc.CallCredentials;
@@ -60,11 +62,14 @@ import io.netty.handler.proxy.HttpProxyHandler;
 import io.netty.handler.proxy.ProxyConnectionEvent;
 import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.OpenSslEngine;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.ssl.SslHandshakeCompletionEvent;
 import io.netty.handler.ssl.SslProvider;
+import io.netty.internal.tcnative.SSL;
 import io.netty.util.AsciiString;
 import java.io.ByteArrayInputStream;
 import java.net.SocketAddress;
@@ -74,6 +79,7 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -94,6 +100,13 @@ final class ProtocolNegotiators {
       EnumSet.of(
           TlsServerCredentials.Feature.MTLS, TlsServerCredentials.Feature.CUSTOM_MANAGERS);
 
+  /**
+   * Channels created with the same credentials share their SslContext, and so its client session
+   * cache. The sessions are cached by authority, so a new connection to a server that any of the
+   * channels connected to before can resume the session instead of doing a full handshake.
+   */
+  private static final Cache<TlsChannelCredentials, SslContext> clientSslContexts =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(100).build();
 
   private ProtocolNegotiators() {
   }
@@ -107,6 +120,10 @@ final class ProtocolNegotiators {
         return FromChannelCredentialsResult.error(
             "TLS features not understood: " + incomprehensible);
       }
+      SslContext sslContext = clientSslContexts.getIfPresent(tlsCreds);
+      if (sslContext != null) {
+        return FromChannelCredentialsResult.negotiator(tlsClientFactory(sslContext));
+      }
       SslContextBuilder builder = GrpcSslContexts.forClient();
       if (tlsCreds.getKeyManagers() != null) {
         builder.keyManager(new FixedKeyManagerFactory(tlsCreds.getKeyManagers()));
@@ -122,12 +139,18 @@ final class ProtocolNegotiators {
         builder.trustManager(new ByteArrayInputStream(tlsCreds.getRootCertificates()));
       } // else use system default
       try {
-        return FromChannelCredentialsResult.negotiator(tlsClientFactory(builder.build()));
+        sslContext = builder.build();
       } catch (SSLException ex) {
         log.log(Level.FINE, "Exception building SslContext", ex);
         return FromChannelCredentialsResult.error(
             "Unable to create SslContext: " + ex.getMessage());
       }
+      if (sslContext.sessionContext() instanceof OpenSslSessionContext) {
+        // Netty only caches client sessions for OpenSSL when asked to
+        ((OpenSslSessionContext) sslContext.sessionContext()).setSessionCacheEnabled(true);
+      }
+      clientSslContexts.put(tlsCreds, sslContext);
+      return FromChannelCredentialsResult.negotiator(tlsClientFactory(sslContext));
 
     } else if (creds instanceof InsecureChannelCredentials) {
       return FromChannelCredentialsResult.negotiator(plaintextClientFactory());
@@ -405,6 +428,7 @@ final class ProtocolNegotiators {
     private final SslContext sslContext;
 
     private ProtocolNegotiationEvent pne = ProtocolNegotiationEvent.DEFAULT;
+    private long handshakeStartMillis;
 
     ServerTlsHandler(ChannelHandler next,
         SslContext sslContext,
@@ -420,6 +444,7 @@ final class ProtocolNegotiators {
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
       super.handlerAdded(ctx);
       SSLEngine sslEngine = sslContext.newEngine(ctx.alloc());
+      handshakeStartMillis = System.currentTimeMillis();
       ctx.pipeline().addBefore(ctx.name(), /* name= */ null, this.executor != null
           ? new SslHandler(sslEngine, false, this.executor)
           : new SslHandler(sslEngine, false));
@@ -445,17 +470,22 @@ final class ProtocolNegotiators {
           return;
         }
         ctx.pipeline().replace(ctx.name(), null, next);
-        fireProtocolNegotiationEvent(ctx, sslHandler.engine().getSession());
+        fireProtocolNegotiationEvent(ctx, sslHandler.engine());
       } else {
         super.userEventTriggered(ctx, evt);
       }
     }
 
-    private void fireProtocolNegotiationEvent(ChannelHandlerContext ctx, SSLSession session) {
-      Security security = new Security(new Tls(session));
+    private void fireProtocolNegotiationEvent(ChannelHandlerContext ctx, SSLEngine engine) {
+      SSLSession session = engine.getSession();
+      // Also a transport attribute, so that the channel and server can count full and resumed
+      // handshakes over all their connections
+      boolean sessionResumed = isSessionResumed(engine, handshakeStartMillis);
+      Security security = new Security(new Tls(session, sessionResumed));
       Attributes attrs = pne.getAttributes().toBuilder()
           .set(GrpcAttributes.ATTR_SECURITY_LEVEL, SecurityLevel.PRIVACY_AND_INTEGRITY)
           .set(Grpc.TRANSPORT_ATTR_SSL_SESSION, session)
+          .set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, sessionResumed)
           .build();
       ctx.fireUserEventTriggered(pne.withAttributes(attrs).withSecurity(security));
     }
@@ -583,6 +613,7 @@ final class ProtocolNegotiators {
     private final String host;
     private final int port;
     private Executor executor;
+    private long handshakeStartMillis;
 
     ClientTlsHandler(ChannelHandler next, SslContext sslContext, String authority,
         Executor executor, ChannelLogger negotiationLogger) {
@@ -600,6 +631,7 @@ final class ProtocolNegotiators {
       SSLParameters sslParams = sslEngine.getSSLParameters();
       sslParams.setEndpointIdentificationAlgorithm("HTTPS");
       sslEngine.setSSLParameters(sslParams);
+      handshakeStartMillis = System.currentTimeMillis();
       ctx.pipeline().addBefore(ctx.name(), /* name= */ null, this.executor != null
           ? new SslHandler(sslEngine, false, this.executor)
           : new SslHandler(sslEngine, false));
@@ -615,7 +647,7 @@ final class ProtocolNegotiators {
               .contains(handler.applicationProtocol())) {
             // Successfully negotiated the protocol.
             logSslEngineDetails(Level.FINER, ctx, "TLS negotiation succeeded.", null);
-            propagateTlsComplete(ctx, handler.engine().getSession());
+            propagateTlsComplete(ctx, handler.engine());
           } else {
             Exception ex =
                 unavailableException("Failed ALPN negotiation: Unable to find compatible protocol");
@@ -641,18 +673,39 @@ final class ProtocolNegotiators {
       }
     }
 
-    private void propagateTlsComplete(ChannelHandlerContext ctx, SSLSession session) {
-      Security security = new Security(new Tls(session));
+    private void propagateTlsComplete(ChannelHandlerContext ctx, SSLEngine engine) {
+      SSLSession session = engine.getSession();
+      boolean sessionResumed = isSessionResumed(engine, handshakeStartMillis);
+      Security security = new Security(new Tls(session, sessionResumed));
       ProtocolNegotiationEvent existingPne = getProtocolNegotiationEvent();
       Attributes attrs = existingPne.getAttributes().toBuilder()
           .set(GrpcAttributes.ATTR_SECURITY_LEVEL, SecurityLevel.PRIVACY_AND_INTEGRITY)
           .set(Grpc.TRANSPORT_ATTR_SSL_SESSION, session)
+          .set(GrpcAttributes.ATTR_TLS_SESSION_RESUMED, sessionResumed)
           .build();
       replaceProtocolNegotiationEvent(existingPne.withAttributes(attrs).withSecurity(security));
       fireProtocolNegotiationEvent(ctx);
     }
   }
 
+  /**
+   * Returns whether the handshake resumed a session. OpenSSL engines report it directly. SSLEngine
+   * has no API for it, but with the JDK provider a resumed session was created by an earlier
+   * handshake.
+   */
+  @VisibleForTesting
+  static boolean isSessionResumed(SSLEngine engine, long handshakeStartMillis) {
+    if (engine instanceof ReferenceCountedOpenSslEngine) {
+      ReferenceCountedOpenSslEngine openSslEngine = (ReferenceCountedOpenSslEngine) engine;
+      synchronized (openSslEngine) {
+        long ssl = openSslEngine.sslPointer();
+        // The pointer is 0 once the engine is shut down
+        return ssl != 0 && SSL.isSessionReused(ssl);
+      }
+    }
+    return engine.getSession().getCreationTime() < handshakeStartMillis;
+  }
+
   @VisibleForTesting
   static HostPort parseAuthority(String authority) {
     URI uri = GrpcUtil.authorityToUri(Preconditions.checkNotNull(authority, "authority"));
@@ -713,6 +766,15 @@ final class ProtocolNegotiators {
       return tls(sslContext);
     }
 
+    /**
+     * Creates a negotiator that runs the delegated tasks of the TLS engine, such as certificate
+     * verification and signing, on {@code executorPool} so that they don't delay the I/O of the
+     * other connections of the event loop.
+     */
+    ProtocolNegotiator newNegotiator(ObjectPool<? extends Executor> executorPool) {
+      return tls(sslContext, executorPool);
+    }
+
     @Override public int getDefaultPort() {
       return GrpcUtil.DEFAULT_PORT_SSL;
     }
@@ -1028,6 +1090,7 @@ final class ProtocolNegotiators {
     private final String negotiatorName;
     private ProtocolNegotiationEvent pne;
     private final ChannelLogger negotiationLogger;
+    private long startNanos;
 
     protected ProtocolNegotiationHandler(ChannelHandler next, String negotiatorName,
         ChannelLogger negotiationLogger) {
@@ -1045,6 +1108,7 @@ final class ProtocolNegotiators {
     @Override
     public final void handlerAdded(ChannelHandlerContext ctx) throws Exception {
       negotiationLogger.log(ChannelLogLevel.DEBUG, "{0} started", negotiatorName);
+      startNanos = System.nanoTime();
       handlerAdded0(ctx);
     }
 
@@ -1085,7 +1149,9 @@ final class ProtocolNegotiators {
 
     protected final void fireProtocolNegotiationEvent(ChannelHandlerContext ctx) {
       checkState(pne != null, "previous protocol negotiation event hasn't triggered");
-      negotiationLogger.log(ChannelLogLevel.INFO, "{0} completed", negotiatorName);
+      negotiationLogger.log(
+          ChannelLogLevel.INFO, "{0} completed in {1} ms", negotiatorName,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
       ctx.pipeline().replace(ctx.name(), /* newName= */ null, next);
       ctx.fireUserEventTriggered(pne);
     }
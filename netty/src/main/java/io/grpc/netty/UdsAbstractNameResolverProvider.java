@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import io.grpc.Internal;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.net.URI;
+
+/**
+ * A provider for {@link UdsNameResolver} targets in the Linux abstract socket namespace.
+ *
+ * <p>It resolves a target URI whose scheme is {@code "unix-abstract"}, such as
+ * {@code "unix-abstract:agent"}, to the abstract socket with that name. Abstract sockets have no
+ * file on disk and are only supported by the epoll transport.
+ */
+@Internal
+public final class UdsAbstractNameResolverProvider extends NameResolverProvider {
+
+  private static final String SCHEME = "unix-abstract";
+
+  @Override
+  public UdsNameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+    if (!SCHEME.equals(targetUri.getScheme())) {
+      return null;
+    }
+    // A leading NUL byte selects the abstract namespace.
+    return new UdsNameResolver(
+        new DomainSocketAddress("\0" + UdsNameResolver.getTargetPath(targetUri)));
+  }
+
+  @Override
+  public String getDefaultScheme() {
+    return SCHEME;
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return true;
+  }
+
+  @Override
+  protected int priority() {
+    return 3;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+
+/**
+ * A {@link NameResolver} that resolves a Unix domain socket target to its single
+ * {@link DomainSocketAddress}. Nothing is looked up, so the result is delivered as soon as the
+ * resolver is started.
+ */
+final class UdsNameResolver extends NameResolver {
+  /** The authority used for Unix domain socket targets, matching other gRPC implementations. */
+  static final String AUTHORITY = "localhost";
+
+  private final DomainSocketAddress address;
+  private Listener2 listener;
+
+  UdsNameResolver(DomainSocketAddress address) {
+    this.address = checkNotNull(address, "address");
+  }
+
+  /**
+   * Returns the socket path of {@code targetUri}, accepting {@code scheme:path},
+   * {@code scheme:/absolute/path} and {@code scheme:///absolute/path}.
+   */
+  static String getTargetPath(URI targetUri) {
+    checkArgument(targetUri.getAuthority() == null,
+        "non-empty authority is not supported: %s", targetUri);
+    String path = targetUri.isOpaque() ? targetUri.getSchemeSpecificPart() : targetUri.getPath();
+    checkArgument(path != null && !path.isEmpty(), "missing socket path: %s", targetUri);
+    return path;
+  }
+
+  @Override
+  public String getServiceAuthority() {
+    return AUTHORITY;
+  }
+
+  @Override
+  public void start(Listener2 listener) {
+    checkState(this.listener == null, "already started");
+    this.listener = checkNotNull(listener, "listener");
+    resolve();
+  }
+
+  @Override
+  public void refresh() {
+    resolve();
+  }
+
+  private void resolve() {
+    listener.onResult(
+        ResolutionResult.newBuilder()
+            .setAddresses(Collections.singletonList(new EquivalentAddressGroup(address)))
+            .build());
+  }
+
+  @Override
+  public void shutdown() {}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import io.grpc.Internal;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.net.URI;
+
+/**
+ * A provider for {@link UdsNameResolver}.
+ *
+ * <p>It resolves a target URI whose scheme is {@code "unix"} to a Unix domain socket at the path of
+ * the URI. Example target URIs:
+ *
+ * <ul>
+ *   <li>{@code "unix:///var/run/agent.sock"}</li>
+ *   <li>{@code "unix:/var/run/agent.sock"}</li>
+ *   <li>{@code "unix:agent.sock"} (relative to the working directory)</li>
+ * </ul>
+ *
+ * <p>{@link NettyChannelBuilder} selects the epoll domain socket channel for these addresses when
+ * neither the event loop group nor the channel type has been set.
+ */
+@Internal
+public final class UdsNameResolverProvider extends NameResolverProvider {
+
+  private static final String SCHEME = "unix";
+
+  @Override
+  public UdsNameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+    if (!SCHEME.equals(targetUri.getScheme())) {
+      return null;
+    }
+    return new UdsNameResolver(
+        new DomainSocketAddress(UdsNameResolver.getTargetPath(targetUri)));
+  }
+
+  @Override
+  public String getDefaultScheme() {
+    return SCHEME;
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return true;
+  }
+
+  @Override
+  protected int priority() {
+    return 3;
+  }
+}
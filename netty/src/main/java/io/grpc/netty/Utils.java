@@ -104,6 +104,14 @@ class Utils {
 
   public static final ChannelFactory<? extends ServerChannel> DEFAULT_SERVER_CHANNEL_FACTORY;
   public static final Class<? extends Channel> DEFAULT_CLIENT_CHANNEL_TYPE;
+  /**
+   * Channel types used in place of the defaults for {@code DomainSocketAddress}es, or {@code null}
+   * if epoll is not available.
+   */
+  @Nullable
+  public static final ChannelFactory<? extends ServerChannel> DEFAULT_DOMAIN_SERVER_CHANNEL_FACTORY;
+  @Nullable
+  public static final Class<? extends Channel> DEFAULT_DOMAIN_CLIENT_CHANNEL_TYPE;
 
   @Nullable
   private static final Constructor<? extends EventLoopGroup> EPOLL_EVENT_LOOP_GROUP_CONSTRUCTOR;
@@ -113,6 +121,9 @@ class Utils {
     if (isEpollAvailable()) {
       DEFAULT_CLIENT_CHANNEL_TYPE = epollChannelType();
       DEFAULT_SERVER_CHANNEL_FACTORY = new ReflectiveChannelFactory<>(epollServerChannelType());
+      DEFAULT_DOMAIN_CLIENT_CHANNEL_TYPE = epollDomainChannelType();
+      DEFAULT_DOMAIN_SERVER_CHANNEL_FACTORY =
+          new ReflectiveChannelFactory<>(epollDomainServerChannelType());
       EPOLL_EVENT_LOOP_GROUP_CONSTRUCTOR = epollEventLoopGroupConstructor();
       DEFAULT_BOSS_EVENT_LOOP_GROUP
         = new DefaultEventLoopGroupResource(1, "grpc-default-boss-ELG", EventLoopGroupType.EPOLL);
@@ -122,6 +133,8 @@ class Utils {
       logger.log(Level.FINE, "Epoll is not available, using Nio.", getEpollUnavailabilityCause());
       DEFAULT_SERVER_CHANNEL_FACTORY = nioServerChannelFactory();
       DEFAULT_CLIENT_CHANNEL_TYPE = NioSocketChannel.class;
+      DEFAULT_DOMAIN_CLIENT_CHANNEL_TYPE = null;
+      DEFAULT_DOMAIN_SERVER_CHANNEL_FACTORY = null;
       DEFAULT_BOSS_EVENT_LOOP_GROUP = NIO_BOSS_EVENT_LOOP_GROUP;
       DEFAULT_WORKER_EVENT_LOOP_GROUP = NIO_WORKER_EVENT_LOOP_GROUP;
       EPOLL_EVENT_LOOP_GROUP_CONSTRUCTOR = null;
@@ -352,6 +365,27 @@ class Utils {
     }
   }
 
+  // Must call when epoll is available
+  private static Class<? extends Channel> epollDomainChannelType() {
+    try {
+      return Class
+          .forName("io.netty.channel.epoll.EpollDomainSocketChannel").asSubclass(Channel.class);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Cannot load EpollDomainSocketChannel", e);
+    }
+  }
+
+  // Must call when epoll is available
+  private static Class<? extends ServerChannel> epollDomainServerChannelType() {
+    try {
+      return Class
+          .forName("io.netty.channel.epoll.EpollServerDomainSocketChannel")
+          .asSubclass(ServerChannel.class);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Cannot load EpollServerDomainSocketChannel", e);
+    }
+  }
+
   private static EventLoopGroup createEpollEventLoopGroup(
       int parallelism,
       ThreadFactory threadFactory) {
@@ -426,6 +426,22 @@ public class AdvancedTlsTest {
     }
   }
 
+  @Test
+  public void trustManagerReloadsFileAfterOtherUpdate() throws Exception {
+    AdvancedTlsX509TrustManager trustManager = AdvancedTlsX509TrustManager.newBuilder()
+        .setVerification(Verification.CERTIFICATE_ONLY_VERIFICATION)
+        .build();
+    trustManager.updateTrustCredentialsFromFile(caCertFile);
+    assertArrayEquals(caCert, trustManager.getAcceptedIssuers());
+    // The same file contents are skipped, as long as nothing else replaced them
+    trustManager.updateTrustCredentialsFromFile(caCertFile);
+    assertArrayEquals(caCert, trustManager.getAcceptedIssuers());
+    trustManager.updateTrustCredentials(serverCert0);
+    assertArrayEquals(serverCert0, trustManager.getAcceptedIssuers());
+    trustManager.updateTrustCredentialsFromFile(caCertFile);
+    assertArrayEquals(caCert, trustManager.getAcceptedIssuers());
+  }
+
   @Test
   public void onFileReloadingKeyManagerBadInitialContentTest() throws Exception {
     exceptionRule.expect(GeneralSecurityException.class);
@@ -228,6 +228,19 @@ public class NettyClientHandlerTest extends NettyHandlerTestBase<NettyClientHand
     verifyNoMoreInteractions(mockKeepAliveManager);
   }
 
+  @Test
+  public void maxConcurrentStreamsFromSettings() throws Exception {
+    // The initial settings do not set a limit
+    assertEquals(Integer.MAX_VALUE, handler().getMaxConcurrentStreams());
+
+    receiveMaxConcurrentStreams(100);
+    assertEquals(100, handler().getMaxConcurrentStreams());
+
+    // Settings without MAX_CONCURRENT_STREAMS keep the previous limit
+    channelRead(serializeSettings(new Http2Settings().initialWindowSize(1000)));
+    assertEquals(100, handler().getMaxConcurrentStreams());
+  }
+
   @Test
   public void cancelDeadlineExceededShouldSucceed() throws Exception {
     createStream();
@@ -16,16 +16,32 @@
 
 package io.grpc.netty;
 
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.truth.Truth;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
 import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.protobuf.SimpleRequest;
+import io.grpc.testing.protobuf.SimpleResponse;
+import io.grpc.testing.protobuf.SimpleServiceGrpc;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.local.LocalServerChannel;
 import io.netty.handler.ssl.SslContext;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
@@ -53,6 +69,61 @@ public class NettyServerBuilderTest {
     Truth.assertThat(server.getListenSocketAddresses()).hasSize(2);
   }
 
+  @Test
+  public void maxCallQueueDelay_shedsCallsWhileQueuing() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Server server = NettyServerBuilder.forPort(0)
+        .executor(executor)
+        .maxCallQueueDelay(10, TimeUnit.MILLISECONDS)
+        .addService(new SimpleServiceGrpc.SimpleServiceImplBase() {
+          @Override
+          public void unaryRpc(
+              SimpleRequest request, StreamObserver<SimpleResponse> responseObserver) {
+            responseObserver.onNext(SimpleResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+          }
+        })
+        .build()
+        .start();
+    ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", server.getPort())
+        .usePlaintext()
+        .build();
+    try {
+      // Connect first, so that the calls below are not sent at once when connected
+      SimpleServiceGrpc.newBlockingStub(channel).unaryRpc(SimpleRequest.getDefaultInstance());
+      SimpleServiceGrpc.SimpleServiceFutureStub stub = SimpleServiceGrpc.newFutureStub(channel);
+      // Other work keeps the executor busy twice as long as the calls take to arrive, so that
+      // the calls wait longer and longer
+      List<ListenableFuture<SimpleResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            Uninterruptibles.sleepUninterruptibly(20, TimeUnit.MILLISECONDS);
+          }
+        });
+        responses.add(stub.unaryRpc(SimpleRequest.getDefaultInstance()));
+        Thread.sleep(10);
+      }
+
+      int shed = 0;
+      for (ListenableFuture<SimpleResponse> response : responses) {
+        try {
+          response.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+          assertEquals(Status.Code.RESOURCE_EXHAUSTED, Status.fromThrowable(e).getCode());
+          shed++;
+        }
+      }
+      assertThat(shed).isGreaterThan(0);
+      assertThat(shed).isLessThan(responses.size());
+    } finally {
+      channel.shutdownNow();
+      server.shutdownNow();
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void sslContextCanBeNull() {
     builder.sslContext(null);
@@ -84,6 +155,14 @@ public class NettyServerBuilderTest {
     builder.keepAliveTimeout(-10L, TimeUnit.HOURS);
   }
 
+  @Test
+  public void failIfMaxEventLoopLagNotPositive() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("max event loop lag must be positive");
+
+    builder.maxEventLoopLag(0, TimeUnit.MILLISECONDS);
+  }
+
   @Test
   public void failIfMaxConcurrentCallsPerConnectionNegative() {
     thrown.expect(IllegalArgumentException.class);
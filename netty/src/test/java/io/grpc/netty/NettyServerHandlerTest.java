@@ -23,6 +23,7 @@ import static io.grpc.internal.GrpcUtil.DEFAULT_SERVER_KEEPALIVE_TIME_NANOS;
 import static io.grpc.netty.NettyServerBuilder.MAX_CONNECTION_AGE_GRACE_NANOS_INFINITE;
 import static io.grpc.netty.NettyServerBuilder.MAX_CONNECTION_AGE_NANOS_DISABLED;
 import static io.grpc.netty.NettyServerBuilder.MAX_CONNECTION_IDLE_NANOS_DISABLED;
+import static io.grpc.netty.NettyServerBuilder.MAX_EVENT_LOOP_LAG_NANOS_DISABLED;
 import static io.grpc.netty.Utils.CONTENT_TYPE_GRPC;
 import static io.grpc.netty.Utils.CONTENT_TYPE_HEADER;
 import static io.grpc.netty.Utils.HTTP_METHOD;
@@ -84,6 +85,7 @@ import io.netty.handler.codec.http2.Http2Stream;
 import io.netty.util.AsciiString;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -140,6 +142,7 @@ public class NettyServerHandlerTest extends NettyHandlerTestBase<NettyServerHand
   private long maxConnectionAgeGraceInNanos = MAX_CONNECTION_AGE_GRACE_NANOS_INFINITE;
   private long keepAliveTimeInNanos = DEFAULT_SERVER_KEEPALIVE_TIME_NANOS;
   private long keepAliveTimeoutInNanos = DEFAULT_SERVER_KEEPALIVE_TIMEOUT_NANOS;
+  private long maxEventLoopLagInNanos = MAX_EVENT_LOOP_LAG_NANOS_DISABLED;
 
   private class ServerTransportListenerImpl implements ServerTransportListener {
 
@@ -606,6 +609,35 @@ public class NettyServerHandlerTest extends NettyHandlerTestBase<NettyServerHand
             any(ChannelPromise.class));
   }
 
+  @Test
+  public void headersRefusedWhileEventLoopLags() throws Exception {
+    maxEventLoopLagInNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    manualSetUp();
+    Http2Headers headers = new DefaultHttp2Headers()
+        .method(HTTP_METHOD)
+        .set(CONTENT_TYPE_HEADER, CONTENT_TYPE_GRPC)
+        .set(TE_HEADER, TE_TRAILERS)
+        .path(new AsciiString("/foo/bar"));
+    // The probe scheduled in 100 ms runs in 300 ms
+    fakeClock().forwardTime(300, TimeUnit.MILLISECONDS);
+    channelRead(headersFrame(STREAM_ID, headers));
+
+    verifyWrite()
+        .writeRstStream(
+            eq(ctx()),
+            eq(STREAM_ID),
+            eq(Http2Error.REFUSED_STREAM.code()),
+            any(ChannelPromise.class));
+    verify(transportListener, never())
+        .streamCreated(any(ServerStream.class), anyString(), any(Metadata.class));
+
+    // The next probe runs in time
+    fakeClock().forwardTime(100, TimeUnit.MILLISECONDS);
+    channelRead(headersFrame(STREAM_ID + 2, headers));
+    verify(transportListener)
+        .streamCreated(any(ServerStream.class), eq("foo/bar"), any(Metadata.class));
+  }
+
   @Test
   public void headersWithMultipleHostsShouldFail() throws Exception {
     manualSetUp();
@@ -1248,6 +1280,13 @@ public class NettyServerHandlerTest extends NettyHandlerTestBase<NettyServerHand
 
   @Override
   protected NettyServerHandler newHandler() {
+    EventLoopLagMonitor eventLoopLagMonitor = null;
+    if (maxEventLoopLagInNanos != MAX_EVENT_LOOP_LAG_NANOS_DISABLED) {
+      eventLoopLagMonitor = new EventLoopLagMonitor(
+          Collections.singletonList(channel().eventLoop()), maxEventLoopLagInNanos,
+          fakeClock().getTimeProvider());
+      eventLoopLagMonitor.start();
+    }
     return NettyServerHandler.newHandler(
         /* channelUnused= */ channel().newPromise(),
         frameReader(),
@@ -1267,6 +1306,7 @@ public class NettyServerHandlerTest extends NettyHandlerTestBase<NettyServerHand
         maxConnectionAgeGraceInNanos,
         permitKeepAliveWithoutCalls,
         permitKeepAliveTimeInNanos,
+        eventLoopLagMonitor,
         Attributes.EMPTY);
   }
 
@@ -18,6 +18,7 @@ package io.grpc.netty;
 
 import static com.google.common.truth.Truth.assertThat;
 import static io.grpc.InternalChannelz.id;
+import static io.grpc.netty.NettyServerBuilder.MAX_EVENT_LOOP_LAG_NANOS_DISABLED;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -150,6 +151,7 @@ public class NettyServerTest {
         1, 1, // ignore
         1, 1, // ignore
         true, 0, // ignore
+        MAX_EVENT_LOOP_LAG_NANOS_DISABLED,
         Attributes.EMPTY,
         channelz);
     final SettableFuture<Void> serverShutdownCalled = SettableFuture.create();
@@ -200,6 +202,7 @@ public class NettyServerTest {
         1, 1, // ignore
         1, 1, // ignore
         true, 0, // ignore
+        MAX_EVENT_LOOP_LAG_NANOS_DISABLED,
         Attributes.EMPTY,
         channelz);
     final SettableFuture<Void> shutdownCompleted = SettableFuture.create();
@@ -273,6 +276,7 @@ public class NettyServerTest {
         1, 1, // ignore
         1, 1, // ignore
         true, 0, // ignore
+        MAX_EVENT_LOOP_LAG_NANOS_DISABLED,
         Attributes.EMPTY,
         channelz);
     final SettableFuture<Void> shutdownCompleted = SettableFuture.create();
@@ -334,6 +338,7 @@ public class NettyServerTest {
         1, 1, // ignore
         1, 1, // ignore
         true, 0, // ignore
+        MAX_EVENT_LOOP_LAG_NANOS_DISABLED,
         Attributes.EMPTY,
         channelz);
 
@@ -408,6 +413,7 @@ public class NettyServerTest {
         1, 1, // ignore
         1, 1, // ignore
         true, 0, // ignore
+        MAX_EVENT_LOOP_LAG_NANOS_DISABLED,
         eagAttributes,
         channelz);
     ns.start(new ServerListener() {
@@ -455,6 +461,7 @@ public class NettyServerTest {
         1, 1, // ignore
         1, 1, // ignore
         true, 0, // ignore
+        MAX_EVENT_LOOP_LAG_NANOS_DISABLED,
         Attributes.EMPTY,
         channelz);
     final SettableFuture<Void> shutdownCompleted = SettableFuture.create();
@@ -597,6 +604,7 @@ public class NettyServerTest {
         1, 1, // ignore
         1, 1, // ignore
         true, 0, // ignore
+        MAX_EVENT_LOOP_LAG_NANOS_DISABLED,
         Attributes.EMPTY,
         channelz);
   }
@@ -30,6 +30,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import io.grpc.Attributes;
 import io.grpc.CallCredentials;
@@ -53,6 +54,7 @@ import io.grpc.StatusRuntimeException;
 import io.grpc.TlsChannelCredentials;
 import io.grpc.TlsServerCredentials;
 import io.grpc.internal.ClientTransportFactory;
+import io.grpc.internal.ConnectionClientTransport;
 import io.grpc.internal.GrpcAttributes;
 import io.grpc.internal.InternalServer;
 import io.grpc.internal.ManagedClientTransport;
@@ -118,6 +120,7 @@ import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -508,6 +511,62 @@ public class ProtocolNegotiatorsTest {
     cert.delete();
   }
 
+  @Test
+  public void from_tls_sessionResumedAcrossChannels() throws Exception {
+    ServerCredentials serverCreds = TlsServerCredentials.create(server1Cert, server1Key);
+    ChannelCredentials channelCreds = TlsChannelCredentials.newBuilder()
+        .trustManager(caCert)
+        .build();
+    MockServerListener serverListener = new MockServerListener();
+    InternalServer server = NettyServerBuilder
+        .forPort(0, serverCreds)
+        .buildTransportServers(Collections.<ServerStreamTracer.Factory>emptyList());
+    server.start(serverListener);
+
+    List<Boolean> resumed = new ArrayList<>();
+    List<Boolean> clientResumed = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      // Each channel has its own transport factory
+      ClientTransportFactory clientFactory = NettyChannelBuilder
+          .forAddress("localhost", 0, channelCreds)
+          .buildTransportFactory();
+      ManagedClientTransport.Listener clientTransportListener =
+          mock(ManagedClientTransport.Listener.class);
+      // Client sessions are cached by host and port
+      ConnectionClientTransport client = clientFactory.newClientTransport(
+          server.getListenSocketAddress(),
+          new ClientTransportFactory.ClientTransportOptions()
+              .setAuthority(TestUtils.TEST_SERVER_HOST + ":443"),
+          mock(ChannelLogger.class));
+      callMeMaybe(client.start(clientTransportListener));
+      verify(clientTransportListener, timeout(TIMEOUT_SECONDS * 1000)).transportReady();
+      InternalChannelz.SocketStats stats = serverListener.transports.poll().getStats().get();
+      resumed.add(stats.security.tls.sessionResumed);
+      clientResumed.add(client.getAttributes().get(GrpcAttributes.ATTR_TLS_SESSION_RESUMED));
+      client.shutdownNow(Status.UNAVAILABLE.withDescription("trash it"));
+      verify(clientTransportListener, timeout(TIMEOUT_SECONDS * 1000)).transportTerminated();
+      clientFactory.close();
+      // JDK session creation times are in milliseconds
+      Thread.sleep(10);
+    }
+    server.shutdown();
+    assertTrue(
+        serverListener.waitForShutdown(TIMEOUT_SECONDS * 1000, TimeUnit.MILLISECONDS));
+
+    assertThat(resumed).containsExactly(false, true).inOrder();
+    assertThat(clientResumed).containsExactly(false, true).inOrder();
+  }
+
+  @Test
+  public void isSessionResumed_jdk() {
+    SSLSession session = mock(SSLSession.class);
+    when(session.getCreationTime()).thenReturn(1000L);
+    SSLEngine engine = mock(SSLEngine.class);
+    when(engine.getSession()).thenReturn(session);
+    assertTrue(ProtocolNegotiators.isSessionResumed(engine, 1001));
+    assertFalse(ProtocolNegotiators.isSessionResumed(engine, 1000));
+  }
+
   @Test
   public void fromServer_unknown() {
     ProtocolNegotiators.FromServerCredentialsResult result =
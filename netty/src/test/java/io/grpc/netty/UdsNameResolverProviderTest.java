@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.netty;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.TruthJUnit.assume;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import io.grpc.ChannelLogger;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolver;
+import io.grpc.NameResolver.ServiceConfigParser;
+import io.grpc.NameResolverRegistry;
+import io.grpc.Server;
+import io.grpc.SynchronizationContext;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.protobuf.SimpleRequest;
+import io.grpc.testing.protobuf.SimpleResponse;
+import io.grpc.testing.protobuf.SimpleServiceGrpc;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+/** Unit tests for {@link UdsNameResolverProvider} and {@link UdsAbstractNameResolverProvider}. */
+@RunWith(JUnit4.class)
+public class UdsNameResolverProviderTest {
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final SynchronizationContext syncContext = new SynchronizationContext(
+      new Thread.UncaughtExceptionHandler() {
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+          throw new AssertionError(e);
+        }
+      });
+  private final NameResolver.Args args = NameResolver.Args.newBuilder()
+      .setDefaultPort(8080)
+      .setProxyDetector(GrpcUtil.DEFAULT_PROXY_DETECTOR)
+      .setSynchronizationContext(syncContext)
+      .setServiceConfigParser(mock(ServiceConfigParser.class))
+      .setChannelLogger(mock(ChannelLogger.class))
+      .build();
+
+  private final UdsNameResolverProvider provider = new UdsNameResolverProvider();
+  private final UdsAbstractNameResolverProvider abstractProvider =
+      new UdsAbstractNameResolverProvider();
+
+  @Test
+  public void registeredWithDefaultRegistry() {
+    NameResolver.Factory factory = NameResolverRegistry.getDefaultRegistry().asFactory();
+    assertThat(factory.newNameResolver(URI.create("unix:///tmp/a.sock"), args))
+        .isInstanceOf(UdsNameResolver.class);
+    assertThat(factory.newNameResolver(URI.create("unix-abstract:a"), args))
+        .isInstanceOf(UdsNameResolver.class);
+    // DNS stays the default scheme.
+    assertThat(factory.getDefaultScheme()).isEqualTo("dns");
+  }
+
+  @Test
+  public void newNameResolver_otherScheme() {
+    assertNull(provider.newNameResolver(URI.create("dns:///localhost:443"), args));
+    assertNull(abstractProvider.newNameResolver(URI.create("unix:///tmp/a.sock"), args));
+  }
+
+  @Test
+  public void newNameResolver_pathForms() {
+    assertThat(resolve(provider, "unix:///tmp/a.sock").path()).isEqualTo("/tmp/a.sock");
+    assertThat(resolve(provider, "unix:/tmp/a.sock").path()).isEqualTo("/tmp/a.sock");
+    assertThat(resolve(provider, "unix:a.sock").path()).isEqualTo("a.sock");
+  }
+
+  @Test
+  public void newNameResolver_abstract() {
+    assertThat(resolve(abstractProvider, "unix-abstract:agent").path()).isEqualTo("\0agent");
+  }
+
+  @Test
+  public void newNameResolver_rejectsAuthority() {
+    try {
+      provider.newNameResolver(URI.create("unix://host/tmp/a.sock"), args);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected).hasMessageThat().contains("authority");
+    }
+  }
+
+  @Test
+  public void serviceAuthorityIsLocalhost() {
+    NameResolver resolver = provider.newNameResolver(URI.create("unix:///tmp/a.sock"), args);
+    assertThat(resolver.getServiceAuthority()).isEqualTo("localhost");
+  }
+
+  @Test
+  public void unixTarget_defaultChannelTypes() throws Exception {
+    assume().that(Utils.isEpollAvailable()).isTrue();
+
+    File socketFile = new File(tempFolder.getRoot(), "test.sock");
+    // TCP and domain socket listeners on one server, with the default channel types.
+    Server server = NettyServerBuilder
+        .forAddress(new DomainSocketAddress(socketFile), InsecureServerCredentials.create())
+        .addListenAddress(new InetSocketAddress("localhost", 0))
+        .addService(new SimpleServiceImpl())
+        .build()
+        .start();
+    ManagedChannel channel = NettyChannelBuilder
+        .forTarget("unix://" + socketFile.getAbsolutePath(), InsecureChannelCredentials.create())
+        .build();
+    try {
+      SimpleResponse response = SimpleServiceGrpc.newBlockingStub(channel)
+          .unaryRpc(SimpleRequest.newBuilder().setRequestMessage("hello").build());
+      assertThat(response.getResponseMessage()).isEqualTo("hello");
+      assertThat(channel.authority()).isEqualTo("localhost");
+    } finally {
+      channel.shutdownNow();
+      server.shutdownNow();
+      channel.awaitTermination(5, TimeUnit.SECONDS);
+      server.awaitTermination(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private DomainSocketAddress resolve(NameResolver.Factory factory, String target) {
+    NameResolver resolver = factory.newNameResolver(URI.create(target), args);
+    NameResolver.Listener2 listener = mock(NameResolver.Listener2.class);
+    resolver.start(listener);
+    ArgumentCaptor<NameResolver.ResolutionResult> result =
+        ArgumentCaptor.forClass(NameResolver.ResolutionResult.class);
+    verify(listener).onResult(result.capture());
+    resolver.shutdown();
+    EquivalentAddressGroup eag = result.getValue().getAddresses().get(0);
+    return (DomainSocketAddress) eag.getAddresses().get(0);
+  }
+
+  private static class SimpleServiceImpl extends SimpleServiceGrpc.SimpleServiceImplBase {
+    @Override
+    public void unaryRpc(SimpleRequest req, StreamObserver<SimpleResponse> respOb) {
+      respOb.onNext(
+          SimpleResponse.newBuilder().setResponseMessage(req.getRequestMessage()).build());
+      respOb.onCompleted();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.okhttp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the bandwidth-delay product of a connection with PINGs, to size the inbound flow
+ * control window. Uses the same algorithm as the Netty transport: a PING is sent when DATA
+ * arrives, and when it is acknowledged the window is grown to twice the bytes received in the
+ * meantime, as long as the measured bandwidth is still increasing.
+ *
+ * <p>Not thread-safe. The transport only uses it from the frame reader thread.
+ */
+final class FlowControlPinger {
+
+  static final long PING_PAYLOAD = 1234;
+  static final int MAX_WINDOW_SIZE = 8 * 1024 * 1024;
+  // "3 strikes" may cause the server to complain, so we limit ourselves to 2 or below.
+  private static final int MAX_PINGS_WITHOUT_WINDOW_UPDATE = 2;
+
+  private final Stopwatch stopwatch;
+  private boolean pinging;
+  private int pingsWithoutWindowUpdate;
+  private long dataSincePing;
+  private long lastBandwidth; // bytes per second
+
+  FlowControlPinger(Stopwatch stopwatch) {
+    this.stopwatch = Preconditions.checkNotNull(stopwatch, "stopwatch");
+  }
+
+  /**
+   * Records received DATA. Returns {@code true} if a PING with {@link #PING_PAYLOAD} should be sent
+   * now.
+   */
+  boolean onDataRead(int length) {
+    boolean sendPing = false;
+    if (!pinging && pingsWithoutWindowUpdate < MAX_PINGS_WITHOUT_WINDOW_UPDATE) {
+      pinging = true;
+      pingsWithoutWindowUpdate++;
+      dataSincePing = 0;
+      stopwatch.reset().start();
+      sendPing = true;
+    }
+    dataSincePing += length;
+    return sendPing;
+  }
+
+  /** Records that a WINDOW_UPDATE was sent, which resets the peer's ping strike count. */
+  void onWindowUpdateSent() {
+    pingsWithoutWindowUpdate = 0;
+  }
+
+  /** Returns {@code true} if a PING ack with {@code payload} is the answer to our PING. */
+  boolean isPingAck(long payload) {
+    return pinging && payload == PING_PAYLOAD;
+  }
+
+  /**
+   * Handles the ack of our PING. Returns the new initial window size, or {@code 0} if {@code
+   * currentWindow} should be kept.
+   */
+  int onPingAck(int currentWindow) {
+    pinging = false;
+    long elapsedNanos = Math.max(stopwatch.elapsed(TimeUnit.NANOSECONDS), 1);
+    long bandwidth = dataSincePing * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    // Calculate new window size by doubling the observed BDP, but cap at max window
+    int targetWindow = (int) Math.min(dataSincePing * 2, MAX_WINDOW_SIZE);
+    if (targetWindow > currentWindow && bandwidth > lastBandwidth) {
+      lastBandwidth = bandwidth;
+      return targetWindow;
+    }
+    return 0;
+  }
+}
@@ -180,6 +180,7 @@ public final class OkHttpChannelBuilder extends
   private long keepAliveTimeNanos = KEEPALIVE_TIME_NANOS_DISABLED;
   private long keepAliveTimeoutNanos = DEFAULT_KEEPALIVE_TIMEOUT_NANOS;
   private int flowControlWindow = DEFAULT_FLOW_CONTROL_WINDOW;
+  private boolean autoFlowControl;
   private boolean keepAliveWithoutCalls;
   private int maxInboundMetadataSize = Integer.MAX_VALUE;
 
@@ -323,12 +324,28 @@ public final class OkHttpChannelBuilder extends
   }
 
   /**
-   * Sets the flow control window in bytes. If not called, the default value
-   * is {@link #DEFAULT_FLOW_CONTROL_WINDOW}).
+   * Sets the flow control window in bytes. Setting flowControlWindow disables auto flow control
+   * tuning; use {@link #initialFlowControlWindow(int)} to enable it. If not called, the default
+   * value is {@link #DEFAULT_FLOW_CONTROL_WINDOW}) without auto flow control tuning.
    */
   public OkHttpChannelBuilder flowControlWindow(int flowControlWindow) {
     Preconditions.checkState(flowControlWindow > 0, "flowControlWindow must be positive");
     this.flowControlWindow = flowControlWindow;
+    this.autoFlowControl = false;
+    return this;
+  }
+
+  /**
+   * Sets the initial flow control window in bytes. Setting initial flow control window enables auto
+   * flow control tuning using bandwidth-delay product algorithm, which grows the window up to 8 MiB
+   * on connections with high bandwidth or latency. To disable auto flow control tuning, use {@link
+   * #flowControlWindow(int)}.
+   */
+  public OkHttpChannelBuilder initialFlowControlWindow(int initialFlowControlWindow) {
+    Preconditions.checkArgument(
+        initialFlowControlWindow > 0, "initialFlowControlWindow must be positive");
+    this.flowControlWindow = initialFlowControlWindow;
+    this.autoFlowControl = true;
     return this;
   }
 
@@ -519,6 +536,7 @@ public final class OkHttpChannelBuilder extends
         keepAliveTimeNanos,
         keepAliveTimeoutNanos,
         flowControlWindow,
+        autoFlowControl,
         keepAliveWithoutCalls,
         maxInboundMetadataSize,
         transportTracerFactory,
@@ -727,6 +745,7 @@ public final class OkHttpChannelBuilder extends
     private final AtomicBackoff keepAliveBackoff;
     private final long keepAliveTimeoutNanos;
     private final int flowControlWindow;
+    private final boolean autoFlowControl;
     private final boolean keepAliveWithoutCalls;
     private final int maxInboundMetadataSize;
     private final ScheduledExecutorService timeoutService;
@@ -745,6 +764,7 @@ public final class OkHttpChannelBuilder extends
         long keepAliveTimeNanos,
         long keepAliveTimeoutNanos,
         int flowControlWindow,
+        boolean autoFlowControl,
         boolean keepAliveWithoutCalls,
         int maxInboundMetadataSize,
         TransportTracer.Factory transportTracerFactory,
@@ -762,6 +782,7 @@ public final class OkHttpChannelBuilder extends
       this.keepAliveBackoff = new AtomicBackoff("keepalive time nanos", keepAliveTimeNanos);
       this.keepAliveTimeoutNanos = keepAliveTimeoutNanos;
       this.flowControlWindow = flowControlWindow;
+      this.autoFlowControl = autoFlowControl;
       this.keepAliveWithoutCalls = keepAliveWithoutCalls;
       this.maxInboundMetadataSize = maxInboundMetadataSize;
       this.useGetForSafeMethods = useGetForSafeMethods;
@@ -813,6 +834,9 @@ public final class OkHttpChannelBuilder extends
         transport.enableKeepAlive(
             true, keepAliveTimeNanosState.get(), keepAliveTimeoutNanos, keepAliveWithoutCalls);
       }
+      if (autoFlowControl) {
+        transport.enableAutoFlowControl();
+      }
       return transport;
     }
 
@@ -841,6 +865,7 @@ public final class OkHttpChannelBuilder extends
           keepAliveTimeNanos,
           keepAliveTimeoutNanos,
           flowControlWindow,
+          autoFlowControl,
           keepAliveWithoutCalls,
           maxInboundMetadataSize,
           transportTracerFactory,
@@ -199,7 +199,8 @@ class OkHttpClientStream extends AbstractClientStream {
   }
 
   class TransportState extends Http2ClientStreamTransportState {
-    private final int initialWindowSize;
+    @GuardedBy("lock")
+    private int initialWindowSize;
     private final Object lock;
     @GuardedBy("lock")
     private List<Header> requestHeaders;
@@ -297,6 +298,26 @@ class OkHttpClientStream extends AbstractClientStream {
       }
     }
 
+    /**
+     * Applies a change to the initial window size advertised by the transport, which the peer
+     * also applies to this stream's window.
+     */
+    @GuardedBy("lock")
+    void initialWindowSizeChanged(int delta) {
+      initialWindowSize += delta;
+      window += delta;
+      processedWindow += delta;
+    }
+
+    /**
+     * Catches up with the initial window size the transport advertises when the stream starts, as
+     * it may have changed since the stream was created.
+     */
+    @GuardedBy("lock")
+    void setInitialWindowSize(int initialWindowSize) {
+      initialWindowSizeChanged(initialWindowSize - this.initialWindowSize);
+    }
+
     @Override
     @GuardedBy("lock")
     public void deframerClosed(boolean hasPartialMessage) {
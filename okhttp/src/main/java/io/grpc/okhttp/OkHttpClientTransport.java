@@ -147,7 +147,9 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
   private final Random random = new Random();
   // Returns new unstarted stopwatches
   private final Supplier<Stopwatch> stopwatchFactory;
-  private final int initialWindowSize;
+  // Only changed by the frame reader thread, while holding the lock.
+  @GuardedBy("lock")
+  private int initialWindowSize;
   private Listener listener;
   private FrameReader testFrameReader;
   private OkHttpFrameLogger testFrameLogger;
@@ -165,6 +167,9 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
   private final SerializingExecutor serializingExecutor;
   private final int maxMessageSize;
   private int connectionUnacknowledgedBytesRead;
+  // Null unless auto flow control is enabled. Only used by the frame reader thread.
+  @Nullable
+  private FlowControlPinger flowControlPinger;
   private ClientFrameHandler clientFrameHandler;
   // Caution: Not synchronized, new value can only be safely read after the connection is complete.
   private Attributes attributes;
@@ -186,8 +191,8 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
   private SSLSocketFactory sslSocketFactory;
   private HostnameVerifier hostnameVerifier;
   private Socket socket;
-  @GuardedBy("lock")
-  private int maxConcurrentStreams = 0;
+  /** Only changed with the lock held, and volatile for getMaxConcurrentStreams. */
+  private volatile int maxConcurrentStreams = 0;
   @SuppressWarnings("JdkObsolete") // Usage is bursty; want low memory usage when empty
   @GuardedBy("lock")
   private final Deque<OkHttpClientStream> pendingStreams = new LinkedList<>();
@@ -349,6 +354,14 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
     this.keepAliveWithoutCalls = keepAliveWithoutCalls;
   }
 
+  /**
+   * Enables automatic tuning of the inbound flow control window from bandwidth-delay product
+   * estimates. Must be called before {@link #start}.
+   */
+  void enableAutoFlowControl() {
+    flowControlPinger = new FlowControlPinger(stopwatchFactory.get());
+  }
+
   private boolean isForTest() {
     return address == null;
   }
@@ -415,8 +428,12 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
     }
   }
 
+  @SuppressWarnings("GuardedBy")
   @GuardedBy("lock")
   void streamReadyToStart(OkHttpClientStream clientStream) {
+    // TODO(b/145386688): This access should be guarded by 'clientStream.transportState().lock';
+    // instead found: 'this.lock'
+    clientStream.transportState().setInitialWindowSize(initialWindowSize);
     if (goAwayStatus != null) {
       clientStream.transportState().transportReportStatus(
           goAwayStatus, RpcProgress.MISCARRIED, true, new Metadata());
@@ -628,6 +645,30 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
     return null;
   }
 
+  /**
+   * Grows the inbound flow control window of the connection and of every stream to {@code
+   * newWindowSize}, and advertises it as the initial window of new streams.
+   */
+  @SuppressWarnings("GuardedBy")
+  @GuardedBy("lock")
+  private void updateInitialWindowSize(int newWindowSize) {
+    int delta = newWindowSize - initialWindowSize;
+    initialWindowSize = newWindowSize;
+    Settings settings = new Settings();
+    OkHttpSettingsUtil.set(settings, OkHttpSettingsUtil.INITIAL_WINDOW_SIZE, newWindowSize);
+    frameWriter.settings(settings);
+    frameWriter.windowUpdate(Utils.CONNECTION_STREAM_ID, delta);
+    // The peer applies the new initial window to open streams too.
+    // TODO(b/145386688): These accesses should be guarded by 'stream.transportState().lock';
+    // instead found: 'this.lock'
+    for (OkHttpClientStream stream : streams.values()) {
+      stream.transportState().initialWindowSizeChanged(delta);
+    }
+    for (OkHttpClientStream stream : pendingStreams) {
+      stream.transportState().initialWindowSizeChanged(delta);
+    }
+  }
+
   /**
    * Should only be called once when the transport is first established.
    */
@@ -828,6 +869,11 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
     return attributes;
   }
 
+  @Override
+  public int getMaxConcurrentStreams() {
+    return maxConcurrentStreams;
+  }
+
   /**
    * Gets all active streams as an array.
    */
@@ -1171,13 +1217,24 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
         }
       }
 
+      if (flowControlPinger != null && flowControlPinger.onDataRead(length)) {
+        synchronized (lock) {
+          frameWriter.ping(false, (int) (FlowControlPinger.PING_PAYLOAD >>> 32),
+              (int) FlowControlPinger.PING_PAYLOAD);
+        }
+      }
+
       // connection window update
       connectionUnacknowledgedBytesRead += length;
+      // Reading initialWindowSize without the lock is safe: only this reader thread changes it
       if (connectionUnacknowledgedBytesRead >= initialWindowSize * DEFAULT_WINDOW_UPDATE_RATIO) {
         synchronized (lock) {
           frameWriter.windowUpdate(0, connectionUnacknowledgedBytesRead);
         }
         connectionUnacknowledgedBytesRead = 0;
+        if (flowControlPinger != null) {
+          flowControlPinger.onWindowUpdateSent();
+        }
       }
     }
 
@@ -1307,6 +1364,13 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
         synchronized (lock) {
           frameWriter.ping(true, payload1, payload2);
         }
+      } else if (flowControlPinger != null && flowControlPinger.isPingAck(ackPayload)) {
+        synchronized (lock) {
+          int newWindowSize = flowControlPinger.onPingAck(initialWindowSize);
+          if (newWindowSize != 0) {
+            updateInitialWindowSize(newWindowSize);
+          }
+        }
       } else {
         Http2Ping p = null;
         synchronized (lock) {
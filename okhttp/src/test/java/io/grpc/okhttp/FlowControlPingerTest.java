@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.okhttp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Stopwatch;
+import io.grpc.internal.FakeClock;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link FlowControlPinger}. */
+@RunWith(JUnit4.class)
+public class FlowControlPingerTest {
+  private final FakeClock clock = new FakeClock();
+  private final FlowControlPinger pinger =
+      new FlowControlPinger(Stopwatch.createUnstarted(clock.getTicker()));
+
+  @Test
+  public void pingsOnceUntilAcked() {
+    assertTrue(pinger.onDataRead(100));
+    assertFalse(pinger.onDataRead(100));
+    assertTrue(pinger.isPingAck(FlowControlPinger.PING_PAYLOAD));
+    assertFalse(pinger.isPingAck(FlowControlPinger.PING_PAYLOAD + 1));
+
+    pinger.onPingAck(65535);
+    assertFalse(pinger.isPingAck(FlowControlPinger.PING_PAYLOAD));
+    assertTrue(pinger.onDataRead(100));
+  }
+
+  @Test
+  public void growsWindowToTwiceBdp() {
+    pinger.onDataRead(40000);
+    pinger.onDataRead(20000);
+    clock.forwardTime(10, TimeUnit.MILLISECONDS);
+    assertEquals(120000, pinger.onPingAck(65535));
+  }
+
+  @Test
+  public void keepsWindowWhenBdpIsSmall() {
+    pinger.onDataRead(1000);
+    clock.forwardTime(10, TimeUnit.MILLISECONDS);
+    assertEquals(0, pinger.onPingAck(65535));
+  }
+
+  @Test
+  public void keepsWindowWhenBandwidthStopsGrowing() {
+    pinger.onDataRead(100000);
+    clock.forwardTime(10, TimeUnit.MILLISECONDS);
+    assertEquals(200000, pinger.onPingAck(65535));
+
+    // Same amount of data over twice the time: lower bandwidth, so no growth.
+    pinger.onDataRead(150000);
+    clock.forwardTime(20, TimeUnit.MILLISECONDS);
+    assertEquals(0, pinger.onPingAck(200000));
+  }
+
+  @Test
+  public void capsWindow() {
+    pinger.onDataRead(100 * 1024 * 1024);
+    clock.forwardTime(10, TimeUnit.MILLISECONDS);
+    assertEquals(FlowControlPinger.MAX_WINDOW_SIZE, pinger.onPingAck(65535));
+  }
+
+  @Test
+  public void limitsPingsWithoutWindowUpdate() {
+    assertTrue(pinger.onDataRead(100));
+    pinger.onPingAck(65535);
+    assertTrue(pinger.onDataRead(100));
+    pinger.onPingAck(65535);
+    assertFalse(pinger.onDataRead(100));
+
+    pinger.onWindowUpdateSent();
+    assertTrue(pinger.onDataRead(100));
+  }
+}
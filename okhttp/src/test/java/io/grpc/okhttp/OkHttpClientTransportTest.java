@@ -171,6 +171,7 @@ public class OkHttpClientTransportTest {
   private Socket socket;
   private ExecutorService executor = Executors.newCachedThreadPool();
   private long nanoTime; // backs a ticker, for testing ping round-trip time measurement
+  private boolean autoFlowControl;
   private SettableFuture<Void> connectedFuture;
   private DelayConnectedCallback delayConnectedCallback;
   private Runnable tooManyPingsRunnable = new Runnable() {
@@ -245,6 +246,9 @@ public class OkHttpClientTransportTest {
         initialWindowSize,
         tooManyPingsRunnable,
         new TransportTracer());
+    if (autoFlowControl) {
+      clientTransport.enableAutoFlowControl();
+    }
     clientTransport.start(transportListener);
     if (waitingForConnected) {
       connectedFuture.get(TIME_OUT_MS, TimeUnit.MILLISECONDS);
@@ -871,6 +875,105 @@ public class OkHttpClientTransportTest {
     shutdownAndVerify();
   }
 
+  @Test
+  public void autoFlowControl_growsInboundWindowOnPingAck() throws Exception {
+    autoFlowControl = true;
+    initTransport();
+    MockStreamListener listener = new MockStreamListener();
+    OkHttpClientStream stream =
+        clientTransport.newStream(method, new Metadata(), CallOptions.DEFAULT, tracers);
+    stream.start(listener);
+    frameHandler().headers(false, false, 3, 0, grpcResponseHeaders(), HeadersMode.HTTP_20_HEADERS);
+
+    // The first DATA frame starts a measurement.
+    Buffer buffer = createMessageFrame(new byte[1000]);
+    int dataRead = (int) buffer.size();
+    frameHandler().data(false, 3, buffer, (int) buffer.size());
+    verify(frameWriter, timeout(TIME_OUT_MS))
+        .ping(false, 0, (int) FlowControlPinger.PING_PAYLOAD);
+
+    // Nearly the whole stream window arrives before the ack.
+    buffer = createMessageFrame(new byte[INITIAL_WINDOW_SIZE - dataRead - 100]);
+    dataRead += (int) buffer.size();
+    frameHandler().data(false, 3, buffer, (int) buffer.size());
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(10);
+    frameHandler().ping(true, 0, (int) FlowControlPinger.PING_PAYLOAD);
+
+    int newWindow = 2 * dataRead;
+    ArgumentCaptor<Settings> settings = ArgumentCaptor.forClass(Settings.class);
+    verify(frameWriter, timeout(TIME_OUT_MS)).settings(settings.capture());
+    assertEquals(newWindow, settings.getValue().get(7));
+    verify(frameWriter, timeout(TIME_OUT_MS)).windowUpdate(0, newWindow - INITIAL_WINDOW_SIZE);
+
+    // The stream may now receive more than the original window.
+    buffer = createMessageFrame(new byte[INITIAL_WINDOW_SIZE / 2]);
+    frameHandler().data(false, 3, buffer, (int) buffer.size());
+    verify(frameWriter, never()).rstStream(eq(3), eq(ErrorCode.FLOW_CONTROL_ERROR));
+
+    getStream(3).cancel(Status.CANCELLED);
+    listener.waitUntilStreamClosed();
+    shutdownAndVerify();
+  }
+
+  @Test
+  public void autoFlowControl_streamStartedAfterWindowGrowsUsesNewWindow() throws Exception {
+    autoFlowControl = true;
+    initTransport();
+    MockStreamListener listener = new MockStreamListener();
+    OkHttpClientStream stream =
+        clientTransport.newStream(method, new Metadata(), CallOptions.DEFAULT, tracers);
+    stream.start(listener);
+    // Created with the original window, but not started until it has grown.
+    MockStreamListener listener2 = new MockStreamListener();
+    OkHttpClientStream stream2 =
+        clientTransport.newStream(method, new Metadata(), CallOptions.DEFAULT, tracers);
+    frameHandler().headers(false, false, 3, 0, grpcResponseHeaders(), HeadersMode.HTTP_20_HEADERS);
+
+    Buffer buffer = createMessageFrame(new byte[1000]);
+    int dataRead = (int) buffer.size();
+    frameHandler().data(false, 3, buffer, (int) buffer.size());
+    verify(frameWriter, timeout(TIME_OUT_MS))
+        .ping(false, 0, (int) FlowControlPinger.PING_PAYLOAD);
+    buffer = createMessageFrame(new byte[INITIAL_WINDOW_SIZE - dataRead - 100]);
+    dataRead += (int) buffer.size();
+    frameHandler().data(false, 3, buffer, (int) buffer.size());
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(10);
+    frameHandler().ping(true, 0, (int) FlowControlPinger.PING_PAYLOAD);
+    verify(frameWriter, timeout(TIME_OUT_MS))
+        .windowUpdate(0, 2 * dataRead - INITIAL_WINDOW_SIZE);
+
+    stream2.start(listener2);
+    frameHandler().headers(false, false, 5, 0, grpcResponseHeaders(), HeadersMode.HTTP_20_HEADERS);
+    // More than the original window, which the peer may now send on the new stream.
+    buffer = createMessageFrame(new byte[INITIAL_WINDOW_SIZE + 1000]);
+    frameHandler().data(false, 5, buffer, (int) buffer.size());
+    verify(frameWriter, never()).rstStream(eq(5), eq(ErrorCode.FLOW_CONTROL_ERROR));
+
+    getStream(3).cancel(Status.CANCELLED);
+    getStream(5).cancel(Status.CANCELLED);
+    listener.waitUntilStreamClosed();
+    listener2.waitUntilStreamClosed();
+    assertEquals(Status.CANCELLED.getCode(), listener2.status.getCode());
+    shutdownAndVerify();
+  }
+
+  @Test
+  public void autoFlowControl_disabledByDefault() throws Exception {
+    initTransport();
+    MockStreamListener listener = new MockStreamListener();
+    OkHttpClientStream stream =
+        clientTransport.newStream(method, new Metadata(), CallOptions.DEFAULT, tracers);
+    stream.start(listener);
+    frameHandler().headers(false, false, 3, 0, grpcResponseHeaders(), HeadersMode.HTTP_20_HEADERS);
+    Buffer buffer = createMessageFrame(new byte[1000]);
+    frameHandler().data(false, 3, buffer, (int) buffer.size());
+
+    getStream(3).cancel(Status.CANCELLED);
+    listener.waitUntilStreamClosed();
+    verify(frameWriter, never()).ping(anyBoolean(), anyInt(), anyInt());
+    shutdownAndVerify();
+  }
+
   /**
    * Outbound flow control where the initial flow control window stays at the default size of 65535.
    */
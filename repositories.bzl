@@ -35,7 +35,9 @@ IO_GRPC_GRPC_JAVA_ARTIFACTS = [
     "io.netty:netty-handler:4.1.72.Final",
     "io.netty:netty-resolver:4.1.72.Final",
     "io.netty:netty-tcnative-boringssl-static:2.0.46.Final",
+    "io.netty:netty-tcnative-classes:2.0.46.Final",
     "io.netty:netty-transport-native-epoll:jar:linux-x86_64:4.1.72.Final",
+    "io.netty:netty-transport-native-unix-common:4.1.72.Final",
     "io.netty:netty-transport:4.1.72.Final",
     "io.opencensus:opencensus-api:0.24.0",
     "io.opencensus:opencensus-contrib-grpc-metrics:0.24.0",
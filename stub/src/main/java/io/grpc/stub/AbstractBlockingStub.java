@@ -16,8 +16,11 @@
 
 package io.grpc.stub;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import io.grpc.CallOptions;
 import io.grpc.Channel;
+import io.grpc.ExperimentalApi;
 import io.grpc.stub.ClientCalls.StubType;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.concurrent.ThreadSafe;
@@ -39,6 +42,19 @@ public abstract class AbstractBlockingStub<S extends AbstractBlockingStub<S>>
     super(channel, callOptions);
   }
 
+  /**
+   * Returns a new stub whose server-streaming iterators request {@code messages} responses when
+   * the call starts, instead of one. Each call to {@code next()} then requests one more, so at
+   * most {@code messages + 1} responses are buffered by the iterator. A larger prefetch lets the
+   * server keep sending while the caller is blocked processing a response, which helps when there
+   * are many concurrent blocking callers.
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/1869")
+  public final S withPrefetch(int messages) {
+    checkArgument(messages > 0, "messages must be positive");
+    return withOption(ClientCalls.PREFETCH_OPTION, messages);
+  }
+
   /**
    * Returns a new blocking stub with the given channel for the provided method configurations.
    *
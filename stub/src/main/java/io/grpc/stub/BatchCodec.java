@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.stub;
+
+import io.grpc.ExperimentalApi;
+import java.util.List;
+
+/**
+ * Converts between the messages of a unary method and those of the method that carries them in
+ * batches, for use with {@link UnaryCallBatcher} on the client and {@link
+ * ServerCalls#asyncBatchCall} on the server.
+ *
+ * <p>A batch response must contain one response for each request of the batch, in the same order.
+ *
+ * @param <ReqT> type of the requests of the unary method
+ * @param <RespT> type of the responses of the unary method
+ * @param <BatchReqT> type of the requests of the batch method
+ * @param <BatchRespT> type of the responses of the batch method
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/4694")
+public interface BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> {
+  /** Combines requests into a batch request. */
+  BatchReqT toBatchRequest(List<ReqT> requests);
+
+  /** Returns the requests of a batch request. */
+  List<ReqT> fromBatchRequest(BatchReqT batchRequest);
+
+  /** Combines responses into a batch response. */
+  BatchRespT toBatchResponse(List<RespT> responses);
+
+  /** Returns the responses of a batch response. */
+  List<RespT> fromBatchResponse(BatchRespT batchResponse);
+}
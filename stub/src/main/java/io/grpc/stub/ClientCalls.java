@@ -16,6 +16,7 @@
 
 package io.grpc.stub;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -31,8 +32,10 @@ import io.grpc.MethodDescriptor;
 import io.grpc.Status;
 import io.grpc.StatusException;
 import io.grpc.StatusRuntimeException;
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -172,7 +175,9 @@ public final class ClientCalls {
    * response stream.  The {@code call} should not be already started.  After calling this method,
    * {@code call} should no longer be used.
    *
-   * <p>The returned iterator may throw {@link StatusRuntimeException} on error.
+   * <p>The returned iterator may throw {@link StatusRuntimeException} on error. It requests one
+   * response when the call starts, as the prefetch set with {@link
+   * AbstractBlockingStub#withPrefetch} is not known from the {@code call}.
    *
    * @return an iterator over the response stream.
    */
@@ -189,7 +194,9 @@ public final class ClientCalls {
    * response stream.  The {@code call} should not be already started.  After calling this method,
    * {@code call} should no longer be used.
    *
-   * <p>The returned iterator may throw {@link StatusRuntimeException} on error.
+   * <p>The returned iterator may throw {@link StatusRuntimeException} on error. It requests one
+   * response when the call starts, or the number set with {@link
+   * AbstractBlockingStub#withPrefetch}.
    *
    * @return an iterator over the response stream.
    */
@@ -200,7 +207,8 @@ public final class ClientCalls {
     ClientCall<ReqT, RespT> call = channel.newCall(method,
         callOptions.withOption(ClientCalls.STUB_TYPE_OPTION, StubType.BLOCKING)
             .withExecutor(executor));
-    BlockingResponseStream<RespT> result = new BlockingResponseStream<>(call, executor);
+    BlockingResponseStream<RespT> result = new BlockingResponseStream<>(
+        call, executor, callOptions.getOption(PREFETCH_OPTION));
     asyncUnaryRequestCall(call, req, result.listener());
     return result;
   }
@@ -577,25 +585,35 @@ public final class ClientCalls {
    */
   // TODO(ejona86): determine how to allow ClientCall.cancel() in case of application error.
   private static final class BlockingResponseStream<T> implements Iterator<T> {
-    // Due to flow control, only needs to hold up to 3 items: 2 for value, 1 for close.
-    // (2 for value, not 1, because of early request() in next())
-    private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(3);
+    private final Queue<Object> buffer;
     private final StartableListener<T> listener = new QueuingListener();
     private final ClientCall<?, T> call;
     /** May be null. */
     private final ThreadlessExecutor threadless;
+    private final int prefetch;
     // Only accessed when iterating.
     private Object last;
 
     // Non private to avoid synthetic class
     BlockingResponseStream(ClientCall<?, T> call) {
-      this(call, null);
+      this(call, null, 1);
     }
 
     // Non private to avoid synthetic class
-    BlockingResponseStream(ClientCall<?, T> call, ThreadlessExecutor threadless) {
+    BlockingResponseStream(ClientCall<?, T> call, ThreadlessExecutor threadless, int prefetch) {
+      checkArgument(prefetch > 0, "prefetch must be positive");
       this.call = call;
       this.threadless = threadless;
+      this.prefetch = prefetch;
+      // Due to flow control, only needs to hold prefetch + 2 items: prefetch + 1 for values, 1 for
+      // close. (prefetch + 1 for values, not prefetch, because of early request() in next())
+      if (threadless == null) {
+        this.buffer = new ArrayBlockingQueue<>(prefetch + 2);
+      } else {
+        // The listener is only called from waitAndDrain(), on the iterating thread, so the buffer
+        // needs no locking and the caller only parks in the ThreadlessExecutor.
+        this.buffer = new ArrayDeque<>(prefetch + 2);
+      }
     }
 
     StartableListener<T> listener() {
@@ -608,7 +626,7 @@ public final class ClientCalls {
         if (threadless == null) {
           while (true) {
             try {
-              return buffer.take();
+              return ((BlockingQueue<Object>) buffer).take();
             } catch (InterruptedException ie) {
               interrupt = true;
               call.cancel("Thread interrupted", ie);
@@ -702,7 +720,7 @@ public final class ClientCalls {
 
       @Override
       void onStart() {
-        call.request(1);
+        call.request(prefetch);
       }
     }
   }
@@ -766,4 +784,11 @@ public final class ClientCalls {
    */
   static final CallOptions.Key<StubType> STUB_TYPE_OPTION =
       CallOptions.Key.create("internal-stub-type");
+
+  /**
+   * Internal {@link CallOptions.Key} for the number of messages a blocking server-streaming
+   * iterator requests before the first call to {@code next()}.
+   */
+  static final CallOptions.Key<Integer> PREFETCH_OPTION =
+      CallOptions.Key.createWithDefault("internal-blocking-prefetch", 1);
 }
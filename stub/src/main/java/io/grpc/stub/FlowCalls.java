@@ -0,0 +1,727 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.stub;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.ClientCall;
+import io.grpc.ExperimentalApi;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Utility functions for streaming calls with demand-driven publishers and subscribers, following
+ * the Reactive Streams protocol, so that a slow consumer pushes back on the producer on the other
+ * side of the call instead of letting messages pile up in memory.
+ *
+ * <p>The demand a subscriber signals with {@link Subscription#request} is passed to {@link
+ * ClientCall#request} or {@link ServerCall#request}, so the remote peer is flow-controlled.
+ * Publishers of outgoing messages are only asked for one message at a time, when the call is
+ * {@link ClientCall#isReady ready} to send it.
+ *
+ * <p>{@link Publisher}, {@link Subscriber} and {@link Subscription} have the same methods as their
+ * counterparts in {@code java.util.concurrent.Flow} and {@code org.reactivestreams}, which are not
+ * available on all supported platforms, so adapting them is a matter of delegating each method.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/4694")
+public final class FlowCalls {
+
+  private FlowCalls() {
+  }
+
+  /** A producer of items for a {@link Subscriber}, as {@code java.util.concurrent.Flow}. */
+  public interface Publisher<T> {
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  /** A consumer of items from a {@link Publisher}, as {@code java.util.concurrent.Flow}. */
+  public interface Subscriber<T> {
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  /** The link between a {@link Publisher} and a {@link Subscriber}. */
+  public interface Subscription {
+    void request(long n);
+
+    void cancel();
+  }
+
+  /**
+   * Adaptor to a server streaming method returning a {@link Publisher} of the responses.
+   */
+  public interface ServerStreamingMethod<ReqT, RespT> {
+    Publisher<? extends RespT> invoke(ReqT request);
+  }
+
+  /**
+   * Adaptor to a client or bidi streaming method receiving a {@link Publisher} of the requests, and
+   * returning a {@link Publisher} of the responses. The requests can only be subscribed to once.
+   */
+  public interface StreamingMethod<ReqT, RespT> {
+    Publisher<? extends RespT> invoke(Publisher<ReqT> requests);
+  }
+
+  /**
+   * Executes a server-streaming call, delivering the responses to {@code responseSubscriber}. The
+   * call is started after {@link Subscriber#onSubscribe} returns, and is cancelled by cancelling
+   * the subscription.
+   */
+  public static <ReqT, RespT> void serverStreamingCall(
+      ClientCall<ReqT, RespT> call, ReqT request, Subscriber<? super RespT> responseSubscriber) {
+    checkNotNull(request, "request");
+    ClientCallFlow<ReqT, RespT> flow = new ClientCallFlow<>(call, responseSubscriber);
+    if (flow.start()) {
+      flow.sendSingleRequest(request);
+    }
+  }
+
+  /**
+   * Executes a client-streaming call, sending the items of {@code requests} as they are requested
+   * by the call and delivering the response to {@code responseSubscriber}.
+   */
+  public static <ReqT, RespT> void clientStreamingCall(
+      ClientCall<ReqT, RespT> call, Publisher<? extends ReqT> requests,
+      Subscriber<? super RespT> responseSubscriber) {
+    streamingCall(call, requests, responseSubscriber);
+  }
+
+  /**
+   * Executes a bidi-streaming call, sending the items of {@code requests} as they are requested
+   * by the call and delivering the responses to {@code responseSubscriber}.
+   */
+  public static <ReqT, RespT> void bidiStreamingCall(
+      ClientCall<ReqT, RespT> call, Publisher<? extends ReqT> requests,
+      Subscriber<? super RespT> responseSubscriber) {
+    streamingCall(call, requests, responseSubscriber);
+  }
+
+  private static <ReqT, RespT> void streamingCall(
+      ClientCall<ReqT, RespT> call, Publisher<? extends ReqT> requests,
+      Subscriber<? super RespT> responseSubscriber) {
+    checkNotNull(requests, "requests");
+    ClientCallFlow<ReqT, RespT> flow = new ClientCallFlow<>(call, responseSubscriber);
+    if (flow.start()) {
+      requests.subscribe(flow.requestSubscriber);
+    }
+  }
+
+  /**
+   * Creates a {@link ServerCallHandler} for a server streaming method of the service.
+   *
+   * @param method an adaptor to the actual method on the service implementation.
+   */
+  public static <ReqT, RespT> ServerCallHandler<ReqT, RespT> serverStreamingCall(
+      ServerStreamingMethod<ReqT, RespT> method) {
+    return new ServerStreamingHandler<>(method);
+  }
+
+  /**
+   * Creates a {@link ServerCallHandler} for a client or bidi streaming method of the service.
+   *
+   * @param method an adaptor to the actual method on the service implementation.
+   */
+  public static <ReqT, RespT> ServerCallHandler<ReqT, RespT> streamingCall(
+      StreamingMethod<ReqT, RespT> method) {
+    return new StreamingHandler<>(method);
+  }
+
+  private static int toMessageCount(long n) {
+    return (int) Math.min(n, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Subscribes to the outgoing messages of a call, requesting one at a time while the call is
+   * ready. The abstract methods are called with the lock held.
+   */
+  private abstract static class OutboundSubscriber<T> implements Subscriber<T> {
+    final Object lock;
+    @GuardedBy("lock")
+    @Nullable
+    private Subscription subscription;
+    @GuardedBy("lock")
+    private boolean requested;
+    @GuardedBy("lock")
+    private boolean requesting;
+    @GuardedBy("lock")
+    private boolean done;
+
+    OutboundSubscriber(Object lock) {
+      this.lock = lock;
+    }
+
+    @GuardedBy("lock")
+    abstract boolean isReady();
+
+    @GuardedBy("lock")
+    abstract void send(T message);
+
+    @GuardedBy("lock")
+    abstract void complete();
+
+    @GuardedBy("lock")
+    abstract void fail(Throwable t);
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      checkNotNull(subscription, "subscription");
+      boolean accepted;
+      synchronized (lock) {
+        accepted = this.subscription == null && !done;
+        if (accepted) {
+          this.subscription = subscription;
+        }
+      }
+      if (!accepted) {
+        // Already subscribed, or the call is closed
+        subscription.cancel();
+        return;
+      }
+      requestMore();
+    }
+
+    @Override
+    public void onNext(T message) {
+      checkNotNull(message, "message");
+      synchronized (lock) {
+        requested = false;
+        if (done) {
+          return;
+        }
+        send(message);
+      }
+      requestMore();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      checkNotNull(t, "throwable");
+      synchronized (lock) {
+        if (done) {
+          return;
+        }
+        done = true;
+        fail(t);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      synchronized (lock) {
+        if (done) {
+          return;
+        }
+        done = true;
+        complete();
+      }
+    }
+
+    /**
+     * Stops sending messages, and returns the subscription to cancel once the lock is released.
+     */
+    @GuardedBy("lock")
+    @Nullable
+    Subscription stop() {
+      done = true;
+      Subscription subscription = this.subscription;
+      this.subscription = null;
+      return subscription;
+    }
+
+    /** Requests a message if the call is ready and none is outstanding. */
+    void requestMore() {
+      synchronized (lock) {
+        if (requesting) {
+          // The loop below runs again once the current request() returns
+          return;
+        }
+        requesting = true;
+      }
+      while (true) {
+        Subscription subscription;
+        synchronized (lock) {
+          if (this.subscription == null || requested || done || !isReady()) {
+            requesting = false;
+            return;
+          }
+          requested = true;
+          subscription = this.subscription;
+        }
+        // Outside the lock, as the publisher may deliver the message synchronously
+        subscription.request(1);
+      }
+    }
+  }
+
+  /**
+   * Delivers the responses of a client call to a subscriber, and sends the requests of a publisher.
+   */
+  private static final class ClientCallFlow<ReqT, RespT> extends ClientCall.Listener<RespT>
+      implements Subscription {
+    private final ClientCall<ReqT, RespT> call;
+    private final Subscriber<? super RespT> responseSubscriber;
+    private final Object lock = new Object();
+    final OutboundSubscriber<ReqT> requestSubscriber;
+    @GuardedBy("lock")
+    private boolean started;
+    @GuardedBy("lock")
+    private boolean closed;
+    @GuardedBy("lock")
+    private int pendingRequests;
+
+    ClientCallFlow(ClientCall<ReqT, RespT> call, Subscriber<? super RespT> responseSubscriber) {
+      this.call = checkNotNull(call, "call");
+      this.responseSubscriber = checkNotNull(responseSubscriber, "responseSubscriber");
+      this.requestSubscriber = new OutboundSubscriber<ReqT>(lock) {
+        @Override
+        boolean isReady() {
+          return !closed && ClientCallFlow.this.call.isReady();
+        }
+
+        @Override
+        void send(ReqT message) {
+          ClientCallFlow.this.call.sendMessage(message);
+        }
+
+        @Override
+        void complete() {
+          ClientCallFlow.this.call.halfClose();
+        }
+
+        @Override
+        void fail(Throwable t) {
+          // The response subscriber is notified by onClose()
+          ClientCallFlow.this.call.cancel("Request publisher failed", t);
+        }
+      };
+    }
+
+    /** Starts the call, unless the subscriber cancelled in {@link Subscriber#onSubscribe}. */
+    boolean start() {
+      responseSubscriber.onSubscribe(this);
+      int requests;
+      synchronized (lock) {
+        if (closed) {
+          return false;
+        }
+        call.start(this, new Metadata());
+        started = true;
+        requests = pendingRequests;
+      }
+      if (requests > 0) {
+        call.request(requests);
+      }
+      return true;
+    }
+
+    void sendSingleRequest(ReqT request) {
+      synchronized (lock) {
+        if (closed) {
+          return;
+        }
+        call.sendMessage(request);
+        call.halfClose();
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        responseSubscriber.onError(
+            new IllegalArgumentException("Non-positive request: " + n));
+        return;
+      }
+      synchronized (lock) {
+        if (closed) {
+          return;
+        }
+        if (!started) {
+          pendingRequests = toMessageCount((long) pendingRequests + n);
+          return;
+        }
+      }
+      call.request(toMessageCount(n));
+    }
+
+    @Override
+    public void cancel() {
+      Subscription requestSubscription;
+      synchronized (lock) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        requestSubscription = requestSubscriber.stop();
+        if (started) {
+          call.cancel("Cancelled by subscriber", null);
+        }
+      }
+      if (requestSubscription != null) {
+        requestSubscription.cancel();
+      }
+    }
+
+    @Override
+    public void onMessage(RespT message) {
+      synchronized (lock) {
+        if (closed) {
+          return;
+        }
+      }
+      responseSubscriber.onNext(message);
+    }
+
+    @Override
+    public void onReady() {
+      requestSubscriber.requestMore();
+    }
+
+    @Override
+    public void onClose(Status status, Metadata trailers) {
+      Subscription requestSubscription;
+      boolean wasClosed;
+      synchronized (lock) {
+        wasClosed = closed;
+        closed = true;
+        requestSubscription = requestSubscriber.stop();
+      }
+      if (requestSubscription != null) {
+        requestSubscription.cancel();
+      }
+      if (wasClosed) {
+        // Cancelled by the subscriber, which must not be signalled anymore
+        return;
+      }
+      if (status.isOk()) {
+        responseSubscriber.onComplete();
+      } else {
+        responseSubscriber.onError(status.asRuntimeException(trailers));
+      }
+    }
+  }
+
+  /** Subscribes to the responses of a server call. */
+  private static final class ServerResponseSubscriber<RespT> extends OutboundSubscriber<RespT> {
+    private final ServerCall<?, RespT> call;
+    @GuardedBy("lock")
+    private boolean headersSent;
+    @GuardedBy("lock")
+    private boolean closed;
+
+    ServerResponseSubscriber(ServerCall<?, RespT> call, Object lock) {
+      super(lock);
+      this.call = call;
+    }
+
+    @Override
+    boolean isReady() {
+      return !closed && call.isReady();
+    }
+
+    @Override
+    void send(RespT message) {
+      if (!headersSent) {
+        call.sendHeaders(new Metadata());
+        headersSent = true;
+      }
+      call.sendMessage(message);
+    }
+
+    @Override
+    void complete() {
+      close(Status.OK, new Metadata());
+    }
+
+    @Override
+    void fail(Throwable t) {
+      Metadata trailers = Status.trailersFromThrowable(t);
+      close(Status.fromThrowable(t), trailers != null ? trailers : new Metadata());
+    }
+
+    @GuardedBy("lock")
+    private void close(Status status, Metadata trailers) {
+      if (!closed) {
+        closed = true;
+        call.close(status, trailers);
+      }
+    }
+
+    /** Closes the call with an error, without waiting for the publisher. */
+    void closeWithError(Throwable t) {
+      Subscription subscription;
+      synchronized (lock) {
+        subscription = stop();
+        fail(t);
+      }
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+
+    /** Stops the publisher after the call is cancelled. */
+    void cancelled() {
+      Subscription subscription;
+      synchronized (lock) {
+        closed = true;
+        subscription = stop();
+      }
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+  }
+
+  private static final class ServerStreamingHandler<ReqT, RespT>
+      implements ServerCallHandler<ReqT, RespT> {
+    private final ServerStreamingMethod<ReqT, RespT> method;
+
+    // Non private to avoid synthetic class
+    ServerStreamingHandler(ServerStreamingMethod<ReqT, RespT> method) {
+      this.method = checkNotNull(method, "method");
+    }
+
+    @Override
+    public ServerCall.Listener<ReqT> startCall(ServerCall<ReqT, RespT> call, Metadata headers) {
+      checkArgument(
+          call.getMethodDescriptor().getType().clientSendsOneMessage(),
+          "serverStreamingCall is only for clientSendsOneMessage methods");
+      final ServerResponseSubscriber<RespT> responses =
+          new ServerResponseSubscriber<>(call, new Object());
+      // Ask for 2 requests, so that ServerCall catches a client sending more than 1
+      call.request(2);
+      return new ServerCall.Listener<ReqT>() {
+        private ReqT request;
+        private boolean done;
+
+        @Override
+        public void onMessage(ReqT message) {
+          if (request == null) {
+            request = message;
+          } else if (!done) {
+            done = true;
+            responses.closeWithError(Status.INTERNAL
+                .withDescription(ServerCalls.TOO_MANY_REQUESTS)
+                .asRuntimeException());
+          }
+        }
+
+        @Override
+        public void onHalfClose() {
+          if (done) {
+            return;
+          }
+          done = true;
+          if (request == null) {
+            responses.closeWithError(Status.INTERNAL
+                .withDescription(ServerCalls.MISSING_REQUEST)
+                .asRuntimeException());
+            return;
+          }
+          Publisher<? extends RespT> publisher;
+          try {
+            publisher = method.invoke(request);
+          } catch (RuntimeException e) {
+            responses.closeWithError(e);
+            return;
+          }
+          publisher.subscribe(responses);
+        }
+
+        @Override
+        public void onCancel() {
+          responses.cancelled();
+        }
+
+        @Override
+        public void onReady() {
+          responses.requestMore();
+        }
+      };
+    }
+  }
+
+  private static final class StreamingHandler<ReqT, RespT>
+      implements ServerCallHandler<ReqT, RespT> {
+    private final StreamingMethod<ReqT, RespT> method;
+
+    // Non private to avoid synthetic class
+    StreamingHandler(StreamingMethod<ReqT, RespT> method) {
+      this.method = checkNotNull(method, "method");
+    }
+
+    @Override
+    public ServerCall.Listener<ReqT> startCall(ServerCall<ReqT, RespT> call, Metadata headers) {
+      ServerCallFlow<ReqT, RespT> flow = new ServerCallFlow<>(call);
+      Publisher<? extends RespT> publisher;
+      try {
+        publisher = method.invoke(flow);
+      } catch (RuntimeException e) {
+        flow.responses.closeWithError(e);
+        return flow;
+      }
+      publisher.subscribe(flow.responses);
+      return flow;
+    }
+  }
+
+  /**
+   * Publishes the requests of a server call to a single subscriber, and sends the responses of the
+   * service.
+   */
+  private static final class ServerCallFlow<ReqT, RespT> extends ServerCall.Listener<ReqT>
+      implements Publisher<ReqT>, Subscription {
+    private final ServerCall<ReqT, RespT> call;
+    private final Object lock = new Object();
+    final ServerResponseSubscriber<RespT> responses;
+    @GuardedBy("lock")
+    @Nullable
+    private Subscriber<? super ReqT> requestSubscriber;
+    @GuardedBy("lock")
+    private boolean subscribed;
+    @GuardedBy("lock")
+    private boolean requestsCancelled;
+    @GuardedBy("lock")
+    @Nullable
+    private Throwable requestsError;
+    @GuardedBy("lock")
+    private boolean halfClosed;
+    @GuardedBy("lock")
+    private boolean terminated;
+
+    ServerCallFlow(ServerCall<ReqT, RespT> call) {
+      this.call = call;
+      this.responses = new ServerResponseSubscriber<>(call, lock);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ReqT> subscriber) {
+      checkNotNull(subscriber, "subscriber");
+      boolean first;
+      synchronized (lock) {
+        first = requestSubscriber == null;
+        if (first) {
+          requestSubscriber = subscriber;
+        }
+      }
+      if (!first) {
+        subscriber.onSubscribe(new Subscription() {
+          @Override
+          public void request(long n) {}
+
+          @Override
+          public void cancel() {}
+        });
+        subscriber.onError(new IllegalStateException("Requests can only be subscribed once"));
+        return;
+      }
+      subscriber.onSubscribe(this);
+      synchronized (lock) {
+        subscribed = true;
+      }
+      // The call may have ended before the subscription
+      maybeTerminate();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        Subscriber<? super ReqT> subscriber;
+        synchronized (lock) {
+          requestsCancelled = true;
+          subscriber = requestSubscriber;
+        }
+        subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+        return;
+      }
+      call.request(toMessageCount(n));
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (lock) {
+        requestsCancelled = true;
+      }
+    }
+
+    @Override
+    public void onMessage(ReqT message) {
+      Subscriber<? super ReqT> subscriber;
+      synchronized (lock) {
+        if (requestsCancelled) {
+          return;
+        }
+        subscriber = requestSubscriber;
+      }
+      subscriber.onNext(message);
+    }
+
+    @Override
+    public void onHalfClose() {
+      synchronized (lock) {
+        halfClosed = true;
+      }
+      maybeTerminate();
+    }
+
+    @Override
+    public void onCancel() {
+      responses.cancelled();
+      synchronized (lock) {
+        requestsError = Status.CANCELLED
+            .withDescription("call cancelled by client")
+            .asRuntimeException();
+      }
+      maybeTerminate();
+    }
+
+    @Override
+    public void onReady() {
+      responses.requestMore();
+    }
+
+    /** Signals the end of the requests, once the subscriber is subscribed. */
+    private void maybeTerminate() {
+      Subscriber<? super ReqT> subscriber;
+      Throwable error;
+      synchronized (lock) {
+        if (!subscribed || terminated || requestsCancelled
+            || (!halfClosed && requestsError == null)) {
+          return;
+        }
+        terminated = true;
+        subscriber = requestSubscriber;
+        error = requestsError;
+      }
+      if (error != null) {
+        subscriber.onError(error);
+      } else {
+        subscriber.onComplete();
+      }
+    }
+  }
+}
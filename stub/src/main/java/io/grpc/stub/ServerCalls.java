@@ -21,11 +21,21 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Context;
+import io.grpc.ExperimentalApi;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.grpc.ServerCall;
 import io.grpc.ServerCallHandler;
 import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * Utility functions for adapting {@link ServerCallHandler}s to application service implementation,
@@ -81,6 +91,49 @@ public final class ServerCalls {
     return new StreamingServerCallHandler<>(method, true);
   }
 
+  /**
+   * Creates a {@link ServerCallHandler} for a method carrying the requests of a unary method in
+   * batches, as sent by {@link UnaryCallBatcher}. The unary method is invoked for each request of a
+   * batch, and the batch is answered once all of them complete. An error of any of them fails the
+   * batch, cancelling the other requests, and for a bidi streaming batch method, the whole stream.
+   *
+   * <p>Each request is invoked in its own {@link Context}, forked from the context of the batch
+   * call, with a {@link ServerCallStreamObserver} that is cancelled when the batch call is. The
+   * requests share the deadline, compression and flow control of the batch call.
+   *
+   * <p>The batch method may be unary, or bidi streaming, in which case the batches are answered in
+   * the order they were received.
+   *
+   * @param method an adaptor to the actual unary method on the service implementation.
+   * @param codec converts between the batches and the messages of the unary method.
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/4694")
+  public static <ReqT, RespT, BatchReqT, BatchRespT>
+      ServerCallHandler<BatchReqT, BatchRespT> asyncBatchCall(
+          UnaryMethod<ReqT, RespT> method,
+          BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec) {
+    return new BatchServerCallHandler<>(method, codec, null);
+  }
+
+  /**
+   * Like {@link #asyncBatchCall(UnaryMethod, BatchCodec)}, except that a request that fails is
+   * answered with the response {@code errorResponder} returns for its status, so that it does not
+   * fail the other requests of the batch.
+   *
+   * @param method an adaptor to the actual unary method on the service implementation.
+   * @param codec converts between the batches and the messages of the unary method.
+   * @param errorResponder converts the failures of requests into responses.
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/4694")
+  public static <ReqT, RespT, BatchReqT, BatchRespT>
+      ServerCallHandler<BatchReqT, BatchRespT> asyncBatchCall(
+          UnaryMethod<ReqT, RespT> method,
+          BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec,
+          BatchErrorResponder<RespT> errorResponder) {
+    return new BatchServerCallHandler<>(
+        method, codec, checkNotNull(errorResponder, "errorResponder"));
+  }
+
   /**
    * Adaptor to a unary call method.
    */
@@ -109,6 +162,14 @@ public final class ServerCalls {
     @Override StreamObserver<ReqT> invoke(StreamObserver<RespT> responseObserver);
   }
 
+  /**
+   * Converts the failure of a request of a batch into the response sent for it.
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/4694")
+  public interface BatchErrorResponder<RespT> {
+    RespT toResponse(Status status);
+  }
+
   private static final class UnaryServerCallHandler<ReqT, RespT>
       implements ServerCallHandler<ReqT, RespT> {
 
@@ -447,6 +508,394 @@ public final class ServerCalls {
     }
   }
 
+  private static final class BatchServerCallHandler<ReqT, RespT, BatchReqT, BatchRespT>
+      implements ServerCallHandler<BatchReqT, BatchRespT> {
+    private final UnaryMethod<ReqT, RespT> method;
+    private final BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec;
+    @Nullable
+    private final BatchErrorResponder<RespT> errorResponder;
+    private final ServerCallHandler<BatchReqT, BatchRespT> unaryHandler;
+    private final ServerCallHandler<BatchReqT, BatchRespT> bidiHandler;
+
+    // Non private to avoid synthetic class
+    BatchServerCallHandler(
+        UnaryMethod<ReqT, RespT> method, BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec,
+        @Nullable BatchErrorResponder<RespT> errorResponder) {
+      this.method = checkNotNull(method, "method");
+      this.codec = checkNotNull(codec, "codec");
+      this.errorResponder = errorResponder;
+      this.unaryHandler = asyncUnaryCall(new UnaryMethod<BatchReqT, BatchRespT>() {
+        @Override
+        public void invoke(
+            BatchReqT batchRequest, final StreamObserver<BatchRespT> responseObserver) {
+          new Batch(batchRequest) {
+            @Override
+            void onComplete(BatchRespT batchResponse) {
+              responseObserver.onNext(batchResponse);
+              responseObserver.onCompleted();
+            }
+
+            @Override
+            void onError(Throwable t) {
+              responseObserver.onError(t);
+            }
+          }.start();
+        }
+      });
+      this.bidiHandler = asyncBidiStreamingCall(new BidiStreamingMethod<BatchReqT, BatchRespT>() {
+        @Override
+        public StreamObserver<BatchReqT> invoke(StreamObserver<BatchRespT> responseObserver) {
+          return new OrderedBatchObserver(responseObserver);
+        }
+      });
+    }
+
+    @Override
+    public ServerCall.Listener<BatchReqT> startCall(
+        ServerCall<BatchReqT, BatchRespT> call, Metadata headers) {
+      MethodDescriptor.MethodType type = call.getMethodDescriptor().getType();
+      if (type == MethodDescriptor.MethodType.UNARY) {
+        return unaryHandler.startCall(call, headers);
+      }
+      Preconditions.checkArgument(
+          type == MethodDescriptor.MethodType.BIDI_STREAMING,
+          "asyncBatchCall is only for unary and bidi streaming methods");
+      return bidiHandler.startCall(call, headers);
+    }
+
+    /** Invokes the unary method for each request of a batch, and collects the responses. */
+    private abstract class Batch {
+      private final BatchReqT batchRequest;
+      @GuardedBy("this")
+      private List<RespT> responses;
+      @GuardedBy("this")
+      private List<BatchItem> items;
+      @GuardedBy("this")
+      private int remaining;
+      @GuardedBy("this")
+      private boolean done;
+
+      Batch(BatchReqT batchRequest) {
+        this.batchRequest = batchRequest;
+      }
+
+      abstract void onComplete(BatchRespT batchResponse);
+
+      abstract void onError(Throwable t);
+
+      final void start() {
+        List<ReqT> requests;
+        try {
+          requests = codec.fromBatchRequest(batchRequest);
+        } catch (RuntimeException e) {
+          onError(Status.INTERNAL.withDescription("Failed to read batch request").withCause(e)
+              .asRuntimeException());
+          return;
+        }
+        List<BatchItem> items = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+          items.add(new BatchItem(i, Context.current().withCancellation()));
+        }
+        synchronized (this) {
+          responses = new ArrayList<>(Collections.<RespT>nCopies(requests.size(), null));
+          this.items = items;
+          remaining = requests.size();
+        }
+        if (requests.isEmpty()) {
+          finish();
+          return;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+          BatchItem item = items.get(i);
+          synchronized (this) {
+            if (done) {
+              // An earlier request failed the batch, which cancelled the others
+              break;
+            }
+          }
+          item.context.addListener(item, MoreExecutors.directExecutor());
+          Context previous = item.context.attach();
+          try {
+            method.invoke(requests.get(i), item);
+          } catch (RuntimeException e) {
+            itemFailed(item, e);
+          } finally {
+            item.context.detach(previous);
+          }
+        }
+      }
+
+      private void itemCompleted(BatchItem item, @Nullable RespT response) {
+        boolean finished;
+        synchronized (this) {
+          if (item.completed) {
+            return;
+          }
+          item.completed = true;
+          responses.set(item.index, response);
+          finished = --remaining == 0;
+        }
+        item.context.cancel(null);
+        if (finished) {
+          finish();
+        }
+      }
+
+      private void itemFailed(BatchItem item, Throwable t) {
+        synchronized (this) {
+          if (item.completed) {
+            return;
+          }
+        }
+        if (errorResponder == null) {
+          fail(t);
+          return;
+        }
+        RespT response;
+        try {
+          response = errorResponder.toResponse(Status.fromThrowable(t));
+        } catch (RuntimeException e) {
+          fail(e);
+          return;
+        }
+        itemCompleted(item, response);
+      }
+
+      private void finish() {
+        List<RespT> responses;
+        synchronized (this) {
+          if (done) {
+            return;
+          }
+          done = true;
+          responses = this.responses;
+        }
+        BatchRespT batchResponse;
+        try {
+          batchResponse = codec.toBatchResponse(responses);
+        } catch (RuntimeException e) {
+          onError(Status.INTERNAL.withDescription("Failed to create batch response").withCause(e)
+              .asRuntimeException());
+          return;
+        }
+        onComplete(batchResponse);
+      }
+
+      private void fail(Throwable t) {
+        List<BatchItem> items;
+        synchronized (this) {
+          if (done) {
+            return;
+          }
+          done = true;
+          items = this.items;
+        }
+        for (BatchItem item : items) {
+          item.context.cancel(t);
+        }
+        onError(t);
+      }
+
+      /**
+       * The response observer of a request of the batch. Its response is held until the batch is
+       * complete, and it is cancelled with the batch call or when another request fails the batch.
+       */
+      private final class BatchItem extends ServerCallStreamObserver<RespT>
+          implements Context.CancellationListener {
+        final int index;
+        final Context.CancellableContext context;
+        @GuardedBy("Batch.this")
+        boolean completed;
+        @GuardedBy("Batch.this")
+        boolean cancelled;
+        @GuardedBy("Batch.this")
+        @Nullable
+        RespT response;
+        @GuardedBy("Batch.this")
+        @Nullable
+        Runnable onCancelHandler;
+
+        BatchItem(int index, Context.CancellableContext context) {
+          this.index = index;
+          this.context = context;
+        }
+
+        @Override
+        public void onNext(RespT value) {
+          synchronized (Batch.this) {
+            if (cancelled) {
+              return;
+            }
+            checkState(!completed, "Stream is already completed, no further calls are allowed");
+            response = value;
+          }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          itemFailed(this, t);
+        }
+
+        @Override
+        public void onCompleted() {
+          RespT response;
+          synchronized (Batch.this) {
+            response = this.response;
+          }
+          itemCompleted(this, response);
+        }
+
+        @Override
+        public void cancelled(Context context) {
+          Runnable onCancelHandler;
+          synchronized (Batch.this) {
+            if (completed) {
+              return;
+            }
+            cancelled = true;
+            onCancelHandler = this.onCancelHandler;
+          }
+          if (onCancelHandler != null) {
+            onCancelHandler.run();
+          }
+        }
+
+        @Override
+        public boolean isCancelled() {
+          synchronized (Batch.this) {
+            return cancelled;
+          }
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+          synchronized (Batch.this) {
+            this.onCancelHandler = onCancelHandler;
+          }
+        }
+
+        @Override
+        public boolean isReady() {
+          // The response is held by the batch, so it can always be sent
+          return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setCompression(String compression) {
+          // The compression is that of the batch call
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+      }
+    }
+
+    /** Answers the batches of a bidi stream in the order they were received. */
+    private final class OrderedBatchObserver implements StreamObserver<BatchReqT> {
+      private final StreamObserver<BatchRespT> responseObserver;
+      @GuardedBy("this")
+      private final Queue<OrderedBatch> batches = new ArrayDeque<>();
+      @GuardedBy("this")
+      private boolean halfClosed;
+      @GuardedBy("this")
+      private boolean closed;
+
+      OrderedBatchObserver(StreamObserver<BatchRespT> responseObserver) {
+        this.responseObserver = responseObserver;
+      }
+
+      @Override
+      public void onNext(BatchReqT batchRequest) {
+        OrderedBatch batch = new OrderedBatch(batchRequest);
+        synchronized (this) {
+          batches.add(batch);
+        }
+        batch.start();
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        synchronized (this) {
+          closed = true;
+        }
+      }
+
+      @Override
+      public void onCompleted() {
+        synchronized (this) {
+          halfClosed = true;
+          drain();
+        }
+      }
+
+      @GuardedBy("this")
+      private void drain() {
+        while (!closed && !batches.isEmpty() && batches.peek().isDone()) {
+          OrderedBatch batch = batches.poll();
+          if (batch.error != null) {
+            closed = true;
+            responseObserver.onError(batch.error);
+            return;
+          }
+          responseObserver.onNext(batch.response);
+        }
+        if (!closed && halfClosed && batches.isEmpty()) {
+          closed = true;
+          responseObserver.onCompleted();
+        }
+      }
+
+      private final class OrderedBatch extends Batch {
+        @GuardedBy("OrderedBatchObserver.this")
+        BatchRespT response;
+        @GuardedBy("OrderedBatchObserver.this")
+        Throwable error;
+        @GuardedBy("OrderedBatchObserver.this")
+        boolean complete;
+
+        OrderedBatch(BatchReqT batchRequest) {
+          super(batchRequest);
+        }
+
+        @GuardedBy("OrderedBatchObserver.this")
+        boolean isDone() {
+          return complete;
+        }
+
+        @Override
+        void onComplete(BatchRespT batchResponse) {
+          synchronized (OrderedBatchObserver.this) {
+            response = batchResponse;
+            complete = true;
+            drain();
+          }
+        }
+
+        @Override
+        void onError(Throwable t) {
+          synchronized (OrderedBatchObserver.this) {
+            error = t;
+            complete = true;
+            drain();
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Sets unimplemented status for method on given response stream for unary call.
    *
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.stub;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ExperimentalApi;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Accumulates the requests of unary calls and sends them in batches over a batch method, to save
+ * the per-RPC overhead of small calls made at a high rate.
+ *
+ * <p>Each request passed to {@link #call} is added to the current batch, which is sent when it
+ * reaches the maximum batch size or its first request has waited for the maximum delay, whichever
+ * comes first. The batch method may be:
+ *
+ * <ul>
+ *   <li>unary, in which case each batch is sent as its own RPC, or</li>
+ *   <li>bidi streaming, in which case batches are sent on a single long-lived stream, and the
+ *       server must send one batch response for each batch request, in order. A new stream is
+ *       started for the next batch if the stream fails.</li>
+ * </ul>
+ *
+ * <p>The server side of the batch method is usually implemented with {@link
+ * ServerCalls#asyncBatchCall}. Failures of the batch RPC fail all calls of the batch; methods that
+ * can fail for individual requests should report it in their responses.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @param <ReqT> type of the requests of the unary method
+ * @param <RespT> type of the responses of the unary method
+ * @param <BatchReqT> type of the requests of the batch method
+ * @param <BatchRespT> type of the responses of the batch method
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/4694")
+public final class UnaryCallBatcher<ReqT, RespT, BatchReqT, BatchRespT> {
+  private final Channel channel;
+  private final MethodDescriptor<BatchReqT, BatchRespT> batchMethod;
+  private final BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec;
+  private final CallOptions callOptions;
+  private final int maxBatchSize;
+  private final long maxDelayNanos;
+  private final ScheduledExecutorService scheduler;
+  private final Runnable flushTask = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private List<PendingCall<ReqT, RespT>> pendingCalls = new ArrayList<>();
+  @GuardedBy("lock")
+  @Nullable
+  private ScheduledFuture<?> flushTimer;
+  @GuardedBy("lock")
+  @Nullable
+  private BatchStream stream;
+  @GuardedBy("lock")
+  private boolean closed;
+
+  private UnaryCallBatcher(Builder<ReqT, RespT, BatchReqT, BatchRespT> builder) {
+    this.channel = builder.channel;
+    this.batchMethod = builder.batchMethod;
+    this.codec = builder.codec;
+    this.callOptions = builder.callOptions;
+    this.maxBatchSize = builder.maxBatchSize;
+    this.maxDelayNanos = builder.maxDelayNanos;
+    this.scheduler = checkNotNull(builder.scheduler, "scheduledExecutorService must be set");
+  }
+
+  /**
+   * Creates a builder for a batcher sending batches over {@code batchMethod}, which must be unary
+   * or bidi streaming.
+   */
+  public static <ReqT, RespT, BatchReqT, BatchRespT>
+      Builder<ReqT, RespT, BatchReqT, BatchRespT> newBuilder(
+          Channel channel, MethodDescriptor<BatchReqT, BatchRespT> batchMethod,
+          BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec) {
+    return new Builder<>(channel, batchMethod, codec);
+  }
+
+  /**
+   * Adds a request to the current batch, and returns the future of its response.
+   */
+  public ListenableFuture<RespT> call(ReqT request) {
+    PendingCall<ReqT, RespT> call = new PendingCall<>(request);
+    List<PendingCall<ReqT, RespT>> batch = null;
+    synchronized (lock) {
+      if (closed) {
+        call.response.setException(
+            Status.UNAVAILABLE.withDescription("Batcher is closed").asRuntimeException());
+        return call.response;
+      }
+      pendingCalls.add(call);
+      if (pendingCalls.size() >= maxBatchSize) {
+        batch = takePendingCalls();
+      } else if (flushTimer == null) {
+        flushTimer = scheduler.schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+    if (batch != null) {
+      send(batch);
+    }
+    return call.response;
+  }
+
+  /** Sends the current batch without waiting for it to fill up. */
+  public void flush() {
+    List<PendingCall<ReqT, RespT>> batch;
+    synchronized (lock) {
+      batch = takePendingCalls();
+    }
+    if (!batch.isEmpty()) {
+      send(batch);
+    }
+  }
+
+  /**
+   * Sends the current batch, and rejects further calls. A bidi streaming batch method has its
+   * stream half-closed, but the batches already sent still receive their responses.
+   */
+  public void close() {
+    synchronized (lock) {
+      closed = true;
+    }
+    flush();
+    synchronized (lock) {
+      if (stream != null) {
+        stream.requestObserver.onCompleted();
+        stream = null;
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private List<PendingCall<ReqT, RespT>> takePendingCalls() {
+    if (flushTimer != null) {
+      flushTimer.cancel(false);
+      flushTimer = null;
+    }
+    List<PendingCall<ReqT, RespT>> batch = pendingCalls;
+    pendingCalls = new ArrayList<>();
+    return batch;
+  }
+
+  private void send(final List<PendingCall<ReqT, RespT>> batch) {
+    List<ReqT> requests = new ArrayList<>(batch.size());
+    for (PendingCall<ReqT, RespT> call : batch) {
+      requests.add(call.request);
+    }
+    BatchReqT batchRequest;
+    try {
+      batchRequest = codec.toBatchRequest(requests);
+    } catch (RuntimeException e) {
+      fail(batch, Status.INTERNAL.withDescription("Failed to create batch request").withCause(e)
+          .asRuntimeException());
+      return;
+    }
+    if (batchMethod.getType() == MethodType.UNARY) {
+      ListenableFuture<BatchRespT> batchResponse =
+          ClientCalls.futureUnaryCall(channel.newCall(batchMethod, callOptions), batchRequest);
+      Futures.addCallback(batchResponse, new FutureCallback<BatchRespT>() {
+        @Override
+        public void onSuccess(BatchRespT result) {
+          complete(batch, result);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          fail(batch, t);
+        }
+      }, MoreExecutors.directExecutor());
+      return;
+    }
+    synchronized (lock) {
+      if (stream == null) {
+        stream = new BatchStream();
+        stream.requestObserver =
+            ClientCalls.asyncBidiStreamingCall(channel.newCall(batchMethod, callOptions), stream);
+      }
+      // Added before sending, as the response may arrive before onNext() returns
+      stream.sentBatches.add(batch);
+      stream.requestObserver.onNext(batchRequest);
+    }
+  }
+
+  private void complete(List<PendingCall<ReqT, RespT>> batch, BatchRespT batchResponse) {
+    List<RespT> responses;
+    try {
+      responses = codec.fromBatchResponse(batchResponse);
+    } catch (RuntimeException e) {
+      fail(batch, Status.INTERNAL.withDescription("Failed to read batch response").withCause(e)
+          .asRuntimeException());
+      return;
+    }
+    if (responses.size() != batch.size()) {
+      fail(batch, Status.INTERNAL
+          .withDescription(String.format(
+              "Batch response has %d responses for %d requests", responses.size(), batch.size()))
+          .asRuntimeException());
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).response.set(responses.get(i));
+    }
+  }
+
+  private static <ReqT, RespT> void fail(List<PendingCall<ReqT, RespT>> batch, Throwable t) {
+    for (PendingCall<ReqT, RespT> call : batch) {
+      call.response.setException(t);
+    }
+  }
+
+  /** A bidi streaming RPC carrying batches, with the batches waiting for their responses. */
+  private final class BatchStream implements StreamObserver<BatchRespT> {
+    @GuardedBy("lock")
+    StreamObserver<BatchReqT> requestObserver;
+    @GuardedBy("lock")
+    final Queue<List<PendingCall<ReqT, RespT>>> sentBatches = new ArrayDeque<>();
+
+    @Override
+    public void onNext(BatchRespT batchResponse) {
+      List<PendingCall<ReqT, RespT>> batch;
+      synchronized (lock) {
+        batch = sentBatches.poll();
+      }
+      if (batch == null) {
+        // The server sent more responses than requests; onError() follows.
+        requestObserver.onError(Status.INTERNAL
+            .withDescription("Received a batch response without a batch request")
+            .asRuntimeException());
+        return;
+      }
+      complete(batch, batchResponse);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      close(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      close(Status.UNAVAILABLE
+          .withDescription("Batch stream completed without responding to all batches")
+          .asRuntimeException());
+    }
+
+    private void close(Throwable t) {
+      List<List<PendingCall<ReqT, RespT>>> batches;
+      synchronized (lock) {
+        if (stream == this) {
+          stream = null;
+        }
+        batches = new ArrayList<>(sentBatches);
+        sentBatches.clear();
+      }
+      for (List<PendingCall<ReqT, RespT>> batch : batches) {
+        fail(batch, t);
+      }
+    }
+  }
+
+  private static final class PendingCall<ReqT, RespT> {
+    final ReqT request;
+    final SettableFuture<RespT> response = SettableFuture.create();
+
+    PendingCall(ReqT request) {
+      this.request = request;
+    }
+  }
+
+  /** Builder for {@link UnaryCallBatcher}. */
+  public static final class Builder<ReqT, RespT, BatchReqT, BatchRespT> {
+    private final Channel channel;
+    private final MethodDescriptor<BatchReqT, BatchRespT> batchMethod;
+    private final BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec;
+    private CallOptions callOptions = CallOptions.DEFAULT;
+    private int maxBatchSize = 100;
+    private long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    @Nullable
+    private ScheduledExecutorService scheduler;
+
+    private Builder(
+        Channel channel, MethodDescriptor<BatchReqT, BatchRespT> batchMethod,
+        BatchCodec<ReqT, RespT, BatchReqT, BatchRespT> codec) {
+      this.channel = checkNotNull(channel, "channel");
+      this.batchMethod = checkNotNull(batchMethod, "batchMethod");
+      this.codec = checkNotNull(codec, "codec");
+      checkArgument(
+          batchMethod.getType() == MethodType.UNARY
+              || batchMethod.getType() == MethodType.BIDI_STREAMING,
+          "batchMethod must be unary or bidi streaming");
+    }
+
+    /** Sets the maximum number of requests in a batch. The default is 100. */
+    public Builder<ReqT, RespT, BatchReqT, BatchRespT> setMaxBatchSize(int maxBatchSize) {
+      checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum time a request waits for its batch to fill up before it is sent. The
+     * default is 1 millisecond.
+     */
+    public Builder<ReqT, RespT, BatchReqT, BatchRespT> setMaxDelay(long delay, TimeUnit unit) {
+      checkArgument(delay >= 0, "delay must not be negative");
+      this.maxDelayNanos = unit.toNanos(delay);
+      return this;
+    }
+
+    /**
+     * Sets the call options of the batch RPCs. For a bidi streaming batch method, a deadline
+     * applies to the whole stream.
+     */
+    public Builder<ReqT, RespT, BatchReqT, BatchRespT> setCallOptions(CallOptions callOptions) {
+      this.callOptions = checkNotNull(callOptions, "callOptions");
+      return this;
+    }
+
+    /** Sets the executor used to send batches after the maximum delay. Required. */
+    public Builder<ReqT, RespT, BatchReqT, BatchRespT> setScheduledExecutorService(
+        ScheduledExecutorService scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return this;
+    }
+
+    /**
+     * Creates the batcher.
+     *
+     * @throws NullPointerException if the scheduled executor service is not set
+     */
+    public UnaryCallBatcher<ReqT, RespT, BatchReqT, BatchRespT> build() {
+      return new UnaryCallBatcher<>(this);
+    }
+  }
+}
@@ -818,6 +818,81 @@ public class ClientCallsTest {
     assertEquals(req, service.request);
   }
 
+  @Test
+  public void blockingServerStreamingCall_prefetch() throws Exception {
+    final AtomicReference<ClientCall.Listener<Integer>> listener = new AtomicReference<>();
+    final List<Integer> requests = new ArrayList<>();
+    NoopClientCall<Integer, Integer> call = new NoopClientCall<Integer, Integer>() {
+      @Override
+      public void start(io.grpc.ClientCall.Listener<Integer> responseListener, Metadata headers) {
+        listener.set(responseListener);
+      }
+
+      @Override
+      public void request(int numMessages) {
+        requests.add(numMessages);
+      }
+    };
+    when(mockChannel.newCall(
+        ArgumentMatchers.<MethodDescriptor<Integer, Integer>>any(), any(CallOptions.class)))
+        .thenReturn(call);
+
+    Iterator<Integer> iter = ClientCalls.blockingServerStreamingCall(
+        mockChannel, SERVER_STREAMING_METHOD,
+        CallOptions.DEFAULT.withOption(ClientCalls.PREFETCH_OPTION, 4), 1);
+    assertEquals(Arrays.asList(4), requests);
+
+    for (int i = 0; i < 5; i++) {
+      listener.get().onMessage(i);
+    }
+    listener.get().onClose(Status.OK, new Metadata());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, (int) iter.next());
+    }
+    assertFalse(iter.hasNext());
+    assertEquals(Arrays.asList(4, 1, 1, 1, 1, 1), requests);
+  }
+
+  @Test
+  public void blockingServerStreamingCall2_prefetchFromStub() throws Exception {
+    final int count = 100;
+    server = InProcessServerBuilder.forName("simple-reply").directExecutor()
+        .addService(ServerServiceDefinition.builder("some")
+            .addMethod(SERVER_STREAMING_METHOD, ServerCalls.asyncServerStreamingCall(
+                new ServerStreamingMethod<Integer, Integer>() {
+                  @Override
+                  public void invoke(Integer request, StreamObserver<Integer> responseObserver) {
+                    for (int i = 0; i < request; i++) {
+                      responseObserver.onNext(i);
+                    }
+                    responseObserver.onCompleted();
+                  }
+                }))
+            .build())
+        .build().start();
+    channel = InProcessChannelBuilder.forName("simple-reply").directExecutor().build();
+    class IntegerBlockingStub extends AbstractBlockingStub<IntegerBlockingStub> {
+      IntegerBlockingStub(Channel channel, CallOptions callOptions) {
+        super(channel, callOptions);
+      }
+
+      @Override
+      protected IntegerBlockingStub build(Channel channel, CallOptions callOptions) {
+        return new IntegerBlockingStub(channel, callOptions);
+      }
+    }
+
+    IntegerBlockingStub stub = new IntegerBlockingStub(channel, CallOptions.DEFAULT)
+        .withPrefetch(16);
+    assertEquals(16, (int) stub.getCallOptions().getOption(ClientCalls.PREFETCH_OPTION));
+    Iterator<Integer> iter = ClientCalls.blockingServerStreamingCall(
+        stub.getChannel(), SERVER_STREAMING_METHOD, stub.getCallOptions(), count);
+    for (int i = 0; i < count; i++) {
+      assertEquals(i, (int) iter.next());
+    }
+    assertFalse(iter.hasNext());
+  }
+
   @Test
   public void blockingServerStreamingCall2_interruptedWaitsForOnClose() throws Exception {
     Integer req = 2;
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.stub;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.FlowCalls.Publisher;
+import io.grpc.stub.FlowCalls.Subscriber;
+import io.grpc.stub.FlowCalls.Subscription;
+import io.grpc.stub.ServerCallsTest.IntegerMarshaller;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link FlowCalls}. */
+@RunWith(JUnit4.class)
+public class FlowCallsTest {
+  private static final MethodDescriptor<Integer, Integer> SERVER_STREAMING_METHOD =
+      MethodDescriptor.<Integer, Integer>newBuilder()
+          .setType(MethodDescriptor.MethodType.SERVER_STREAMING)
+          .setFullMethodName("example.Numbers/Range")
+          .setRequestMarshaller(new IntegerMarshaller())
+          .setResponseMarshaller(new IntegerMarshaller())
+          .build();
+  private static final MethodDescriptor<Integer, Integer> CLIENT_STREAMING_METHOD =
+      SERVER_STREAMING_METHOD.toBuilder()
+          .setType(MethodDescriptor.MethodType.CLIENT_STREAMING)
+          .setFullMethodName("example.Numbers/Sum")
+          .build();
+  private static final MethodDescriptor<Integer, Integer> BIDI_STREAMING_METHOD =
+      SERVER_STREAMING_METHOD.toBuilder()
+          .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+          .setFullMethodName("example.Numbers/Double")
+          .build();
+
+  private final List<RangePublisher> serverPublishers = new ArrayList<>();
+  private Server server;
+  private ManagedChannel channel;
+
+  @Before
+  public void setUp() throws Exception {
+    String serverName = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(serverName)
+        .addService(ServerServiceDefinition.builder("example.Numbers")
+            .addMethod(SERVER_STREAMING_METHOD, FlowCalls.serverStreamingCall(
+                new FlowCalls.ServerStreamingMethod<Integer, Integer>() {
+                  @Override
+                  public Publisher<Integer> invoke(Integer request) {
+                    if (request < 0) {
+                      throw Status.INVALID_ARGUMENT.asRuntimeException();
+                    }
+                    RangePublisher publisher = new RangePublisher(request);
+                    serverPublishers.add(publisher);
+                    return publisher;
+                  }
+                }))
+            .addMethod(CLIENT_STREAMING_METHOD, FlowCalls.streamingCall(
+                new FlowCalls.StreamingMethod<Integer, Integer>() {
+                  @Override
+                  public Publisher<Integer> invoke(Publisher<Integer> requests) {
+                    return new SumPublisher(requests);
+                  }
+                }))
+            .addMethod(BIDI_STREAMING_METHOD, FlowCalls.streamingCall(
+                new FlowCalls.StreamingMethod<Integer, Integer>() {
+                  @Override
+                  public Publisher<Integer> invoke(Publisher<Integer> requests) {
+                    return new DoublingPublisher(requests);
+                  }
+                }))
+            .build())
+        .directExecutor()
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+  }
+
+  @After
+  public void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void serverStreaming_backpressure() {
+    TestSubscriber subscriber = new TestSubscriber(0);
+    FlowCalls.serverStreamingCall(
+        channel.newCall(SERVER_STREAMING_METHOD, CallOptions.DEFAULT), 1000, subscriber);
+    assertTrue(subscriber.items.isEmpty());
+
+    subscriber.subscription.request(3);
+    assertEquals(listOf(0, 1, 2), subscriber.items);
+    // The server publisher is only asked for messages the client can receive, plus at most one
+    // buffered by the transport
+    assertTrue(serverPublishers.get(0).requested.get() <= 4);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(1000, subscriber.items.size());
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  public void serverStreaming_error() {
+    TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+    FlowCalls.serverStreamingCall(
+        channel.newCall(SERVER_STREAMING_METHOD, CallOptions.DEFAULT), -1, subscriber);
+
+    assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(subscriber.error).getCode());
+    assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void serverStreaming_cancelStopsServerPublisher() {
+    TestSubscriber subscriber = new TestSubscriber(2);
+    FlowCalls.serverStreamingCall(
+        channel.newCall(SERVER_STREAMING_METHOD, CallOptions.DEFAULT), 1000, subscriber);
+    assertEquals(listOf(0, 1), subscriber.items);
+
+    subscriber.subscription.cancel();
+    assertTrue(serverPublishers.get(0).cancelled);
+    assertNull(subscriber.error);
+    assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void clientStreaming() {
+    RangePublisher requests = new RangePublisher(100);
+    TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+    FlowCalls.clientStreamingCall(
+        channel.newCall(CLIENT_STREAMING_METHOD, CallOptions.DEFAULT), requests, subscriber);
+
+    assertEquals(listOf(4950), subscriber.items);
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void bidiStreaming_backpressure() {
+    RangePublisher requests = new RangePublisher(1000);
+    TestSubscriber subscriber = new TestSubscriber(0);
+    FlowCalls.bidiStreamingCall(
+        channel.newCall(BIDI_STREAMING_METHOD, CallOptions.DEFAULT), requests, subscriber);
+    // The server only reads requests as fast as the client reads responses
+    assertTrue(requests.requested.get() <= 4);
+
+    subscriber.subscription.request(2);
+    assertEquals(listOf(0, 2), subscriber.items);
+    assertTrue(requests.requested.get() <= 6);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(1000, subscriber.items.size());
+    assertEquals(1998, (int) subscriber.items.get(999));
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void requestPublisherError_cancelsCall() {
+    final RuntimeException failure = new RuntimeException("boom");
+    Publisher<Integer> requests = new Publisher<Integer>() {
+      @Override
+      public void subscribe(Subscriber<? super Integer> subscriber) {
+        subscriber.onSubscribe(new NoopSubscription());
+        subscriber.onError(failure);
+      }
+    };
+    TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+    FlowCalls.bidiStreamingCall(
+        channel.newCall(BIDI_STREAMING_METHOD, CallOptions.DEFAULT), requests, subscriber);
+
+    Status status = Status.fromThrowable(subscriber.error);
+    assertEquals(Status.Code.CANCELLED, status.getCode());
+    assertEquals(failure, status.getCause());
+  }
+
+  private static List<Integer> listOf(Integer... values) {
+    List<Integer> list = new ArrayList<>();
+    for (Integer value : values) {
+      list.add(value);
+    }
+    return list;
+  }
+
+  /** Publishes 0 to count - 1, honoring demand. */
+  private static final class RangePublisher implements Publisher<Integer> {
+    final int count;
+    final AtomicLong requested = new AtomicLong();
+    volatile boolean cancelled;
+
+    RangePublisher(int count) {
+      this.count = count;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super Integer> subscriber) {
+      subscriber.onSubscribe(new Subscription() {
+        private long demand;
+        private int next;
+        private boolean emitting;
+
+        @Override
+        public void request(long n) {
+          requested.addAndGet(n);
+          demand = n > Long.MAX_VALUE - demand ? Long.MAX_VALUE : demand + n;
+          if (emitting) {
+            return;
+          }
+          emitting = true;
+          while (demand > 0 && next < count && !cancelled) {
+            demand--;
+            subscriber.onNext(next++);
+          }
+          emitting = false;
+          if (next == count && !cancelled) {
+            cancelled = true;
+            subscriber.onComplete();
+          }
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+  }
+
+  /** Publishes the sum of the requests once they complete. */
+  private static final class SumPublisher implements Publisher<Integer> {
+    private final Publisher<Integer> requests;
+
+    SumPublisher(Publisher<Integer> requests) {
+      this.requests = requests;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super Integer> subscriber) {
+      subscriber.onSubscribe(new NoopSubscription());
+      requests.subscribe(new Subscriber<Integer>() {
+        private int sum;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+          subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+          sum += item;
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          subscriber.onNext(sum);
+          subscriber.onComplete();
+        }
+      });
+    }
+  }
+
+  /** Publishes each request doubled, passing the demand through. */
+  private static final class DoublingPublisher implements Publisher<Integer> {
+    private final Publisher<Integer> requests;
+
+    DoublingPublisher(Publisher<Integer> requests) {
+      this.requests = requests;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super Integer> subscriber) {
+      requests.subscribe(new Subscriber<Integer>() {
+        @Override
+        public void onSubscribe(Subscription subscription) {
+          subscriber.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+          subscriber.onNext(item * 2);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          subscriber.onComplete();
+        }
+      });
+    }
+  }
+
+  private static final class TestSubscriber implements Subscriber<Integer> {
+    final long initialRequest;
+    final List<Integer> items = new ArrayList<>();
+    Subscription subscription;
+    Throwable error;
+    boolean completed;
+
+    TestSubscriber(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+      if (initialRequest > 0) {
+        subscription.request(initialRequest);
+      }
+    }
+
+    @Override
+    public void onNext(Integer item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  private static final class NoopSubscription implements Subscription {
+    @Override
+    public void request(long n) {}
+
+    @Override
+    public void cancel() {}
+  }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.stub;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.CallOptions;
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCalls.UnaryMethod;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link UnaryCallBatcher} and {@link ServerCalls#asyncBatchCall}. */
+@RunWith(JUnit4.class)
+public class UnaryCallBatcherTest {
+  private static final MethodDescriptor<List<String>, List<String>> UNARY_BATCH_METHOD =
+      MethodDescriptor.<List<String>, List<String>>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("example.Lookup/BatchGet")
+          .setRequestMarshaller(new ListMarshaller())
+          .setResponseMarshaller(new ListMarshaller())
+          .build();
+  private static final MethodDescriptor<List<String>, List<String>> BIDI_BATCH_METHOD =
+      UNARY_BATCH_METHOD.toBuilder()
+          .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+          .setFullMethodName("example.Lookup/StreamGet")
+          .build();
+  private static final MethodDescriptor<List<String>, List<String>> ERROR_RESPONSE_BATCH_METHOD =
+      UNARY_BATCH_METHOD.toBuilder()
+          .setFullMethodName("example.Lookup/BatchGetOrError")
+          .build();
+
+  private final BatchCodec<String, String, List<String>, List<String>> codec =
+      new ListCodec();
+  private final AtomicInteger serverCalls = new AtomicInteger();
+  private final List<Integer> serverBatchSizes = Collections.synchronizedList(
+      new ArrayList<Integer>());
+  private final List<Context> hangingContexts = Collections.synchronizedList(
+      new ArrayList<Context>());
+  private final List<ServerCallStreamObserver<String>> hangingObservers =
+      Collections.synchronizedList(new ArrayList<ServerCallStreamObserver<String>>());
+  private final CountDownLatch hangingCancelled = new CountDownLatch(2);
+  private ScheduledExecutorService scheduler;
+  private Server server;
+  private ManagedChannel channel;
+
+  @Before
+  public void setUp() throws Exception {
+    UnaryMethod<String, String> lookup = new UnaryMethod<String, String>() {
+      @Override
+      public void invoke(String request, StreamObserver<String> responseObserver) {
+        if (request.equals("fail")) {
+          responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+          return;
+        }
+        if (request.equals("throw")) {
+          throw new IllegalStateException("Thrown by service");
+        }
+        if (request.startsWith("hang")) {
+          ServerCallStreamObserver<String> serverObserver =
+              (ServerCallStreamObserver<String>) responseObserver;
+          serverObserver.setOnCancelHandler(new Runnable() {
+            @Override
+            public void run() {
+              hangingCancelled.countDown();
+            }
+          });
+          hangingContexts.add(Context.current());
+          hangingObservers.add(serverObserver);
+          return;
+        }
+        responseObserver.onNext(request.toUpperCase(Locale.ROOT));
+        responseObserver.onCompleted();
+      }
+    };
+    ServerCallHandler<List<String>, List<String>> handler =
+        ServerCalls.asyncBatchCall(lookup, codec);
+    ServerCallHandler<List<String>, List<String>> errorResponseHandler =
+        ServerCalls.asyncBatchCall(lookup, codec, new ServerCalls.BatchErrorResponder<String>() {
+          @Override
+          public String toResponse(Status status) {
+            return "error: " + status.getCode();
+          }
+        });
+    ServerInterceptor countingInterceptor = new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+          ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        serverCalls.incrementAndGet();
+        return next.startCall(call, headers);
+      }
+    };
+    String serverName = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(serverName)
+        .addService(ServerInterceptors.intercept(
+            ServerServiceDefinition.builder("example.Lookup")
+                .addMethod(UNARY_BATCH_METHOD, handler)
+                .addMethod(BIDI_BATCH_METHOD, handler)
+                .addMethod(ERROR_RESPONSE_BATCH_METHOD, errorResponseHandler)
+                .build(),
+            countingInterceptor))
+        .directExecutor()
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void unaryBatchMethod_sendsFullBatches() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(UNARY_BATCH_METHOD, 3);
+    List<ListenableFuture<String>> responses = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      responses.add(batcher.call("key" + i));
+    }
+
+    for (int i = 0; i < 6; i++) {
+      assertEquals("KEY" + i, responses.get(i).get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(2, serverCalls.get());
+    assertEquals(listOf(3, 3), serverBatchSizes);
+  }
+
+  @Test
+  public void partialBatch_sentAfterMaxDelay() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        UnaryCallBatcher.newBuilder(channel, UNARY_BATCH_METHOD, codec)
+            .setMaxBatchSize(100)
+            .setMaxDelay(10, TimeUnit.MILLISECONDS)
+            .setScheduledExecutorService(scheduler)
+            .build();
+    ListenableFuture<String> response1 = batcher.call("a");
+    ListenableFuture<String> response2 = batcher.call("b");
+
+    assertEquals("A", response1.get(5, TimeUnit.SECONDS));
+    assertEquals("B", response2.get(5, TimeUnit.SECONDS));
+    assertEquals(listOf(2), serverBatchSizes);
+  }
+
+  @Test
+  public void flush_sendsPartialBatch() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(UNARY_BATCH_METHOD, 100);
+    ListenableFuture<String> response = batcher.call("a");
+    assertFalse(response.isDone());
+
+    batcher.flush();
+    assertEquals("A", response.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void bidiBatchMethod_sendsBatchesOnOneStream() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(BIDI_BATCH_METHOD, 2);
+    List<ListenableFuture<String>> responses = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      responses.add(batcher.call("key" + i));
+    }
+    batcher.close();
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals("KEY" + i, responses.get(i).get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, serverCalls.get());
+    assertEquals(listOf(2, 2, 1), serverBatchSizes);
+  }
+
+  @Test
+  public void bidiBatchMethod_newStreamAfterFailure() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(BIDI_BATCH_METHOD, 2);
+    ListenableFuture<String> failed1 = batcher.call("fail");
+    ListenableFuture<String> failed2 = batcher.call("a");
+    assertStatus(Status.Code.INVALID_ARGUMENT, failed1);
+    assertStatus(Status.Code.INVALID_ARGUMENT, failed2);
+
+    ListenableFuture<String> response = batcher.call("b");
+    batcher.flush();
+    assertEquals("B", response.get(5, TimeUnit.SECONDS));
+    assertEquals(2, serverCalls.get());
+  }
+
+  @Test
+  public void errorInBatch_failsWholeBatch() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(UNARY_BATCH_METHOD, 2);
+    ListenableFuture<String> response1 = batcher.call("a");
+    ListenableFuture<String> response2 = batcher.call("fail");
+
+    assertStatus(Status.Code.INVALID_ARGUMENT, response1);
+    assertStatus(Status.Code.INVALID_ARGUMENT, response2);
+  }
+
+  @Test
+  public void errorResponder_answersFailedRequestsAlone() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(ERROR_RESPONSE_BATCH_METHOD, 3);
+    ListenableFuture<String> response1 = batcher.call("a");
+    ListenableFuture<String> response2 = batcher.call("fail");
+    ListenableFuture<String> response3 = batcher.call("throw");
+
+    assertEquals("A", response1.get(5, TimeUnit.SECONDS));
+    assertEquals("error: INVALID_ARGUMENT", response2.get(5, TimeUnit.SECONDS));
+    assertEquals("error: UNKNOWN", response3.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void batchedRequests_haveOwnContextAndCancellation() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        UnaryCallBatcher.newBuilder(channel, UNARY_BATCH_METHOD, codec)
+            .setMaxBatchSize(3)
+            .setMaxDelay(1, TimeUnit.HOURS)
+            .setCallOptions(CallOptions.DEFAULT.withDeadlineAfter(100, TimeUnit.MILLISECONDS))
+            .setScheduledExecutorService(scheduler)
+            .build();
+    ListenableFuture<String> response1 = batcher.call("a");
+    ListenableFuture<String> response2 = batcher.call("hang1");
+    ListenableFuture<String> response3 = batcher.call("hang2");
+
+    assertStatus(Status.Code.DEADLINE_EXCEEDED, response1);
+    assertStatus(Status.Code.DEADLINE_EXCEEDED, response2);
+    assertStatus(Status.Code.DEADLINE_EXCEEDED, response3);
+    assertTrue(hangingCancelled.await(5, TimeUnit.SECONDS));
+    assertEquals(2, hangingContexts.size());
+    assertNotSame(hangingContexts.get(0), hangingContexts.get(1));
+    assertTrue(hangingContexts.get(0).isCancelled());
+    assertTrue(hangingContexts.get(1).isCancelled());
+    assertTrue(hangingObservers.get(0).isCancelled());
+    assertTrue(hangingObservers.get(1).isCancelled());
+  }
+
+  @Test
+  public void failedRequest_cancelsOthersOfBatch() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(UNARY_BATCH_METHOD, 3);
+    ListenableFuture<String> response1 = batcher.call("hang1");
+    ListenableFuture<String> response2 = batcher.call("hang2");
+    ListenableFuture<String> response3 = batcher.call("throw");
+
+    assertStatus(Status.Code.UNKNOWN, response1);
+    assertStatus(Status.Code.UNKNOWN, response2);
+    assertStatus(Status.Code.UNKNOWN, response3);
+    assertTrue(hangingCancelled.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void wrongResponseCount_failsBatch() throws Exception {
+    BatchCodec<String, String, List<String>, List<String>> truncatingCodec = new ListCodec() {
+      @Override
+      public List<String> fromBatchResponse(List<String> batchResponse) {
+        return batchResponse.subList(1, batchResponse.size());
+      }
+    };
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        UnaryCallBatcher.newBuilder(channel, UNARY_BATCH_METHOD, truncatingCodec)
+            .setMaxBatchSize(2)
+            .setMaxDelay(1, TimeUnit.HOURS)
+            .setScheduledExecutorService(scheduler)
+            .build();
+    ListenableFuture<String> response1 = batcher.call("a");
+    ListenableFuture<String> response2 = batcher.call("b");
+
+    assertStatus(Status.Code.INTERNAL, response1);
+    assertStatus(Status.Code.INTERNAL, response2);
+  }
+
+  @Test
+  public void close_rejectsCalls() throws Exception {
+    UnaryCallBatcher<String, String, List<String>, List<String>> batcher =
+        newBatcher(UNARY_BATCH_METHOD, 100);
+    ListenableFuture<String> response = batcher.call("a");
+    batcher.close();
+
+    assertEquals("A", response.get(5, TimeUnit.SECONDS));
+    assertStatus(Status.Code.UNAVAILABLE, batcher.call("b"));
+  }
+
+  @Test
+  public void unsupportedBatchMethod() {
+    try {
+      UnaryCallBatcher.newBuilder(
+          channel,
+          UNARY_BATCH_METHOD.toBuilder()
+              .setType(MethodDescriptor.MethodType.SERVER_STREAMING)
+              .build(),
+          codec);
+      fail("Should have thrown");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  private UnaryCallBatcher<String, String, List<String>, List<String>> newBatcher(
+      MethodDescriptor<List<String>, List<String>> batchMethod, int maxBatchSize) {
+    return UnaryCallBatcher.newBuilder(channel, batchMethod, codec)
+        .setMaxBatchSize(maxBatchSize)
+        .setMaxDelay(1, TimeUnit.HOURS)
+        .setScheduledExecutorService(scheduler)
+        .build();
+  }
+
+  private static void assertStatus(Status.Code code, ListenableFuture<?> future)
+      throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Should have failed");
+    } catch (ExecutionException e) {
+      assertEquals(code, Status.fromThrowable(e.getCause()).getCode());
+    }
+  }
+
+  private static List<Integer> listOf(Integer... values) {
+    List<Integer> list = new ArrayList<>();
+    Collections.addAll(list, values);
+    return list;
+  }
+
+  private class ListCodec implements BatchCodec<String, String, List<String>, List<String>> {
+    @Override
+    public List<String> toBatchRequest(List<String> requests) {
+      return requests;
+    }
+
+    @Override
+    public List<String> fromBatchRequest(List<String> batchRequest) {
+      serverBatchSizes.add(batchRequest.size());
+      return batchRequest;
+    }
+
+    @Override
+    public List<String> toBatchResponse(List<String> responses) {
+      return responses;
+    }
+
+    @Override
+    public List<String> fromBatchResponse(List<String> batchResponse) {
+      return batchResponse;
+    }
+  }
+
+  private static final class ListMarshaller implements MethodDescriptor.Marshaller<List<String>> {
+    @Override
+    public InputStream stream(List<String> value) {
+      return new ByteArrayInputStream(Joiner.on('\n').join(value).getBytes(UTF_8));
+    }
+
+    @Override
+    public List<String> parse(InputStream stream) {
+      try {
+        String value = new String(ByteStreams.toByteArray(stream), UTF_8);
+        return value.isEmpty()
+            ? new ArrayList<String>() : Splitter.on('\n').splitToList(value);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds.internal.rbac.engine;
+
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.internal.NoopServerCall;
+import io.grpc.testing.TestMethodDescriptors;
+import io.grpc.xds.internal.Matchers;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.Action;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.AuthConfig;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.AuthDecision;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.AuthHeaderMatcher;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.Matcher;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.OrMatcher;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.PathMatcher;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.PolicyMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark for {@link GrpcAuthorizationEngine#evaluate}, with and without the decision cache.
+ * Peers are told apart by a header and call one of the methods, each allowed by one policy for a
+ * subset of the peers.
+ */
+@State(Scope.Benchmark)
+public class GrpcAuthorizationEngineBenchmark {
+  private static final String PEER_HEADER = "x-peer";
+
+  @Param({"0", "10000"})
+  public long maxCachedDecisions;
+
+  @Param({"300"})
+  public int peerCount;
+
+  @Param({"30"})
+  public int methodCount;
+
+  private GrpcAuthorizationEngine engine;
+  private Metadata[] headers;
+  private ServerCall<?, ?>[] calls;
+  private int next;
+
+  /** Creates one policy per method, allowing every other peer. */
+  @Setup
+  public void setUp() {
+    List<PolicyMatcher> policies = new ArrayList<>();
+    for (int method = 0; method < methodCount; method++) {
+      List<Matcher> peers = new ArrayList<>();
+      for (int peer = method % 2; peer < peerCount; peer += 2) {
+        peers.add(AuthHeaderMatcher.create(
+            Matchers.HeaderMatcher.forExactValue(PEER_HEADER, "peer-" + peer, false)));
+      }
+      policies.add(PolicyMatcher.create(
+          "policy-" + method,
+          OrMatcher.create(PathMatcher.create(
+              Matchers.StringMatcher.forExact("/" + methodName(method), false))),
+          OrMatcher.create(peers)));
+    }
+    engine = new GrpcAuthorizationEngine(
+        AuthConfig.create(policies, Action.ALLOW), maxCachedDecisions);
+
+    headers = new Metadata[peerCount];
+    for (int peer = 0; peer < peerCount; peer++) {
+      headers[peer] = new Metadata();
+      headers[peer].put(
+          Metadata.Key.of(PEER_HEADER, Metadata.ASCII_STRING_MARSHALLER), "peer-" + peer);
+    }
+    calls = new ServerCall<?, ?>[methodCount];
+    for (int method = 0; method < methodCount; method++) {
+      final MethodDescriptor<Void, Void> methodDescriptor =
+          MethodDescriptor.<Void, Void>newBuilder()
+              .setType(MethodDescriptor.MethodType.UNARY)
+              .setFullMethodName(methodName(method))
+              .setRequestMarshaller(TestMethodDescriptors.voidMarshaller())
+              .setResponseMarshaller(TestMethodDescriptors.voidMarshaller())
+              .build();
+      calls[method] = new NoopServerCall<Void, Void>() {
+        @Override
+        public MethodDescriptor<Void, Void> getMethodDescriptor() {
+          return methodDescriptor;
+        }
+      };
+    }
+  }
+
+  /** Authorizes the calls of all the peers to all the methods, in turn. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public AuthDecision evaluate() {
+    int call = next++;
+    if (next == peerCount * methodCount) {
+      next = 0;
+    }
+    return engine.evaluate(headers[call / methodCount], calls[call % methodCount]);
+  }
+
+  private static String methodName(int method) {
+    return "example.Service/Method" + method;
+  }
+}
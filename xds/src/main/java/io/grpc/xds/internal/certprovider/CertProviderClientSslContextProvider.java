@@ -26,10 +26,8 @@ import io.grpc.Internal;
 import io.grpc.netty.GrpcSslContexts;
 import io.grpc.xds.Bootstrapper.CertificateProviderInfo;
 import io.grpc.xds.EnvoyServerProtoData.UpstreamTlsContext;
-import io.grpc.xds.internal.sds.trust.SdsTrustManagerFactory;
 import io.netty.handler.ssl.SslContextBuilder;
 import java.security.cert.CertStoreException;
-import java.security.cert.X509Certificate;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -61,10 +59,7 @@ public final class CertProviderClientSslContextProvider extends CertProviderSslC
       throws CertStoreException {
     SslContextBuilder sslContextBuilder =
         GrpcSslContexts.forClient()
-            .trustManager(
-                new SdsTrustManagerFactory(
-                    savedTrustedRoots.toArray(new X509Certificate[0]),
-                    certificateValidationContextdationContext));
+            .trustManager(getTrustManagerFactory(certificateValidationContextdationContext));
     if (isMtls()) {
       sslContextBuilder.keyManager(savedKey, savedCertChain);
     }
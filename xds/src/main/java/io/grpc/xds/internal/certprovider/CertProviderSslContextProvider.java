@@ -24,7 +24,9 @@ import io.grpc.xds.Bootstrapper.CertificateProviderInfo;
 import io.grpc.xds.EnvoyServerProtoData.BaseTlsContext;
 import io.grpc.xds.internal.sds.CommonTlsContextUtil;
 import io.grpc.xds.internal.sds.DynamicSslContextProvider;
+import io.grpc.xds.internal.sds.trust.SdsTrustManagerFactory;
 import java.security.PrivateKey;
+import java.security.cert.CertStoreException;
 import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +43,8 @@ abstract class CertProviderSslContextProvider extends DynamicSslContextProvider
   @Nullable protected PrivateKey savedKey;
   @Nullable protected List<X509Certificate> savedCertChain;
   @Nullable protected List<X509Certificate> savedTrustedRoots;
+  @Nullable private List<X509Certificate> trustManagerRoots;
+  @Nullable private SdsTrustManagerFactory trustManagerFactory;
 
   protected CertProviderSslContextProvider(
       Node node,
@@ -149,6 +153,21 @@ abstract class CertProviderSslContextProvider extends DynamicSslContextProvider
     updateSslContextWhenReady();
   }
 
+  /**
+   * Returns the trust manager factory for {@link #savedTrustedRoots}. Building one indexes all the
+   * roots, so the previous one is reused when a certificate update comes with the same roots.
+   */
+  protected final SdsTrustManagerFactory getTrustManagerFactory(
+      CertificateValidationContext certificateValidationContext) throws CertStoreException {
+    if (trustManagerFactory == null || !savedTrustedRoots.equals(trustManagerRoots)) {
+      trustManagerFactory =
+          new SdsTrustManagerFactory(
+              savedTrustedRoots.toArray(new X509Certificate[0]), certificateValidationContext);
+      trustManagerRoots = savedTrustedRoots;
+    }
+    return trustManagerFactory;
+  }
+
   private void updateSslContextWhenReady() {
     if (isMtls()) {
       if (savedKey != null && savedTrustedRoots != null) {
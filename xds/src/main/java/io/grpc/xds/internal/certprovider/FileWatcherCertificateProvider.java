@@ -19,6 +19,7 @@ package io.grpc.xds.internal.certprovider;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Ints;
 import io.grpc.Status;
 import io.grpc.internal.TimeProvider;
 import io.grpc.xds.internal.sds.trust.CertificateUtils;
@@ -28,6 +29,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
@@ -53,6 +56,10 @@ final class FileWatcherCertificateProvider extends CertificateProvider implement
   private FileTime lastModifiedTimeCert;
   private FileTime lastModifiedTimeKey;
   private FileTime lastModifiedTimeRoot;
+  // Content hashes of the files last sent to the watcher, so that touching or rewriting a file
+  // with identical contents does not cause the (possibly large) trust bundle to be parsed again.
+  private byte[] certAndKeyHash;
+  private byte[] rootHash;
   private boolean shutdown;
 
   FileWatcherCertificateProvider(
@@ -114,11 +121,15 @@ final class FileWatcherCertificateProvider extends CertificateProvider implement
           if (!currentKeyTime2.equals(currentKeyTime)) {
             return;
           }
-          try (ByteArrayInputStream certStream = new ByteArrayInputStream(certFileContents);
-              ByteArrayInputStream keyStream = new ByteArrayInputStream(keyFileContents)) {
-            PrivateKey privateKey = CertificateUtils.getPrivateKey(keyStream);
-            X509Certificate[] certs = CertificateUtils.toX509Certificates(certStream);
-            getWatcher().updateCertificate(privateKey, Arrays.asList(certs));
+          byte[] currentCertAndKeyHash = sha256(certFileContents, keyFileContents);
+          if (!Arrays.equals(currentCertAndKeyHash, certAndKeyHash)) {
+            try (ByteArrayInputStream certStream = new ByteArrayInputStream(certFileContents);
+                ByteArrayInputStream keyStream = new ByteArrayInputStream(keyFileContents)) {
+              PrivateKey privateKey = CertificateUtils.getPrivateKey(keyStream);
+              X509Certificate[] certs = CertificateUtils.toX509Certificates(certStream);
+              getWatcher().updateCertificate(privateKey, Arrays.asList(certs));
+            }
+            certAndKeyHash = currentCertAndKeyHash;
           }
           lastModifiedTimeCert = currentCertTime;
           lastModifiedTimeKey = currentKeyTime;
@@ -136,9 +147,13 @@ final class FileWatcherCertificateProvider extends CertificateProvider implement
         if (!currentRootTime2.equals(currentRootTime)) {
           return;
         }
-        try (ByteArrayInputStream rootStream = new ByteArrayInputStream(rootFileContents)) {
-          X509Certificate[] caCerts = CertificateUtils.toX509Certificates(rootStream);
-          getWatcher().updateTrustedRoots(Arrays.asList(caCerts));
+        byte[] currentRootHash = sha256(rootFileContents);
+        if (!Arrays.equals(currentRootHash, rootHash)) {
+          try (ByteArrayInputStream rootStream = new ByteArrayInputStream(rootFileContents)) {
+            X509Certificate[] caCerts = CertificateUtils.toX509Certificates(rootStream);
+            getWatcher().updateTrustedRoots(Arrays.asList(caCerts));
+          }
+          rootHash = currentRootHash;
         }
         lastModifiedTimeRoot = currentRootTime;
       } catch (Throwable t) {
@@ -149,6 +164,20 @@ final class FileWatcherCertificateProvider extends CertificateProvider implement
     }
   }
 
+  /**
+   * Hashes the contents of files. Each one is prefixed with its length, so that moving bytes from
+   * one file to the next changes the hash.
+   */
+  @VisibleForTesting
+  static byte[] sha256(byte[]... contents) throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    for (byte[] content : contents) {
+      digest.update(Ints.toByteArray(content.length));
+      digest.update(content);
+    }
+    return digest.digest();
+  }
+
   private void generateErrorIfCurrentCertExpired(Throwable t) {
     X509Certificate currentCert = getWatcher().getLastIdentityCert();
     if (currentCert != null) {
@@ -160,6 +189,8 @@ final class FileWatcherCertificateProvider extends CertificateProvider implement
       // The current cert is going to expire in less than {@link refreshIntervalInSeconds}
       // Clear the current cert and notify our watchers thru {@code onError}
       getWatcher().clearValues();
+      certAndKeyHash = null;
+      rootHash = null;
     }
     getWatcher().onError(Status.fromThrowable(t));
   }
@@ -16,12 +16,17 @@
 
 package io.grpc.xds.internal.rbac.engine;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.BaseEncoding;
+import io.grpc.Attributes;
 import io.grpc.Grpc;
 import io.grpc.Metadata;
 import io.grpc.ServerCall;
@@ -36,8 +41,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -51,23 +58,69 @@ import javax.net.ssl.SSLSession;
  * <p>One GrpcAuthorizationEngine is initialized with one action type and a list of policies.
  * Policies are examined sequentially in order in an any match fashion, and the first matched policy
  * will be returned. If not matched at all, the opposite action type is returned as a result.
+ *
+ * <p>Decisions are cached by the values of the request properties that the policies refer to, such
+ * as the peer principal names, the path and the matched headers. The cache belongs to the engine:
+ * a policy update creates a new engine, which starts with an empty cache. Policies with matchers
+ * of other types than the ones above disable the cache, as their inputs are unknown.
  */
 public final class GrpcAuthorizationEngine {
   private static final Logger log = Logger.getLogger(GrpcAuthorizationEngine.class.getName());
 
+  private static final long DEFAULT_MAX_CACHED_DECISIONS = 10_000;
+
   private final AuthConfig authConfig;
+  private final PolicyInputs policyInputs;
+  @Nullable
+  private final Cache<List<Object>, AuthDecision> decisionCache;
 
   /** Instantiated with envoy policyMatcher configuration. */
   public GrpcAuthorizationEngine(AuthConfig authConfig) {
-    this.authConfig = authConfig;
+    this(authConfig, DEFAULT_MAX_CACHED_DECISIONS);
+  }
+
+  /**
+   * Instantiated with envoy policyMatcher configuration, caching up to {@code maxCachedDecisions}
+   * decisions. Zero disables the cache, as do policies with matchers of unknown types.
+   */
+  public GrpcAuthorizationEngine(AuthConfig authConfig, long maxCachedDecisions) {
+    checkArgument(maxCachedDecisions >= 0, "maxCachedDecisions must not be negative");
+    this.authConfig = checkNotNull(authConfig, "authConfig");
+    this.policyInputs = new PolicyInputs(authConfig);
+    this.decisionCache = maxCachedDecisions == 0 || !policyInputs.cacheable ? null
+        : CacheBuilder.newBuilder()
+            .maximumSize(maxCachedDecisions)
+            .recordStats()
+            .<List<Object>, AuthDecision>build();
   }
 
   /** Return the auth decision for the request argument against the policies. */
   public AuthDecision evaluate(Metadata metadata, ServerCall<?,?> serverCall) {
     checkNotNull(metadata, "metadata");
     checkNotNull(serverCall, "serverCall");
-    String firstMatch = null;
     EvaluateArgs args = new EvaluateArgs(metadata, serverCall);
+    if (decisionCache == null) {
+      return evaluate(args);
+    }
+    List<Object> key = policyInputs.key(args);
+    AuthDecision decision = decisionCache.getIfPresent(key);
+    if (decision == null) {
+      decision = evaluate(args);
+      decisionCache.put(key, decision);
+    }
+    return decision;
+  }
+
+  /**
+   * Returns the statistics of the decision cache, such as its hit rate. They are all zero if the
+   * cache is disabled.
+   */
+  public CacheStats getDecisionCacheStats() {
+    return decisionCache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : decisionCache.stats();
+  }
+
+  private AuthDecision evaluate(EvaluateArgs args) {
+    String firstMatch = null;
     for (PolicyMatcher policyMatcher : authConfig.policies()) {
       if (policyMatcher.matches(args)) {
         firstMatch = policyMatcher.name();
@@ -277,18 +330,111 @@ public final class GrpcAuthorizationEngine {
     }
   }
 
+  /**
+   * The request properties that the policies refer to. The decision only depends on their values,
+   * which make up the key of the decision cache.
+   */
+  private static final class PolicyInputs {
+    private final Set<String> headerNames = new LinkedHashSet<>();
+    private boolean principalNames;
+    private boolean path;
+    private boolean sourceIp;
+    private boolean destinationIp;
+    private boolean destinationPort;
+    /** Whether all the matchers are known, so that the decision only depends on the inputs. */
+    private boolean cacheable = true;
+
+    PolicyInputs(AuthConfig authConfig) {
+      for (PolicyMatcher policyMatcher : authConfig.policies()) {
+        collect(policyMatcher);
+      }
+    }
+
+    private void collect(Matcher matcher) {
+      if (matcher instanceof PolicyMatcher) {
+        collect(((PolicyMatcher) matcher).permissions());
+        collect(((PolicyMatcher) matcher).principals());
+      } else if (matcher instanceof OrMatcher) {
+        for (Matcher m : ((OrMatcher) matcher).anyMatch()) {
+          collect(m);
+        }
+      } else if (matcher instanceof AndMatcher) {
+        for (Matcher m : ((AndMatcher) matcher).allMatch()) {
+          collect(m);
+        }
+      } else if (matcher instanceof InvertMatcher) {
+        collect(((InvertMatcher) matcher).toInvertMatcher());
+      } else if (matcher instanceof AuthenticatedMatcher) {
+        principalNames = true;
+      } else if (matcher instanceof PathMatcher) {
+        path = true;
+      } else if (matcher instanceof AuthHeaderMatcher) {
+        headerNames.add(((AuthHeaderMatcher) matcher).delegate().name());
+      } else if (matcher instanceof SourceIpMatcher) {
+        sourceIp = true;
+      } else if (matcher instanceof DestinationIpMatcher) {
+        destinationIp = true;
+      } else if (matcher instanceof DestinationPortMatcher
+          || matcher instanceof DestinationPortRangeMatcher) {
+        destinationPort = true;
+      } else if (matcher instanceof AlwaysTrueMatcher
+          || matcher instanceof RequestedServerNameMatcher) {
+        // They do not depend on the request
+      } else {
+        cacheable = false;
+      }
+    }
+
+    List<Object> key(EvaluateArgs args) {
+      List<Object> key = new ArrayList<>(headerNames.size() + 5);
+      if (principalNames) {
+        Collection<String> names = args.getPrincipalNames();
+        key.add(names == null ? null : new ArrayList<>(names));
+      }
+      if (path) {
+        key.add(args.getPath());
+      }
+      for (String headerName : headerNames) {
+        key.add(args.getHeader(headerName));
+      }
+      if (sourceIp) {
+        key.add(args.getSourceIp());
+      }
+      if (destinationIp) {
+        key.add(args.getDestinationIp());
+      }
+      if (destinationPort) {
+        key.add(args.getDestinationPort());
+      }
+      return key;
+    }
+  }
+
   private static final class EvaluateArgs {
     private final Metadata metadata;
     private final ServerCall<?,?> serverCall;
     // https://github.com/envoyproxy/envoy/blob/63619d578e1abe0c1725ea28ba02f361466662e1/api/envoy/config/rbac/v3/rbac.proto#L238-L240
     private static final int URI_SAN = 6;
     private static final int DNS_SAN = 2;
+    // Computed when first needed, as both the cache key and the matchers use them
+    @Nullable
+    private Attributes attributes;
+    private boolean principalNamesComputed;
+    @Nullable
+    private Collection<String> principalNames;
 
     private EvaluateArgs(Metadata metadata, ServerCall<?,?> serverCall) {
       this.metadata = metadata;
       this.serverCall = serverCall;
     }
 
+    private Attributes getAttributes() {
+      if (attributes == null) {
+        attributes = serverCall.getAttributes();
+      }
+      return attributes;
+    }
+
     private String getPath() {
       return "/" + serverCall.getMethodDescriptor().getFullMethodName();
     }
@@ -301,7 +447,16 @@ public final class GrpcAuthorizationEngine {
      */
     @Nullable
     private Collection<String> getPrincipalNames() {
-      SSLSession sslSession = serverCall.getAttributes().get(Grpc.TRANSPORT_ATTR_SSL_SESSION);
+      if (!principalNamesComputed) {
+        principalNames = parsePrincipalNames();
+        principalNamesComputed = true;
+      }
+      return principalNames;
+    }
+
+    @Nullable
+    private Collection<String> parsePrincipalNames() {
+      SSLSession sslSession = getAttributes().get(Grpc.TRANSPORT_ATTR_SSL_SESSION);
       if (sslSession == null) {
         return null;
       }
@@ -395,17 +550,17 @@ public final class GrpcAuthorizationEngine {
     }
 
     private InetAddress getDestinationIp() {
-      SocketAddress addr = serverCall.getAttributes().get(Grpc.TRANSPORT_ATTR_LOCAL_ADDR);
+      SocketAddress addr = getAttributes().get(Grpc.TRANSPORT_ATTR_LOCAL_ADDR);
       return addr == null ? null : ((InetSocketAddress) addr).getAddress();
     }
 
     private InetAddress getSourceIp() {
-      SocketAddress addr = serverCall.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+      SocketAddress addr = getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
       return addr == null ? null : ((InetSocketAddress) addr).getAddress();
     }
 
     private int getDestinationPort() {
-      SocketAddress addr = serverCall.getAttributes().get(Grpc.TRANSPORT_ATTR_LOCAL_ADDR);
+      SocketAddress addr = getAttributes().get(Grpc.TRANSPORT_ATTR_LOCAL_ADDR);
       return addr == null ? -1 : ((InetSocketAddress) addr).getPort();
     }
 
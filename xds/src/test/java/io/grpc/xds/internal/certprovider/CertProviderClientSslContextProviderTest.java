@@ -38,6 +38,7 @@ import io.grpc.xds.CommonBootstrapperTestUtils;
 import io.grpc.xds.EnvoyServerProtoData;
 import io.grpc.xds.internal.sds.CommonTlsContextTestsUtil;
 import io.grpc.xds.internal.sds.CommonTlsContextTestsUtil.TestCallback;
+import io.grpc.xds.internal.sds.trust.SdsTrustManagerFactory;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
@@ -171,6 +172,29 @@ public class CertProviderClientSslContextProviderTest {
     assertThat(testCallback1.updatedSslContext).isNotSameInstanceAs(testCallback.updatedSslContext);
   }
 
+  @Test
+  public void testProviderForClient_sameRootsReuseTrustManagerFactory() throws Exception {
+    final CertificateProvider.DistributorWatcher[] watcherCaptor =
+        new CertificateProvider.DistributorWatcher[1];
+    TestCertificateProvider.createAndRegisterProviderProvider(
+        certificateProviderRegistry, watcherCaptor, "testca", 0);
+    CertProviderClientSslContextProvider provider =
+        getSslContextProvider(
+            "gcp_id",
+            "gcp_id",
+            CommonBootstrapperTestUtils.getTestBootstrapInfo(),
+            /* alpnProtocols= */ null,
+            /* staticCertValidationContext= */ null);
+
+    provider.savedTrustedRoots = ImmutableList.of(getCertFromResourceName(CA_PEM_FILE));
+    SdsTrustManagerFactory trustManagerFactory = provider.getTrustManagerFactory(null);
+    provider.savedTrustedRoots = ImmutableList.of(getCertFromResourceName(CA_PEM_FILE));
+    assertThat(provider.getTrustManagerFactory(null)).isSameInstanceAs(trustManagerFactory);
+
+    provider.savedTrustedRoots = ImmutableList.of(getCertFromResourceName(SERVER_0_PEM_FILE));
+    assertThat(provider.getTrustManagerFactory(null)).isNotSameInstanceAs(trustManagerFactory);
+  }
+
   @Test
   public void testProviderForClient_mtls_newXds() throws Exception {
     final CertificateProvider.DistributorWatcher[] watcherCaptor =
@@ -23,6 +23,7 @@ import static io.grpc.xds.internal.sds.CommonTlsContextTestsUtil.CLIENT_PEM_FILE
 import static io.grpc.xds.internal.sds.CommonTlsContextTestsUtil.SERVER_0_KEY_FILE;
 import static io.grpc.xds.internal.sds.CommonTlsContextTestsUtil.SERVER_0_PEM_FILE;
 import static io.grpc.xds.internal.sds.CommonTlsContextTestsUtil.SERVER_1_PEM_FILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -234,6 +235,37 @@ public class FileWatcherCertificateProviderTest {
     verifyTimeServiceAndScheduledFuture();
   }
 
+  @Test
+  public void unchangedContents_noUpdates()
+      throws IOException, CertificateException, InterruptedException {
+    TestScheduledFuture<?> scheduledFuture =
+        new TestScheduledFuture<>();
+    doReturn(scheduledFuture)
+        .when(timeService)
+        .schedule(any(Runnable.class), any(Long.TYPE), eq(TimeUnit.SECONDS));
+    populateTarget(CLIENT_PEM_FILE, CLIENT_KEY_FILE, CA_PEM_FILE, false, false, false);
+    provider.checkAndReloadCertificates();
+
+    reset(mockWatcher, timeService);
+    doReturn(scheduledFuture)
+        .when(timeService)
+        .schedule(any(Runnable.class), any(Long.TYPE), eq(TimeUnit.SECONDS));
+    Thread.sleep(1000L);
+    populateTarget(CLIENT_PEM_FILE, CLIENT_KEY_FILE, CA_PEM_FILE, false, false, false);
+    provider.checkAndReloadCertificates();
+    verifyWatcherErrorUpdates(null, null, 0, 0, (String[]) null);
+    verifyTimeServiceAndScheduledFuture();
+
+    reset(mockWatcher, timeService);
+    doReturn(scheduledFuture)
+        .when(timeService)
+        .schedule(any(Runnable.class), any(Long.TYPE), eq(TimeUnit.SECONDS));
+    Thread.sleep(1000L);
+    populateTarget(null, null, SERVER_1_PEM_FILE, false, false, false);
+    provider.checkAndReloadCertificates();
+    verifyWatcherUpdates(null, SERVER_1_PEM_FILE);
+  }
+
   @Test
   public void getCertificate_initialMissingCertFile() throws IOException {
     TestScheduledFuture<?> scheduledFuture =
@@ -295,6 +327,16 @@ public class FileWatcherCertificateProviderTest {
     verifyWatcherErrorUpdates(Status.Code.UNKNOWN, NoSuchFileException.class, 1, 0, "root.pem");
   }
 
+  @Test
+  public void sha256_distinguishesFileBoundaries() throws Exception {
+    byte[] hash = FileWatcherCertificateProvider.sha256(
+        "certkey".getBytes(UTF_8), "".getBytes(UTF_8));
+    assertThat(hash).isEqualTo(FileWatcherCertificateProvider.sha256(
+        "certkey".getBytes(UTF_8), "".getBytes(UTF_8)));
+    assertThat(hash).isNotEqualTo(FileWatcherCertificateProvider.sha256(
+        "cert".getBytes(UTF_8), "key".getBytes(UTF_8)));
+  }
+
   private void commonErrorTest(
       String certFile,
       String keyFile,
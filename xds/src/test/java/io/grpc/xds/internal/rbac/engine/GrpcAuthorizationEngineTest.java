@@ -18,6 +18,7 @@ package io.grpc.xds.internal.rbac.engine;
 
 import static com.google.common.base.Charsets.US_ASCII;
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.AdditionalAnswers.returnsElementsOf;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -45,6 +46,7 @@ import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.AuthenticatedMat
 import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.DestinationIpMatcher;
 import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.DestinationPortMatcher;
 import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.InvertMatcher;
+import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.Matcher;
 import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.OrMatcher;
 import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.PathMatcher;
 import io.grpc.xds.internal.rbac.engine.GrpcAuthorizationEngine.PolicyMatcher;
@@ -355,6 +357,59 @@ public class GrpcAuthorizationEngineTest {
     assertThat(decision.matchingPolicyName()).isEqualTo(POLICY_NAME);
   }
 
+  @Test
+  public void decisionCache_keyedOnReferencedInputs() {
+    AuthHeaderMatcher headerMatcher = AuthHeaderMatcher.create(Matchers.HeaderMatcher
+        .forExactValue(HEADER_KEY, HEADER_VALUE, false));
+    PolicyMatcher policyMatcher = PolicyMatcher.create(POLICY_NAME,
+        OrMatcher.create(PathMatcher.create(STRING_MATCHER)), OrMatcher.create(headerMatcher));
+    GrpcAuthorizationEngine engine = new GrpcAuthorizationEngine(
+        AuthConfig.create(Collections.singletonList(policyMatcher), Action.ALLOW));
+    Metadata headers = metadata(HEADER_KEY, HEADER_VALUE);
+    assertThat(engine.evaluate(headers, serverCall).decision()).isEqualTo(Action.ALLOW);
+    assertThat(engine.getDecisionCacheStats().missCount()).isEqualTo(1);
+
+    Metadata otherHeaders = metadata(HEADER_KEY, HEADER_VALUE);
+    otherHeaders.put(Metadata.Key.of("unused", Metadata.ASCII_STRING_MARSHALLER), "value");
+    assertThat(engine.evaluate(otherHeaders, serverCall).decision()).isEqualTo(Action.ALLOW);
+    assertThat(engine.getDecisionCacheStats().hitCount()).isEqualTo(1);
+
+    otherHeaders = metadata(HEADER_KEY, HEADER_VALUE + 1);
+    assertThat(engine.evaluate(otherHeaders, serverCall).decision()).isEqualTo(Action.DENY);
+    assertThat(engine.getDecisionCacheStats().missCount()).isEqualTo(2);
+
+    when(serverCall.getMethodDescriptor()).thenReturn(
+        method().setFullMethodName("auth/other").build());
+    assertThat(engine.evaluate(headers, serverCall).decision()).isEqualTo(Action.DENY);
+    assertThat(engine.getDecisionCacheStats().missCount()).isEqualTo(3);
+    assertThat(engine.getDecisionCacheStats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void decisionCache_disabled() {
+    PolicyMatcher policyMatcher = PolicyMatcher.create(POLICY_NAME,
+        OrMatcher.create(PathMatcher.create(STRING_MATCHER)),
+        OrMatcher.create(AlwaysTrueMatcher.INSTANCE));
+    GrpcAuthorizationEngine engine = new GrpcAuthorizationEngine(
+        AuthConfig.create(Collections.singletonList(policyMatcher), Action.DENY), 0);
+    assertThat(engine.evaluate(HEADER, serverCall).decision()).isEqualTo(Action.DENY);
+    assertThat(engine.evaluate(HEADER, serverCall).decision()).isEqualTo(Action.DENY);
+    assertThat(engine.getDecisionCacheStats().requestCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void decisionCache_disabledByUnknownMatcher() {
+    // Matches the first request only
+    Matcher unknownMatcher = mock(Matcher.class, returnsElementsOf(Arrays.asList(true, false)));
+    PolicyMatcher policyMatcher = PolicyMatcher.create(POLICY_NAME,
+        OrMatcher.create(PathMatcher.create(STRING_MATCHER)), OrMatcher.create(unknownMatcher));
+    GrpcAuthorizationEngine engine = new GrpcAuthorizationEngine(
+        AuthConfig.create(Collections.singletonList(policyMatcher), Action.ALLOW));
+    assertThat(engine.evaluate(HEADER, serverCall).decision()).isEqualTo(Action.ALLOW);
+    assertThat(engine.evaluate(HEADER, serverCall).decision()).isEqualTo(Action.DENY);
+    assertThat(engine.getDecisionCacheStats().requestCount()).isEqualTo(0);
+  }
+
   @Test
   public void matchersEqualHashcode() throws Exception {
     PathMatcher pathMatcher = PathMatcher.create(STRING_MATCHER);